@@ -23,6 +23,7 @@ import org.gradle.tooling.ProgressListener;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A {@code BuildActionRequest} allows to execute logic in the build process. Instances of {@code BuildActionRequest} are not thread-safe. <p> You use a {@code BuildActionRequest}
@@ -125,6 +126,18 @@ public interface BuildActionRequest<T> extends Request<T> {
     @Override
     BuildActionRequest<T> cancellationToken(CancellationToken cancellationToken);
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    BuildActionRequest<T> priority(RequestPriority priority);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    BuildActionRequest<T> deadline(long deadline, TimeUnit unit);
+
     /**
      * Derive a new build action request from this request and apply the given build action. This request and the new request do not share any state except the cancellation token.
      *
@@ -22,6 +22,7 @@ import org.gradle.tooling.ProgressListener;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A {@code BuildLaunchRequest} allows you to configure and execute a Gradle build. Instances of {@code BuildLaunchRequest} are not thread-safe. <p> You use a {@code
@@ -123,6 +124,33 @@ public interface BuildLaunchRequest extends Request<Void> {
     @Override
     BuildLaunchRequest cancellationToken(CancellationToken cancellationToken);
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    BuildLaunchRequest priority(RequestPriority priority);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    BuildLaunchRequest deadline(long deadline, TimeUnit unit);
+
+    /**
+     * Specifies that this request may be merged with other build launch requests that are executed within the given window after the first of them. Coalesced requests are run
+     * as a single Gradle invocation that executes the union of their tasks, and each of them completes, successfully or not, when that invocation completes. The default is
+     * to never coalesce.
+     * <p/>
+     * Only requests that specify tasks rather than launchables, that have no standard input and no deadline, and that share the connection, the priority class, the color output setting,
+     * the Java home, the JVM arguments and the build arguments are coalesced. Standard output, standard error and progress events of the merged invocation are forwarded to
+     * all coalesced requests. The merged invocation is cancelled once all coalesced requests have been cancelled.
+     *
+     * @param window the time to wait for further requests after the first request, zero to never coalesce
+     * @param unit the unit of the window
+     * @return this
+     */
+    BuildLaunchRequest coalescingWindow(long window, TimeUnit unit);
+
     /**
      * Derive a new build launch request from this request and apply the given launchables. This request and the new request do not share any state except the cancellation token.
      *
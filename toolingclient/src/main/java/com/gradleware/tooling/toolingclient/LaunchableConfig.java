@@ -45,6 +45,24 @@ public final class LaunchableConfig {
         Preconditions.checkArgument(tasks.isEmpty() || launchables.isEmpty(), "Both tasks and launchables specified.");
     }
 
+    /**
+     * Returns the paths of the tasks to be executed.
+     *
+     * @return the task paths, empty if launchables are executed instead
+     */
+    public ImmutableList<String> getTasks() {
+        return this.tasks;
+    }
+
+    /**
+     * Returns the launchables to be executed.
+     *
+     * @return the launchables, empty if tasks are executed instead
+     */
+    public ImmutableList<Launchable> getLaunchables() {
+        return this.launchables;
+    }
+
     /**
      * Configures the specified build launcher with this launchable configuration.
      *
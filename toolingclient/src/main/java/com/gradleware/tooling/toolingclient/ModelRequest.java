@@ -22,6 +22,7 @@ import org.gradle.tooling.ProgressListener;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A {@code ModelRequest} allows you to fetch a snapshot of some model for a project or a build. Instances of {@code ModelRequest} are not thread-safe. <p> You use a {@code
@@ -123,6 +124,18 @@ public interface ModelRequest<T> extends Request<T> {
     @Override
     ModelRequest<T> cancellationToken(CancellationToken cancellationToken);
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    ModelRequest<T> priority(RequestPriority priority);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    ModelRequest<T> deadline(long deadline, TimeUnit unit);
+
     /**
      * Specifies the tasks to execute before building the model. By default, no tasks are executed.
      *
@@ -22,6 +22,7 @@ import org.gradle.tooling.ProgressListener;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Describes the state and actions common to all requests issued through the tooling client.
@@ -151,6 +152,26 @@ public interface Request<T> {
      */
     Request<T> cancellationToken(CancellationToken cancellationToken);
 
+    /**
+     * Specifies the priority class of the request, which is taken into account when the {@link RequestSchedulingPolicy} of the tooling client queues requests. The default is
+     * {@link RequestPriority#INTERACTIVE}.
+     *
+     * @param priority the priority class
+     * @return this
+     */
+    Request<T> priority(RequestPriority priority);
+
+    /**
+     * Specifies the deadline of the request as the time after which the operation is cancelled automatically, measured from the time the request is executed. The time the
+     * request waits for the {@link RequestSchedulingPolicy} to let it run counts towards the deadline. Once the deadline has expired, the operation fails the same way as if it
+     * had been cancelled through its cancellation token. The default is to have no deadline.
+     *
+     * @param deadline the time after which the operation is cancelled, zero for no deadline
+     * @param unit the unit of the deadline
+     * @return this
+     */
+    Request<T> deadline(long deadline, TimeUnit unit);
+
     /**
      * Executes this request synchronously. Calling this method will block until the request has completed or a failure has occurred.
      *
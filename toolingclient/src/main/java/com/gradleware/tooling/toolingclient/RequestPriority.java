@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient;
+
+/**
+ * Enumerates the priority classes of requests. When the concurrency limits of the {@link RequestSchedulingPolicy} are reached, queued requests of a higher priority class are
+ * started before queued requests of a lower priority class, and may preempt running requests of a lower priority class.
+ *
+ * @author Etienne Studer
+ */
+public enum RequestPriority {
+
+    /**
+     * Requests triggered by the user who waits for their result, for example running a task from the UI. Interactive requests are never preempted.
+     */
+    INTERACTIVE,
+
+    /**
+     * Requests issued on behalf of the user who does not wait for their result, for example refreshing the models after a build script change.
+     */
+    BACKGROUND,
+
+    /**
+     * Requests issued speculatively, for example fetching a model that will likely be needed soon.
+     */
+    PREFETCH;
+
+    /**
+     * Returns whether this priority class is higher than the given one.
+     *
+     * @param other the priority class to compare to
+     * @return {@code true} if requests of this priority class are preferred over requests of the given priority class
+     */
+    public boolean isHigherThan(RequestPriority other) {
+        return ordinal() < other.ordinal();
+    }
+
+}
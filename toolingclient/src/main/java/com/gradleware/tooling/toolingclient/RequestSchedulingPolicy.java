@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Configures how many requests the tooling client runs concurrently, and whether a queued request may preempt running requests of a lower {@link RequestPriority}. Requests
+ * that exceed a limit are queued. Queued requests are started by priority class, and in round-robin order across the connections within the same priority class, such that a
+ * single build cannot starve the others.
+ * <p/>
+ * Preemption cancels a running lower-priority request, which then fails with a {@link org.gradle.tooling.BuildCancelledException}. Preempted requests are not resubmitted.
+ *
+ * @author Etienne Studer
+ */
+public final class RequestSchedulingPolicy {
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private static final RequestSchedulingPolicy UNLIMITED_POLICY = new RequestSchedulingPolicy(UNLIMITED, UNLIMITED, false);
+
+    private final int maxConcurrentRequests;
+    private final int maxConcurrentRequestsPerConnection;
+    private final boolean preemptionEnabled;
+
+    private RequestSchedulingPolicy(int maxConcurrentRequests, int maxConcurrentRequestsPerConnection, boolean preemptionEnabled) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxConcurrentRequestsPerConnection = maxConcurrentRequestsPerConnection;
+        this.preemptionEnabled = preemptionEnabled;
+    }
+
+    /**
+     * Returns the maximum number of requests that run concurrently across all connections.
+     *
+     * @return the global limit
+     */
+    public int getMaxConcurrentRequests() {
+        return this.maxConcurrentRequests;
+    }
+
+    /**
+     * Returns the maximum number of requests that run concurrently on the same connection.
+     *
+     * @return the per-connection limit
+     */
+    public int getMaxConcurrentRequestsPerConnection() {
+        return this.maxConcurrentRequestsPerConnection;
+    }
+
+    /**
+     * Returns whether a queued request may cancel a running request of a lower priority class to free up its slot.
+     *
+     * @return {@code true} if preemption is enabled
+     */
+    public boolean isPreemptionEnabled() {
+        return this.preemptionEnabled;
+    }
+
+    /**
+     * Returns whether this policy never queues a request.
+     *
+     * @return {@code true} if neither limit applies
+     */
+    public boolean isUnlimited() {
+        return this.maxConcurrentRequests == UNLIMITED && this.maxConcurrentRequestsPerConnection == UNLIMITED;
+    }
+
+    /**
+     * Returns the policy that runs all requests immediately, which is the default of the tooling client.
+     *
+     * @return the unlimited policy
+     */
+    public static RequestSchedulingPolicy unlimited() {
+        return UNLIMITED_POLICY;
+    }
+
+    /**
+     * Creates a new policy with the given limits.
+     *
+     * @param maxConcurrentRequests the maximum number of requests that run concurrently across all connections
+     * @param maxConcurrentRequestsPerConnection the maximum number of requests that run concurrently on the same connection
+     * @param preemptionEnabled whether queued requests may preempt running requests of a lower priority class
+     * @return the new instance
+     */
+    public static RequestSchedulingPolicy from(int maxConcurrentRequests, int maxConcurrentRequestsPerConnection, boolean preemptionEnabled) {
+        Preconditions.checkArgument(maxConcurrentRequests > 0, "Global limit must be positive: " + maxConcurrentRequests);
+        Preconditions.checkArgument(maxConcurrentRequestsPerConnection > 0, "Per-connection limit must be positive: " + maxConcurrentRequestsPerConnection);
+        return new RequestSchedulingPolicy(maxConcurrentRequests, maxConcurrentRequestsPerConnection, preemptionEnabled);
+    }
+
+}
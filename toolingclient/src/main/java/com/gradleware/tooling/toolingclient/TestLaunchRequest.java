@@ -19,6 +19,7 @@ package com.gradleware.tooling.toolingclient;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
 
 import org.gradle.tooling.CancellationToken;
 import org.gradle.tooling.ProgressListener;
@@ -124,6 +125,18 @@ public interface TestLaunchRequest extends Request<Void> {
     @Override
     TestLaunchRequest cancellationToken(CancellationToken cancellationToken);
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    TestLaunchRequest priority(RequestPriority priority);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    TestLaunchRequest deadline(long deadline, TimeUnit unit);
+
     /**
      * Derive a new test launch request from this request and apply the given tests. This request and the
      * new request do not share any state except the cancellation token.
@@ -16,6 +16,7 @@
 
 package com.gradleware.tooling.toolingclient;
 
+import com.gradleware.tooling.toolingclient.instrumentation.RequestInstrumentation;
 import com.gradleware.tooling.toolingclient.internal.DefaultToolingClient;
 import org.gradle.internal.Factory;
 import org.gradle.tooling.BuildAction;
@@ -51,6 +52,31 @@ public abstract class ToolingClient {
         return new DefaultToolingClient(connectorFactory);
     }
 
+    /**
+     * Creates a new instance that uses the given factory whenever a new connector is required by the tooling client, and that reports the durations of the phases of each
+     * request to the given instrumentation.
+     *
+     * @param connectorFactory the connector factory
+     * @param instrumentation the instrumentation receiving the request phase timings
+     * @return a new instance
+     */
+    public static ToolingClient newClient(Factory<GradleConnector> connectorFactory, RequestInstrumentation instrumentation) {
+        return new DefaultToolingClient(connectorFactory, instrumentation);
+    }
+
+    /**
+     * Creates a new instance that uses the given factory whenever a new connector is required by the tooling client, that reports the durations of the phases of each
+     * request to the given instrumentation, and that schedules the requests according to the given policy.
+     *
+     * @param connectorFactory the connector factory
+     * @param instrumentation the instrumentation receiving the request phase timings
+     * @param schedulingPolicy the policy limiting the number of concurrently running requests
+     * @return a new instance
+     */
+    public static ToolingClient newClient(Factory<GradleConnector> connectorFactory, RequestInstrumentation instrumentation, RequestSchedulingPolicy schedulingPolicy) {
+        return new DefaultToolingClient(connectorFactory, instrumentation, schedulingPolicy);
+    }
+
     /**
      * Creates a new model request. A model request is used to fetch a given model that is available through the Tooling API.
      *
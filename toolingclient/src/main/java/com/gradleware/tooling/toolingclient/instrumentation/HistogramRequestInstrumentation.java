@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.instrumentation;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instrumentation that records the durations of the completed phases in memory, with one {@link TimingHistogram} per phase and model type. Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+public final class HistogramRequestInstrumentation implements RequestInstrumentation {
+
+    private final ConcurrentMap<Key, TimingHistogram> histograms;
+
+    public HistogramRequestInstrumentation() {
+        this.histograms = Maps.newConcurrentMap();
+    }
+
+    @Override
+    public void phaseCompleted(RequestPhaseEvent event) {
+        Key key = new Key(event.getPhase(), event.getModelType());
+        TimingHistogram histogram = this.histograms.get(key);
+        if (histogram == null) {
+            TimingHistogram newHistogram = new TimingHistogram();
+            histogram = this.histograms.putIfAbsent(key, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        histogram.record(event.getDuration(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the histogram of the given phase for the given model type.
+     *
+     * @param phase the phase
+     * @param modelType the model type
+     * @return the histogram, null if no such phase has completed yet
+     */
+    public TimingHistogram getHistogram(RequestPhase phase, Class<?> modelType) {
+        return this.histograms.get(new Key(Preconditions.checkNotNull(phase), Preconditions.checkNotNull(modelType)));
+    }
+
+    /**
+     * Returns a summary of all histograms recorded so far.
+     *
+     * @return the statistics, one entry per phase and model type
+     */
+    public ImmutableList<RequestPhaseStatistics> getStatistics() {
+        ImmutableList.Builder<RequestPhaseStatistics> statistics = ImmutableList.builder();
+        for (Map.Entry<Key, TimingHistogram> entry : this.histograms.entrySet()) {
+            TimingHistogram histogram = entry.getValue();
+            statistics.add(new RequestPhaseStatistics(
+                    entry.getKey().phase.name(),
+                    entry.getKey().modelType.getName(),
+                    histogram.getCount(),
+                    histogram.getTotal(TimeUnit.MILLISECONDS),
+                    histogram.getMean(TimeUnit.MILLISECONDS),
+                    histogram.getPercentile(50, TimeUnit.MILLISECONDS),
+                    histogram.getPercentile(95, TimeUnit.MILLISECONDS),
+                    histogram.getMax(TimeUnit.MILLISECONDS)));
+        }
+        return statistics.build();
+    }
+
+    /**
+     * Discards all histograms recorded so far.
+     */
+    public void reset() {
+        this.histograms.clear();
+    }
+
+    /**
+     * Identifies a histogram by phase and model type.
+     */
+    private static final class Key {
+
+        private final RequestPhase phase;
+        private final Class<?> modelType;
+
+        private Key(RequestPhase phase, Class<?> modelType) {
+            this.phase = phase;
+            this.modelType = modelType;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+
+            Key that = (Key) other;
+            return this.phase == that.phase && this.modelType.equals(that.modelType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(this.phase, this.modelType);
+        }
+
+    }
+
+}
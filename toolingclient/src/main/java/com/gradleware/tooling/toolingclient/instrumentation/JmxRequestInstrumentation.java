@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.instrumentation;
+
+import com.google.common.base.Preconditions;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Instrumentation that records the durations of the completed phases in memory and exposes the resulting statistics as an MXBean.
+ *
+ * @author Etienne Studer
+ */
+public final class JmxRequestInstrumentation implements RequestInstrumentation, RequestInstrumentationMXBean {
+
+    /**
+     * The object name under which the instrumentation is registered by default.
+     */
+    public static final String DEFAULT_OBJECT_NAME = "com.gradleware.tooling:type=RequestInstrumentation";
+
+    private final HistogramRequestInstrumentation histograms;
+    private final ObjectName objectName;
+    private final MBeanServer mBeanServer;
+
+    public JmxRequestInstrumentation() {
+        this(DEFAULT_OBJECT_NAME, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxRequestInstrumentation(String objectName, MBeanServer mBeanServer) {
+        this.histograms = new HistogramRequestInstrumentation();
+        this.objectName = createObjectName(Preconditions.checkNotNull(objectName));
+        this.mBeanServer = Preconditions.checkNotNull(mBeanServer);
+    }
+
+    private static ObjectName createObjectName(String objectName) {
+        try {
+            return new ObjectName(objectName);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid object name: " + objectName, e);
+        }
+    }
+
+    @Override
+    public void phaseCompleted(RequestPhaseEvent event) {
+        this.histograms.phaseCompleted(event);
+    }
+
+    @Override
+    public List<RequestPhaseStatistics> getStatistics() {
+        return this.histograms.getStatistics();
+    }
+
+    @Override
+    public void reset() {
+        this.histograms.reset();
+    }
+
+    /**
+     * Registers this instrumentation with the MBean server.
+     */
+    public void register() {
+        try {
+            this.mBeanServer.registerMBean(this, this.objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register MBean " + this.objectName, e);
+        }
+    }
+
+    /**
+     * Unregisters this instrumentation from the MBean server, if registered.
+     */
+    public void unregister() {
+        try {
+            if (this.mBeanServer.isRegistered(this.objectName)) {
+                this.mBeanServer.unregisterMBean(this.objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister MBean " + this.objectName, e);
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.instrumentation;
+
+/**
+ * Receives the timings of the phases that a request passes through. Implementations must be thread-safe and must return quickly, since they are called on the thread that
+ * executes the request.
+ *
+ * @author Etienne Studer
+ */
+public interface RequestInstrumentation {
+
+    /**
+     * Called when a phase of a request has completed, either successfully or not.
+     *
+     * @param event the event describing the completed phase
+     */
+    void phaseCompleted(RequestPhaseEvent event);
+
+}
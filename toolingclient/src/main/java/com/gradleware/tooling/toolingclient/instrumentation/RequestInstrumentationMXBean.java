@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.instrumentation;
+
+import java.util.List;
+
+/**
+ * Management interface through which the request timings recorded by a {@link JmxRequestInstrumentation} are exposed.
+ *
+ * @author Etienne Studer
+ */
+public interface RequestInstrumentationMXBean {
+
+    /**
+     * Returns the statistics of all phases recorded so far.
+     *
+     * @return the statistics, one entry per phase and model type
+     */
+    List<RequestPhaseStatistics> getStatistics();
+
+    /**
+     * Discards all statistics recorded so far.
+     */
+    void reset();
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.instrumentation;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Provides the default {@link RequestInstrumentation} implementations that do not keep any state.
+ *
+ * @author Etienne Studer
+ */
+public final class RequestInstrumentations {
+
+    private RequestInstrumentations() {
+    }
+
+    /**
+     * Returns an instrumentation that ignores all events.
+     *
+     * @return the instrumentation
+     */
+    public static RequestInstrumentation noOp() {
+        return NoOpRequestInstrumentation.INSTANCE;
+    }
+
+    /**
+     * Returns an instrumentation that forwards all events to each of the given instrumentations, in the given order.
+     *
+     * @param instrumentations the instrumentations to forward the events to
+     * @return the instrumentation
+     */
+    public static RequestInstrumentation compose(RequestInstrumentation... instrumentations) {
+        final ImmutableList<RequestInstrumentation> delegates = ImmutableList.copyOf(Preconditions.checkNotNull(instrumentations));
+        return new RequestInstrumentation() {
+
+            @Override
+            public void phaseCompleted(RequestPhaseEvent event) {
+                for (RequestInstrumentation delegate : delegates) {
+                    delegate.phaseCompleted(event);
+                }
+            }
+
+        };
+    }
+
+    /**
+     * Instrumentation that ignores all events.
+     */
+    private enum NoOpRequestInstrumentation implements RequestInstrumentation {
+
+        INSTANCE;
+
+        @Override
+        public void phaseCompleted(RequestPhaseEvent event) {
+        }
+
+    }
+
+}
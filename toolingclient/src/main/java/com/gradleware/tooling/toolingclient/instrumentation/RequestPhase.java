@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.instrumentation;
+
+/**
+ * Enumerates the phases of a request whose durations are reported to a {@link RequestInstrumentation}.
+ *
+ * @author Etienne Studer
+ */
+public enum RequestPhase {
+
+    /**
+     * Waiting in the queue of the tooling client until the concurrency limits of its scheduling policy allow the request to run. Only reported if the scheduling policy has
+     * any limits.
+     */
+    QUEUE_WAIT,
+
+    /**
+     * Looking up the connection to the build, or opening it if no connection exists yet.
+     */
+    CONNECT,
+
+    /**
+     * Running the operation in the daemon, including the configuration of the build and the transfer of the result to the client. The Tooling API does not allow to observe the
+     * transfer of the result separately.
+     */
+    OPERATION_RUN,
+
+    /**
+     * Converting the Tooling API model into the model that is handed out to the client.
+     */
+    CONVERSION,
+
+    /**
+     * Populating the model cache, excluding the time spent loading the model.
+     */
+    CACHE_POPULATION,
+
+    /**
+     * Notifying the listeners about a newly cached model.
+     */
+    EVENT_DISPATCH
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.instrumentation;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.gradleware.tooling.toolingclient.GradleDistribution;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes the completion of a {@link RequestPhase}. Next to the duration of the phase, the event carries the type of the request, the type of the requested model, and the
+ * attributes that identify the build against which the request was run.
+ *
+ * @author Etienne Studer
+ */
+public final class RequestPhaseEvent {
+
+    private final RequestPhase phase;
+    private final Class<?> requestType;
+    private final Class<?> modelType;
+    private final File projectDir;
+    private final File gradleUserHomeDir;
+    private final GradleDistribution gradleDistribution;
+    private final long durationNanos;
+    private final boolean successful;
+
+    private RequestPhaseEvent(RequestPhase phase, Class<?> requestType, Class<?> modelType, File projectDir, File gradleUserHomeDir, GradleDistribution gradleDistribution,
+                              long durationNanos, boolean successful) {
+        this.phase = phase;
+        this.requestType = requestType;
+        this.modelType = modelType;
+        this.projectDir = projectDir;
+        this.gradleUserHomeDir = gradleUserHomeDir;
+        this.gradleDistribution = gradleDistribution;
+        this.durationNanos = durationNanos;
+        this.successful = successful;
+    }
+
+    /**
+     * Returns the phase that has completed.
+     *
+     * @return the phase, never null
+     */
+    public RequestPhase getPhase() {
+        return this.phase;
+    }
+
+    /**
+     * Returns the type of the request, e.g. {@code ModelRequest}.
+     *
+     * @return the request type, never null
+     */
+    public Class<?> getRequestType() {
+        return this.requestType;
+    }
+
+    /**
+     * Returns the type of the requested model. For build action requests, this is the type of the build action, for build and test launch requests, this is {@code Void}.
+     *
+     * @return the model type, never null
+     */
+    public Class<?> getModelType() {
+        return this.modelType;
+    }
+
+    /**
+     * Returns the project directory of the build.
+     *
+     * @return the project directory, can be null
+     */
+    public File getProjectDir() {
+        return this.projectDir;
+    }
+
+    /**
+     * Returns the Gradle user home directory used by the request.
+     *
+     * @return the Gradle user home directory, can be null
+     */
+    public File getGradleUserHomeDir() {
+        return this.gradleUserHomeDir;
+    }
+
+    /**
+     * Returns the Gradle distribution used by the request.
+     *
+     * @return the Gradle distribution, can be null
+     */
+    public GradleDistribution getGradleDistribution() {
+        return this.gradleDistribution;
+    }
+
+    /**
+     * Returns the duration of the phase in the given unit.
+     *
+     * @param unit the time unit
+     * @return the duration
+     */
+    public long getDuration(TimeUnit unit) {
+        return unit.convert(this.durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns whether the phase has completed successfully.
+     *
+     * @return {@code true} if the phase completed without failure
+     */
+    public boolean isSuccessful() {
+        return this.successful;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).
+                add("phase", this.phase).
+                add("requestType", this.requestType.getSimpleName()).
+                add("modelType", this.modelType.getName()).
+                add("projectDir", this.projectDir).
+                add("gradleUserHomeDir", this.gradleUserHomeDir).
+                add("gradleDistribution", this.gradleDistribution).
+                add("durationMillis", getDuration(TimeUnit.MILLISECONDS)).
+                add("successful", this.successful).
+                toString();
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param phase the completed phase
+     * @param requestType the type of the request
+     * @param modelType the type of the requested model
+     * @param projectDir the project directory of the build
+     * @param gradleUserHomeDir the Gradle user home directory
+     * @param gradleDistribution the Gradle distribution
+     * @param durationNanos the duration of the phase in nanoseconds
+     * @param successful whether the phase completed successfully
+     * @return the new instance
+     */
+    public static RequestPhaseEvent from(RequestPhase phase, Class<?> requestType, Class<?> modelType, File projectDir, File gradleUserHomeDir,
+                                         GradleDistribution gradleDistribution, long durationNanos, boolean successful) {
+        return new RequestPhaseEvent(Preconditions.checkNotNull(phase), Preconditions.checkNotNull(requestType), Preconditions.checkNotNull(modelType), projectDir,
+                gradleUserHomeDir, gradleDistribution, durationNanos, successful);
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.instrumentation;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Summary of the durations recorded for one phase and model type, in milliseconds. The type only uses simple attribute types such that it can be exposed through JMX.
+ *
+ * @author Etienne Studer
+ */
+public final class RequestPhaseStatistics {
+
+    private final String phase;
+    private final String modelType;
+    private final long count;
+    private final long totalMillis;
+    private final long meanMillis;
+    private final long medianMillis;
+    private final long percentile95Millis;
+    private final long maxMillis;
+
+    @ConstructorProperties({"phase", "modelType", "count", "totalMillis", "meanMillis", "medianMillis", "percentile95Millis", "maxMillis"})
+    public RequestPhaseStatistics(String phase, String modelType, long count, long totalMillis, long meanMillis, long medianMillis, long percentile95Millis, long maxMillis) {
+        this.phase = phase;
+        this.modelType = modelType;
+        this.count = count;
+        this.totalMillis = totalMillis;
+        this.meanMillis = meanMillis;
+        this.medianMillis = medianMillis;
+        this.percentile95Millis = percentile95Millis;
+        this.maxMillis = maxMillis;
+    }
+
+    public String getPhase() {
+        return this.phase;
+    }
+
+    public String getModelType() {
+        return this.modelType;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public long getTotalMillis() {
+        return this.totalMillis;
+    }
+
+    public long getMeanMillis() {
+        return this.meanMillis;
+    }
+
+    public long getMedianMillis() {
+        return this.medianMillis;
+    }
+
+    public long getPercentile95Millis() {
+        return this.percentile95Millis;
+    }
+
+    public long getMaxMillis() {
+        return this.maxMillis;
+    }
+
+}
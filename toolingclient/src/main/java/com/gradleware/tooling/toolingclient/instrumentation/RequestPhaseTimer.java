@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.instrumentation;
+
+import com.google.common.base.Preconditions;
+import com.gradleware.tooling.toolingclient.GradleDistribution;
+
+import java.io.File;
+
+/**
+ * Measures the duration of a single request phase and reports it to a {@link RequestInstrumentation} once the phase is stopped. A timer reports at most once, such that it can
+ * safely be stopped both in the regular and in the exceptional flow. A phase is reported as failed unless {@link #succeeded()} has been called before stopping the timer.
+ *
+ * @author Etienne Studer
+ */
+public final class RequestPhaseTimer {
+
+    private final RequestInstrumentation instrumentation;
+    private final RequestPhase phase;
+    private final Class<?> requestType;
+    private final Class<?> modelType;
+    private final File projectDir;
+    private final File gradleUserHomeDir;
+    private final GradleDistribution gradleDistribution;
+    private final long startNanos;
+    private boolean successful;
+    private boolean stopped;
+
+    private RequestPhaseTimer(RequestInstrumentation instrumentation, RequestPhase phase, Class<?> requestType, Class<?> modelType, File projectDir, File gradleUserHomeDir,
+                              GradleDistribution gradleDistribution) {
+        this.instrumentation = instrumentation;
+        this.phase = phase;
+        this.requestType = requestType;
+        this.modelType = modelType;
+        this.projectDir = projectDir;
+        this.gradleUserHomeDir = gradleUserHomeDir;
+        this.gradleDistribution = gradleDistribution;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Marks the phase as successful.
+     */
+    public synchronized void succeeded() {
+        this.successful = true;
+    }
+
+    /**
+     * Stops the timer and reports the phase, unless the timer has already been stopped.
+     */
+    public void stop() {
+        long durationNanos = System.nanoTime() - this.startNanos;
+        boolean successful;
+        synchronized (this) {
+            if (this.stopped) {
+                return;
+            }
+            this.stopped = true;
+            successful = this.successful;
+        }
+        this.instrumentation.phaseCompleted(RequestPhaseEvent.from(this.phase, this.requestType, this.modelType, this.projectDir, this.gradleUserHomeDir,
+                this.gradleDistribution, durationNanos, successful));
+    }
+
+    /**
+     * Starts timing the given phase.
+     *
+     * @param instrumentation the instrumentation to report the phase to
+     * @param phase the phase
+     * @param requestType the type of the request
+     * @param modelType the type of the requested model
+     * @param projectDir the project directory of the build
+     * @param gradleUserHomeDir the Gradle user home directory
+     * @param gradleDistribution the Gradle distribution
+     * @return the started timer
+     */
+    public static RequestPhaseTimer start(RequestInstrumentation instrumentation, RequestPhase phase, Class<?> requestType, Class<?> modelType, File projectDir,
+                                          File gradleUserHomeDir, GradleDistribution gradleDistribution) {
+        return new RequestPhaseTimer(Preconditions.checkNotNull(instrumentation), Preconditions.checkNotNull(phase), Preconditions.checkNotNull(requestType),
+                Preconditions.checkNotNull(modelType), projectDir, gradleUserHomeDir, gradleDistribution);
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.instrumentation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instrumentation that logs each completed phase through SLF4J. Successful phases are logged on debug level, failed phases on info level.
+ *
+ * @author Etienne Studer
+ */
+public final class Slf4jRequestInstrumentation implements RequestInstrumentation {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Slf4jRequestInstrumentation.class);
+
+    @Override
+    public void phaseCompleted(RequestPhaseEvent event) {
+        if (event.isSuccessful()) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(format(event));
+            }
+        } else if (LOG.isInfoEnabled()) {
+            LOG.info(format(event) + " (failed)");
+        }
+    }
+
+    private static String format(RequestPhaseEvent event) {
+        return String.format("%s of %s for %s in %s took %d ms", event.getPhase(), event.getRequestType().getSimpleName(), event.getModelType().getName(),
+                event.getProjectDir(), event.getDuration(TimeUnit.MILLISECONDS));
+    }
+
+}
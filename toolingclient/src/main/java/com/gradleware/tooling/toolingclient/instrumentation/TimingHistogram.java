@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.instrumentation;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations with fixed, roughly logarithmic buckets ranging from one millisecond to one minute. Recording a duration is lock-free and does not allocate, such that
+ * the histogram can be updated from the threads executing the requests. Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+public final class TimingHistogram {
+
+    private static final long[] BUCKET_UPPER_BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000, Long.MAX_VALUE};
+
+    private final AtomicLongArray bucketCounts;
+    private final AtomicLong count;
+    private final AtomicLong totalNanos;
+    private final AtomicLong maxNanos;
+
+    public TimingHistogram() {
+        this.bucketCounts = new AtomicLongArray(BUCKET_UPPER_BOUNDS_MILLIS.length);
+        this.count = new AtomicLong();
+        this.totalNanos = new AtomicLong();
+        this.maxNanos = new AtomicLong();
+    }
+
+    /**
+     * Records the given duration.
+     *
+     * @param duration the duration
+     * @param unit the unit of the duration
+     */
+    public void record(long duration, TimeUnit unit) {
+        long nanos = Math.max(0, unit.toNanos(duration));
+        this.bucketCounts.incrementAndGet(bucketIndex(TimeUnit.NANOSECONDS.toMillis(nanos)));
+        this.count.incrementAndGet();
+        this.totalNanos.addAndGet(nanos);
+
+        long max = this.maxNanos.get();
+        while (nanos > max && !this.maxNanos.compareAndSet(max, nanos)) {
+            max = this.maxNanos.get();
+        }
+    }
+
+    private static int bucketIndex(long millis) {
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS_MILLIS.length; i++) {
+            if (millis <= BUCKET_UPPER_BOUNDS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_UPPER_BOUNDS_MILLIS.length - 1;
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Returns the sum of all recorded durations.
+     *
+     * @param unit the unit in which to return the result
+     * @return the total duration
+     */
+    public long getTotal(TimeUnit unit) {
+        return unit.convert(this.totalNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the longest recorded duration.
+     *
+     * @param unit the unit in which to return the result
+     * @return the maximum duration, 0 if nothing has been recorded yet
+     */
+    public long getMax(TimeUnit unit) {
+        return unit.convert(this.maxNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the average of the recorded durations.
+     *
+     * @param unit the unit in which to return the result
+     * @return the mean duration, 0 if nothing has been recorded yet
+     */
+    public long getMean(TimeUnit unit) {
+        long count = this.count.get();
+        return count == 0 ? 0 : unit.convert(this.totalNanos.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns an estimate of the given percentile, based on the upper bound of the bucket in which the percentile falls and capped by the maximum recorded duration.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @param unit the unit in which to return the result
+     * @return the estimated percentile, 0 if nothing has been recorded yet
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        Preconditions.checkArgument(percentile >= 0 && percentile <= 100, "Percentile must be between 0 and 100: %s", percentile);
+
+        long total = 0;
+        for (int i = 0; i < this.bucketCounts.length(); i++) {
+            total += this.bucketCounts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(percentile / 100 * total);
+        long cumulative = 0;
+        for (int i = 0; i < this.bucketCounts.length(); i++) {
+            cumulative += this.bucketCounts.get(i);
+            if (cumulative >= rank && cumulative > 0) {
+                long upperBound = BUCKET_UPPER_BOUNDS_MILLIS[i] == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(BUCKET_UPPER_BOUNDS_MILLIS[i]);
+                return unit.convert(Math.min(upperBound, this.maxNanos.get()), TimeUnit.NANOSECONDS);
+            }
+        }
+        return getMax(unit);
+    }
+
+    /**
+     * Returns the number of durations recorded per bucket, in the order of {@link #getBucketUpperBoundsMillis()}.
+     *
+     * @return the bucket counts
+     */
+    public ImmutableList<Long> getBucketCounts() {
+        ImmutableList.Builder<Long> counts = ImmutableList.builder();
+        for (int i = 0; i < this.bucketCounts.length(); i++) {
+            counts.add(this.bucketCounts.get(i));
+        }
+        return counts.build();
+    }
+
+    /**
+     * Returns the inclusive upper bounds of the buckets in milliseconds. The last bucket is unbounded and reported as {@link Long#MAX_VALUE}.
+     *
+     * @return the bucket upper bounds
+     */
+    public static ImmutableList<Long> getBucketUpperBoundsMillis() {
+        ImmutableList.Builder<Long> bounds = ImmutableList.builder();
+        for (long bound : BUCKET_UPPER_BOUNDS_MILLIS) {
+            bounds.add(bound);
+        }
+        return bounds.build();
+    }
+
+}
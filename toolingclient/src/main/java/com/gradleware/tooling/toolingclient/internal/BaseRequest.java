@@ -19,6 +19,7 @@ package com.gradleware.tooling.toolingclient.internal;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.gradleware.tooling.toolingclient.GradleDistribution;
+import com.gradleware.tooling.toolingclient.RequestPriority;
 import org.gradle.tooling.CancellationToken;
 import org.gradle.tooling.GradleConnector;
 import org.gradle.tooling.ProgressListener;
@@ -26,6 +27,7 @@ import org.gradle.tooling.ProgressListener;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Internal base class for all tooling client request objects.
@@ -51,6 +53,8 @@ abstract class BaseRequest<T, SELF extends BaseRequest<T, SELF>> implements Insp
     private ImmutableList<ProgressListener> progressListeners;
     private ImmutableList<org.gradle.tooling.events.ProgressListener> typedProgressListeners;
     private CancellationToken cancellationToken;
+    private RequestPriority priority;
+    private long deadlineMillis;
 
     BaseRequest(ExecutableToolingClient toolingClient) {
         this.toolingClient = Preconditions.checkNotNull(toolingClient);
@@ -60,6 +64,7 @@ abstract class BaseRequest<T, SELF extends BaseRequest<T, SELF>> implements Insp
         this.progressListeners = ImmutableList.of();
         this.typedProgressListeners = ImmutableList.of();
         this.cancellationToken = GradleConnector.newCancellationTokenSource().token();
+        this.priority = RequestPriority.INTERACTIVE;
     }
 
     ExecutableToolingClient getToolingClient() {
@@ -221,6 +226,29 @@ abstract class BaseRequest<T, SELF extends BaseRequest<T, SELF>> implements Insp
         return this.cancellationToken;
     }
 
+    @Override
+    public SELF priority(RequestPriority priority) {
+        this.priority = Preconditions.checkNotNull(priority);
+        return getThis();
+    }
+
+    @Override
+    public RequestPriority getPriority() {
+        return this.priority;
+    }
+
+    @Override
+    public SELF deadline(long deadline, TimeUnit unit) {
+        Preconditions.checkArgument(deadline >= 0, "Deadline must not be negative: %s", deadline);
+        this.deadlineMillis = unit.toMillis(deadline);
+        return getThis();
+    }
+
+    @Override
+    public long getDeadlineMillis() {
+        return this.deadlineMillis;
+    }
+
     <S, S_SELF extends BaseRequest<S, S_SELF>> S_SELF copy(BaseRequest<S, S_SELF> request) {
         return request.projectDir(getProjectDir()).
                 gradleUserHomeDir(getGradleUserHomeDir()).
@@ -234,7 +262,9 @@ abstract class BaseRequest<T, SELF extends BaseRequest<T, SELF>> implements Insp
                 arguments(getArguments()).
                 progressListeners(getProgressListeners()).
                 typedProgressListeners(getTypedProgressListeners()).
-                cancellationToken(getCancellationToken());
+                cancellationToken(getCancellationToken()).
+                priority(getPriority()).
+                deadline(getDeadlineMillis(), TimeUnit.MILLISECONDS);
     }
 
     abstract SELF getThis();
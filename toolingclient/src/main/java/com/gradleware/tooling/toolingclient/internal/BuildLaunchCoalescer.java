@@ -0,0 +1,461 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gradleware.tooling.toolingclient.BuildLaunchRequest;
+import com.gradleware.tooling.toolingclient.Consumer;
+import com.gradleware.tooling.toolingclient.GradleDistribution;
+import com.gradleware.tooling.toolingclient.LaunchableConfig;
+import com.gradleware.tooling.toolingclient.LongRunningOperationPromise;
+import com.gradleware.tooling.toolingclient.RequestPriority;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProgressListener;
+import org.gradle.tooling.ResultHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges build launch requests that opted into coalescing and that arrive within the coalescing window of the first of them into a single Gradle invocation. The merged
+ * invocation executes the union of the tasks of the coalesced requests, in the order in which they were first requested, and completes the promises of all coalesced requests
+ * with its own outcome.
+ * <p/>
+ * Requests are only coalesced if they would run the same build in the same way, see {@link GroupKey}. The merged invocation writes its output to the output streams of all
+ * coalesced requests and notifies all their progress listeners. Since the Tooling API does not allow to combine cancellation tokens, the merged invocation runs with its own
+ * token, which is cancelled once the tokens of all coalesced requests have been cancelled.
+ *
+ * @author Etienne Studer
+ */
+final class BuildLaunchCoalescer {
+
+    private static final long CANCELLATION_POLL_INTERVAL_MILLIS = 100;
+
+    private final Map<GroupKey, Group> pendingGroups;
+    private ScheduledExecutorService executor;
+    private boolean stopped;
+
+    BuildLaunchCoalescer() {
+        this.pendingGroups = Maps.newHashMap();
+    }
+
+    /**
+     * Returns whether the given request is to be coalesced with other requests.
+     *
+     * @param request the request to check
+     * @return {@code true} if the request needs to be submitted to this coalescer
+     */
+    boolean isCoalescable(InspectableBuildLaunchRequest request) {
+        synchronized (this.pendingGroups) {
+            if (this.stopped) {
+                return false;
+            }
+        }
+        return request.getCoalescingWindowMillis() > 0 && !request.getLaunchables().getTasks().isEmpty() && request.getStandardInput() == null
+                && request.getDeadlineMillis() == 0;
+    }
+
+    /**
+     * Adds the given request to the pending group of requests it can be coalesced with, or starts a new group if there is none.
+     *
+     * @param request the request to coalesce
+     * @return the promise of the result of the merged invocation
+     */
+    LongRunningOperationPromise<Void> submit(InspectableBuildLaunchRequest request) {
+        ResultHandlerPromise<Void> promise = new ResultHandlerPromise<Void>();
+        submit(request, promise.getResultHandler());
+        return promise;
+    }
+
+    /**
+     * Adds the given request to the pending group of requests it can be coalesced with, and waits until the merged invocation has completed.
+     *
+     * @param request the request to coalesce
+     * @throws GradleConnectionException if the merged invocation fails
+     */
+    void submitAndWait(InspectableBuildLaunchRequest request) {
+        final CountDownLatch completed = new CountDownLatch(1);
+        final GradleConnectionException[] failure = new GradleConnectionException[1];
+        submit(request, new ResultHandler<Void>() {
+
+            @Override
+            public void onComplete(Void result) {
+                completed.countDown();
+            }
+
+            @Override
+            public void onFailure(GradleConnectionException e) {
+                failure[0] = e;
+                completed.countDown();
+            }
+        });
+
+        try {
+            completed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleConnectionException("Interrupted while waiting for the coalesced build to complete.", e);
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    private void submit(InspectableBuildLaunchRequest request, ResultHandler<Void> resultHandler) {
+        GroupKey key = GroupKey.from(request);
+        synchronized (this.pendingGroups) {
+            if (!this.stopped) {
+                Group group = this.pendingGroups.get(key);
+                if (group == null) {
+                    final Group newGroup = new Group(key);
+                    this.pendingGroups.put(key, newGroup);
+                    getExecutor().schedule(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            launch(newGroup);
+                        }
+                    }, request.getCoalescingWindowMillis(), TimeUnit.MILLISECONDS);
+                    group = newGroup;
+                }
+                group.add(request, resultHandler);
+                return;
+            }
+        }
+
+        // the coalescer has been stopped since the request was found to be coalescable, hence the request is launched on its own
+        launchDirectly(request, resultHandler);
+    }
+
+    private static void launchDirectly(InspectableBuildLaunchRequest request, final ResultHandler<Void> resultHandler) {
+        try {
+            request.deriveForLaunchables(request.getLaunchables()).coalescingWindow(0, TimeUnit.MILLISECONDS).execute().onComplete(new Consumer<Void>() {
+
+                @Override
+                public void accept(Void result) {
+                    resultHandler.onComplete(result);
+                }
+            }).onFailure(new Consumer<GradleConnectionException>() {
+
+                @Override
+                public void accept(GradleConnectionException failure) {
+                    resultHandler.onFailure(failure);
+                }
+            });
+        } catch (RuntimeException e) {
+            resultHandler.onFailure(e instanceof GradleConnectionException ? (GradleConnectionException) e : new GradleConnectionException("Could not launch the build.", e));
+        }
+    }
+
+    private ScheduledExecutorService getExecutor() {
+        if (this.executor == null) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Build launch coalescer").build());
+        }
+        return this.executor;
+    }
+
+    private void launch(final Group group) {
+        final ScheduledExecutorService executor;
+        synchronized (this.pendingGroups) {
+            // no more requests can join the group once it has been removed
+            this.pendingGroups.remove(group.key);
+            executor = this.executor;
+        }
+
+        final CancellationTokenSource cancellationTokenSource = GradleConnector.newCancellationTokenSource();
+        BuildLaunchRequest merged = group.requests.get(0).deriveForLaunchables(LaunchableConfig.forTasks(group.getTasks())).
+                coalescingWindow(0, TimeUnit.MILLISECONDS).
+                standardOutput(TeeOutputStream.from(group.getStandardOutputs())).
+                standardError(TeeOutputStream.from(group.getStandardErrors())).
+                progressListeners(group.getProgressListeners()).
+                typedProgressListeners(group.getTypedProgressListeners()).
+                cancellationToken(cancellationTokenSource.token());
+
+        final ScheduledFuture<?> cancellationForwarding = forwardCancellation(executor, group, cancellationTokenSource);
+
+        try {
+            merged.execute().onComplete(new Consumer<Void>() {
+
+                @Override
+                public void accept(Void result) {
+                    stopForwarding(cancellationForwarding);
+                    group.complete();
+                }
+            }).onFailure(new Consumer<GradleConnectionException>() {
+
+                @Override
+                public void accept(GradleConnectionException failure) {
+                    stopForwarding(cancellationForwarding);
+                    group.fail(failure);
+                }
+            });
+        } catch (RuntimeException e) {
+            stopForwarding(cancellationForwarding);
+            group.fail(e instanceof GradleConnectionException ? (GradleConnectionException) e : new GradleConnectionException("Could not launch the coalesced build.", e));
+        }
+    }
+
+    private static ScheduledFuture<?> forwardCancellation(ScheduledExecutorService executor, final Group group, final CancellationTokenSource cancellationTokenSource) {
+        try {
+            return executor.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+                    if (group.isCancelled() && !cancellationTokenSource.token().isCancellationRequested()) {
+                        cancellationTokenSource.cancel();
+                    }
+                }
+            }, 0, CANCELLATION_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the coalescer has been stopped, cancel the merged invocation right away if possible
+            if (group.isCancelled()) {
+                cancellationTokenSource.cancel();
+            }
+            return null;
+        }
+    }
+
+    private static void stopForwarding(ScheduledFuture<?> cancellationForwarding) {
+        if (cancellationForwarding != null) {
+            cancellationForwarding.cancel(false);
+        }
+    }
+
+    /**
+     * Stops coalescing requests. Pending groups are still launched, requests submitted afterwards are no longer coalesced.
+     */
+    void stop() {
+        synchronized (this.pendingGroups) {
+            this.stopped = true;
+            if (this.executor != null) {
+                this.executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Identifies the requests that can be coalesced with each other.
+     */
+    private static final class GroupKey {
+
+        private final File projectDir;
+        private final File gradleUserHomeDir;
+        private final GradleDistribution gradleDistribution;
+        private final RequestPriority priority;
+        private final boolean colorOutput;
+        private final File javaHomeDir;
+        private final List<String> jvmArguments;
+        private final List<String> arguments;
+
+        private GroupKey(File projectDir, File gradleUserHomeDir, GradleDistribution gradleDistribution, RequestPriority priority, boolean colorOutput, File javaHomeDir,
+                         List<String> jvmArguments, List<String> arguments) {
+            this.projectDir = projectDir;
+            this.gradleUserHomeDir = gradleUserHomeDir;
+            this.gradleDistribution = gradleDistribution;
+            this.priority = priority;
+            this.colorOutput = colorOutput;
+            this.javaHomeDir = javaHomeDir;
+            this.jvmArguments = jvmArguments;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+
+            GroupKey that = (GroupKey) obj;
+            return Objects.equal(this.projectDir, that.projectDir)
+                    && Objects.equal(this.gradleUserHomeDir, that.gradleUserHomeDir)
+                    && Objects.equal(this.gradleDistribution, that.gradleDistribution)
+                    && this.priority == that.priority
+                    && this.colorOutput == that.colorOutput
+                    && Objects.equal(this.javaHomeDir, that.javaHomeDir)
+                    && Objects.equal(this.jvmArguments, that.jvmArguments)
+                    && Objects.equal(this.arguments, that.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(this.projectDir, this.gradleUserHomeDir, this.gradleDistribution, this.priority, this.colorOutput, this.javaHomeDir, this.jvmArguments,
+                    this.arguments);
+        }
+
+        private static GroupKey from(InspectableBuildLaunchRequest request) {
+            return new GroupKey(request.getProjectDir(), request.getGradleUserHomeDir(), request.getGradleDistribution(), request.getPriority(), request.isColorOutput(),
+                    request.getJavaHomeDir(), ImmutableList.copyOf(request.getJvmArguments()), ImmutableList.copyOf(request.getArguments()));
+        }
+
+    }
+
+    /**
+     * The requests that are coalesced into the same invocation, together with the handlers of their promises.
+     */
+    private static final class Group {
+
+        private final GroupKey key;
+        private final List<InspectableBuildLaunchRequest> requests;
+        private final List<ResultHandler<Void>> resultHandlers;
+
+        private Group(GroupKey key) {
+            this.key = key;
+            this.requests = Lists.newCopyOnWriteArrayList();
+            this.resultHandlers = Lists.newCopyOnWriteArrayList();
+        }
+
+        private void add(InspectableBuildLaunchRequest request, ResultHandler<Void> resultHandler) {
+            this.requests.add(request);
+            this.resultHandlers.add(resultHandler);
+        }
+
+        private Set<String> getTasks() {
+            Set<String> tasks = Sets.newLinkedHashSet();
+            for (InspectableBuildLaunchRequest request : this.requests) {
+                tasks.addAll(request.getLaunchables().getTasks());
+            }
+            return tasks;
+        }
+
+        private List<OutputStream> getStandardOutputs() {
+            List<OutputStream> outputs = Lists.newArrayList();
+            for (InspectableBuildLaunchRequest request : this.requests) {
+                if (request.getStandardOutput() != null && !outputs.contains(request.getStandardOutput())) {
+                    outputs.add(request.getStandardOutput());
+                }
+            }
+            return outputs;
+        }
+
+        private List<OutputStream> getStandardErrors() {
+            List<OutputStream> outputs = Lists.newArrayList();
+            for (InspectableBuildLaunchRequest request : this.requests) {
+                if (request.getStandardError() != null && !outputs.contains(request.getStandardError())) {
+                    outputs.add(request.getStandardError());
+                }
+            }
+            return outputs;
+        }
+
+        private ProgressListener[] getProgressListeners() {
+            Set<ProgressListener> listeners = Sets.newLinkedHashSet();
+            for (InspectableBuildLaunchRequest request : this.requests) {
+                listeners.addAll(Arrays.asList(request.getProgressListeners()));
+            }
+            return listeners.toArray(new ProgressListener[listeners.size()]);
+        }
+
+        private org.gradle.tooling.events.ProgressListener[] getTypedProgressListeners() {
+            Set<org.gradle.tooling.events.ProgressListener> listeners = Sets.newLinkedHashSet();
+            for (InspectableBuildLaunchRequest request : this.requests) {
+                listeners.addAll(Arrays.asList(request.getTypedProgressListeners()));
+            }
+            return listeners.toArray(new org.gradle.tooling.events.ProgressListener[listeners.size()]);
+        }
+
+        private boolean isCancelled() {
+            for (InspectableBuildLaunchRequest request : this.requests) {
+                if (!request.getCancellationToken().isCancellationRequested()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void complete() {
+            for (ResultHandler<Void> resultHandler : this.resultHandlers) {
+                resultHandler.onComplete(null);
+            }
+        }
+
+        private void fail(GradleConnectionException failure) {
+            for (ResultHandler<Void> resultHandler : this.resultHandlers) {
+                resultHandler.onFailure(failure);
+            }
+        }
+
+    }
+
+    /**
+     * Output stream that writes to all of the given output streams.
+     */
+    private static final class TeeOutputStream extends OutputStream {
+
+        private final ImmutableList<OutputStream> delegates;
+
+        private TeeOutputStream(List<OutputStream> delegates) {
+            this.delegates = ImmutableList.copyOf(delegates);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            for (OutputStream delegate : this.delegates) {
+                delegate.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            for (OutputStream delegate : this.delegates) {
+                delegate.write(bytes, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            for (OutputStream delegate : this.delegates) {
+                delegate.flush();
+            }
+        }
+
+        private static OutputStream from(List<OutputStream> outputs) {
+            Preconditions.checkNotNull(outputs);
+            if (outputs.isEmpty()) {
+                return null;
+            } else if (outputs.size() == 1) {
+                return outputs.get(0);
+            } else {
+                return new TeeOutputStream(outputs);
+            }
+        }
+
+    }
+
+}
@@ -20,6 +20,8 @@ import com.google.common.base.Preconditions;
 import com.gradleware.tooling.toolingclient.LaunchableConfig;
 import com.gradleware.tooling.toolingclient.LongRunningOperationPromise;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Internal implementation of the {@link com.gradleware.tooling.toolingclient.BuildLaunchRequest} API.
  *
@@ -28,6 +30,7 @@ import com.gradleware.tooling.toolingclient.LongRunningOperationPromise;
 final class DefaultBuildLaunchRequest extends BaseRequest<Void, DefaultBuildLaunchRequest> implements InspectableBuildLaunchRequest {
 
     private final LaunchableConfig launchables;
+    private long coalescingWindowMillis;
 
     DefaultBuildLaunchRequest(ExecutableToolingClient toolingClient, LaunchableConfig launchables) {
         super(toolingClient);
@@ -39,9 +42,21 @@ final class DefaultBuildLaunchRequest extends BaseRequest<Void, DefaultBuildLaun
         return this.launchables;
     }
 
+    @Override
+    public DefaultBuildLaunchRequest coalescingWindow(long window, TimeUnit unit) {
+        Preconditions.checkArgument(window >= 0, "Coalescing window must not be negative: " + window);
+        this.coalescingWindowMillis = unit.toMillis(window);
+        return this;
+    }
+
+    @Override
+    public long getCoalescingWindowMillis() {
+        return this.coalescingWindowMillis;
+    }
+
     @Override
     public DefaultBuildLaunchRequest deriveForLaunchables(LaunchableConfig launchables) {
-        return copy(new DefaultBuildLaunchRequest(getToolingClient(), launchables));
+        return copy(new DefaultBuildLaunchRequest(getToolingClient(), launchables)).coalescingWindow(this.coalescingWindowMillis, TimeUnit.MILLISECONDS);
     }
 
     @Override
@@ -21,21 +21,30 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import com.gradleware.tooling.toolingclient.BuildActionRequest;
 import com.gradleware.tooling.toolingclient.BuildLaunchRequest;
+import com.gradleware.tooling.toolingclient.Consumer;
 import com.gradleware.tooling.toolingclient.LaunchableConfig;
 import com.gradleware.tooling.toolingclient.LongRunningOperationPromise;
 import com.gradleware.tooling.toolingclient.ModelRequest;
+import com.gradleware.tooling.toolingclient.RequestSchedulingPolicy;
 import com.gradleware.tooling.toolingclient.TestLaunchRequest;
 import com.gradleware.tooling.toolingclient.TestConfig;
 import com.gradleware.tooling.toolingclient.ToolingClient;
+import com.gradleware.tooling.toolingclient.instrumentation.RequestInstrumentation;
+import com.gradleware.tooling.toolingclient.instrumentation.RequestInstrumentations;
+import com.gradleware.tooling.toolingclient.instrumentation.RequestPhase;
+import com.gradleware.tooling.toolingclient.instrumentation.RequestPhaseTimer;
 import org.gradle.internal.Factory;
 import org.gradle.tooling.BuildAction;
 import org.gradle.tooling.BuildActionExecuter;
+import org.gradle.tooling.BuildCancelledException;
 import org.gradle.tooling.BuildLauncher;
+import org.gradle.tooling.GradleConnectionException;
 import org.gradle.tooling.GradleConnector;
 import org.gradle.tooling.LongRunningOperation;
 import org.gradle.tooling.ModelBuilder;
 import org.gradle.tooling.ProgressListener;
 import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.ResultHandler;
 import org.gradle.tooling.TestLauncher;
 import org.gradle.tooling.internal.consumer.ConnectorServices;
 import org.slf4j.Logger;
@@ -53,6 +62,9 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
     private static final Logger LOG = LoggerFactory.getLogger(DefaultToolingClient.class);
 
     private final Factory<GradleConnector> connectorFactory;
+    private final RequestInstrumentation instrumentation;
+    private final RequestScheduler scheduler;
+    private final BuildLaunchCoalescer coalescer;
     private final Map<Integer, ProjectConnection> connections;
 
     public DefaultToolingClient() {
@@ -60,7 +72,18 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
     }
 
     public DefaultToolingClient(Factory<GradleConnector> connectorFactory) {
+        this(connectorFactory, RequestInstrumentations.noOp());
+    }
+
+    public DefaultToolingClient(Factory<GradleConnector> connectorFactory, RequestInstrumentation instrumentation) {
+        this(connectorFactory, instrumentation, RequestSchedulingPolicy.unlimited());
+    }
+
+    public DefaultToolingClient(Factory<GradleConnector> connectorFactory, RequestInstrumentation instrumentation, RequestSchedulingPolicy schedulingPolicy) {
         this.connectorFactory = connectorFactory;
+        this.instrumentation = Preconditions.checkNotNull(instrumentation);
+        this.scheduler = new RequestScheduler(schedulingPolicy);
+        this.coalescer = new BuildLaunchCoalescer();
         this.connections = Maps.newHashMap();
     }
 
@@ -90,60 +113,201 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
 
     @Override
     public <T> T executeAndWait(InspectableModelRequest<T> modelRequest) {
-        ProjectConnection connection = getProjectConnection(modelRequest);
+        ProjectConnection connection = getProjectConnection(modelRequest, ModelRequest.class, modelRequest.getModelType());
         ModelBuilder<T> operation = mapToModelBuilder(modelRequest, connection);
-        return operation.get();
+        RequestScheduler.Ticket ticket = acquire(modelRequest, ModelRequest.class, modelRequest.getModelType(), operation);
+        RequestPhaseTimer timer = startPhase(RequestPhase.OPERATION_RUN, modelRequest, ModelRequest.class, modelRequest.getModelType());
+        try {
+            T result = operation.get();
+            timer.succeeded();
+            return result;
+        } finally {
+            timer.stop();
+            this.scheduler.release(ticket);
+        }
     }
 
     @Override
     public <T> LongRunningOperationPromise<T> execute(InspectableModelRequest<T> modelRequest) {
-        ProjectConnection connection = getProjectConnection(modelRequest);
-        ModelBuilder<T> operation = mapToModelBuilder(modelRequest, connection);
-        return LongRunningOperationPromise.forModelBuilder(operation);
+        ProjectConnection connection = getProjectConnection(modelRequest, ModelRequest.class, modelRequest.getModelType());
+        final ModelBuilder<T> operation = mapToModelBuilder(modelRequest, connection);
+        ResultHandlerPromise<T> promise = new ResultHandlerPromise<T>();
+        acquire(modelRequest, ModelRequest.class, modelRequest.getModelType(), operation, promise.getResultHandler(), new OperationStarter<T>() {
+
+            @Override
+            public void start(ResultHandler<T> resultHandler) {
+                operation.get(resultHandler);
+            }
+        });
+        return promise;
     }
 
     @Override
     public <T> T executeAndWait(InspectableBuildActionRequest<T> buildActionRequest) {
-        ProjectConnection connection = getProjectConnection(buildActionRequest);
+        Class<?> buildActionType = buildActionRequest.getBuildAction().getClass();
+        ProjectConnection connection = getProjectConnection(buildActionRequest, BuildActionRequest.class, buildActionType);
         BuildActionExecuter<T> operation = mapToBuildActionExecuter(buildActionRequest, connection);
-        return operation.run();
+        RequestScheduler.Ticket ticket = acquire(buildActionRequest, BuildActionRequest.class, buildActionType, operation);
+        RequestPhaseTimer timer = startPhase(RequestPhase.OPERATION_RUN, buildActionRequest, BuildActionRequest.class, buildActionType);
+        try {
+            T result = operation.run();
+            timer.succeeded();
+            return result;
+        } finally {
+            timer.stop();
+            this.scheduler.release(ticket);
+        }
     }
 
     @Override
     public <T> LongRunningOperationPromise<T> execute(InspectableBuildActionRequest<T> buildActionRequest) {
-        ProjectConnection connection = getProjectConnection(buildActionRequest);
-        BuildActionExecuter<T> operation = mapToBuildActionExecuter(buildActionRequest, connection);
-        return LongRunningOperationPromise.forBuildActionExecuter(operation);
+        Class<?> buildActionType = buildActionRequest.getBuildAction().getClass();
+        ProjectConnection connection = getProjectConnection(buildActionRequest, BuildActionRequest.class, buildActionType);
+        final BuildActionExecuter<T> operation = mapToBuildActionExecuter(buildActionRequest, connection);
+        ResultHandlerPromise<T> promise = new ResultHandlerPromise<T>();
+        acquire(buildActionRequest, BuildActionRequest.class, buildActionType, operation, promise.getResultHandler(), new OperationStarter<T>() {
+
+            @Override
+            public void start(ResultHandler<T> resultHandler) {
+                operation.run(resultHandler);
+            }
+        });
+        return promise;
     }
 
     @Override
     public Void executeAndWait(InspectableBuildLaunchRequest buildLaunchRequest) {
-        ProjectConnection connection = getProjectConnection(buildLaunchRequest);
+        if (this.coalescer.isCoalescable(buildLaunchRequest)) {
+            this.coalescer.submitAndWait(buildLaunchRequest);
+            return null;
+        }
+
+        ProjectConnection connection = getProjectConnection(buildLaunchRequest, BuildLaunchRequest.class, Void.class);
         BuildLauncher operation = mapToBuildLauncher(buildLaunchRequest, connection);
-        operation.run();
-        return null;
+        RequestScheduler.Ticket ticket = acquire(buildLaunchRequest, BuildLaunchRequest.class, Void.class, operation);
+        RequestPhaseTimer timer = startPhase(RequestPhase.OPERATION_RUN, buildLaunchRequest, BuildLaunchRequest.class, Void.class);
+        try {
+            operation.run();
+            timer.succeeded();
+            return null;
+        } finally {
+            timer.stop();
+            this.scheduler.release(ticket);
+        }
     }
 
     @Override
     public LongRunningOperationPromise<Void> execute(InspectableBuildLaunchRequest buildLaunchRequest) {
-        ProjectConnection connection = getProjectConnection(buildLaunchRequest);
-        BuildLauncher operation = mapToBuildLauncher(buildLaunchRequest, connection);
-        return LongRunningOperationPromise.forBuildLauncher(operation);
+        if (this.coalescer.isCoalescable(buildLaunchRequest)) {
+            return this.coalescer.submit(buildLaunchRequest);
+        }
+
+        ProjectConnection connection = getProjectConnection(buildLaunchRequest, BuildLaunchRequest.class, Void.class);
+        final BuildLauncher operation = mapToBuildLauncher(buildLaunchRequest, connection);
+        ResultHandlerPromise<Void> promise = new ResultHandlerPromise<Void>();
+        acquire(buildLaunchRequest, BuildLaunchRequest.class, Void.class, operation, promise.getResultHandler(), new OperationStarter<Void>() {
+
+            @Override
+            public void start(ResultHandler<Void> resultHandler) {
+                operation.run(resultHandler);
+            }
+        });
+        return promise;
     }
 
     @Override
     public Void executeAndWait(InspectableTestLaunchRequest testLaunchRequest) {
-        ProjectConnection connection = getProjectConnection(testLaunchRequest);
+        ProjectConnection connection = getProjectConnection(testLaunchRequest, TestLaunchRequest.class, Void.class);
         TestLauncher operation = mapToTestLauncher(testLaunchRequest, connection);
-        operation.run();
-        return null;
+        RequestScheduler.Ticket ticket = acquire(testLaunchRequest, TestLaunchRequest.class, Void.class, operation);
+        RequestPhaseTimer timer = startPhase(RequestPhase.OPERATION_RUN, testLaunchRequest, TestLaunchRequest.class, Void.class);
+        try {
+            operation.run();
+            timer.succeeded();
+            return null;
+        } finally {
+            timer.stop();
+            this.scheduler.release(ticket);
+        }
     }
 
     @Override
     public LongRunningOperationPromise<Void> execute(InspectableTestLaunchRequest testLaunchRequest) {
-        ProjectConnection connection = getProjectConnection(testLaunchRequest);
-        TestLauncher operation = mapToTestLauncher(testLaunchRequest, connection);
-        return LongRunningOperationPromise.forTestLauncher(operation);
+        ProjectConnection connection = getProjectConnection(testLaunchRequest, TestLaunchRequest.class, Void.class);
+        final TestLauncher operation = mapToTestLauncher(testLaunchRequest, connection);
+        ResultHandlerPromise<Void> promise = new ResultHandlerPromise<Void>();
+        acquire(testLaunchRequest, TestLaunchRequest.class, Void.class, operation, promise.getResultHandler(), new OperationStarter<Void>() {
+
+            @Override
+            public void start(ResultHandler<Void> resultHandler) {
+                operation.run(resultHandler);
+            }
+        });
+        return promise;
+    }
+
+    private RequestScheduler.Ticket acquire(InspectableRequest<?> request, Class<?> requestType, Class<?> modelType, LongRunningOperation operation) {
+        RequestPhaseTimer timer = startQueueWait(request, requestType, modelType);
+        RequestScheduler.Ticket ticket;
+        try {
+            ticket = this.scheduler.acquire(calculateConnectionKey(request), request.getPriority(), request.getCancellationToken(), request.getDeadlineMillis());
+            timer.succeeded();
+        } finally {
+            timer.stop();
+        }
+        operation.withCancellationToken(ticket.getCancellationToken());
+        return ticket;
+    }
+
+    private <T> void acquire(final InspectableRequest<?> request, final Class<?> requestType, final Class<?> modelType, final LongRunningOperation operation,
+                             final ResultHandler<T> resultHandler, final OperationStarter<T> starter) {
+        final RequestPhaseTimer timer = startQueueWait(request, requestType, modelType);
+        this.scheduler.acquire(calculateConnectionKey(request), request.getPriority(), request.getCancellationToken(), request.getDeadlineMillis(), new Consumer<RequestScheduler.Ticket>() {
+
+            @Override
+            public void accept(RequestScheduler.Ticket ticket) {
+                timer.succeeded();
+                timer.stop();
+                operation.withCancellationToken(ticket.getCancellationToken());
+                ResultHandler<T> handler = new InstrumentedResultHandler<T>(new ReleasingResultHandler<T>(resultHandler, DefaultToolingClient.this.scheduler, ticket),
+                        startPhase(RequestPhase.OPERATION_RUN, request, requestType, modelType));
+                try {
+                    starter.start(handler);
+                } catch (RuntimeException e) {
+                    // the operation may be started on the thread that released another request, hence report the failure through the handler rather than throwing it
+                    handler.onFailure(new GradleConnectionException("Could not start the request.", e));
+                }
+            }
+        }, new Consumer<BuildCancelledException>() {
+
+            @Override
+            public void accept(BuildCancelledException cause) {
+                timer.stop();
+                resultHandler.onFailure(cause);
+            }
+        });
+    }
+
+    private RequestPhaseTimer startQueueWait(InspectableRequest<?> request, Class<?> requestType, Class<?> modelType) {
+        // the queue wait time is only of interest if the scheduler can queue requests at all
+        RequestInstrumentation instrumentation = this.scheduler.isLimited() ? this.instrumentation : RequestInstrumentations.noOp();
+        return RequestPhaseTimer.start(instrumentation, RequestPhase.QUEUE_WAIT, requestType, modelType, request.getProjectDir(), request.getGradleUserHomeDir(),
+                request.getGradleDistribution());
+    }
+
+    private RequestPhaseTimer startPhase(RequestPhase phase, InspectableRequest<?> request, Class<?> requestType, Class<?> modelType) {
+        return RequestPhaseTimer.start(this.instrumentation, phase, requestType, modelType, request.getProjectDir(), request.getGradleUserHomeDir(), request.getGradleDistribution());
+    }
+
+    private ProjectConnection getProjectConnection(InspectableRequest<?> request, Class<?> requestType, Class<?> modelType) {
+        RequestPhaseTimer timer = startPhase(RequestPhase.CONNECT, request, requestType, modelType);
+        try {
+            ProjectConnection connection = getProjectConnection(request);
+            timer.succeeded();
+            return connection;
+        } finally {
+            timer.stop();
+        }
     }
 
     private ProjectConnection getProjectConnection(InspectableRequest<?> request) {
@@ -229,6 +393,8 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
                 throw new UnsupportedOperationException(String.format("Cleanup strategy %s is currently not supported.", CleanUpStrategy.FORCEFULLY));
             case GRACEFULLY:
                 // happens synchronously
+                this.coalescer.stop();
+                this.scheduler.stop();
                 closeConnections();
                 expireDaemons();
         }
@@ -252,6 +418,78 @@ public final class DefaultToolingClient extends ToolingClient implements Executa
         ConnectorServices.reset();
     }
 
+    /**
+     * Result handler that reports the completion of the operation to the instrumentation before handing over the result.
+     *
+     * @param <T> the result type
+     */
+    private static final class InstrumentedResultHandler<T> implements ResultHandler<T> {
+
+        private final ResultHandler<T> delegate;
+        private final RequestPhaseTimer timer;
+
+        private InstrumentedResultHandler(ResultHandler<T> delegate, RequestPhaseTimer timer) {
+            this.delegate = delegate;
+            this.timer = timer;
+        }
+
+        @Override
+        public void onComplete(T result) {
+            this.timer.succeeded();
+            this.timer.stop();
+            this.delegate.onComplete(result);
+        }
+
+        @Override
+        public void onFailure(GradleConnectionException failure) {
+            this.timer.stop();
+            this.delegate.onFailure(failure);
+        }
+
+    }
+
+    /**
+     * Result handler that releases the slots of the request in the scheduler before handing over the result.
+     *
+     * @param <T> the result type
+     */
+    private static final class ReleasingResultHandler<T> implements ResultHandler<T> {
+
+        private final ResultHandler<T> delegate;
+        private final RequestScheduler scheduler;
+        private final RequestScheduler.Ticket ticket;
+
+        private ReleasingResultHandler(ResultHandler<T> delegate, RequestScheduler scheduler, RequestScheduler.Ticket ticket) {
+            this.delegate = delegate;
+            this.scheduler = scheduler;
+            this.ticket = ticket;
+        }
+
+        @Override
+        public void onComplete(T result) {
+            this.scheduler.release(this.ticket);
+            this.delegate.onComplete(result);
+        }
+
+        @Override
+        public void onFailure(GradleConnectionException failure) {
+            this.scheduler.release(this.ticket);
+            this.delegate.onFailure(failure);
+        }
+
+    }
+
+    /**
+     * Starts an asynchronous operation once the scheduler has granted the slots to run it.
+     *
+     * @param <T> the result type
+     */
+    private interface OperationStarter<T> {
+
+        void start(ResultHandler<T> resultHandler);
+
+    }
+
     /**
      * Singleton factory to create {@code GradleConnector} instances.
      */
@@ -32,4 +32,10 @@ interface InspectableBuildLaunchRequest extends InspectableRequest<Void>, BuildL
      */
     LaunchableConfig getLaunchables();
 
+    /**
+     * @return zero if the request must not be coalesced with other build launch requests
+     * @see BuildLaunchCoalescer
+     */
+    long getCoalescingWindowMillis();
+
 }
@@ -18,6 +18,7 @@ package com.gradleware.tooling.toolingclient.internal;
 
 import com.gradleware.tooling.toolingclient.GradleDistribution;
 import com.gradleware.tooling.toolingclient.Request;
+import com.gradleware.tooling.toolingclient.RequestPriority;
 import org.gradle.tooling.CancellationToken;
 import org.gradle.tooling.ProgressListener;
 
@@ -83,4 +84,14 @@ interface InspectableRequest<T> extends Request<T> {
      */
     CancellationToken getCancellationToken();
 
+    /**
+     * @return never null, defaults to {@link RequestPriority#INTERACTIVE}
+     */
+    RequestPriority getPriority();
+
+    /**
+     * @return the time after which the operation is cancelled, measured from the time the request is executed, zero if the request has no deadline
+     */
+    long getDeadlineMillis();
+
 }
@@ -0,0 +1,582 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gradleware.tooling.toolingclient.Consumer;
+import com.gradleware.tooling.toolingclient.RequestPriority;
+import com.gradleware.tooling.toolingclient.RequestSchedulingPolicy;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnector;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a request may run, based on the {@link RequestSchedulingPolicy} of the tooling client. Each running request holds a slot of its connection and a global slot
+ * until it is released. Requests that cannot get both slots are queued per priority class and per connection, and are granted their slots as soon as running requests are
+ * released: higher priority classes first, and round-robin across the connections within the same priority class.
+ * <p/>
+ * If preemption is enabled, each request below the highest priority class runs with a cancellation token owned by the scheduler, such that it can be cancelled when a request
+ * of a higher priority class is queued for its slot. Cancellation requested through the token of the request itself is forwarded to the token owned by the scheduler, since
+ * the Tooling API only accepts the tokens created through {@link GradleConnector#newCancellationTokenSource()} and these cannot be combined.
+ * <p/>
+ * Requests with a deadline run with a cancellation token owned by the scheduler, too. The token is cancelled once the deadline has expired, whether the request is still
+ * queued or already running, and the cancellation of the token of the request itself is forwarded to it until the request is released.
+ * <p/>
+ * A queued request whose own cancellation token is cancelled or whose deadline expires is withdrawn from its queue, rather than waiting for its slots only to run an already
+ * cancelled operation. The waiting caller then fails with a {@link BuildCancelledException}.
+ *
+ * @author Etienne Studer
+ */
+final class RequestScheduler {
+
+    private static final long CANCELLATION_POLL_INTERVAL_MILLIS = 100;
+
+    private final RequestSchedulingPolicy policy;
+    private final Map<RequestPriority, LinkedHashMap<Integer, ArrayDeque<Ticket>>> queues;
+    private final Map<Integer, Integer> runningPerConnection;
+    private final List<Ticket> running;
+    private final ScheduledExecutorService cancellationForwarder;
+    private ScheduledExecutorService deadlineTimer;
+    private ScheduledExecutorService queueWatcher;
+    private int queuedCount;
+    private long preemptedCount;
+
+    RequestScheduler(RequestSchedulingPolicy policy) {
+        this.policy = Preconditions.checkNotNull(policy);
+        this.queues = Maps.newEnumMap(RequestPriority.class);
+        for (RequestPriority priority : RequestPriority.values()) {
+            this.queues.put(priority, new LinkedHashMap<Integer, ArrayDeque<Ticket>>());
+        }
+        this.runningPerConnection = Maps.newHashMap();
+        this.running = Lists.newArrayList();
+        this.cancellationForwarder = isPreemptive() ? createCancellationForwarder() : null;
+    }
+
+    private boolean isPreemptive() {
+        return this.policy.isPreemptionEnabled() && !this.policy.isUnlimited();
+    }
+
+    private ScheduledExecutorService createCancellationForwarder() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Request scheduler cancellation forwarder").build());
+        executor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                forwardCancellation();
+            }
+        }, CANCELLATION_POLL_INTERVAL_MILLIS, CANCELLATION_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    /**
+     * Returns whether requests may have to wait for a slot, that is, whether the policy has any limits.
+     *
+     * @return {@code true} if the scheduler may queue requests
+     */
+    boolean isLimited() {
+        return !this.policy.isUnlimited();
+    }
+
+    /**
+     * Waits until the request identified by the given attributes is granted its slots. Interruption while waiting is deferred until the slots are granted.
+     *
+     * @param connectionKey the key of the connection the request runs on
+     * @param priority the priority class of the request
+     * @param cancellationToken the cancellation token of the request
+     * @return the granted ticket, which must be released once the request has completed
+     * @throws BuildCancelledException if the request has been withdrawn from its queue before its slots were granted
+     */
+    Ticket acquire(int connectionKey, RequestPriority priority, CancellationToken cancellationToken) {
+        return acquire(connectionKey, priority, cancellationToken, 0);
+    }
+
+    /**
+     * Waits until the request identified by the given attributes is granted its slots. Interruption while waiting is deferred until the slots are granted.
+     *
+     * @param connectionKey the key of the connection the request runs on
+     * @param priority the priority class of the request
+     * @param cancellationToken the cancellation token of the request
+     * @param deadlineMillis the time after which the request is cancelled, measured from now, zero for no deadline
+     * @return the granted ticket, which must be released once the request has completed
+     * @throws BuildCancelledException if the request has been withdrawn from its queue before its slots were granted
+     */
+    Ticket acquire(int connectionKey, RequestPriority priority, CancellationToken cancellationToken, long deadlineMillis) {
+        Ticket ticket = newTicket(connectionKey, priority, cancellationToken, deadlineMillis, null, null);
+        schedule(ticket);
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                ticket.granted.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (ticket.withdrawal != null) {
+            throw ticket.withdrawal;
+        }
+        return ticket;
+    }
+
+    /**
+     * Queues the request identified by the given attributes and returns immediately. Once the request is granted its slots, the given callback is invoked with the ticket,
+     * either on the calling thread or on the thread that releases another ticket. If the request is withdrawn from its queue instead, the other callback is invoked with the
+     * cause, either on the calling thread or on a thread of the scheduler.
+     *
+     * @param connectionKey the key of the connection the request runs on
+     * @param priority the priority class of the request
+     * @param cancellationToken the cancellation token of the request
+     * @param onGranted the callback to start the request, which must make sure the ticket is released once the request has completed
+     * @param onWithdrawn the callback to fail the request that has been withdrawn before its slots were granted
+     */
+    void acquire(int connectionKey, RequestPriority priority, CancellationToken cancellationToken, Consumer<Ticket> onGranted, Consumer<BuildCancelledException> onWithdrawn) {
+        acquire(connectionKey, priority, cancellationToken, 0, onGranted, onWithdrawn);
+    }
+
+    /**
+     * Queues the request identified by the given attributes and returns immediately. Once the request is granted its slots, the given callback is invoked with the ticket,
+     * either on the calling thread or on the thread that releases another ticket. If the request is withdrawn from its queue instead, the other callback is invoked with the
+     * cause, either on the calling thread or on a thread of the scheduler.
+     *
+     * @param connectionKey the key of the connection the request runs on
+     * @param priority the priority class of the request
+     * @param cancellationToken the cancellation token of the request
+     * @param deadlineMillis the time after which the request is cancelled, measured from now, zero for no deadline
+     * @param onGranted the callback to start the request, which must make sure the ticket is released once the request has completed
+     * @param onWithdrawn the callback to fail the request that has been withdrawn before its slots were granted
+     */
+    void acquire(int connectionKey, RequestPriority priority, CancellationToken cancellationToken, long deadlineMillis, Consumer<Ticket> onGranted,
+                 Consumer<BuildCancelledException> onWithdrawn) {
+        schedule(newTicket(connectionKey, priority, cancellationToken, deadlineMillis, Preconditions.checkNotNull(onGranted), Preconditions.checkNotNull(onWithdrawn)));
+    }
+
+    private Ticket newTicket(int connectionKey, RequestPriority priority, CancellationToken cancellationToken, long deadlineMillis, Consumer<Ticket> onGranted,
+                             Consumer<BuildCancelledException> onWithdrawn) {
+        Preconditions.checkArgument(deadlineMillis >= 0, "Deadline must not be negative: %s", deadlineMillis);
+        boolean preemptible = isPreemptive() && priority != RequestPriority.values()[0];
+        boolean owned = preemptible || deadlineMillis > 0;
+        CancellationTokenSource cancellationTokenSource = owned ? GradleConnector.newCancellationTokenSource() : null;
+        Ticket ticket = new Ticket(connectionKey, Preconditions.checkNotNull(priority), Preconditions.checkNotNull(cancellationToken), cancellationTokenSource, preemptible, onGranted,
+                onWithdrawn);
+        if (deadlineMillis > 0) {
+            watchDeadline(ticket, deadlineMillis);
+        }
+        return ticket;
+    }
+
+    private void watchDeadline(final Ticket ticket, long deadlineMillis) {
+        final long deadlineNanos = ticket.enqueuedNanos + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        ticket.deadlineWatch = getDeadlineTimer().scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                if (ticket.deadlineWatchStopped) {
+                    // the ticket has been released before the watch was registered with it
+                    ticket.stopWatchingDeadline();
+                } else if (ticket.cancellationToken.isCancellationRequested()) {
+                    if (!withdraw(ticket, new BuildCancelledException("The request has been cancelled while it was waiting for its slots."))) {
+                        ticket.cancellationTokenSource.cancel();
+                        ticket.stopWatchingDeadline();
+                    }
+                } else if (System.nanoTime() - deadlineNanos >= 0) {
+                    // a request that is still queued does not wait for its slots beyond its deadline
+                    ticket.deadlineExceeded = true;
+                    if (!withdraw(ticket, new BuildCancelledException("The deadline of the request expired while it was waiting for its slots."))) {
+                        ticket.cancellationTokenSource.cancel();
+                        ticket.stopWatchingDeadline();
+                    }
+                }
+            }
+        }, Math.min(deadlineMillis, CANCELLATION_POLL_INTERVAL_MILLIS), CANCELLATION_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized ScheduledExecutorService getDeadlineTimer() {
+        if (this.deadlineTimer == null) {
+            this.deadlineTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Request scheduler deadline timer").build());
+        }
+        return this.deadlineTimer;
+    }
+
+    private void schedule(Ticket ticket) {
+        if (this.policy.isUnlimited()) {
+            ticket.grant();
+            notifyGranted(ImmutableList.of(ticket));
+            return;
+        }
+
+        List<Ticket> granted;
+        Ticket victim = null;
+        synchronized (this.queues) {
+            ArrayDeque<Ticket> queue = this.queues.get(ticket.priority).get(ticket.connectionKey);
+            if (queue == null) {
+                queue = new ArrayDeque<Ticket>();
+                this.queues.get(ticket.priority).put(ticket.connectionKey, queue);
+            }
+            queue.add(ticket);
+            this.queuedCount++;
+            granted = dispatch();
+            if (!ticket.isGranted() && isPreemptive()) {
+                victim = selectVictim(ticket);
+            }
+        }
+
+        if (!granted.contains(ticket)) {
+            watchQueue();
+        }
+        if (victim != null) {
+            victim.cancellationTokenSource.cancel();
+        }
+        notifyGranted(granted);
+    }
+
+    private synchronized void watchQueue() {
+        if (this.queueWatcher == null) {
+            this.queueWatcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Request scheduler queue watcher").build());
+            this.queueWatcher.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+                    withdrawCancelledTickets();
+                }
+            }, CANCELLATION_POLL_INTERVAL_MILLIS, CANCELLATION_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void withdrawCancelledTickets() {
+        List<Ticket> cancelled = Lists.newArrayList();
+        synchronized (this.queues) {
+            for (LinkedHashMap<Integer, ArrayDeque<Ticket>> queuesOfPriority : this.queues.values()) {
+                for (ArrayDeque<Ticket> queue : queuesOfPriority.values()) {
+                    for (Ticket ticket : queue) {
+                        if (ticket.cancellationToken.isCancellationRequested()) {
+                            cancelled.add(ticket);
+                        }
+                    }
+                }
+            }
+        }
+        for (Ticket ticket : cancelled) {
+            withdraw(ticket, new BuildCancelledException("The request has been cancelled while it was waiting for its slots."));
+        }
+    }
+
+    /**
+     * Removes the given ticket from its queue and fails it with the given exception, unless its slots have already been granted.
+     *
+     * @param ticket the ticket to withdraw
+     * @param cause the exception to fail the request with
+     * @return {@code true} if the ticket has been withdrawn
+     */
+    private boolean withdraw(Ticket ticket, BuildCancelledException cause) {
+        synchronized (this.queues) {
+            if (ticket.isGranted() || ticket.withdrawal != null) {
+                return false;
+            }
+            LinkedHashMap<Integer, ArrayDeque<Ticket>> queuesOfPriority = this.queues.get(ticket.priority);
+            ArrayDeque<Ticket> queue = queuesOfPriority.get(ticket.connectionKey);
+            if (queue == null || !queue.remove(ticket)) {
+                return false;
+            }
+            if (queue.isEmpty()) {
+                queuesOfPriority.remove(ticket.connectionKey);
+            }
+            this.queuedCount--;
+            ticket.withdrawal = cause;
+        }
+
+        ticket.stopWatchingDeadline();
+        if (ticket.cancellationTokenSource != null) {
+            ticket.cancellationTokenSource.cancel();
+        }
+        ticket.granted.countDown();
+        if (ticket.onWithdrawn != null) {
+            ticket.onWithdrawn.accept(cause);
+        }
+        return true;
+    }
+
+    /**
+     * Releases the slots held by the given ticket and grants them to queued requests. Releasing a ticket more than once has no effect.
+     *
+     * @param ticket the ticket to release
+     */
+    void release(Ticket ticket) {
+        ticket.stopWatchingDeadline();
+        if (this.policy.isUnlimited()) {
+            return;
+        }
+
+        List<Ticket> granted;
+        synchronized (this.queues) {
+            if (!this.running.remove(ticket)) {
+                return;
+            }
+            int count = this.runningPerConnection.get(ticket.connectionKey);
+            if (count == 1) {
+                this.runningPerConnection.remove(ticket.connectionKey);
+            } else {
+                this.runningPerConnection.put(ticket.connectionKey, count - 1);
+            }
+            granted = dispatch();
+        }
+        notifyGranted(granted);
+    }
+
+    private List<Ticket> dispatch() {
+        List<Ticket> granted = Lists.newArrayList();
+        for (RequestPriority priority : RequestPriority.values()) {
+            LinkedHashMap<Integer, ArrayDeque<Ticket>> queuesOfPriority = this.queues.get(priority);
+            boolean progress = true;
+            while (progress && this.running.size() < this.policy.getMaxConcurrentRequests()) {
+                progress = false;
+                for (Iterator<Map.Entry<Integer, ArrayDeque<Ticket>>> iterator = queuesOfPriority.entrySet().iterator(); iterator.hasNext(); ) {
+                    Map.Entry<Integer, ArrayDeque<Ticket>> entry = iterator.next();
+                    if (getRunningCount(entry.getKey()) < this.policy.getMaxConcurrentRequestsPerConnection()) {
+                        Ticket ticket = entry.getValue().poll();
+                        iterator.remove();
+                        if (!entry.getValue().isEmpty()) {
+                            // move the connection to the end of the round
+                            queuesOfPriority.put(entry.getKey(), entry.getValue());
+                        }
+                        this.queuedCount--;
+                        this.running.add(ticket);
+                        this.runningPerConnection.put(ticket.connectionKey, getRunningCount(ticket.connectionKey) + 1);
+                        ticket.grant();
+                        granted.add(ticket);
+                        progress = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return granted;
+    }
+
+    private int getRunningCount(int connectionKey) {
+        Integer count = this.runningPerConnection.get(connectionKey);
+        return count != null ? count : 0;
+    }
+
+    private Ticket selectVictim(Ticket ticket) {
+        boolean globalLimitReached = this.running.size() >= this.policy.getMaxConcurrentRequests();
+        Ticket victim = null;
+        // iterate backwards to prefer the most recently started request among the ones of the same priority class
+        for (int i = this.running.size() - 1; i >= 0; i--) {
+            Ticket candidate = this.running.get(i);
+            if (candidate.preemptible && !candidate.preempted && ticket.priority.isHigherThan(candidate.priority)
+                    && (globalLimitReached || candidate.connectionKey == ticket.connectionKey)
+                    && (victim == null || victim.priority.isHigherThan(candidate.priority))) {
+                victim = candidate;
+            }
+        }
+        if (victim != null) {
+            victim.preempted = true;
+            this.preemptedCount++;
+        }
+        return victim;
+    }
+
+    private void notifyGranted(List<Ticket> granted) {
+        for (Ticket ticket : granted) {
+            if (ticket.cancellationTokenSource != null && ticket.cancellationToken.isCancellationRequested()) {
+                ticket.cancellationTokenSource.cancel();
+            }
+            ticket.granted.countDown();
+            if (ticket.onGranted != null) {
+                ticket.onGranted.accept(ticket);
+            }
+        }
+    }
+
+    private void forwardCancellation() {
+        List<Ticket> running;
+        synchronized (this.queues) {
+            running = ImmutableList.copyOf(this.running);
+        }
+        for (Ticket ticket : running) {
+            if (ticket.cancellationTokenSource != null && ticket.cancellationToken.isCancellationRequested() && !ticket.cancellationTokenSource.token().isCancellationRequested()) {
+                ticket.cancellationTokenSource.cancel();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of requests waiting for their slots.
+     *
+     * @return the number of queued requests
+     */
+    int getQueuedRequestCount() {
+        synchronized (this.queues) {
+            return this.queuedCount;
+        }
+    }
+
+    /**
+     * Returns the number of requests holding their slots.
+     *
+     * @return the number of running requests
+     */
+    int getRunningRequestCount() {
+        synchronized (this.queues) {
+            return this.running.size();
+        }
+    }
+
+    /**
+     * Returns the number of running requests that have been cancelled to free up their slots.
+     *
+     * @return the number of preempted requests
+     */
+    long getPreemptedRequestCount() {
+        synchronized (this.queues) {
+            return this.preemptedCount;
+        }
+    }
+
+    /**
+     * Stops forwarding the cancellation of requests, watching their deadlines and withdrawing cancelled requests from the queues. Queued and running requests are not affected.
+     * Requests acquired afterwards start watching their deadlines and the queues again.
+     */
+    void stop() {
+        if (this.cancellationForwarder != null) {
+            this.cancellationForwarder.shutdownNow();
+        }
+        synchronized (this) {
+            if (this.deadlineTimer != null) {
+                this.deadlineTimer.shutdownNow();
+                this.deadlineTimer = null;
+            }
+            if (this.queueWatcher != null) {
+                this.queueWatcher.shutdownNow();
+                this.queueWatcher = null;
+            }
+        }
+    }
+
+    /**
+     * Represents a request that is queued or running.
+     */
+    static final class Ticket {
+
+        private final int connectionKey;
+        private final RequestPriority priority;
+        private final CancellationToken cancellationToken;
+        private final CancellationTokenSource cancellationTokenSource;
+        private final boolean preemptible;
+        private final Consumer<Ticket> onGranted;
+        private final Consumer<BuildCancelledException> onWithdrawn;
+        private final CountDownLatch granted;
+        private final long enqueuedNanos;
+        private volatile long grantedNanos;
+        private boolean slotsGranted;
+        private volatile boolean preempted;
+        private volatile boolean deadlineExceeded;
+        private volatile ScheduledFuture<?> deadlineWatch;
+        private volatile boolean deadlineWatchStopped;
+        private volatile BuildCancelledException withdrawal;
+
+        private Ticket(int connectionKey, RequestPriority priority, CancellationToken cancellationToken, CancellationTokenSource cancellationTokenSource, boolean preemptible,
+                       Consumer<Ticket> onGranted, Consumer<BuildCancelledException> onWithdrawn) {
+            this.connectionKey = connectionKey;
+            this.priority = priority;
+            this.cancellationToken = cancellationToken;
+            this.cancellationTokenSource = cancellationTokenSource;
+            this.preemptible = preemptible;
+            this.onGranted = onGranted;
+            this.onWithdrawn = onWithdrawn;
+            this.granted = new CountDownLatch(1);
+            this.enqueuedNanos = System.nanoTime();
+        }
+
+        private void grant() {
+            this.grantedNanos = System.nanoTime();
+            this.slotsGranted = true;
+        }
+
+        private boolean isGranted() {
+            return this.slotsGranted;
+        }
+
+        private void stopWatchingDeadline() {
+            this.deadlineWatchStopped = true;
+            ScheduledFuture<?> deadlineWatch = this.deadlineWatch;
+            if (deadlineWatch != null) {
+                deadlineWatch.cancel(false);
+            }
+        }
+
+        /**
+         * Returns the cancellation token to run the request with, which is owned by the scheduler if the request can be preempted or has a deadline.
+         *
+         * @return the cancellation token
+         */
+        CancellationToken getCancellationToken() {
+            return this.cancellationTokenSource != null ? this.cancellationTokenSource.token() : this.cancellationToken;
+        }
+
+        /**
+         * Returns whether the request has been cancelled by the scheduler to free up its slots.
+         *
+         * @return {@code true} if preempted
+         */
+        boolean isPreempted() {
+            return this.preempted;
+        }
+
+        /**
+         * Returns whether the request has been cancelled by the scheduler because its deadline has expired.
+         *
+         * @return {@code true} if the deadline has been exceeded
+         */
+        boolean isDeadlineExceeded() {
+            return this.deadlineExceeded;
+        }
+
+        /**
+         * Returns the time between queuing the request and granting its slots.
+         *
+         * @param unit the unit in which to return the result
+         * @return the queue wait time
+         */
+        long getQueueWait(TimeUnit unit) {
+            return unit.convert(this.grantedNanos - this.enqueuedNanos, TimeUnit.NANOSECONDS);
+        }
+
+    }
+
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.output;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Output stream that captures the build output in a memory-mapped log file and indexes the offset of each line while writing, such that build consoles can access the output
+ * by line number, follow its tail, and search it without keeping it on the heap. Pass an instance to {@link com.gradleware.tooling.toolingclient.Request#standardOutput} and/or
+ * {@link com.gradleware.tooling.toolingclient.Request#standardError}.
+ * <p/>
+ * The file is mapped in chunks of fixed size that are added as the output grows. Writing only copies the bytes into the current chunk and appends to the line index, it never
+ * waits for readers. Readers never lock either: they only see the bytes and lines that have been published by the writer through volatile fields. Only complete lines are
+ * visible to readers, the trailing unterminated line becomes visible once the stream is closed. Line terminators are not part of the returned lines.
+ * <p/>
+ * The bytes are decoded with the charset passed on creation, which must match the encoding used by the Tooling API, that is, the system default encoding. Since mapped
+ * buffers cannot be released explicitly, the log file keeps its size rounded up to the chunk size until the instance is garbage collected. Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+public final class MappedLogOutputStream extends OutputStream {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final int INITIAL_LINE_INDEX_SIZE = 1024;
+
+    private final File file;
+    private final Charset charset;
+    private final int chunkSize;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+
+    // written by the writer only, published through the volatile fields below
+    private MappedByteBuffer currentChunk;
+    private long position;
+    private long lineStart;
+
+    private volatile MappedByteBuffer[] chunks;
+    private volatile long[] lineEndOffsets;
+    private volatile int lineCount;
+    private volatile long length;
+    private volatile boolean closed;
+
+    private MappedLogOutputStream(File file, Charset charset, int chunkSize) throws IOException {
+        this.file = file;
+        this.charset = charset;
+        this.chunkSize = chunkSize;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        this.randomAccessFile.setLength(0);
+        this.channel = this.randomAccessFile.getChannel();
+        this.chunks = new MappedByteBuffer[0];
+        this.lineEndOffsets = new long[INITIAL_LINE_INDEX_SIZE];
+    }
+
+    /**
+     * Returns the file backing this stream.
+     *
+     * @return the log file
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        ensureOpen();
+        ensureChunk();
+        this.currentChunk.put((byte) b);
+        this.position++;
+        if (b == '\n') {
+            endLine(this.position);
+        }
+        this.length = this.position;
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int count) throws IOException {
+        Preconditions.checkNotNull(bytes);
+        Preconditions.checkPositionIndexes(offset, offset + count, bytes.length);
+        ensureOpen();
+
+        int end = offset + count;
+        int current = offset;
+        while (current < end) {
+            ensureChunk();
+            int n = Math.min(end - current, this.currentChunk.remaining());
+            this.currentChunk.put(bytes, current, n);
+            for (int i = current; i < current + n; i++) {
+                if (bytes[i] == '\n') {
+                    endLine(this.position + (i - current) + 1);
+                }
+            }
+            this.position += n;
+            current += n;
+        }
+        this.length = this.position;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Log output has been closed: " + this.file.getAbsolutePath());
+        }
+    }
+
+    private void ensureChunk() throws IOException {
+        if (this.currentChunk == null || !this.currentChunk.hasRemaining()) {
+            MappedByteBuffer chunk = this.channel.map(FileChannel.MapMode.READ_WRITE, (long) this.chunks.length * this.chunkSize, this.chunkSize);
+            MappedByteBuffer[] chunks = Arrays.copyOf(this.chunks, this.chunks.length + 1);
+            chunks[chunks.length - 1] = chunk;
+            this.chunks = chunks;
+            this.currentChunk = chunk;
+        }
+    }
+
+    private void endLine(long nextLineStart) {
+        long[] offsets = this.lineEndOffsets;
+        int count = this.lineCount;
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[count] = nextLineStart;
+        this.lineStart = nextLineStart;
+        // publish the index entry before the new line count
+        this.lineEndOffsets = offsets;
+        this.lineCount = count + 1;
+    }
+
+    /**
+     * Flushing is a no-op since the written bytes are immediately visible through the mapped buffers.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Closes this stream. The trailing unterminated line, if any, becomes visible to readers. Reading remains possible after closing.
+     *
+     * @throws IOException if closing the underlying file fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+
+        if (this.position > this.lineStart) {
+            endLine(this.position);
+        }
+        this.closed = true;
+        this.randomAccessFile.close();
+    }
+
+    /**
+     * Returns whether this stream has been closed.
+     *
+     * @return {@code true} if closed
+     */
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     *
+     * @return the length of the log
+     */
+    public long getLength() {
+        return this.length;
+    }
+
+    /**
+     * Returns the number of lines that are visible to readers.
+     *
+     * @return the number of lines
+     */
+    public int getLineCount() {
+        return this.lineCount;
+    }
+
+    /**
+     * Returns the line with the given index.
+     *
+     * @param lineIndex the zero-based index of the line
+     * @return the line without its line terminator
+     * @throws IndexOutOfBoundsException if there is no line with the given index
+     */
+    public String getLine(int lineIndex) {
+        int count = this.lineCount;
+        Preconditions.checkElementIndex(lineIndex, count);
+        return readLine(this.lineEndOffsets, this.chunks, lineIndex);
+    }
+
+    /**
+     * Returns the lines in the given range. If the range extends beyond the last visible line, only the available lines are returned.
+     *
+     * @param fromLineIndex the zero-based index of the first line
+     * @param maxLines the maximum number of lines to return
+     * @return the lines without their line terminators
+     */
+    public ImmutableList<String> getLines(int fromLineIndex, int maxLines) {
+        Preconditions.checkArgument(fromLineIndex >= 0, "Line index must not be negative: " + fromLineIndex);
+        Preconditions.checkArgument(maxLines >= 0, "Number of lines must not be negative: " + maxLines);
+        int count = this.lineCount;
+        long[] offsets = this.lineEndOffsets;
+        MappedByteBuffer[] chunks = this.chunks;
+
+        ImmutableList.Builder<String> lines = ImmutableList.builder();
+        int end = (int) Math.min(count, (long) fromLineIndex + maxLines);
+        for (int i = fromLineIndex; i < end; i++) {
+            lines.add(readLine(offsets, chunks, i));
+        }
+        return lines.build();
+    }
+
+    /**
+     * Returns the indices of the lines that contain the given text, searching the raw bytes of the log rather than decoding each line. The charset of this stream must
+     * therefore be an encoding in which the encoded text can only match at character boundaries, like UTF-8 or any single-byte encoding.
+     *
+     * @param text the text to search for, must not be empty
+     * @param fromLineIndex the index of the first line to search
+     * @param maxResults the maximum number of matching lines to return
+     * @return the indices of the matching lines in ascending order
+     */
+    public ImmutableList<Integer> search(String text, int fromLineIndex, int maxResults) {
+        Preconditions.checkArgument(!text.isEmpty(), "Search text must not be empty.");
+        Preconditions.checkArgument(fromLineIndex >= 0, "Line index must not be negative: " + fromLineIndex);
+        int count = this.lineCount;
+        long[] offsets = this.lineEndOffsets;
+        MappedByteBuffer[] chunks = this.chunks;
+
+        if (fromLineIndex >= count) {
+            return ImmutableList.of();
+        }
+
+        byte[] needle = text.getBytes(this.charset);
+        ImmutableList.Builder<Integer> matches = ImmutableList.builder();
+        int found = 0;
+        long position = lineStart(offsets, fromLineIndex);
+        long end = offsets[count - 1];
+        while (found < maxResults) {
+            long match = indexOf(chunks, needle, position, end);
+            if (match < 0) {
+                break;
+            }
+            int line = lineOf(offsets, count, match);
+            if (match + needle.length <= lineEnd(offsets, chunks, line)) {
+                // the match lies within the line, continue with the next line
+                matches.add(line);
+                found++;
+                position = offsets[line];
+            } else {
+                // the match spans a line terminator, continue right after its start
+                position = match + 1;
+            }
+        }
+        return matches.build();
+    }
+
+    /**
+     * Creates a follower that returns the lines of this log as they become visible, starting with the given line.
+     *
+     * @param fromLineIndex the index of the first line to return
+     * @return the new follower
+     */
+    public Follower follow(int fromLineIndex) {
+        Preconditions.checkArgument(fromLineIndex >= 0, "Line index must not be negative: " + fromLineIndex);
+        return new Follower(this, fromLineIndex);
+    }
+
+    private String readLine(long[] offsets, MappedByteBuffer[] chunks, int lineIndex) {
+        long start = lineStart(offsets, lineIndex);
+        long end = lineEnd(offsets, chunks, lineIndex);
+        byte[] bytes = new byte[(int) (end - start)];
+        long position = start;
+        int copied = 0;
+        while (copied < bytes.length) {
+            ByteBuffer chunk = chunks[(int) (position / this.chunkSize)].duplicate();
+            chunk.position((int) (position % this.chunkSize));
+            int n = Math.min(bytes.length - copied, chunk.remaining());
+            chunk.get(bytes, copied, n);
+            copied += n;
+            position += n;
+        }
+        return new String(bytes, this.charset);
+    }
+
+    private static long lineStart(long[] offsets, int lineIndex) {
+        return lineIndex == 0 ? 0 : offsets[lineIndex - 1];
+    }
+
+    private long lineEnd(long[] offsets, MappedByteBuffer[] chunks, int lineIndex) {
+        long start = lineStart(offsets, lineIndex);
+        long end = offsets[lineIndex];
+        if (end > start && byteAt(chunks, end - 1) == '\n') {
+            end--;
+            if (end > start && byteAt(chunks, end - 1) == '\r') {
+                end--;
+            }
+        }
+        return end;
+    }
+
+    private byte byteAt(MappedByteBuffer[] chunks, long position) {
+        return chunks[(int) (position / this.chunkSize)].get((int) (position % this.chunkSize));
+    }
+
+    private long indexOf(MappedByteBuffer[] chunks, byte[] needle, long from, long to) {
+        byte first = needle[0];
+        long last = to - needle.length;
+        long position = from;
+        while (position <= last) {
+            int chunkIndex = (int) (position / this.chunkSize);
+            MappedByteBuffer chunk = chunks[chunkIndex];
+            long chunkStart = (long) chunkIndex * this.chunkSize;
+            int chunkEnd = (int) Math.min(this.chunkSize, last - chunkStart + 1);
+            for (int i = (int) (position - chunkStart); i < chunkEnd; i++) {
+                if (chunk.get(i) == first && matchesAt(chunks, needle, chunkStart + i)) {
+                    return chunkStart + i;
+                }
+            }
+            position = chunkStart + chunkEnd;
+        }
+        return -1;
+    }
+
+    private boolean matchesAt(MappedByteBuffer[] chunks, byte[] needle, long position) {
+        for (int i = 1; i < needle.length; i++) {
+            if (byteAt(chunks, position + i) != needle[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int lineOf(long[] offsets, int count, long position) {
+        // the line of a position is the first line whose end offset lies beyond the position
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (offsets[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Creates a new instance that writes to the given file, truncating it if it already exists, and that decodes lines with the system default encoding.
+     *
+     * @param file the log file
+     * @return the new instance
+     * @throws IOException if the file cannot be opened
+     */
+    public static MappedLogOutputStream create(File file) throws IOException {
+        return create(file, Charset.defaultCharset(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a new instance that writes to the given file, truncating it if it already exists.
+     *
+     * @param file the log file
+     * @param charset the charset to decode lines with
+     * @param chunkSize the size of each mapped region of the file
+     * @return the new instance
+     * @throws IOException if the file cannot be opened
+     */
+    public static MappedLogOutputStream create(File file, Charset charset, int chunkSize) throws IOException {
+        Preconditions.checkNotNull(file);
+        Preconditions.checkNotNull(charset);
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size must be positive: " + chunkSize);
+        return new MappedLogOutputStream(file, charset, chunkSize);
+    }
+
+    /**
+     * Returns the lines of a {@link MappedLogOutputStream} as they become visible. A follower is meant to be polled by a single reader, for example from a UI timer.
+     */
+    public static final class Follower {
+
+        private final MappedLogOutputStream log;
+        private int nextLineIndex;
+
+        private Follower(MappedLogOutputStream log, int nextLineIndex) {
+            this.log = log;
+            this.nextLineIndex = nextLineIndex;
+        }
+
+        /**
+         * Returns the lines that have become visible since the previous poll, up to the given number of lines.
+         *
+         * @param maxLines the maximum number of lines to return
+         * @return the new lines, empty if there are none
+         */
+        public List<String> poll(int maxLines) {
+            ImmutableList<String> lines = this.log.getLines(this.nextLineIndex, maxLines);
+            this.nextLineIndex += lines.size();
+            return lines;
+        }
+
+        /**
+         * Returns the index of the line returned by the next poll.
+         *
+         * @return the next line index
+         */
+        public int getNextLineIndex() {
+            return this.nextLineIndex;
+        }
+
+        /**
+         * Returns whether all lines have been returned and no more lines will become visible.
+         *
+         * @return {@code true} if the end of the closed log has been reached
+         */
+        public boolean isAtEnd() {
+            return this.log.isClosed() && this.nextLineIndex >= this.log.getLineCount();
+        }
+
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.progress;
+
+import org.gradle.tooling.events.ProgressEvent;
+
+import java.util.List;
+
+/**
+ * Receives the typed progress events of a {@link BatchingProgressDispatcher} in batches rather than one by one. The events of a batch are in the
+ * order in which they were fired by the build.
+ *
+ * @author Etienne Studer
+ */
+public interface BatchProgressListener {
+
+    /**
+     * Called on the consumer thread of the dispatcher with the next batch of events.
+     *
+     * @param events the events of the batch, never empty
+     */
+    void progressEvents(List<ProgressEvent> events);
+
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.progress;
+
+import com.google.common.base.Preconditions;
+import org.gradle.tooling.ProgressEvent;
+import org.gradle.tooling.ProgressListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decouples progress listeners from the thread on which the Tooling API fires its progress events. The dispatcher is registered on a request as both a progress listener and
+ * a typed progress listener. On the Tooling API callback thread, it only enqueues the received events into a bounded, lock-free ring buffer. A dedicated consumer thread
+ * drains the buffer in batches and forwards the events to the listeners added to the dispatcher, such that slow listeners, for example listeners doing UI work, do not slow
+ * down the build.
+ * <p/>
+ * Within a batch, all typed events are delivered in the order in which they were fired. The events of the untyped progress listeners are mere status updates, hence only the
+ * latest status update of a batch is delivered and the preceding ones are counted as coalesced. When the buffer is full, the received event is dropped and counted as such
+ * rather than blocking the build. Note that a dropped typed event may leave a listener with a start event for which it never receives the finish event.
+ * <p/>
+ * A dispatcher can be shared by any number of requests. It must be closed once it is no longer needed to stop its consumer thread. Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+public final class BatchingProgressDispatcher implements ProgressListener, org.gradle.tooling.events.ProgressListener {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 512;
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchingProgressDispatcher.class);
+
+    private final ProgressEventRingBuffer<Object> buffer;
+    private final int maxBatchSize;
+    private final List<ProgressListener> progressListeners;
+    private final List<org.gradle.tooling.events.ProgressListener> typedProgressListeners;
+    private final List<BatchProgressListener> batchProgressListeners;
+    private final Thread consumerThread;
+    private final AtomicBoolean consumerWaiting;
+    private final AtomicBoolean closed;
+    private final AtomicLong receivedEventCount;
+    private final AtomicLong droppedEventCount;
+    private final AtomicLong coalescedEventCount;
+    private final AtomicLong deliveredEventCount;
+    private final AtomicLong deliveredBatchCount;
+    private final AtomicInteger maxQueueDepth;
+
+    private BatchingProgressDispatcher(int capacity, int maxBatchSize) {
+        this.buffer = new ProgressEventRingBuffer<Object>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.progressListeners = new CopyOnWriteArrayList<ProgressListener>();
+        this.typedProgressListeners = new CopyOnWriteArrayList<org.gradle.tooling.events.ProgressListener>();
+        this.batchProgressListeners = new CopyOnWriteArrayList<BatchProgressListener>();
+        this.consumerWaiting = new AtomicBoolean();
+        this.closed = new AtomicBoolean();
+        this.receivedEventCount = new AtomicLong();
+        this.droppedEventCount = new AtomicLong();
+        this.coalescedEventCount = new AtomicLong();
+        this.deliveredEventCount = new AtomicLong();
+        this.deliveredBatchCount = new AtomicLong();
+        this.maxQueueDepth = new AtomicInteger();
+        this.consumerThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                consume();
+            }
+        }, "Progress event dispatcher");
+        this.consumerThread.setDaemon(true);
+    }
+
+    /**
+     * Adds a listener that receives the latest status update of each batch.
+     *
+     * @param listener the listener to add
+     */
+    public void addProgressListener(ProgressListener listener) {
+        this.progressListeners.add(Preconditions.checkNotNull(listener));
+    }
+
+    /**
+     * Adds a listener that receives each typed event of each batch.
+     *
+     * @param listener the listener to add
+     */
+    public void addTypedProgressListener(org.gradle.tooling.events.ProgressListener listener) {
+        this.typedProgressListeners.add(Preconditions.checkNotNull(listener));
+    }
+
+    /**
+     * Adds a listener that receives the typed events of each batch in one call.
+     *
+     * @param listener the listener to add
+     */
+    public void addBatchProgressListener(BatchProgressListener listener) {
+        this.batchProgressListeners.add(Preconditions.checkNotNull(listener));
+    }
+
+    /**
+     * Removes the given listener, regardless of which kind of listener it was added as.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(Object listener) {
+        this.progressListeners.remove(listener);
+        this.typedProgressListeners.remove(listener);
+        this.batchProgressListeners.remove(listener);
+    }
+
+    @Override
+    public void statusChanged(ProgressEvent event) {
+        enqueue(event);
+    }
+
+    @Override
+    public void statusChanged(org.gradle.tooling.events.ProgressEvent event) {
+        enqueue(event);
+    }
+
+    private void enqueue(Object event) {
+        this.receivedEventCount.incrementAndGet();
+        if (this.closed.get() || !this.buffer.offer(event)) {
+            this.droppedEventCount.incrementAndGet();
+            return;
+        }
+
+        int depth = this.buffer.size();
+        int max = this.maxQueueDepth.get();
+        while (depth > max && !this.maxQueueDepth.compareAndSet(max, depth)) {
+            max = this.maxQueueDepth.get();
+        }
+
+        if (this.consumerWaiting.get() && this.consumerWaiting.compareAndSet(true, false)) {
+            LockSupport.unpark(this.consumerThread);
+        }
+    }
+
+    private void consume() {
+        List<Object> batch = new ArrayList<Object>(Math.min(this.maxBatchSize, this.buffer.capacity()));
+        while (true) {
+            if (this.buffer.drainTo(batch, this.maxBatchSize) > 0) {
+                dispatch(batch);
+                batch.clear();
+            } else if (this.buffer.isEmpty()) {
+                // only stop once the buffer is empty such that the events received before closing are still delivered
+                if (this.closed.get()) {
+                    return;
+                }
+                this.consumerWaiting.set(true);
+                if (this.buffer.isEmpty() && !this.closed.get()) {
+                    LockSupport.park(this);
+                }
+                this.consumerWaiting.set(false);
+            } else {
+                // a producer has claimed a slot but not yet published its event
+                Thread.yield();
+            }
+        }
+    }
+
+    private void dispatch(List<Object> batch) {
+        List<org.gradle.tooling.events.ProgressEvent> typedEvents = new ArrayList<org.gradle.tooling.events.ProgressEvent>(batch.size());
+        ProgressEvent latestStatus = null;
+        int coalesced = 0;
+        for (Object event : batch) {
+            if (event instanceof ProgressEvent) {
+                if (latestStatus != null) {
+                    coalesced++;
+                }
+                latestStatus = (ProgressEvent) event;
+            } else {
+                typedEvents.add((org.gradle.tooling.events.ProgressEvent) event);
+            }
+        }
+
+        if (!typedEvents.isEmpty()) {
+            List<org.gradle.tooling.events.ProgressEvent> events = Collections.unmodifiableList(typedEvents);
+            for (BatchProgressListener listener : this.batchProgressListeners) {
+                try {
+                    listener.progressEvents(events);
+                } catch (RuntimeException e) {
+                    LOG.warn("Batch progress listener failed.", e);
+                }
+            }
+            for (org.gradle.tooling.events.ProgressListener listener : this.typedProgressListeners) {
+                for (org.gradle.tooling.events.ProgressEvent event : events) {
+                    try {
+                        listener.statusChanged(event);
+                    } catch (RuntimeException e) {
+                        LOG.warn("Typed progress listener failed.", e);
+                    }
+                }
+            }
+        }
+
+        if (latestStatus != null) {
+            for (ProgressListener listener : this.progressListeners) {
+                try {
+                    listener.statusChanged(latestStatus);
+                } catch (RuntimeException e) {
+                    LOG.warn("Progress listener failed.", e);
+                }
+            }
+        }
+
+        this.coalescedEventCount.addAndGet(coalesced);
+        this.deliveredEventCount.addAndGet(batch.size() - coalesced);
+        this.deliveredBatchCount.incrementAndGet();
+    }
+
+    /**
+     * Stops accepting events and waits until the consumer thread has delivered all the events received so far. Events received after closing are dropped. Calling this method
+     * from within a listener does not wait. Calling this method more than once has no effect.
+     */
+    public void close() {
+        if (!this.closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        LockSupport.unpark(this.consumerThread);
+        if (Thread.currentThread() != this.consumerThread) {
+            try {
+                this.consumerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns whether this dispatcher has been closed.
+     *
+     * @return {@code true} if closed
+     */
+    public boolean isClosed() {
+        return this.closed.get();
+    }
+
+    /**
+     * Returns the maximum number of events that can be buffered before events are dropped.
+     *
+     * @return the capacity of the buffer
+     */
+    public int getCapacity() {
+        return this.buffer.capacity();
+    }
+
+    /**
+     * Returns the number of events that are currently buffered and waiting to be delivered.
+     *
+     * @return the current queue depth
+     */
+    public int getQueueDepth() {
+        return this.buffer.size();
+    }
+
+    /**
+     * Returns the highest queue depth observed so far.
+     *
+     * @return the maximum queue depth
+     */
+    public int getMaxQueueDepth() {
+        return this.maxQueueDepth.get();
+    }
+
+    /**
+     * Returns the number of events received from the Tooling API, including the dropped ones.
+     *
+     * @return the number of received events
+     */
+    public long getReceivedEventCount() {
+        return this.receivedEventCount.get();
+    }
+
+    /**
+     * Returns the number of events that were dropped because the buffer was full or the dispatcher was closed.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedEventCount() {
+        return this.droppedEventCount.get();
+    }
+
+    /**
+     * Returns the number of status updates that were not delivered because a later status update was part of the same batch.
+     *
+     * @return the number of coalesced events
+     */
+    public long getCoalescedEventCount() {
+        return this.coalescedEventCount.get();
+    }
+
+    /**
+     * Returns the number of events that were delivered to the listeners.
+     *
+     * @return the number of delivered events
+     */
+    public long getDeliveredEventCount() {
+        return this.deliveredEventCount.get();
+    }
+
+    /**
+     * Returns the number of batches that were delivered to the listeners.
+     *
+     * @return the number of delivered batches
+     */
+    public long getDeliveredBatchCount() {
+        return this.deliveredBatchCount.get();
+    }
+
+    /**
+     * Creates a new dispatcher with the default capacity and maximum batch size and starts its consumer thread.
+     *
+     * @return the new instance
+     */
+    public static BatchingProgressDispatcher create() {
+        return create(DEFAULT_CAPACITY, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a new dispatcher and starts its consumer thread.
+     *
+     * @param capacity the number of events that can be buffered, rounded up to the next power of two
+     * @param maxBatchSize the maximum number of events delivered in one batch
+     * @return the new instance
+     */
+    public static BatchingProgressDispatcher create(int capacity, int maxBatchSize) {
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive: " + capacity);
+        Preconditions.checkArgument(maxBatchSize > 0, "Maximum batch size must be positive: " + maxBatchSize);
+        BatchingProgressDispatcher dispatcher = new BatchingProgressDispatcher(capacity, maxBatchSize);
+        dispatcher.consumerThread.start();
+        return dispatcher;
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.progress;
+
+import com.google.common.base.Preconditions;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring buffer that supports many producers and a single consumer. Producers claim a slot by advancing the tail sequence and then publish their element
+ * into the claimed slot. The consumer only takes elements that have been published, such that a claimed but not yet published slot ends a drain until the producer has
+ * caught up. Offering to a full buffer fails immediately rather than waiting for the consumer.
+ *
+ * @param <E> the type of the buffered elements
+ * @author Etienne Studer
+ */
+final class ProgressEventRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong head;
+    private final AtomicLong tail;
+
+    ProgressEventRingBuffer(int capacity) {
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive: " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        size = size < capacity ? size << 1 : size;
+        this.slots = new AtomicReferenceArray<E>(size);
+        this.mask = size - 1;
+        this.head = new AtomicLong();
+        this.tail = new AtomicLong();
+    }
+
+    /**
+     * Returns the number of slots of this buffer, which is the requested capacity rounded up to the next power of two.
+     *
+     * @return the capacity
+     */
+    int capacity() {
+        return this.slots.length();
+    }
+
+    /**
+     * Adds the given element if the buffer is not full. May be called from any thread.
+     *
+     * @param element the element to add, must not be null
+     * @return {@code true} if the element was added, {@code false} if the buffer is full
+     */
+    boolean offer(E element) {
+        Preconditions.checkNotNull(element);
+        while (true) {
+            long tail = this.tail.get();
+            if (tail - this.head.get() >= this.slots.length()) {
+                return false;
+            }
+            if (this.tail.compareAndSet(tail, tail + 1)) {
+                this.slots.lazySet((int) tail & this.mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves up to the given number of published elements into the given list, in the order in which their slots were claimed. Must only be called from the consumer thread.
+     *
+     * @param target the list to add the elements to
+     * @param maxElements the maximum number of elements to move
+     * @return the number of moved elements
+     */
+    int drainTo(List<? super E> target, int maxElements) {
+        long head = this.head.get();
+        int drained = 0;
+        while (drained < maxElements) {
+            int index = (int) head & this.mask;
+            E element = this.slots.get(index);
+            if (element == null) {
+                break;
+            }
+            this.slots.lazySet(index, null);
+            target.add(element);
+            head++;
+            drained++;
+            this.head.lazySet(head);
+        }
+        return drained;
+    }
+
+    /**
+     * Returns the number of elements that have been claimed but not yet consumed. The value is an approximation while producers or the consumer are active.
+     *
+     * @return the number of buffered elements
+     */
+    int size() {
+        long size = this.tail.get() - this.head.get();
+        return (int) Math.max(0, Math.min(size, this.slots.length()));
+    }
+
+    /**
+     * Returns whether no elements are buffered.
+     *
+     * @return {@code true} if the buffer is empty
+     */
+    boolean isEmpty() {
+        return this.tail.get() == this.head.get();
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.instrumentation
+
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingclient.ModelRequest
+import spock.lang.Specification
+
+import javax.management.MBeanServerFactory
+import javax.management.ObjectName
+import javax.management.openmbean.CompositeData
+import java.util.concurrent.TimeUnit
+
+class HistogramRequestInstrumentationTest extends Specification {
+
+  def "histogram records count, total, max and percentiles"() {
+    setup:
+    def histogram = new TimingHistogram()
+
+    when:
+    [3, 4, 40, 700].each { histogram.record(it, TimeUnit.MILLISECONDS) }
+
+    then:
+    histogram.count == 4
+    histogram.getTotal(TimeUnit.MILLISECONDS) == 747
+    histogram.getMax(TimeUnit.MILLISECONDS) == 700
+    histogram.getPercentile(50, TimeUnit.MILLISECONDS) == 5
+    histogram.getPercentile(100, TimeUnit.MILLISECONDS) == 700
+    histogram.bucketCounts.sum() == 4
+    histogram.bucketCounts.size() == TimingHistogram.bucketUpperBoundsMillis.size()
+  }
+
+  def "empty histogram reports zero"() {
+    setup:
+    def histogram = new TimingHistogram()
+
+    expect:
+    histogram.getMean(TimeUnit.MILLISECONDS) == 0
+    histogram.getPercentile(95, TimeUnit.MILLISECONDS) == 0
+  }
+
+  def "events are recorded per phase and model type"() {
+    setup:
+    def instrumentation = new HistogramRequestInstrumentation()
+
+    when:
+    instrumentation.phaseCompleted(event(RequestPhase.CONNECT, String, 10))
+    instrumentation.phaseCompleted(event(RequestPhase.CONNECT, String, 30))
+    instrumentation.phaseCompleted(event(RequestPhase.CONVERSION, String, 5))
+    instrumentation.phaseCompleted(event(RequestPhase.CONNECT, Integer, 7))
+
+    then:
+    instrumentation.getHistogram(RequestPhase.CONNECT, String).count == 2
+    instrumentation.getHistogram(RequestPhase.CONNECT, String).getMax(TimeUnit.MILLISECONDS) == 30
+    instrumentation.getHistogram(RequestPhase.CONVERSION, String).count == 1
+    instrumentation.getHistogram(RequestPhase.CONNECT, Integer).count == 1
+    instrumentation.getHistogram(RequestPhase.EVENT_DISPATCH, String) == null
+    instrumentation.statistics.size() == 3
+
+    when:
+    instrumentation.reset()
+
+    then:
+    instrumentation.statistics.isEmpty()
+  }
+
+  def "timer reports once and only succeeds when marked"() {
+    setup:
+    def events = []
+    def instrumentation = { RequestPhaseEvent event -> events << event } as RequestInstrumentation
+
+    when:
+    def timer = RequestPhaseTimer.start(instrumentation, RequestPhase.OPERATION_RUN, ModelRequest, String, new File('.'), null, GradleDistribution.fromBuild())
+    timer.stop()
+    timer.stop()
+    def successfulTimer = RequestPhaseTimer.start(instrumentation, RequestPhase.OPERATION_RUN, ModelRequest, String, new File('.'), null, GradleDistribution.fromBuild())
+    successfulTimer.succeeded()
+    successfulTimer.stop()
+
+    then:
+    events.size() == 2
+    !events[0].successful
+    events[1].successful
+    events[1].projectDir == new File('.')
+  }
+
+  def "statistics are exposed through JMX"() {
+    setup:
+    def mBeanServer = MBeanServerFactory.newMBeanServer()
+    def instrumentation = new JmxRequestInstrumentation(JmxRequestInstrumentation.DEFAULT_OBJECT_NAME, mBeanServer)
+    instrumentation.register()
+    instrumentation.phaseCompleted(event(RequestPhase.CONNECT, String, 10))
+
+    when:
+    CompositeData[] statistics = mBeanServer.getAttribute(new ObjectName(JmxRequestInstrumentation.DEFAULT_OBJECT_NAME), 'Statistics')
+
+    then:
+    statistics.length == 1
+    statistics[0].get('phase') == 'CONNECT'
+    statistics[0].get('modelType') == 'java.lang.String'
+    statistics[0].get('count') == 1L
+
+    cleanup:
+    instrumentation.unregister()
+  }
+
+  private static RequestPhaseEvent event(RequestPhase phase, Class<?> modelType, long durationMillis) {
+    RequestPhaseEvent.from(phase, ModelRequest, modelType, new File('.'), null, GradleDistribution.fromBuild(), TimeUnit.MILLISECONDS.toNanos(durationMillis), true)
+  }
+
+}
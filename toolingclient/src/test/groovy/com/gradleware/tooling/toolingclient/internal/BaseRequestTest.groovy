@@ -17,9 +17,12 @@
 package com.gradleware.tooling.toolingclient.internal
 
 import com.gradleware.tooling.toolingclient.LongRunningOperationPromise
+import com.gradleware.tooling.toolingclient.RequestPriority
 import org.gradle.tooling.ProgressListener
 import spock.lang.Specification
 
+import java.util.concurrent.TimeUnit
+
 class BaseRequestTest extends Specification {
 
   def "addingAdditionalProgressListeners"() {
@@ -54,6 +57,42 @@ class BaseRequestTest extends Specification {
     request.typedProgressListeners == [someListener, someOtherListener]
   }
 
+  def "priorityDefaultsToInteractive"() {
+    given:
+    ExecutableToolingClient toolingClient = Mock(ExecutableToolingClient)
+    def request = new MyBaseRequest(toolingClient)
+
+    expect:
+    request.priority == RequestPriority.INTERACTIVE
+
+    when:
+    request.priority(RequestPriority.PREFETCH)
+
+    then:
+    request.priority == RequestPriority.PREFETCH
+  }
+
+  def "deadlineDefaultsToNone"() {
+    given:
+    ExecutableToolingClient toolingClient = Mock(ExecutableToolingClient)
+    def request = new MyBaseRequest(toolingClient)
+
+    expect:
+    request.deadlineMillis == 0
+
+    when:
+    request.deadline(2, TimeUnit.SECONDS)
+
+    then:
+    request.deadlineMillis == 2000
+
+    when:
+    request.deadline(-1, TimeUnit.SECONDS)
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+
   private static class MyBaseRequest<T> extends BaseRequest<T, MyBaseRequest<T>> {
 
     MyBaseRequest(ExecutableToolingClient toolingClient) {
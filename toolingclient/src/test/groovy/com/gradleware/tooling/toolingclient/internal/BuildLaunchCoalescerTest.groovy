@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.internal
+
+import com.gradleware.tooling.toolingclient.LaunchableConfig
+import org.gradle.tooling.GradleConnectionException
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class BuildLaunchCoalescerTest extends Specification {
+
+  def "requests within the window are merged into one invocation with the union of their tasks"() {
+    setup:
+    def coalescer = new BuildLaunchCoalescer()
+    def merged = new ResultHandlerPromise<Void>()
+    def launched = []
+    def toolingClient = Mock(ExecutableToolingClient)
+    toolingClient.execute(_ as InspectableBuildLaunchRequest) >> { InspectableBuildLaunchRequest request -> launched << request; merged }
+    def first = newRequest(toolingClient, 'clean', 'compileJava')
+    def second = newRequest(toolingClient, 'compileJava', 'compileTestJava')
+    def completed = new CountDownLatch(2)
+
+    when:
+    [first, second].each { coalescer.submit(it).onComplete { completed.countDown() } }
+    waitUntilLaunched(launched, 1)
+
+    then:
+    launched.size() == 1
+    launched[0].launchables.tasks == ['clean', 'compileJava', 'compileTestJava']
+    launched[0].coalescingWindowMillis == 0
+
+    when:
+    merged.resultHandler.onComplete(null)
+
+    then:
+    completed.await(5, TimeUnit.SECONDS)
+
+    cleanup:
+    coalescer.stop()
+  }
+
+  def "requests with different arguments are never merged and failures are propagated to every caller"() {
+    setup:
+    def coalescer = new BuildLaunchCoalescer()
+    def promises = [new ResultHandlerPromise<Void>(), new ResultHandlerPromise<Void>()]
+    def launched = []
+    def toolingClient = Mock(ExecutableToolingClient)
+    toolingClient.execute(_ as InspectableBuildLaunchRequest) >> { InspectableBuildLaunchRequest request -> launched << request; promises[launched.size() - 1] }
+    def first = newRequest(toolingClient, 'build')
+    def second = newRequest(toolingClient, 'build').arguments('--offline')
+    def failures = Collections.synchronizedList([])
+
+    when:
+    [first, second].each { coalescer.submit(it).onFailure { failures << it } }
+    waitUntilLaunched(launched, 2)
+    def failure = new GradleConnectionException('failed')
+    promises.each { it.resultHandler.onFailure(failure) }
+
+    then:
+    launched.size() == 2
+    launched*.arguments*.toList() as Set == [[], ['--offline']] as Set
+    failures == [failure, failure]
+
+    cleanup:
+    coalescer.stop()
+  }
+
+  def "only task requests without standard input opt into coalescing"() {
+    setup:
+    def coalescer = new BuildLaunchCoalescer()
+    def toolingClient = Mock(ExecutableToolingClient)
+
+    expect:
+    coalescer.isCoalescable(newRequest(toolingClient, 'build'))
+    !coalescer.isCoalescable(newRequest(toolingClient, 'build').coalescingWindow(0, TimeUnit.MILLISECONDS))
+    !coalescer.isCoalescable(newRequest(toolingClient, 'build').standardInput(new ByteArrayInputStream(new byte[0])))
+    !coalescer.isCoalescable(newRequest(toolingClient))
+
+    when:
+    coalescer.stop()
+
+    then:
+    !coalescer.isCoalescable(newRequest(toolingClient, 'build'))
+  }
+
+  def "request submitted after the coalescer has been stopped is launched on its own"() {
+    setup:
+    def coalescer = new BuildLaunchCoalescer()
+    def promise = new ResultHandlerPromise<Void>()
+    def launched = []
+    def toolingClient = Mock(ExecutableToolingClient)
+    toolingClient.execute(_ as InspectableBuildLaunchRequest) >> { InspectableBuildLaunchRequest request -> launched << request; promise }
+    def request = newRequest(toolingClient, 'build')
+    def completed = new CountDownLatch(1)
+
+    when:
+    coalescer.stop()
+    coalescer.submit(request).onComplete { completed.countDown() }
+
+    then:
+    launched.size() == 1
+    launched[0].launchables.tasks == ['build']
+    launched[0].coalescingWindowMillis == 0
+    coalescer.@pendingGroups.isEmpty()
+    coalescer.@executor == null
+
+    when:
+    promise.resultHandler.onComplete(null)
+
+    then:
+    completed.await(5, TimeUnit.SECONDS)
+  }
+
+  private static DefaultBuildLaunchRequest newRequest(ExecutableToolingClient toolingClient, String... tasks) {
+    new DefaultBuildLaunchRequest(toolingClient, LaunchableConfig.forTasks(tasks)).projectDir(new File('project')).coalescingWindow(50, TimeUnit.MILLISECONDS)
+  }
+
+  private static void waitUntilLaunched(List launched, int count) {
+    long deadline = System.currentTimeMillis() + 5000
+    while (launched.size() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10)
+    }
+    Thread.sleep(100)
+  }
+
+}
@@ -21,6 +21,8 @@ import com.gradleware.tooling.toolingclient.GradleDistribution
 import com.gradleware.tooling.toolingclient.LaunchableConfig
 import com.gradleware.tooling.toolingclient.TestConfig
 import com.gradleware.tooling.toolingclient.ToolingClient
+import com.gradleware.tooling.toolingclient.instrumentation.HistogramRequestInstrumentation
+import com.gradleware.tooling.toolingclient.instrumentation.RequestPhase
 import org.gradle.internal.Factory
 import org.gradle.tooling.BuildAction
 import org.gradle.tooling.BuildController
@@ -182,6 +184,26 @@ class DefaultToolingClientTest extends Specification {
     toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
   }
 
+  def "instrumentationReceivesConnectAndOperationRunPhases"() {
+    setup:
+    directoryProvider.createFile('settings.gradle')
+
+    def instrumentation = new HistogramRequestInstrumentation()
+    DefaultToolingClient toolingClient = new DefaultToolingClient({ GradleConnector.newConnector() } as Factory<GradleConnector>, instrumentation)
+    def modelRequest = toolingClient.newModelRequest(BuildEnvironment.class)
+    modelRequest.projectDir(directoryProvider.testDirectory)
+
+    when:
+    modelRequest.executeAndWait()
+
+    then:
+    instrumentation.getHistogram(RequestPhase.CONNECT, BuildEnvironment.class).count == 1
+    instrumentation.getHistogram(RequestPhase.OPERATION_RUN, BuildEnvironment.class).count == 1
+
+    cleanup:
+    toolingClient.stop(ToolingClient.CleanUpStrategy.GRACEFULLY)
+  }
+
   def "progressListenersInvokedForBuildActionRequest"() {
     setup:
     // settings.gradle file to ensure test does not pick up Gradle version defined in the wrapper of the commons build itself
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.internal
+
+import com.gradleware.tooling.toolingclient.Consumer
+import com.gradleware.tooling.toolingclient.RequestPriority
+import com.gradleware.tooling.toolingclient.RequestSchedulingPolicy
+import org.gradle.tooling.BuildCancelledException
+import org.gradle.tooling.GradleConnector
+import spock.lang.Specification
+
+class RequestSchedulerTest extends Specification {
+
+  def "unlimited policy grants all requests immediately"() {
+    setup:
+    def scheduler = new RequestScheduler(RequestSchedulingPolicy.unlimited())
+    def token = GradleConnector.newCancellationTokenSource().token()
+
+    when:
+    def ticket = scheduler.acquire(1, RequestPriority.PREFETCH, token)
+
+    then:
+    ticket.cancellationToken.is(token)
+    !scheduler.limited
+    scheduler.queuedRequestCount == 0
+  }
+
+  def "queued requests are granted by priority and round-robin across connections"() {
+    setup:
+    def scheduler = new RequestScheduler(RequestSchedulingPolicy.from(1, 1, false))
+    def granted = []
+    def running = scheduler.acquire(1, RequestPriority.INTERACTIVE, newToken())
+
+    when:
+    enqueue(scheduler, granted, 'a1', 1, RequestPriority.BACKGROUND)
+    enqueue(scheduler, granted, 'a2', 1, RequestPriority.BACKGROUND)
+    enqueue(scheduler, granted, 'b1', 2, RequestPriority.BACKGROUND)
+    enqueue(scheduler, granted, 'i1', 2, RequestPriority.INTERACTIVE)
+
+    then:
+    granted.empty
+    scheduler.queuedRequestCount == 4
+    scheduler.runningRequestCount == 1
+
+    when:
+    scheduler.release(running)
+    while (!granted.empty && granted.size() < 4) {
+      scheduler.release(granted.last().ticket)
+    }
+
+    then:
+    granted*.name == ['i1', 'a1', 'b1', 'a2']
+    granted.every { it.ticket.getQueueWait(java.util.concurrent.TimeUnit.NANOSECONDS) >= 0 }
+  }
+
+  def "per-connection limit lets requests of other connections run"() {
+    setup:
+    def scheduler = new RequestScheduler(RequestSchedulingPolicy.from(3, 1, false))
+    def granted = []
+    scheduler.acquire(1, RequestPriority.INTERACTIVE, newToken())
+
+    when:
+    enqueue(scheduler, granted, 'a', 1, RequestPriority.INTERACTIVE)
+    enqueue(scheduler, granted, 'b', 2, RequestPriority.PREFETCH)
+
+    then:
+    granted*.name == ['b']
+    scheduler.queuedRequestCount == 1
+  }
+
+  def "higher priority request preempts running lower priority request"() {
+    setup:
+    def scheduler = new RequestScheduler(RequestSchedulingPolicy.from(2, 2, true))
+    def callerToken = newToken()
+    def background = scheduler.acquire(1, RequestPriority.BACKGROUND, callerToken)
+    def prefetch = scheduler.acquire(2, RequestPriority.PREFETCH, newToken())
+    def granted = []
+
+    expect:
+    !background.cancellationToken.is(callerToken)
+
+    when:
+    enqueue(scheduler, granted, 'i', 3, RequestPriority.INTERACTIVE)
+
+    then:
+    granted.empty
+    prefetch.preempted
+    prefetch.cancellationToken.cancellationRequested
+    !background.preempted
+    !background.cancellationToken.cancellationRequested
+    scheduler.preemptedRequestCount == 1
+
+    when:
+    scheduler.release(prefetch)
+
+    then:
+    granted*.name == ['i']
+    !granted[0].ticket.preempted
+
+    cleanup:
+    scheduler.stop()
+  }
+
+  def "deadline cancels the request once it has expired"() {
+    setup:
+    def scheduler = new RequestScheduler(RequestSchedulingPolicy.unlimited())
+    def token = newToken()
+
+    when:
+    def ticket = scheduler.acquire(1, RequestPriority.INTERACTIVE, token, 50)
+
+    then:
+    !ticket.cancellationToken.is(token)
+    !ticket.cancellationToken.cancellationRequested
+
+    when:
+    waitUntil { ticket.cancellationToken.cancellationRequested }
+
+    then:
+    ticket.deadlineExceeded
+    !token.cancellationRequested
+
+    cleanup:
+    scheduler.stop()
+  }
+
+  def "deadline forwards the cancellation of the request and stops once the request is released"() {
+    setup:
+    def scheduler = new RequestScheduler(RequestSchedulingPolicy.unlimited())
+    def tokenSource = GradleConnector.newCancellationTokenSource()
+    def ticket = scheduler.acquire(1, RequestPriority.INTERACTIVE, tokenSource.token(), 60000)
+    def released = scheduler.acquire(1, RequestPriority.INTERACTIVE, newToken(), 200)
+
+    when:
+    scheduler.release(released)
+    tokenSource.cancel()
+    waitUntil { ticket.cancellationToken.cancellationRequested }
+    Thread.sleep(400)
+
+    then:
+    !ticket.deadlineExceeded
+    !released.cancellationToken.cancellationRequested
+    !released.deadlineExceeded
+
+    cleanup:
+    scheduler.stop()
+  }
+
+  def "queued request is withdrawn once its own cancellation token is cancelled"() {
+    setup:
+    def scheduler = new RequestScheduler(RequestSchedulingPolicy.from(1, 1, false))
+    def running = scheduler.acquire(1, RequestPriority.INTERACTIVE, newToken())
+    def tokenSource = GradleConnector.newCancellationTokenSource()
+    def granted = []
+    def withdrawn = []
+    scheduler.acquire(1, RequestPriority.INTERACTIVE, tokenSource.token(), { granted << it } as Consumer, { withdrawn << it } as Consumer)
+    enqueue(scheduler, granted, 'prefetch', 1, RequestPriority.PREFETCH)
+
+    expect:
+    scheduler.queuedRequestCount == 2
+
+    when:
+    tokenSource.cancel()
+    waitUntil { !withdrawn.empty }
+
+    then:
+    withdrawn.size() == 1
+    withdrawn[0] instanceof BuildCancelledException
+    scheduler.queuedRequestCount == 1
+
+    when:
+    scheduler.release(running)
+
+    then:
+    granted*.name == ['prefetch']
+
+    cleanup:
+    scheduler.stop()
+  }
+
+  def "waiting caller fails once its queued request is cancelled"() {
+    setup:
+    def scheduler = new RequestScheduler(RequestSchedulingPolicy.from(1, 1, false))
+    scheduler.acquire(1, RequestPriority.INTERACTIVE, newToken())
+    def tokenSource = GradleConnector.newCancellationTokenSource()
+
+    when:
+    Thread.start {
+      Thread.sleep(100)
+      tokenSource.cancel()
+    }
+    scheduler.acquire(1, RequestPriority.INTERACTIVE, tokenSource.token())
+
+    then:
+    thrown(BuildCancelledException)
+    scheduler.queuedRequestCount == 0
+    scheduler.runningRequestCount == 1
+
+    cleanup:
+    scheduler.stop()
+  }
+
+  def "deadline bounds the time a request waits for its slots"() {
+    setup:
+    def scheduler = new RequestScheduler(RequestSchedulingPolicy.from(1, 1, false))
+    scheduler.acquire(1, RequestPriority.INTERACTIVE, newToken())
+    long start = System.nanoTime()
+
+    when:
+    scheduler.acquire(1, RequestPriority.INTERACTIVE, newToken(), 200)
+
+    then:
+    thrown(BuildCancelledException)
+    java.util.concurrent.TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000
+    scheduler.queuedRequestCount == 0
+
+    when:
+    def withdrawn = []
+    scheduler.acquire(1, RequestPriority.BACKGROUND, newToken(), 100, { throw new IllegalStateException('granted') } as Consumer, { withdrawn << it } as Consumer)
+    waitUntil { !withdrawn.empty }
+
+    then:
+    withdrawn[0] instanceof BuildCancelledException
+    scheduler.queuedRequestCount == 0
+
+    cleanup:
+    scheduler.stop()
+  }
+
+  def "requests with a deadline are still watched after the scheduler has been stopped"() {
+    setup:
+    def scheduler = new RequestScheduler(RequestSchedulingPolicy.from(1, 1, false))
+    scheduler.release(scheduler.acquire(1, RequestPriority.INTERACTIVE, newToken(), 1000))
+    scheduler.stop()
+
+    when:
+    def ticket = scheduler.acquire(1, RequestPriority.INTERACTIVE, newToken(), 100)
+    waitUntil { ticket.cancellationToken.cancellationRequested }
+
+    then:
+    ticket.deadlineExceeded
+    scheduler.runningRequestCount == 1
+
+    when:
+    scheduler.acquire(1, RequestPriority.INTERACTIVE, newToken(), 100)
+
+    then:
+    thrown(BuildCancelledException)
+    scheduler.queuedRequestCount == 0
+
+    cleanup:
+    scheduler.stop()
+  }
+
+  private static def newToken() {
+    GradleConnector.newCancellationTokenSource().token()
+  }
+
+  private static void waitUntil(Closure<Boolean> condition) {
+    long timeout = System.currentTimeMillis() + 5000
+    while (!condition() && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10)
+    }
+  }
+
+  private static void enqueue(RequestScheduler scheduler, List granted, String name, int connectionKey, RequestPriority priority) {
+    scheduler.acquire(connectionKey, priority, newToken(), { granted << [name: name, ticket: it] } as Consumer, { throw new IllegalStateException("$name withdrawn", it) } as Consumer)
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.output
+
+import com.google.common.base.Charsets
+import com.gradleware.tooling.junit.TestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class MappedLogOutputStreamTest extends Specification {
+
+  @Rule
+  TestDirectoryProvider directoryProvider = new TestDirectoryProvider();
+
+  def "lines are indexed as they are written across chunk boundaries"() {
+    setup:
+    def log = MappedLogOutputStream.create(directoryProvider.file('build.log'), Charsets.UTF_8, 16)
+
+    when:
+    log.write('first line\nsecond line that spans chunks\r\nthi'.getBytes(Charsets.UTF_8))
+
+    then:
+    log.lineCount == 2
+    log.getLine(0) == 'first line'
+    log.getLine(1) == 'second line that spans chunks'
+    log.getLines(1, 10) == ['second line that spans chunks']
+
+    when:
+    log.write('rd'.getBytes(Charsets.UTF_8))
+    log.close()
+
+    then:
+    log.lineCount == 3
+    log.getLine(2) == 'third'
+    log.length == 47
+  }
+
+  def "search returns each matching line once and ignores matches across line terminators"() {
+    setup:
+    def log = MappedLogOutputStream.create(directoryProvider.file('build.log'), Charsets.UTF_8, 8)
+    def writer = new OutputStreamWriter(log, Charsets.UTF_8)
+    writer.write(':compileJava\nerror: error here\nab\ncd\n:test FAILED\nerror again\n')
+    writer.flush()
+
+    expect:
+    log.search('error', 0, 10) == [1, 5]
+    log.search('error', 2, 10) == [5]
+    log.search('error', 0, 1) == [1]
+    log.search('b\nc', 0, 10) == []
+    log.search('FAILED', 0, 10) == [4]
+    log.search('missing', 0, 10) == []
+  }
+
+  def "follower returns new lines as they become visible"() {
+    setup:
+    def log = MappedLogOutputStream.create(directoryProvider.file('build.log'))
+    def follower = log.follow(0)
+
+    when:
+    log.write('one\ntw'.bytes)
+
+    then:
+    follower.poll(10) == ['one']
+    follower.poll(10) == []
+    !follower.atEnd
+
+    when:
+    log.write('o\nthree'.bytes)
+    log.close()
+
+    then:
+    follower.poll(1) == ['two']
+    follower.poll(10) == ['three']
+    follower.atEnd
+  }
+
+  def "writing after closing fails"() {
+    setup:
+    def log = MappedLogOutputStream.create(directoryProvider.file('build.log'))
+    log.close()
+
+    when:
+    log.write(1)
+
+    then:
+    thrown(IOException)
+  }
+
+}
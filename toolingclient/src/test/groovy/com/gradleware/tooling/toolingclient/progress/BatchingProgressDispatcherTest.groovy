@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingclient.progress
+
+import org.gradle.tooling.ProgressEvent
+import org.gradle.tooling.ProgressListener
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class BatchingProgressDispatcherTest extends Specification {
+
+  def "ring buffer rejects elements when full and drains in order"() {
+    setup:
+    def buffer = new ProgressEventRingBuffer<String>(3)
+
+    expect:
+    buffer.capacity() == 4
+    (1..4).every { buffer.offer("e$it".toString()) }
+    !buffer.offer('e5')
+    buffer.size() == 4
+
+    when:
+    def drained = []
+    def count = buffer.drainTo(drained, 3)
+
+    then:
+    count == 3
+    drained == ['e1', 'e2', 'e3']
+    buffer.offer('e5')
+    buffer.drainTo(drained, 10) == 2
+    drained == ['e1', 'e2', 'e3', 'e4', 'e5']
+    buffer.isEmpty()
+  }
+
+  def "typed events are delivered in order on the consumer thread"() {
+    setup:
+    def dispatcher = BatchingProgressDispatcher.create(64, 8)
+    def events = (1..20).collect { Mock(org.gradle.tooling.events.ProgressEvent) }
+    def received = Collections.synchronizedList([])
+    def batches = Collections.synchronizedList([])
+    def threads = Collections.synchronizedSet(new HashSet())
+    dispatcher.addTypedProgressListener({ received << it; threads << Thread.currentThread() } as org.gradle.tooling.events.ProgressListener)
+    dispatcher.addBatchProgressListener({ batches << new ArrayList(it) } as BatchProgressListener)
+
+    when:
+    events.each { dispatcher.statusChanged(it) }
+    dispatcher.close()
+
+    then:
+    received == events
+    batches.flatten() == events
+    batches.every { it.size() <= 8 }
+    threads == [dispatcher.consumerThread] as Set
+    dispatcher.receivedEventCount == 20
+    dispatcher.deliveredEventCount == 20
+    dispatcher.droppedEventCount == 0
+    dispatcher.queueDepth == 0
+  }
+
+  def "status updates of a batch are coalesced and drops are counted when the buffer is full"() {
+    setup:
+    def dispatcher = BatchingProgressDispatcher.create(4, 16)
+    def blocked = new CountDownLatch(1)
+    def release = new CountDownLatch(1)
+    def typedEvent = Mock(org.gradle.tooling.events.ProgressEvent)
+    def received = Collections.synchronizedList([])
+    dispatcher.addTypedProgressListener({ blocked.countDown(); release.await(5, TimeUnit.SECONDS) } as org.gradle.tooling.events.ProgressListener)
+    dispatcher.addProgressListener({ received << it } as ProgressListener)
+
+    when:
+    dispatcher.statusChanged(typedEvent)
+    blocked.await(5, TimeUnit.SECONDS)
+    def statusEvents = (1..6).collect { Mock(ProgressEvent) }
+    statusEvents.each { dispatcher.statusChanged(it) }
+    release.countDown()
+    dispatcher.close()
+
+    then:
+    received == [statusEvents[3]]
+    dispatcher.receivedEventCount == 7
+    dispatcher.droppedEventCount == 2
+    dispatcher.coalescedEventCount == 3
+    dispatcher.deliveredEventCount == 2
+    dispatcher.maxQueueDepth == 4
+  }
+
+  def "events received after closing are dropped"() {
+    setup:
+    def dispatcher = BatchingProgressDispatcher.create()
+
+    when:
+    dispatcher.close()
+    dispatcher.statusChanged(Mock(org.gradle.tooling.events.ProgressEvent))
+
+    then:
+    dispatcher.closed
+    dispatcher.droppedEventCount == 1
+    !dispatcher.consumerThread.alive
+  }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel;
+
+import com.gradleware.tooling.toolingutils.ImmutableCollection;
+
+import java.util.List;
+
+/**
+ * The effective classpath of an Eclipse project: its own dependencies together with the dependencies that the projects it depends on export, directly or through other
+ * exported project dependencies. The entries are ordered the way Eclipse resolves them and each dependency is contained once.
+ *
+ * @author Etienne Studer
+ */
+public interface OmniEclipseClasspath {
+
+    /**
+     * Returns the project dependencies on the classpath: each declared project dependency followed by the project dependencies exported by its target project. A project
+     * never depends on itself, even if it is part of a dependency cycle.
+     *
+     * @return the project dependencies, without duplicate target projects
+     */
+    @ImmutableCollection
+    List<OmniEclipseProjectDependency> getProjectDependencies();
+
+    /**
+     * Returns the external dependencies on the classpath: the declared external dependencies followed by the external dependencies exported by the target projects of the
+     * project dependencies.
+     *
+     * @return the external dependencies, without duplicate files
+     */
+    @ImmutableCollection
+    List<OmniExternalDependency> getExternalDependencies();
+
+}
@@ -38,4 +38,21 @@ public interface OmniEclipseGradleBuild extends BuildScopedModel {
      */
     OmniGradleProject getRootProject();
 
+    /**
+     * Returns the index of the project dependencies between the Eclipse projects of the build. The index is created on first access and then kept with this build.
+     *
+     * @return the project dependency graph
+     */
+    OmniEclipseProjectDependencyGraph getProjectDependencyGraph();
+
+    /**
+     * Returns the effective classpath of the Eclipse project with the given path. The classpaths of all projects of the build are computed together on first access and
+     * then kept with this build.
+     *
+     * @param projectPath the path of the project
+     * @return the effective classpath of the project
+     * @throws IllegalArgumentException if the build does not contain a project with the given path
+     */
+    OmniEclipseClasspath getEffectiveClasspath(Path projectPath);
+
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel;
+
+import com.gradleware.tooling.toolingutils.ImmutableCollection;
+
+import java.util.List;
+
+/**
+ * Indexes the project dependencies between the Eclipse projects of a build. Besides the declared dependencies of each project, it provides the projects that depend on a
+ * given project, the transitive closures in both directions, a topological order of all projects, and the dependency cycles. All closures are computed once, when the
+ * graph is created, such that the queries take constant time or time proportional to the size of their result.
+ * <p/>
+ * Only dependencies on projects of the same build are indexed. All projects are identified by their path and all returned lists are in topological order.
+ *
+ * @author Etienne Studer
+ */
+public interface OmniEclipseProjectDependencyGraph {
+
+    /**
+     * Returns all projects of the build such that each project comes after the projects it depends on. The projects of a dependency cycle are adjacent.
+     *
+     * @return all projects in topological order
+     */
+    @ImmutableCollection
+    List<OmniEclipseProject> getProjectsInTopologicalOrder();
+
+    /**
+     * Returns the projects that the given project directly depends on.
+     *
+     * @param projectPath the path of the project
+     * @return the direct dependencies of the project
+     * @throws IllegalArgumentException if the build does not contain a project with the given path
+     */
+    @ImmutableCollection
+    List<OmniEclipseProject> getDependencies(Path projectPath);
+
+    /**
+     * Returns the projects that directly depend on the given project.
+     *
+     * @param projectPath the path of the project
+     * @return the direct dependents of the project
+     * @throws IllegalArgumentException if the build does not contain a project with the given path
+     */
+    @ImmutableCollection
+    List<OmniEclipseProject> getDependents(Path projectPath);
+
+    /**
+     * Returns the projects that the given project depends on directly or transitively. The project itself is only contained if it is part of a dependency cycle.
+     *
+     * @param projectPath the path of the project
+     * @return the transitive dependencies of the project
+     * @throws IllegalArgumentException if the build does not contain a project with the given path
+     */
+    @ImmutableCollection
+    List<OmniEclipseProject> getTransitiveDependencies(Path projectPath);
+
+    /**
+     * Returns the projects that depend on the given project directly or transitively, i.e. the projects affected by a change of the given project. The project itself is
+     * only contained if it is part of a dependency cycle.
+     *
+     * @param projectPath the path of the project
+     * @return the transitive dependents of the project
+     * @throws IllegalArgumentException if the build does not contain a project with the given path
+     */
+    @ImmutableCollection
+    List<OmniEclipseProject> getTransitiveDependents(Path projectPath);
+
+    /**
+     * Returns whether the given project depends on the other project, directly or transitively.
+     *
+     * @param projectPath the path of the depending project
+     * @param dependencyPath the path of the project that may be depended on
+     * @return {@code true} if the project depends on the other project
+     * @throws IllegalArgumentException if the build does not contain a project with one of the given paths
+     */
+    boolean dependsOn(Path projectPath, Path dependencyPath);
+
+    /**
+     * Returns whether the project dependencies contain at least one cycle.
+     *
+     * @return {@code true} if there is a dependency cycle
+     */
+    boolean hasCycles();
+
+    /**
+     * Returns the dependency cycles, each as the list of projects that are part of it. A project that depends on itself forms a cycle of its own.
+     *
+     * @return the dependency cycles, empty if there are none
+     */
+    @ImmutableCollection
+    List<List<OmniEclipseProject>> getCycles();
+
+}
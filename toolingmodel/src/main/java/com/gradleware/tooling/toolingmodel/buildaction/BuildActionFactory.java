@@ -17,8 +17,12 @@
 package com.gradleware.tooling.toolingmodel.buildaction;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import org.gradle.tooling.BuildAction;
 
+import java.util.List;
+
 /**
  * Factory for {@link org.gradle.tooling.BuildAction} instances.
  *
@@ -52,6 +56,43 @@ public final class BuildActionFactory {
         return new ModelForAllProjectsBuildAction<T>(modelType);
     }
 
+    /**
+     * Creates a new {@code ModelForProjectsBuildAction} that fetches the given model for the given project paths. Splitting the projects of a build across several of these
+     * actions allows to deliver the models of the first projects before the models of the remaining projects have been built.
+     *
+     * @param projectPaths the paths of the projects for which to fetch the model
+     * @param modelType the model to fetch
+     * @param <T> the model type
+     * @return the build action
+     */
+    public static <T> ModelForProjectsBuildAction<T> getModelForProjects(List<String> projectPaths, Class<T> modelType) {
+        Preconditions.checkNotNull(projectPaths);
+        Preconditions.checkNotNull(modelType);
+        return new ModelForProjectsBuildAction<T>(projectPaths, modelType);
+    }
+
+    /**
+     * Creates a sequence of {@code ModelForProjectsBuildAction} instances that together fetch the given model for the given project paths, each action fetching the model for
+     * at most {@code batchSize} consecutive projects. Running the actions one after the other on the same connection bounds the size of each serialized result, and thus the
+     * memory required by the daemon and the client, independently of the number of projects in the build.
+     *
+     * @param projectPaths the paths of the projects for which to fetch the model
+     * @param modelType the model to fetch
+     * @param batchSize the maximum number of projects per action, must be positive
+     * @param <T> the model type
+     * @return the build actions, one per batch
+     */
+    public static <T> ImmutableList<ModelForProjectsBuildAction<T>> getModelForProjectsInBatches(List<String> projectPaths, Class<T> modelType, int batchSize) {
+        Preconditions.checkNotNull(projectPaths);
+        Preconditions.checkNotNull(modelType);
+        Preconditions.checkArgument(batchSize > 0, "Batch size must be positive: %s", batchSize);
+        ImmutableList.Builder<ModelForProjectsBuildAction<T>> buildActions = ImmutableList.builder();
+        for (List<String> batch : Lists.partition(projectPaths, batchSize)) {
+            buildActions.add(new ModelForProjectsBuildAction<T>(batch, modelType));
+        }
+        return buildActions.build();
+    }
+
     /**
      * Creates a new {@code GlobalModelBuildAction} that fetches the given global build model.
      *
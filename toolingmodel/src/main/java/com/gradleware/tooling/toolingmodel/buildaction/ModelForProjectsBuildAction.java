@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.buildaction;
+
+import org.gradle.tooling.BuildAction;
+import org.gradle.tooling.BuildController;
+import org.gradle.tooling.model.gradle.BasicGradleProject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Build action to get a specific model for a given subset of the projects of a build. The models are returned in the order of the given project paths.
+ *
+ * @param <T> the type of models to fetch
+ * @author Etienne Studer
+ */
+public final class ModelForProjectsBuildAction<T> implements BuildAction<Map<String, T>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ArrayList<String> projectPaths;
+    private final Class<T> modelType;
+
+    ModelForProjectsBuildAction(List<String> projectPaths, Class<T> modelType) {
+        this.projectPaths = new ArrayList<String>(projectPaths);
+        this.modelType = modelType;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, T> execute(BuildController controller) {
+        Map<String, BasicGradleProject> projectsByPath = new HashMap<String, BasicGradleProject>();
+        for (BasicGradleProject project : controller.getBuildModel().getProjects()) {
+            projectsByPath.put(project.getPath(), project);
+        }
+
+        Map<String, T> models = new LinkedHashMap<String, T>();
+        for (String projectPath : this.projectPaths) {
+            BasicGradleProject project = projectsByPath.get(projectPath);
+            if (project == null) {
+                throw new IllegalStateException("Invalid project path: " + projectPath);
+            }
+            models.put(projectPath, controller.getModel(project, this.modelType));
+        }
+        return models;
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handle on the models of many builds that are loaded concurrently through {@link ModelRepositoryProvider#loadModels(List, List, TransientRequestAttributes, FetchStrategy, int)}.
+ * The handle reports the progress of the loading, gives access to the models and failures of the builds that have been loaded so far, and allows waiting for all builds to be
+ * loaded. Each requested model type of each build counts as one unit of work. Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+public interface BulkModelLoad {
+
+    /**
+     * Returns the builds whose models are loaded, in the order in which they were requested.
+     *
+     * @return the builds
+     */
+    List<FixedRequestAttributes> getBuilds();
+
+    /**
+     * Returns the model types that are loaded for each build, in the order in which they are loaded.
+     *
+     * @return the model types
+     */
+    List<Class<?>> getModelTypes();
+
+    /**
+     * Returns the total number of models to load, i.e. the number of builds multiplied by the number of model types.
+     *
+     * @return the total number of models
+     */
+    int getTotalCount();
+
+    /**
+     * Returns the number of models whose loading has completed, successfully or not.
+     *
+     * @return the number of completed models
+     */
+    int getCompletedCount();
+
+    /**
+     * Returns the number of models whose loading has failed.
+     *
+     * @return the number of failed models
+     */
+    int getFailedCount();
+
+    /**
+     * Returns whether the loading of all models has completed.
+     *
+     * @return {@code true} if all models have been loaded or have failed to load
+     */
+    boolean isDone();
+
+    /**
+     * Waits until the loading of all models has completed.
+     *
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    void await() throws InterruptedException;
+
+    /**
+     * Waits until the loading of all models has completed or the given timeout elapses.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return {@code true} if the loading of all models has completed, {@code false} if the timeout elapsed first
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    boolean await(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Returns the model of the given type of the given build.
+     *
+     * @param fixedRequestAttributes the build
+     * @param modelType the model type
+     * @param <T> the model type
+     * @return the model, null if it has not been loaded yet or if its loading has failed
+     */
+    <T> T getModel(FixedRequestAttributes fixedRequestAttributes, Class<T> modelType);
+
+    /**
+     * Returns the failure that occurred when loading the model of the given type of the given build.
+     *
+     * @param fixedRequestAttributes the build
+     * @param modelType the model type
+     * @return the failure, null if the model has not been loaded yet or if it has been loaded successfully
+     */
+    Throwable getFailure(FixedRequestAttributes fixedRequestAttributes, Class<?> modelType);
+
+}
@@ -34,8 +34,17 @@ public enum FetchStrategy {
     LOAD_IF_NOT_CACHED,
 
     /**
-     * Loads the value from the underlying system, regardless of whether the value is currently in the cache or not.
+     * Loads the value from the underlying system, regardless of whether the value is currently in the cache or not. A load of the value that began before the request is not
+     * reused, but concurrent reloads of the same value that are requested while such a load is in progress share a single reload. The cached value remains available to
+     * other requests until it has been replaced.
      */
-    FORCE_RELOAD
+    FORCE_RELOAD,
+
+    /**
+     * Looks up the requested value in the cache and, iff the value is present in the cache, returns it immediately and reloads the value from the underlying system in the
+     * background, replacing the cached value once it has been reloaded. Concurrent background reloads of the same value are deduplicated. Iff the value is not present in the
+     * cache, loads the value from the underlying system as with {@link #LOAD_IF_NOT_CACHED}.
+     */
+    STALE_WHILE_REVALIDATE
 
 }
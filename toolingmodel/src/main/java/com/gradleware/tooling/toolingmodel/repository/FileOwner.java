@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.gradleware.tooling.toolingmodel.Path;
+
+import java.io.File;
+
+/**
+ * Describes the project of a loaded build that owns a given file, and the source directory of that project that contains the file, if any.
+ *
+ * @author Etienne Studer
+ * @see ModelRepositoryProvider#findFileOwner(java.io.File)
+ */
+public final class FileOwner {
+
+    private final FixedRequestAttributes fixedRequestAttributes;
+    private final Path projectPath;
+    private final Optional<File> sourceDirectory;
+
+    public FileOwner(FixedRequestAttributes fixedRequestAttributes, Path projectPath, Optional<File> sourceDirectory) {
+        this.fixedRequestAttributes = Preconditions.checkNotNull(fixedRequestAttributes);
+        this.projectPath = Preconditions.checkNotNull(projectPath);
+        this.sourceDirectory = Preconditions.checkNotNull(sourceDirectory);
+    }
+
+    /**
+     * Returns the request attributes of the model repository that provided the owning project.
+     *
+     * @return the request attributes of the build, never null
+     */
+    public FixedRequestAttributes getFixedRequestAttributes() {
+        return this.fixedRequestAttributes;
+    }
+
+    /**
+     * Returns the path of the owning project.
+     *
+     * @return the project path, never null
+     */
+    public Path getProjectPath() {
+        return this.projectPath;
+    }
+
+    /**
+     * Returns the source directory of the owning project that contains the file.
+     *
+     * @return the source directory, absent if the file is not contained in a source directory of the project
+     */
+    public Optional<File> getSourceDirectory() {
+        return this.sourceDirectory;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+
+        FileOwner that = (FileOwner) other;
+        return Objects.equal(this.fixedRequestAttributes, that.fixedRequestAttributes) &&
+                Objects.equal(this.projectPath, that.projectPath) &&
+                Objects.equal(this.sourceDirectory, that.sourceDirectory);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.fixedRequestAttributes, this.projectPath, this.sourceDirectory);
+    }
+
+    @Override
+    public String toString() {
+        return this.projectPath.getPath() + (this.sourceDirectory.isPresent() ? " (" + this.sourceDirectory.get() + ")" : "");
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import org.gradle.util.GradleVersion;
+
+/**
+ * Describes which features the target Gradle version of a build supports, taking into account the {@link Environment} in which the Tooling API is used. All version checks are
+ * resolved once when the instance is created, such that clients can plan their requests without re-parsing any version strings.
+ *
+ * @author Etienne Studer
+ */
+public final class GradleCapabilities {
+
+    private final String gradleVersion;
+    private final boolean supportsBuildActions;
+    private final boolean supportsBuildInvocations;
+    private final boolean supportsCancellation;
+    private final boolean supportsTypedProgressListeners;
+    private final boolean supportsTestLaunchRequests;
+    private final boolean requiresIsPublicFix;
+
+    private GradleCapabilities(String gradleVersion, boolean supportsBuildActions, boolean supportsBuildInvocations, boolean supportsCancellation,
+                               boolean supportsTypedProgressListeners, boolean supportsTestLaunchRequests, boolean requiresIsPublicFix) {
+        this.gradleVersion = gradleVersion;
+        this.supportsBuildActions = supportsBuildActions;
+        this.supportsBuildInvocations = supportsBuildInvocations;
+        this.supportsCancellation = supportsCancellation;
+        this.supportsTypedProgressListeners = supportsTypedProgressListeners;
+        this.supportsTestLaunchRequests = supportsTestLaunchRequests;
+        this.requiresIsPublicFix = requiresIsPublicFix;
+    }
+
+    /**
+     * Returns the version of the target Gradle distribution from which these capabilities were derived.
+     *
+     * @return the target Gradle version, never null
+     */
+    public String getGradleVersion() {
+        return this.gradleVersion;
+    }
+
+    /**
+     * Returns whether build actions can be run. Build actions are supported as of Gradle version 1.8, and as of Gradle version 2.3 when running in an Eclipse/OSGi environment.
+     *
+     * @return {@code true} if build actions are supported
+     */
+    public boolean supportsBuildActions() {
+        return this.supportsBuildActions;
+    }
+
+    /**
+     * Returns whether the {@code BuildInvocations} model is natively available, i.e. the target Gradle version is >= 1.12 and build actions are supported. If not, the build
+     * invocations are derived from the {@code GradleProject} model.
+     *
+     * @return {@code true} if the build invocations can be fetched natively
+     */
+    public boolean supportsBuildInvocations() {
+        return this.supportsBuildInvocations;
+    }
+
+    /**
+     * Returns whether running requests can be cancelled, which is the case as of Gradle version 2.1.
+     *
+     * @return {@code true} if cancellation is supported
+     */
+    public boolean supportsCancellation() {
+        return this.supportsCancellation;
+    }
+
+    /**
+     * Returns whether typed progress listeners receive build and task events, which is the case as of Gradle version 2.5.
+     *
+     * @return {@code true} if typed progress events are supported
+     */
+    public boolean supportsTypedProgressListeners() {
+        return this.supportsTypedProgressListeners;
+    }
+
+    /**
+     * Returns whether test launch requests can be executed, which is the case as of Gradle version 2.6.
+     *
+     * @return {@code true} if test launch requests are supported
+     */
+    public boolean supportsTestLaunchRequests() {
+        return this.supportsTestLaunchRequests;
+    }
+
+    /**
+     * Returns whether the public flag of the tasks needs to be corrected. In Gradle versions 2.1 to 2.2.1, all tasks are falsely reported as not public by the Tooling API.
+     *
+     * @return {@code true} if all tasks must be treated as public
+     */
+    public boolean requiresIsPublicFix() {
+        return this.requiresIsPublicFix;
+    }
+
+    /**
+     * Resolves the capabilities of the given target Gradle version in the given environment.
+     *
+     * @param gradleVersion the target Gradle version
+     * @param environment the environment in which the Tooling API is used
+     * @return the capabilities
+     */
+    public static GradleCapabilities from(String gradleVersion, Environment environment) {
+        Preconditions.checkNotNull(gradleVersion);
+        Preconditions.checkNotNull(environment);
+
+        GradleVersion baseVersion = GradleVersion.version(gradleVersion).getBaseVersion();
+
+        // in an Eclipse/OSGi environment, the Tooling API supports BuildActions only in Gradle versions >= 2.3, in all other environments as of Gradle version >= 1.8
+        boolean supportsBuildActions = environment == Environment.ECLIPSE ? isEqualOrHigherThan(baseVersion, "2.3") : isEqualOrHigherThan(baseVersion, "1.8");
+        boolean supportsBuildInvocations = supportsBuildActions && isEqualOrHigherThan(baseVersion, "1.12");
+        boolean supportsCancellation = isEqualOrHigherThan(baseVersion, "2.1");
+        boolean supportsTypedProgressListeners = isEqualOrHigherThan(baseVersion, "2.5");
+        boolean supportsTestLaunchRequests = isEqualOrHigherThan(baseVersion, "2.6");
+        boolean requiresIsPublicFix = isEqualOrHigherThan(baseVersion, "2.1") && !isEqualOrHigherThan(baseVersion, "2.2.2");
+
+        return new GradleCapabilities(gradleVersion, supportsBuildActions, supportsBuildInvocations, supportsCancellation, supportsTypedProgressListeners,
+                supportsTestLaunchRequests, requiresIsPublicFix);
+    }
+
+    private static boolean isEqualOrHigherThan(GradleVersion baseVersion, String refVersion) {
+        return baseVersion.compareTo(GradleVersion.version(refVersion)) >= 0;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+
+        GradleCapabilities that = (GradleCapabilities) other;
+        return Objects.equal(this.gradleVersion, that.gradleVersion) &&
+                this.supportsBuildActions == that.supportsBuildActions &&
+                this.supportsBuildInvocations == that.supportsBuildInvocations &&
+                this.supportsCancellation == that.supportsCancellation &&
+                this.supportsTypedProgressListeners == that.supportsTypedProgressListeners &&
+                this.supportsTestLaunchRequests == that.supportsTestLaunchRequests &&
+                this.requiresIsPublicFix == that.requiresIsPublicFix;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(
+                this.gradleVersion,
+                this.supportsBuildActions,
+                this.supportsBuildInvocations,
+                this.supportsCancellation,
+                this.supportsTypedProgressListeners,
+                this.supportsTestLaunchRequests,
+                this.requiresIsPublicFix);
+    }
+
+}
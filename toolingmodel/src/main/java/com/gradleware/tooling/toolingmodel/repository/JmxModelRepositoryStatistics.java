@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Exposes the cache statistics of the model repositories of a {@link ModelRepositoryProvider} as an MXBean.
+ *
+ * @author Etienne Studer
+ */
+public final class JmxModelRepositoryStatistics implements ModelRepositoryStatisticsMXBean {
+
+    /**
+     * The object name under which the statistics are registered by default.
+     */
+    public static final String DEFAULT_OBJECT_NAME = "com.gradleware.tooling:type=ModelRepositoryStatistics";
+
+    private final ModelRepositoryProvider modelRepositoryProvider;
+    private final ObjectName objectName;
+    private final MBeanServer mBeanServer;
+
+    public JmxModelRepositoryStatistics(ModelRepositoryProvider modelRepositoryProvider) {
+        this(modelRepositoryProvider, DEFAULT_OBJECT_NAME, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxModelRepositoryStatistics(ModelRepositoryProvider modelRepositoryProvider, String objectName, MBeanServer mBeanServer) {
+        this.modelRepositoryProvider = Preconditions.checkNotNull(modelRepositoryProvider);
+        this.objectName = createObjectName(Preconditions.checkNotNull(objectName));
+        this.mBeanServer = Preconditions.checkNotNull(mBeanServer);
+    }
+
+    private static ObjectName createObjectName(String objectName) {
+        try {
+            return new ObjectName(objectName);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid object name: " + objectName, e);
+        }
+    }
+
+    @Override
+    public int getRepositoryCount() {
+        return this.modelRepositoryProvider.getStatistics().size();
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        long estimatedSize = 0;
+        for (ModelRepositoryStatistics statistics : this.modelRepositoryProvider.getStatistics()) {
+            estimatedSize += statistics.getEstimatedSize();
+        }
+        return estimatedSize;
+    }
+
+    @Override
+    public List<ModelCacheStatistics> getModelStatistics() {
+        ImmutableList.Builder<ModelCacheStatistics> modelStatistics = ImmutableList.builder();
+        for (ModelRepositoryStatistics statistics : this.modelRepositoryProvider.getStatistics()) {
+            modelStatistics.addAll(statistics.getModelStatistics());
+        }
+        return modelStatistics.build();
+    }
+
+    /**
+     * Registers the statistics with the MBean server.
+     */
+    public void register() {
+        try {
+            this.mBeanServer.registerMBean(this, this.objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register MBean " + this.objectName, e);
+        }
+    }
+
+    /**
+     * Unregisters the statistics from the MBean server, if registered.
+     */
+    public void unregister() {
+        try {
+            if (this.mBeanServer.isRegistered(this.objectName)) {
+                this.mBeanServer.unregisterMBean(this.objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister MBean " + this.objectName, e);
+        }
+    }
+
+}
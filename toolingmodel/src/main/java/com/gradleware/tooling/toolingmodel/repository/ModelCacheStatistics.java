@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Statistics about one model type cached by a {@link ModelRepository}. Durations are in milliseconds, sizes in bytes. The type only uses simple attribute types such that it
+ * can be exposed through JMX.
+ *
+ * @author Etienne Studer
+ */
+public final class ModelCacheStatistics {
+
+    private final String projectDir;
+    private final String modelType;
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long totalLoadTimeMillis;
+    private final long maxLoadTimeMillis;
+    private final long[] loadTimeHistogram;
+    private final boolean cached;
+    private final long entryAgeMillis;
+    private final long estimatedSize;
+
+    @ConstructorProperties({"projectDir", "modelType", "hitCount", "missCount", "loadCount", "totalLoadTimeMillis", "maxLoadTimeMillis", "loadTimeHistogram", "cached",
+            "entryAgeMillis", "estimatedSize"})
+    public ModelCacheStatistics(String projectDir, String modelType, long hitCount, long missCount, long loadCount, long totalLoadTimeMillis, long maxLoadTimeMillis,
+                                long[] loadTimeHistogram, boolean cached, long entryAgeMillis, long estimatedSize) {
+        this.projectDir = projectDir;
+        this.modelType = modelType;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadCount = loadCount;
+        this.totalLoadTimeMillis = totalLoadTimeMillis;
+        this.maxLoadTimeMillis = maxLoadTimeMillis;
+        this.loadTimeHistogram = loadTimeHistogram.clone();
+        this.cached = cached;
+        this.entryAgeMillis = entryAgeMillis;
+        this.estimatedSize = estimatedSize;
+    }
+
+    /**
+     * Returns the project directory of the build whose model repository holds the model.
+     *
+     * @return the project directory
+     */
+    public String getProjectDir() {
+        return this.projectDir;
+    }
+
+    /**
+     * Returns the fully qualified name of the model type.
+     *
+     * @return the model type
+     */
+    public String getModelType() {
+        return this.modelType;
+    }
+
+    /**
+     * Returns how many times the model was requested and served from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns how many times the model was requested and not served from the cache, either because it was not cached or because a reload was forced.
+     *
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * Returns how many times the model was loaded successfully.
+     *
+     * @return the number of loads
+     */
+    public long getLoadCount() {
+        return this.loadCount;
+    }
+
+    /**
+     * Returns the total time spent loading the model.
+     *
+     * @return the total load time in milliseconds
+     */
+    public long getTotalLoadTimeMillis() {
+        return this.totalLoadTimeMillis;
+    }
+
+    /**
+     * Returns the longest time spent loading the model.
+     *
+     * @return the maximum load time in milliseconds
+     */
+    public long getMaxLoadTimeMillis() {
+        return this.maxLoadTimeMillis;
+    }
+
+    /**
+     * Returns the number of loads per load time bucket. The buckets are the ones of
+     * {@link com.gradleware.tooling.toolingclient.instrumentation.TimingHistogram#getBucketUpperBoundsMillis()}.
+     *
+     * @return the load time histogram
+     */
+    public long[] getLoadTimeHistogram() {
+        return this.loadTimeHistogram.clone();
+    }
+
+    /**
+     * Returns whether the model is currently cached.
+     *
+     * @return {@code true} if the model is cached
+     */
+    public boolean isCached() {
+        return this.cached;
+    }
+
+    /**
+     * Returns the time passed since the currently cached model was loaded.
+     *
+     * @return the entry age in milliseconds, -1 if the model is not cached
+     */
+    public long getEntryAgeMillis() {
+        return this.entryAgeMillis;
+    }
+
+    /**
+     * Returns the estimated number of bytes retained by the currently cached model, assuming a 64-bit JVM with compressed object references. Objects shared with other models are
+     * counted for each model.
+     *
+     * @return the estimated size in bytes, 0 if the model is not cached
+     */
+    public long getEstimatedSize() {
+        return this.estimatedSize;
+    }
+
+}
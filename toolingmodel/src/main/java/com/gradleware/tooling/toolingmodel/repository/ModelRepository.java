@@ -16,11 +16,15 @@
 
 package com.gradleware.tooling.toolingmodel.repository;
 
+import com.gradleware.tooling.toolingclient.Consumer;
 import com.gradleware.tooling.toolingmodel.OmniBuildEnvironment;
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocations;
 import com.gradleware.tooling.toolingmodel.OmniBuildInvocationsContainer;
 import com.gradleware.tooling.toolingmodel.OmniEclipseGradleBuild;
 import com.gradleware.tooling.toolingmodel.OmniGradleBuild;
 import com.gradleware.tooling.toolingmodel.OmniGradleBuildStructure;
+import com.gradleware.tooling.toolingmodel.Path;
+import com.gradleware.tooling.toolingmodel.util.Pair;
 
 /**
  * Repository for Gradle build models. Listeners can be registered to get notified about model updates. It is left to the implementation through which channel the events are
@@ -44,6 +48,14 @@ public interface ModelRepository {
      */
     void unregister(Object listener);
 
+    /**
+     * Returns the statistics of the model cache of this repository, i.e. the cache hits, cache misses, and load times per model type, together with the age and estimated size
+     * of the currently cached models. The statistics are computed on each invocation, which involves walking the graph of each cached model.
+     *
+     * @return the statistics
+     */
+    ModelRepositoryStatistics getStatistics();
+
     /**
      * Fetches the {@link OmniBuildEnvironment} synchronously and broadcasts it through a {@link BuildEnvironmentUpdateEvent}.
      *
@@ -53,6 +65,16 @@ public interface ModelRepository {
      */
     OmniBuildEnvironment fetchBuildEnvironment(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy);
 
+    /**
+     * Fetches the {@link GradleCapabilities} of the target Gradle version synchronously. The capabilities are derived from the {@link OmniBuildEnvironment}, which is fetched
+     * with the given strategy and broadcast through a {@link BuildEnvironmentUpdateEvent} if it is loaded.
+     *
+     * @param transientRequestAttributes the transient request attributes
+     * @param fetchStrategy the fetch strategy
+     * @return the gradle capabilities, never null unless strategy {@link FetchStrategy#FROM_CACHE_ONLY} is used and the build environment is not in the cache
+     */
+    GradleCapabilities fetchGradleCapabilities(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy);
+
     /**
      * Fetches the {@link OmniGradleBuildStructure} synchronously and broadcasts it through a {@link GradleBuildStructureUpdateEvent}.
      *
@@ -89,4 +111,21 @@ public interface ModelRepository {
      */
     OmniBuildInvocationsContainer fetchBuildInvocations(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy);
 
+    /**
+     * Fetches the {@link OmniBuildInvocationsContainer} synchronously, hands over the build invocations of each project to the given consumer as soon as they are available,
+     * and broadcasts the complete container through a {@link BuildInvocationsUpdateEvent} once all projects have been fetched. The container is only cached once it is complete.
+     * If the container is already cached or cannot be fetched per project for the target Gradle version, the consumer is called for each project of the complete container.
+     * <p>
+     * The projects are fetched in batches of the project batch size of the repository, one request per batch. Since each request configures the complete build, streaming
+     * with a small batch size multiplies the time spent configuring the build. With an unlimited batch size, all projects are fetched by a single request and are handed
+     * over to the consumer once that request has completed.
+     *
+     * @param transientRequestAttributes the transient request attributes
+     * @param fetchStrategy the fetch strategy
+     * @param projectConsumer the consumer receiving the build invocations of each project, paired with the path of the project
+     * @return the build invocations container, never null unless strategy {@link FetchStrategy#FROM_CACHE_ONLY} is used and the value is not in the cache
+     */
+    OmniBuildInvocationsContainer fetchBuildInvocations(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy,
+                                                        Consumer<Pair<Path, OmniBuildInvocations>> projectConsumer);
+
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import com.google.common.base.Preconditions;
+import com.gradleware.tooling.toolingclient.instrumentation.RequestInstrumentation;
+import com.gradleware.tooling.toolingclient.instrumentation.RequestInstrumentations;
+
+/**
+ * Holds the optional settings of the model repositories handed out by a {@link ModelRepositoryProvider}. Instances are immutable and created through a {@link Builder}.
+ *
+ * @author Etienne Studer
+ */
+public final class ModelRepositoryOptions {
+
+    /**
+     * The project batch size with which the models of all projects are fetched in a single build action.
+     */
+    public static final int UNLIMITED_PROJECT_BATCH_SIZE = Integer.MAX_VALUE;
+
+    private static final ModelRepositoryOptions DEFAULTS = new Builder().build();
+
+    private final int projectBatchSize;
+    private final RequestInstrumentation instrumentation;
+    private final boolean speculativePrefetching;
+    private final OffHeapStoragePolicy offHeapStorage;
+
+    private ModelRepositoryOptions(int projectBatchSize, RequestInstrumentation instrumentation, boolean speculativePrefetching, OffHeapStoragePolicy offHeapStorage) {
+        this.projectBatchSize = projectBatchSize;
+        this.instrumentation = instrumentation;
+        this.speculativePrefetching = speculativePrefetching;
+        this.offHeapStorage = offHeapStorage;
+    }
+
+    /**
+     * Returns the maximum number of projects for which the per-project models are fetched in a single build action.
+     *
+     * @return the project batch size, {@link #UNLIMITED_PROJECT_BATCH_SIZE} if the models of all projects are fetched at once
+     */
+    public int getProjectBatchSize() {
+        return this.projectBatchSize;
+    }
+
+    /**
+     * Returns the instrumentation receiving the durations of converting, caching, and announcing the fetched models.
+     *
+     * @return the instrumentation, never null
+     */
+    public RequestInstrumentation getInstrumentation() {
+        return this.instrumentation;
+    }
+
+    /**
+     * Returns whether the models that are likely to be requested next are loaded speculatively in the background.
+     *
+     * @return {@code true} if speculative prefetching is enabled
+     */
+    public boolean isSpeculativePrefetching() {
+        return this.speculativePrefetching;
+    }
+
+    /**
+     * Returns the policy that decides whether the cold sections of cached models are moved off the heap.
+     *
+     * @return the off-heap storage policy, never null
+     */
+    public OffHeapStoragePolicy getOffHeapStorage() {
+        return this.offHeapStorage;
+    }
+
+    /**
+     * Returns the options where the models of all projects are fetched at once, no timings are reported, no models are prefetched, and all models stay on the heap.
+     *
+     * @return the default options
+     */
+    public static ModelRepositoryOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Builder to build {@code ModelRepositoryOptions} instances, starting from the defaults.
+     */
+    public static final class Builder {
+
+        private int projectBatchSize;
+        private RequestInstrumentation instrumentation;
+        private boolean speculativePrefetching;
+        private OffHeapStoragePolicy offHeapStorage;
+
+        public Builder() {
+            this.projectBatchSize = UNLIMITED_PROJECT_BATCH_SIZE;
+            this.instrumentation = RequestInstrumentations.noOp();
+            this.speculativePrefetching = false;
+            this.offHeapStorage = OffHeapStoragePolicy.none();
+        }
+
+        /**
+         * Fetches the per-project models in batches of at most the given number of projects, with one build action per batch. This bounds the memory required to transfer
+         * the models of very large builds, while each batch configures the complete build once.
+         *
+         * @param projectBatchSize the maximum number of projects per build action, {@link ModelRepositoryOptions#UNLIMITED_PROJECT_BATCH_SIZE} to fetch the models of all projects at once
+         * @return this builder
+         */
+        public Builder projectBatchSize(int projectBatchSize) {
+            Preconditions.checkArgument(projectBatchSize > 0, "Project batch size must be positive: %s", projectBatchSize);
+            this.projectBatchSize = projectBatchSize;
+            return this;
+        }
+
+        /**
+         * Reports the durations of converting, caching, and announcing the fetched models to the given instrumentation. Pass the same instrumentation to the backing tooling
+         * client to also receive the durations of connecting to the build and running the operations.
+         *
+         * @param instrumentation the instrumentation receiving the request phase timings
+         * @return this builder
+         */
+        public Builder instrumentation(RequestInstrumentation instrumentation) {
+            this.instrumentation = Preconditions.checkNotNull(instrumentation);
+            return this;
+        }
+
+        /**
+         * Loads the models that are likely to be requested next in the background, based on the sequences in which the models of all builds have been requested so far.
+         *
+         * @param speculativePrefetching {@code true} to enable speculative prefetching
+         * @return this builder
+         */
+        public Builder speculativePrefetching(boolean speculativePrefetching) {
+            this.speculativePrefetching = speculativePrefetching;
+            return this;
+        }
+
+        /**
+         * Moves the cold sections of cached models off the heap according to the given policy.
+         *
+         * @param offHeapStorage the off-heap storage policy
+         * @return this builder
+         */
+        public Builder offHeapStorage(OffHeapStoragePolicy offHeapStorage) {
+            this.offHeapStorage = Preconditions.checkNotNull(offHeapStorage);
+            return this;
+        }
+
+        /**
+         * Creates the options from the settings of this builder.
+         *
+         * @return the new instance
+         */
+        public ModelRepositoryOptions build() {
+            return new ModelRepositoryOptions(this.projectBatchSize, this.instrumentation, this.speculativePrefetching, this.offHeapStorage);
+        }
+
+    }
+
+}
@@ -16,6 +16,11 @@
 
 package com.gradleware.tooling.toolingmodel.repository;
 
+import com.google.common.base.Optional;
+
+import java.io.File;
+import java.util.List;
+
 /**
  * Provider of {@code ModelRepository} instances for given sets of {@code FixedRequestAttributes}.
  *
@@ -26,10 +31,72 @@ public interface ModelRepositoryProvider {
     /**
      * Returns the {@code ModelRepository} for the given {@code FixedRequestAttributes}. For the same set of request attributes the same model repository instance is returned each
      * time.
+     * <p/>
+     * If the project directory of the request attributes is a sub-project directory of a multi-project build, the model repository shares the loading and caching of the
+     * models with the model repository of the root project directory with otherwise equal request attributes. Its models and model updates are then views rooted at the
+     * requested project.
      *
      * @param fixedRequestAttributes the request attributes for which to get the model repository
      * @return the model repository
      */
     ModelRepository getModelRepository(FixedRequestAttributes fixedRequestAttributes);
 
+    /**
+     * Returns the {@code ModelRepository} for the given {@code FixedRequestAttributes} and pre-warms it in the background according to the given policy. Pre-warming is not
+     * started again while a previous pre-warming of the same repository is still in progress or keeps the daemon alive. Progress is broadcast as {@link PreWarmEvent}
+     * instances to the listeners registered on the model repository.
+     *
+     * @param fixedRequestAttributes the request attributes for which to get the model repository
+     * @param preWarmPolicy the policy describing how to pre-warm the model repository
+     * @return the model repository
+     */
+    ModelRepository getModelRepository(FixedRequestAttributes fixedRequestAttributes, PreWarmPolicy preWarmPolicy);
+
+    /**
+     * Cancels the pre-warming of the {@code ModelRepository} for the given {@code FixedRequestAttributes}, including keeping its daemon alive. Does nothing if the model
+     * repository is not being pre-warmed.
+     *
+     * @param fixedRequestAttributes the request attributes of the model repository
+     */
+    void cancelPreWarming(FixedRequestAttributes fixedRequestAttributes);
+
+    /**
+     * Loads the given model types of the given builds through their model repositories, with up to the given number of builds being loaded concurrently. The model types of a
+     * single build are loaded one after the other, in the given order. Models loaded this way are cached and broadcast like models fetched directly from the model
+     * repositories. Once the given cancellation token has been cancelled, the models not being loaded yet fail with a {@link org.gradle.tooling.BuildCancelledException}.
+     * <p/>
+     * This method returns immediately, the returned handle reports the progress and gives access to the loaded models.
+     *
+     * @param fixedRequestAttributes the request attributes of the builds to load, duplicates are loaded once
+     * @param modelTypes the model types to load for each build, e.g. {@code OmniEclipseGradleBuild.class}
+     * @param transientRequestAttributes the transient request attributes to load the models with
+     * @param fetchStrategy the fetch strategy to load the models with
+     * @param maxParallelism the maximum number of builds loaded concurrently, must be positive
+     * @return the handle on the loading
+     * @throws IllegalArgumentException if a model type is not served by model repositories or the maximum parallelism is not positive
+     */
+    BulkModelLoad loadModels(List<FixedRequestAttributes> fixedRequestAttributes, List<Class<?>> modelTypes, TransientRequestAttributes transientRequestAttributes,
+                             FetchStrategy fetchStrategy, int maxParallelism);
+
+    /**
+     * Returns the statistics of each model repository that has been handed out by this provider, one entry per repository.
+     *
+     * @return the statistics of the model repositories
+     * @see ModelRepository#getStatistics()
+     */
+    List<ModelRepositoryStatistics> getStatistics();
+
+    /**
+     * Returns the project that owns the given file, looked up among the Eclipse and Gradle models that the model repositories handed out by this provider have broadcast so
+     * far. The owning project is the project with the deepest project directory, source directory or linked resource that contains the file. The lookup takes time
+     * proportional to the number of segments of the file path and does not access the file system.
+     * <p/>
+     * The lookup reflects the most recent model of each type broadcast by each model repository: when a new model is broadcast, only the directories that changed compared
+     * to the previous model are updated.
+     *
+     * @param file the file or directory to look up, relative paths are resolved against the current working directory
+     * @return the owning project, absent if no known project contains the file
+     */
+    Optional<FileOwner> findFileOwner(File file);
+
 }
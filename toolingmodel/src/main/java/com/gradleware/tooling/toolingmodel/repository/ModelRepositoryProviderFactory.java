@@ -61,4 +61,18 @@ public final class ModelRepositoryProviderFactory {
         return new DefaultModelRepositoryProvider(toolingClient, environment, eventBusFactory);
     }
 
+    /**
+     * Creates a new instance whose model repositories apply the given options, e.g. to fetch the per-project models of very large builds in batches, to report the
+     * request phase timings, to prefetch models speculatively, or to move cold models off the heap.
+     *
+     * @param toolingClient the backing tooling client
+     * @param environment the environment in which the model repository is used
+     * @param eventBusFactory the factory for the event bus that is used to send events upon model changes
+     * @param options the optional settings of the model repositories
+     * @return the new repository provider instance
+     */
+    public static ModelRepositoryProvider create(ToolingClient toolingClient, Environment environment, Factory<EventBus> eventBusFactory, ModelRepositoryOptions options) {
+        return new DefaultModelRepositoryProvider(toolingClient, environment, eventBusFactory, options);
+    }
+
 }
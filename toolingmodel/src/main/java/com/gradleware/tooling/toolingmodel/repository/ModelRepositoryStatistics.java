@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Statistics about the cache of a {@link ModelRepository}.
+ *
+ * @author Etienne Studer
+ */
+public final class ModelRepositoryStatistics {
+
+    private final FixedRequestAttributes fixedRequestAttributes;
+    private final CacheStats cacheStats;
+    private final ImmutableList<ModelCacheStatistics> modelStatistics;
+
+    private ModelRepositoryStatistics(FixedRequestAttributes fixedRequestAttributes, CacheStats cacheStats, ImmutableList<ModelCacheStatistics> modelStatistics) {
+        this.fixedRequestAttributes = fixedRequestAttributes;
+        this.cacheStats = cacheStats;
+        this.modelStatistics = modelStatistics;
+    }
+
+    /**
+     * Returns the request attributes of the model repository.
+     *
+     * @return the request attributes
+     */
+    public FixedRequestAttributes getFixedRequestAttributes() {
+        return this.fixedRequestAttributes;
+    }
+
+    /**
+     * Returns the statistics of the underlying cache, aggregated over all model types.
+     *
+     * @return the cache statistics
+     */
+    public CacheStats getCacheStats() {
+        return this.cacheStats;
+    }
+
+    /**
+     * Returns the statistics of each model type that has been requested from the model repository.
+     *
+     * @return the statistics per model type
+     */
+    public ImmutableList<ModelCacheStatistics> getModelStatistics() {
+        return this.modelStatistics;
+    }
+
+    /**
+     * Returns the estimated number of bytes retained by all currently cached models.
+     *
+     * @return the estimated size in bytes
+     */
+    public long getEstimatedSize() {
+        long estimatedSize = 0;
+        for (ModelCacheStatistics statistics : this.modelStatistics) {
+            estimatedSize += statistics.getEstimatedSize();
+        }
+        return estimatedSize;
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param fixedRequestAttributes the request attributes of the model repository
+     * @param cacheStats the statistics of the underlying cache
+     * @param modelStatistics the statistics per model type
+     * @return the new instance
+     */
+    public static ModelRepositoryStatistics from(FixedRequestAttributes fixedRequestAttributes, CacheStats cacheStats, ImmutableList<ModelCacheStatistics> modelStatistics) {
+        return new ModelRepositoryStatistics(Preconditions.checkNotNull(fixedRequestAttributes), Preconditions.checkNotNull(cacheStats), Preconditions.checkNotNull(modelStatistics));
+    }
+
+}
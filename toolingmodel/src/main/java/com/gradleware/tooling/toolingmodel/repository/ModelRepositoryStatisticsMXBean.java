@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import java.util.List;
+
+/**
+ * Management interface through which the cache statistics of the model repositories of a {@link ModelRepositoryProvider} are exposed.
+ *
+ * @author Etienne Studer
+ */
+public interface ModelRepositoryStatisticsMXBean {
+
+    /**
+     * Returns the number of model repositories handed out by the provider.
+     *
+     * @return the number of model repositories
+     */
+    int getRepositoryCount();
+
+    /**
+     * Returns the estimated number of bytes retained by the models cached in all model repositories.
+     *
+     * @return the estimated size in bytes
+     */
+    long getEstimatedSize();
+
+    /**
+     * Returns the statistics per model type of all model repositories.
+     *
+     * @return the statistics, one entry per model repository and model type
+     */
+    List<ModelCacheStatistics> getModelStatistics();
+
+}
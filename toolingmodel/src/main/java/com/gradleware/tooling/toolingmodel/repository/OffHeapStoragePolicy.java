@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes whether the {@link ModelRepositoryProvider} moves the long-lived, rarely read sections of cached models out of the Java heap. These sections are the task lists
+ * of the {@code OmniBuildInvocationsContainer} and the external dependencies of the {@code OmniEclipseGradleBuild}. Once a cached model has not been requested for the
+ * cold-after duration, its sections are stored in direct byte buffers and decoded each time they are accessed, which keeps them out of the old generation of the heap.
+ * <p/>
+ * The off-heap memory shared by all model repositories of the provider never exceeds the budget. Models that do not fit into the budget stay on the heap, and the memory
+ * of a model is released from the budget once the model is no longer cached.
+ *
+ * @author Etienne Studer
+ */
+public final class OffHeapStoragePolicy {
+
+    private static final OffHeapStoragePolicy NONE = new OffHeapStoragePolicy(0, 0);
+
+    private final long budget;
+    private final long coldAfterMillis;
+
+    private OffHeapStoragePolicy(long budget, long coldAfterMillis) {
+        this.budget = budget;
+        this.coldAfterMillis = coldAfterMillis;
+    }
+
+    /**
+     * Returns whether cold model sections are moved off the heap.
+     *
+     * @return {@code true} if off-heap storage is enabled
+     */
+    public boolean isEnabled() {
+        return this.budget > 0;
+    }
+
+    /**
+     * Returns the maximum number of bytes stored off the heap.
+     *
+     * @return the memory budget in bytes, zero if off-heap storage is disabled
+     */
+    public long getBudget() {
+        return this.budget;
+    }
+
+    /**
+     * Returns the duration after which a cached model that has not been requested is considered cold.
+     *
+     * @param unit the unit in which to return the result
+     * @return the cold-after duration
+     */
+    public long getColdAfter(TimeUnit unit) {
+        return unit.convert(this.coldAfterMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the policy to keep all models on the heap, which is the default.
+     *
+     * @return the policy that disables off-heap storage
+     */
+    public static OffHeapStoragePolicy none() {
+        return NONE;
+    }
+
+    /**
+     * Creates a policy to move the sections of cached models off the heap once they have not been requested for the given duration.
+     *
+     * @param budget the maximum number of bytes stored off the heap
+     * @param coldAfter the duration after which a cached model is considered cold
+     * @param unit the unit of the duration
+     * @return the new instance
+     */
+    public static OffHeapStoragePolicy withBudget(long budget, long coldAfter, TimeUnit unit) {
+        Preconditions.checkArgument(budget > 0, "Budget must be positive: " + budget);
+        Preconditions.checkArgument(coldAfter > 0, "Cold-after duration must be positive: " + coldAfter);
+        return new OffHeapStoragePolicy(budget, unit.toMillis(coldAfter));
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import com.google.common.base.Preconditions;
+import org.gradle.api.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event that is broadcast when the pre-warming of a model repository, or one of its keep-alive requests, has started or ended.
+ *
+ * @author Etienne Studer
+ * @see PreWarmPolicy
+ */
+public final class PreWarmEvent {
+
+    /**
+     * Enumerates the states reported by a {@code PreWarmEvent}.
+     */
+    public enum State {
+        STARTED, SUCCEEDED, FAILED, CANCELLED
+    }
+
+    private final FixedRequestAttributes fixedRequestAttributes;
+    private final State state;
+    private final boolean keepAlive;
+    private final long durationMillis;
+    private final Exception failure;
+
+    public PreWarmEvent(FixedRequestAttributes fixedRequestAttributes, State state, boolean keepAlive, long durationMillis, Exception failure) {
+        this.fixedRequestAttributes = Preconditions.checkNotNull(fixedRequestAttributes);
+        this.state = Preconditions.checkNotNull(state);
+        this.keepAlive = keepAlive;
+        this.durationMillis = durationMillis;
+        this.failure = failure;
+    }
+
+    public FixedRequestAttributes getFixedRequestAttributes() {
+        return this.fixedRequestAttributes;
+    }
+
+    public State getState() {
+        return this.state;
+    }
+
+    /**
+     * Returns whether the event is about a keep-alive request rather than the initial pre-warming.
+     *
+     * @return {@code true} if the event is about a keep-alive request
+     */
+    public boolean isKeepAlive() {
+        return this.keepAlive;
+    }
+
+    /**
+     * Returns the time spent from the start until the end of the pre-warming or keep-alive request.
+     *
+     * @param unit the unit in which to return the result
+     * @return the duration, zero for started events
+     */
+    public long getDuration(TimeUnit unit) {
+        return unit.convert(this.durationMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Nullable
+    public Exception getFailure() {
+        return this.failure;
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes whether a {@link ModelRepository} is pre-warmed when it is handed out by the {@link ModelRepositoryProvider}. Pre-warming opens the connection to the build in
+ * the background and fetches the {@code OmniBuildEnvironment}, which starts the daemon and resolves the capabilities of the target Gradle version before the first model is
+ * requested. Optionally, the daemon is kept alive by re-fetching the build environment model periodically, bypassing the cache.
+ *
+ * @author Etienne Studer
+ */
+public final class PreWarmPolicy {
+
+    private static final PreWarmPolicy NONE = new PreWarmPolicy(false, 0);
+    private static final PreWarmPolicy PRE_WARM = new PreWarmPolicy(true, 0);
+
+    private final boolean enabled;
+    private final long keepAliveIntervalMillis;
+
+    private PreWarmPolicy(boolean enabled, long keepAliveIntervalMillis) {
+        this.enabled = enabled;
+        this.keepAliveIntervalMillis = keepAliveIntervalMillis;
+    }
+
+    /**
+     * Returns whether the model repository is pre-warmed.
+     *
+     * @return {@code true} if pre-warming is enabled
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Returns whether the daemon is kept alive after pre-warming.
+     *
+     * @return {@code true} if a keep-alive interval is set
+     */
+    public boolean isKeepAlive() {
+        return this.keepAliveIntervalMillis > 0;
+    }
+
+    /**
+     * Returns the interval between two keep-alive requests.
+     *
+     * @param unit the unit in which to return the result
+     * @return the keep-alive interval, zero if the daemon is not kept alive
+     */
+    public long getKeepAliveInterval(TimeUnit unit) {
+        return unit.convert(this.keepAliveIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the policy to not pre-warm, which is the default.
+     *
+     * @return the policy that disables pre-warming
+     */
+    public static PreWarmPolicy none() {
+        return NONE;
+    }
+
+    /**
+     * Returns the policy to pre-warm once, without keeping the daemon alive afterwards.
+     *
+     * @return the policy that enables pre-warming
+     */
+    public static PreWarmPolicy preWarm() {
+        return PRE_WARM;
+    }
+
+    /**
+     * Creates a policy to pre-warm and to keep the daemon alive by sending a cheap request at the given interval.
+     *
+     * @param keepAliveInterval the interval between two keep-alive requests
+     * @param unit the unit of the interval
+     * @return the new instance
+     */
+    public static PreWarmPolicy preWarmWithKeepAlive(long keepAliveInterval, TimeUnit unit) {
+        Preconditions.checkArgument(keepAliveInterval > 0, "Keep-alive interval must be positive: " + keepAliveInterval);
+        return new PreWarmPolicy(true, unit.toMillis(keepAliveInterval));
+    }
+
+}
@@ -19,6 +19,7 @@ package com.gradleware.tooling.toolingmodel.repository;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.gradleware.tooling.toolingclient.Request;
+import com.gradleware.tooling.toolingclient.RequestPriority;
 import com.gradleware.tooling.toolingutils.ImmutableCollection;
 import org.gradle.api.Nullable;
 import org.gradle.tooling.CancellationToken;
@@ -27,6 +28,7 @@ import org.gradle.tooling.ProgressListener;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Container to hold those attributes of a {@link Request} that do change between request invocations.
@@ -42,9 +44,39 @@ public final class TransientRequestAttributes {
     private final ImmutableList<ProgressListener> progressListeners;
     private final ImmutableList<org.gradle.tooling.events.ProgressListener> typedProgressListeners;
     private final CancellationToken cancellationToken;
+    private final RequestPriority priority;
+    private final boolean deadline;
+    private final long deadlineNanos;
 
     public TransientRequestAttributes(boolean colorOutput, OutputStream standardOutput, OutputStream standardError, InputStream standardInput, List<ProgressListener> progressListeners,
                                       List<org.gradle.tooling.events.ProgressListener> typedProgressListeners, CancellationToken cancellationToken) {
+        this(colorOutput, standardOutput, standardError, standardInput, progressListeners, typedProgressListeners, cancellationToken, RequestPriority.INTERACTIVE);
+    }
+
+    public TransientRequestAttributes(boolean colorOutput, OutputStream standardOutput, OutputStream standardError, InputStream standardInput, List<ProgressListener> progressListeners,
+                                      List<org.gradle.tooling.events.ProgressListener> typedProgressListeners, CancellationToken cancellationToken, RequestPriority priority) {
+        this(colorOutput, standardOutput, standardError, standardInput, progressListeners, typedProgressListeners, cancellationToken, priority, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new instance whose requests are cancelled automatically once the given deadline has expired. The deadline is measured from the creation of this instance and
+     * is shared by all requests issued with it, such that a fetch that issues several requests completes or fails within the deadline as a whole.
+     *
+     * @param colorOutput whether to produce color output
+     * @param standardOutput the standard output stream, can be null
+     * @param standardError the standard error stream, can be null
+     * @param standardInput the standard input stream, can be null
+     * @param progressListeners the progress listeners
+     * @param typedProgressListeners the typed progress listeners
+     * @param cancellationToken the cancellation token
+     * @param priority the priority class of the requests
+     * @param deadline the time after which the requests are cancelled, zero for no deadline
+     * @param unit the unit of the deadline
+     */
+    public TransientRequestAttributes(boolean colorOutput, OutputStream standardOutput, OutputStream standardError, InputStream standardInput, List<ProgressListener> progressListeners,
+                                      List<org.gradle.tooling.events.ProgressListener> typedProgressListeners, CancellationToken cancellationToken, RequestPriority priority,
+                                      long deadline, TimeUnit unit) {
+        Preconditions.checkArgument(deadline >= 0, "Deadline must not be negative: %s", deadline);
         this.colorOutput = colorOutput;
         this.standardOutput = standardOutput;
         this.standardError = standardError;
@@ -52,6 +84,9 @@ public final class TransientRequestAttributes {
         this.progressListeners = ImmutableList.copyOf(progressListeners);
         this.typedProgressListeners = ImmutableList.copyOf(typedProgressListeners);
         this.cancellationToken = Preconditions.checkNotNull(cancellationToken);
+        this.priority = Preconditions.checkNotNull(priority);
+        this.deadline = deadline > 0;
+        this.deadlineNanos = System.nanoTime() + unit.toNanos(deadline);
     }
 
     @SuppressWarnings("UnusedDeclaration")
@@ -94,6 +129,33 @@ public final class TransientRequestAttributes {
         return this.cancellationToken;
     }
 
+    @SuppressWarnings("UnusedDeclaration")
+    public RequestPriority getPriority() {
+        return this.priority;
+    }
+
+    /**
+     * Returns whether the requests issued with these attributes are cancelled once a deadline has expired.
+     *
+     * @return {@code true} if there is a deadline
+     */
+    public boolean hasDeadline() {
+        return this.deadline;
+    }
+
+    /**
+     * Returns the time left until the deadline expires.
+     *
+     * @param unit the unit in which to return the result
+     * @return the remaining time, zero if the deadline has expired, {@link Long#MAX_VALUE} if there is no deadline
+     */
+    public long getRemainingTime(TimeUnit unit) {
+        if (!this.deadline) {
+            return Long.MAX_VALUE;
+        }
+        return unit.convert(Math.max(0, this.deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
     public void apply(Request<?> request) {
         request.colorOutput(this.colorOutput);
         request.standardOutput(this.standardOutput);
@@ -102,6 +164,11 @@ public final class TransientRequestAttributes {
         request.progressListeners(this.progressListeners.toArray(new ProgressListener[this.progressListeners.size()]));
         request.typedProgressListeners(this.typedProgressListeners.toArray(new org.gradle.tooling.events.ProgressListener[this.typedProgressListeners.size()]));
         request.cancellationToken(this.cancellationToken);
+        request.priority(this.priority);
+        if (this.deadline) {
+            // an expired deadline still needs to cancel the request, while a zero deadline means no deadline to the request
+            request.deadline(Math.max(1, getRemainingTime(TimeUnit.MILLISECONDS)), TimeUnit.MILLISECONDS);
+        }
     }
 
 }
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.gradleware.tooling.toolingclient.Consumer;
+import com.gradleware.tooling.toolingclient.ModelRequest;
+import com.gradleware.tooling.toolingclient.ToolingClient;
+import com.gradleware.tooling.toolingmodel.OmniBuildEnvironment;
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocations;
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocationsContainer;
+import com.gradleware.tooling.toolingmodel.OmniEclipseGradleBuild;
+import com.gradleware.tooling.toolingmodel.OmniGradleBuild;
+import com.gradleware.tooling.toolingmodel.OmniGradleBuildStructure;
+import com.gradleware.tooling.toolingmodel.Path;
+import com.gradleware.tooling.toolingmodel.repository.BuildEnvironmentUpdateEvent;
+import com.gradleware.tooling.toolingmodel.repository.BuildInvocationsUpdateEvent;
+import com.gradleware.tooling.toolingmodel.repository.EclipseGradleBuildUpdateEvent;
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy;
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
+import com.gradleware.tooling.toolingmodel.repository.GradleBuildStructureUpdateEvent;
+import com.gradleware.tooling.toolingmodel.repository.GradleBuildUpdateEvent;
+import com.gradleware.tooling.toolingmodel.repository.GradleCapabilities;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepository;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepositoryStatistics;
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes;
+import com.gradleware.tooling.toolingmodel.util.Pair;
+import org.gradle.tooling.model.UnsupportedMethodException;
+import org.gradle.tooling.model.gradle.BasicGradleProject;
+import org.gradle.tooling.model.gradle.GradleBuild;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Model repository that shares the model loading and caching with the model repositories of all other project directories of the same physical Gradle build.
+ * <p/>
+ * Before the first model other than the build environment is fetched, the root project directory of the build is determined from the build structure, unless the requested
+ * project directory contains a settings file or none of its ancestors does, in which case it is the root project directory. If the requested project
+ * directory is a project directory other than the root project directory, all models are fetched from the model repository of the root project directory with otherwise equal
+ * request attributes, and are exposed as views rooted at the requested project. Model updates of the shared model repository are broadcast to the listeners of this model
+ * repository as views, too. If the requested project directory is the root project directory, or the build structure does not reveal the project directories, this model
+ * repository loads and caches its models on its own.
+ *
+ * @author Etienne Studer
+ */
+final class BuildSharingModelRepository implements ModelRepository {
+
+    private static final ImmutableSet<String> SETTINGS_ARGUMENTS = ImmutableSet.of("-c", "--settings-file", "-p", "--project-dir");
+
+    private final FixedRequestAttributes fixedRequestAttributes;
+    private final DefaultModelRepository ownRepository;
+    private final EventBus eventBus;
+    private final ToolingClient toolingClient;
+    private final Function<FixedRequestAttributes, BuildSharingModelRepository> modelRepositories;
+    private volatile Target target;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param fixedRequestAttributes the fixed request attributes of this model repository
+     * @param ownRepository the model repository used if the models are not shared, broadcasting to the given event bus
+     * @param eventBus the event bus to which the model updates are broadcast
+     * @param toolingClient the tooling client through which the build structure is queried to determine the root project directory
+     * @param modelRepositories the function providing the model repository of the root project directory
+     */
+    BuildSharingModelRepository(FixedRequestAttributes fixedRequestAttributes, DefaultModelRepository ownRepository, EventBus eventBus, ToolingClient toolingClient,
+                                Function<FixedRequestAttributes, BuildSharingModelRepository> modelRepositories) {
+        this.fixedRequestAttributes = Preconditions.checkNotNull(fixedRequestAttributes);
+        this.ownRepository = Preconditions.checkNotNull(ownRepository);
+        this.eventBus = Preconditions.checkNotNull(eventBus);
+        this.toolingClient = Preconditions.checkNotNull(toolingClient);
+        this.modelRepositories = Preconditions.checkNotNull(modelRepositories);
+    }
+
+    @Override
+    public void register(Object listener) {
+        Preconditions.checkNotNull(listener);
+
+        this.eventBus.register(listener);
+    }
+
+    @Override
+    public void unregister(Object listener) {
+        Preconditions.checkNotNull(listener);
+
+        this.eventBus.unregister(listener);
+    }
+
+    @Override
+    public ModelRepositoryStatistics getStatistics() {
+        return this.ownRepository.getStatistics();
+    }
+
+    /**
+     * Returns whether the models of this model repository are loaded and cached by the model repository of another project directory of the same build.
+     *
+     * @return {@code true} if the models are shared
+     */
+    boolean isShared() {
+        Target target = this.target;
+        return target != null && target.repository != this.ownRepository;
+    }
+
+    /*
+     * the build environment does not depend on the project directory and is fetched without determining the root project directory
+     */
+    @Override
+    public OmniBuildEnvironment fetchBuildEnvironment(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        Target target = this.target;
+        return (target != null ? target.repository : this.ownRepository).fetchBuildEnvironment(transientRequestAttributes, fetchStrategy);
+    }
+
+    @Override
+    public GradleCapabilities fetchGradleCapabilities(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        Target target = this.target;
+        return (target != null ? target.repository : this.ownRepository).fetchGradleCapabilities(transientRequestAttributes, fetchStrategy);
+    }
+
+    @Override
+    public OmniGradleBuildStructure fetchGradleBuildStructure(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        Target target = resolve(transientRequestAttributes, fetchStrategy);
+        return target.views.view(target.repository.fetchGradleBuildStructure(transientRequestAttributes, fetchStrategy));
+    }
+
+    @Override
+    public OmniGradleBuild fetchGradleBuild(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        Target target = resolve(transientRequestAttributes, fetchStrategy);
+        return target.views.view(target.repository.fetchGradleBuild(transientRequestAttributes, fetchStrategy));
+    }
+
+    @Override
+    public OmniEclipseGradleBuild fetchEclipseGradleBuild(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        Target target = resolve(transientRequestAttributes, fetchStrategy);
+        return target.views.view(target.repository.fetchEclipseGradleBuild(transientRequestAttributes, fetchStrategy));
+    }
+
+    @Override
+    public OmniBuildInvocationsContainer fetchBuildInvocations(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        Target target = resolve(transientRequestAttributes, fetchStrategy);
+        return target.views.view(target.repository.fetchBuildInvocations(transientRequestAttributes, fetchStrategy));
+    }
+
+    @Override
+    public OmniBuildInvocationsContainer fetchBuildInvocations(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy,
+                                                               final Consumer<Pair<Path, OmniBuildInvocations>> projectConsumer) {
+        Preconditions.checkNotNull(projectConsumer);
+
+        final Target target = resolve(transientRequestAttributes, fetchStrategy);
+        Consumer<Pair<Path, OmniBuildInvocations>> viewConsumer = new Consumer<Pair<Path, OmniBuildInvocations>>() {
+
+            @Override
+            public void accept(Pair<Path, OmniBuildInvocations> project) {
+                if (target.views.contains(project.getFirst())) {
+                    projectConsumer.accept(project);
+                }
+            }
+        };
+        return target.views.view(target.repository.fetchBuildInvocations(transientRequestAttributes, fetchStrategy, viewConsumer));
+    }
+
+    private Target resolve(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        Target target = this.target;
+        if (target != null) {
+            return target;
+        }
+
+        // a lookup in the cache must not contact the build, hence it is served by the own model repository until the root project directory is known
+        if (fetchStrategy == FetchStrategy.FROM_CACHE_ONLY) {
+            return new Target(this.ownRepository, ProjectModelViews.rootedAt(Path.from(":")));
+        }
+
+        Target resolved = determineTarget(transientRequestAttributes);
+        synchronized (this) {
+            if (this.target == null) {
+                if (resolved.repository != this.ownRepository) {
+                    resolved.sharingRepository.register(new ViewForwarder(resolved.views));
+                }
+                this.target = resolved;
+            }
+            return this.target;
+        }
+    }
+
+    private Target determineTarget(TransientRequestAttributes transientRequestAttributes) {
+        Target ownTarget = new Target(this.ownRepository, ProjectModelViews.rootedAt(Path.from(":")));
+        File requestedDir = canonicalize(this.fixedRequestAttributes.getProjectDir());
+        if (!mayBeSubProjectDirectory(requestedDir, this.fixedRequestAttributes.getArguments())) {
+            return ownTarget;
+        }
+
+        // query the build structure directly, such that it is neither cached nor broadcast with the wrong root
+        ModelRequest<GradleBuild> request = this.toolingClient.newModelRequest(GradleBuild.class);
+        this.fixedRequestAttributes.apply(request);
+        transientRequestAttributes.apply(request);
+        GradleBuild gradleBuild = request.executeAndWait();
+
+        File rootDir;
+        Path projectPath = null;
+        try {
+            rootDir = canonicalize(gradleBuild.getRootProject().getProjectDirectory());
+            for (BasicGradleProject project : gradleBuild.getProjects()) {
+                if (requestedDir.equals(canonicalize(project.getProjectDirectory()))) {
+                    projectPath = Path.from(project.getPath());
+                }
+            }
+        } catch (UnsupportedMethodException e) {
+            // the project directories are only available for target Gradle versions >= 1.8
+            return ownTarget;
+        }
+
+        if (projectPath == null || requestedDir.equals(rootDir)) {
+            // the build structure has been fetched anyway, hence it is not fetched again by the own model repository
+            this.ownRepository.seedGradleBuildStructure(gradleBuild);
+            return ownTarget;
+        }
+
+        FixedRequestAttributes rootAttributes = new FixedRequestAttributes(rootDir, this.fixedRequestAttributes.getGradleUserHome(),
+                this.fixedRequestAttributes.getGradleDistribution(), this.fixedRequestAttributes.getJavaHome(), this.fixedRequestAttributes.getJvmArguments(),
+                this.fixedRequestAttributes.getArguments());
+        BuildSharingModelRepository rootRepository = this.modelRepositories.apply(rootAttributes);
+        if (rootRepository == this) {
+            return ownTarget;
+        }
+        return new Target(rootRepository.ownRepository, ProjectModelViews.rootedAt(projectPath), rootRepository);
+    }
+
+    /*
+     * Gradle looks for the settings file in the project directory and its ancestors, hence a directory that contains a settings file is the root project directory of its
+     * build, and a directory without any settings file in its ancestors is a single project build, unless the arguments point Gradle to another settings file
+     */
+    static boolean mayBeSubProjectDirectory(File projectDir, List<String> arguments) {
+        for (String argument : arguments) {
+            if (SETTINGS_ARGUMENTS.contains(argument) || argument.startsWith("--settings-file=") || argument.startsWith("--project-dir=")) {
+                return true;
+            }
+        }
+
+        if (hasSettingsFile(projectDir)) {
+            return false;
+        }
+        for (File dir = projectDir.getParentFile(); dir != null; dir = dir.getParentFile()) {
+            // the sibling directory named 'master' is searched by target Gradle versions < 7.0
+            if (hasSettingsFile(dir) || hasSettingsFile(new File(dir, "master"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasSettingsFile(File dir) {
+        return new File(dir, "settings.gradle").isFile() || new File(dir, "settings.gradle.kts").isFile();
+    }
+
+    private static File canonicalize(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+
+    /**
+     * The model repository serving the models, together with the views through which they are exposed.
+     */
+    private static final class Target {
+
+        private final DefaultModelRepository repository;
+        private final ProjectModelViews views;
+        private final BuildSharingModelRepository sharingRepository;
+
+        private Target(DefaultModelRepository repository, ProjectModelViews views) {
+            this(repository, views, null);
+        }
+
+        private Target(DefaultModelRepository repository, ProjectModelViews views, BuildSharingModelRepository sharingRepository) {
+            this.repository = repository;
+            this.views = views;
+            this.sharingRepository = sharingRepository;
+        }
+
+    }
+
+    /**
+     * Broadcasts the model updates of the shared model repository as views to the listeners of this model repository.
+     */
+    private final class ViewForwarder {
+
+        private final ProjectModelViews views;
+
+        private ViewForwarder(ProjectModelViews views) {
+            this.views = views;
+        }
+
+        @Subscribe
+        public void buildEnvironmentUpdated(BuildEnvironmentUpdateEvent event) {
+            BuildSharingModelRepository.this.eventBus.post(event);
+        }
+
+        @Subscribe
+        public void gradleBuildStructureUpdated(GradleBuildStructureUpdateEvent event) {
+            BuildSharingModelRepository.this.eventBus.post(new GradleBuildStructureUpdateEvent(this.views.view(event.getGradleBuildStructure())));
+        }
+
+        @Subscribe
+        public void gradleBuildUpdated(GradleBuildUpdateEvent event) {
+            BuildSharingModelRepository.this.eventBus.post(new GradleBuildUpdateEvent(this.views.view(event.getGradleBuild())));
+        }
+
+        @Subscribe
+        public void eclipseGradleBuildUpdated(EclipseGradleBuildUpdateEvent event) {
+            BuildSharingModelRepository.this.eventBus.post(new EclipseGradleBuildUpdateEvent(this.views.view(event.getEclipseGradleBuild())));
+        }
+
+        @Subscribe
+        public void buildInvocationsUpdated(BuildInvocationsUpdateEvent event) {
+            BuildSharingModelRepository.this.eventBus.post(new BuildInvocationsUpdateEvent(this.views.view(event.getBuildInvocations())));
+        }
+
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gradleware.tooling.toolingmodel.repository.BulkModelLoad;
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy;
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepository;
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes;
+import org.gradle.tooling.BuildCancelledException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Default implementation of the {@link BulkModelLoad} API. The builds are loaded concurrently by a dedicated, bounded pool of threads that terminate once all builds have been
+ * loaded. The model types of a single build are loaded one after the other, such that they can reuse the connection, the daemon and the capabilities resolved by the first model.
+ *
+ * @author Etienne Studer
+ */
+final class DefaultBulkModelLoad implements BulkModelLoad {
+
+    private final ImmutableList<FixedRequestAttributes> builds;
+    private final ImmutableList<Class<?>> modelTypes;
+    private final Map<FixedRequestAttributes, Map<Class<?>, Object>> models;
+    private final Map<FixedRequestAttributes, Map<Class<?>, Throwable>> failures;
+    private final AtomicInteger completedCount;
+    private final AtomicInteger failedCount;
+    private final CountDownLatch completed;
+
+    private DefaultBulkModelLoad(List<FixedRequestAttributes> builds, List<Class<?>> modelTypes) {
+        this.builds = ImmutableList.copyOf(builds);
+        this.modelTypes = ImmutableList.copyOf(modelTypes);
+        this.models = Maps.newConcurrentMap();
+        this.failures = Maps.newConcurrentMap();
+        for (FixedRequestAttributes build : this.builds) {
+            this.models.put(build, Maps.<Class<?>, Object>newConcurrentMap());
+            this.failures.put(build, Maps.<Class<?>, Throwable>newConcurrentMap());
+        }
+        this.completedCount = new AtomicInteger();
+        this.failedCount = new AtomicInteger();
+        this.completed = new CountDownLatch(getTotalCount());
+    }
+
+    @Override
+    public List<FixedRequestAttributes> getBuilds() {
+        return this.builds;
+    }
+
+    @Override
+    public List<Class<?>> getModelTypes() {
+        return this.modelTypes;
+    }
+
+    @Override
+    public int getTotalCount() {
+        return this.builds.size() * this.modelTypes.size();
+    }
+
+    @Override
+    public int getCompletedCount() {
+        return this.completedCount.get();
+    }
+
+    @Override
+    public int getFailedCount() {
+        return this.failedCount.get();
+    }
+
+    @Override
+    public boolean isDone() {
+        return this.completed.getCount() == 0;
+    }
+
+    @Override
+    public void await() throws InterruptedException {
+        this.completed.await();
+    }
+
+    @Override
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.completed.await(timeout, unit);
+    }
+
+    @Override
+    public <T> T getModel(FixedRequestAttributes fixedRequestAttributes, Class<T> modelType) {
+        Map<Class<?>, Object> buildModels = this.models.get(Preconditions.checkNotNull(fixedRequestAttributes));
+        return buildModels != null ? modelType.cast(buildModels.get(Preconditions.checkNotNull(modelType))) : null;
+    }
+
+    @Override
+    public Throwable getFailure(FixedRequestAttributes fixedRequestAttributes, Class<?> modelType) {
+        Map<Class<?>, Throwable> buildFailures = this.failures.get(Preconditions.checkNotNull(fixedRequestAttributes));
+        return buildFailures != null ? buildFailures.get(Preconditions.checkNotNull(modelType)) : null;
+    }
+
+    private void load(Function<FixedRequestAttributes, ModelRepository> modelRepositories, FixedRequestAttributes build, TransientRequestAttributes transientRequestAttributes,
+                      FetchStrategy fetchStrategy) {
+        // every model type is accounted for, even if the model repository cannot be provided, such that waiting for the loading to complete never hangs
+        for (Class<?> modelType : this.modelTypes) {
+            try {
+                if (transientRequestAttributes.getCancellationToken().isCancellationRequested()) {
+                    throw new BuildCancelledException("Loading the models has been cancelled.");
+                }
+                ModelRepository modelRepository = modelRepositories.apply(build);
+                Object model = ModelTypes.fetch(modelRepository, modelType, transientRequestAttributes, fetchStrategy);
+                // a model that is only looked up in the cache might not be available
+                if (model != null) {
+                    this.models.get(build).put(modelType, model);
+                }
+            } catch (Exception e) {
+                this.failures.get(build).put(modelType, e);
+                this.failedCount.incrementAndGet();
+            } finally {
+                this.completedCount.incrementAndGet();
+                this.completed.countDown();
+            }
+        }
+    }
+
+    /**
+     * Starts loading the given model types of the given builds with at most the given number of builds being loaded concurrently.
+     *
+     * @param builds the builds to load, duplicates are loaded once
+     * @param modelTypes the model types to load for each build
+     * @param modelRepositories the function providing the model repository of a build
+     * @param transientRequestAttributes the transient request attributes to load the models with
+     * @param fetchStrategy the fetch strategy to load the models with
+     * @param maxParallelism the maximum number of builds loaded concurrently
+     * @return the handle on the loading
+     */
+    static DefaultBulkModelLoad start(List<FixedRequestAttributes> builds, List<Class<?>> modelTypes, final Function<FixedRequestAttributes, ModelRepository> modelRepositories,
+                                      final TransientRequestAttributes transientRequestAttributes, final FetchStrategy fetchStrategy, int maxParallelism) {
+        Preconditions.checkNotNull(builds);
+        Preconditions.checkNotNull(modelTypes);
+        Preconditions.checkNotNull(modelRepositories);
+        Preconditions.checkNotNull(transientRequestAttributes);
+        Preconditions.checkNotNull(fetchStrategy);
+        Preconditions.checkArgument(maxParallelism > 0, "Maximum parallelism must be positive: %s", maxParallelism);
+        for (Class<?> modelType : modelTypes) {
+            Preconditions.checkArgument(ModelTypes.isSupported(modelType), "Unsupported model type: %s", modelType);
+        }
+
+        final DefaultBulkModelLoad bulkModelLoad = new DefaultBulkModelLoad(ImmutableList.copyOf(Sets.newLinkedHashSet(builds)), modelTypes);
+        if (bulkModelLoad.isDone()) {
+            return bulkModelLoad;
+        }
+
+        int threads = Math.min(maxParallelism, bulkModelLoad.builds.size());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Bulk model loader %d").build());
+        for (final FixedRequestAttributes build : bulkModelLoad.builds) {
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    bulkModelLoad.load(modelRepositories, build, transientRequestAttributes, fetchStrategy);
+                }
+            });
+        }
+
+        // the threads terminate once all builds have been loaded
+        executor.shutdown();
+        return bulkModelLoad;
+    }
+
+}
@@ -16,72 +16,162 @@
 
 package com.gradleware.tooling.toolingmodel.repository.internal;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.Callables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.gradleware.tooling.toolingclient.BuildActionRequest;
 import com.gradleware.tooling.toolingclient.Consumer;
 import com.gradleware.tooling.toolingclient.ModelRequest;
 import com.gradleware.tooling.toolingclient.Request;
 import com.gradleware.tooling.toolingclient.ToolingClient;
+import com.gradleware.tooling.toolingclient.instrumentation.RequestInstrumentation;
+import com.gradleware.tooling.toolingclient.instrumentation.RequestInstrumentations;
+import com.gradleware.tooling.toolingclient.instrumentation.RequestPhase;
+import com.gradleware.tooling.toolingclient.instrumentation.RequestPhaseEvent;
+import com.gradleware.tooling.toolingclient.instrumentation.RequestPhaseTimer;
 import com.gradleware.tooling.toolingmodel.OmniBuildEnvironment;
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocations;
 import com.gradleware.tooling.toolingmodel.OmniBuildInvocationsContainer;
 import com.gradleware.tooling.toolingmodel.OmniEclipseGradleBuild;
 import com.gradleware.tooling.toolingmodel.OmniGradleBuild;
 import com.gradleware.tooling.toolingmodel.OmniGradleBuildStructure;
+import com.gradleware.tooling.toolingmodel.OmniGradleProjectStructure;
+import com.gradleware.tooling.toolingmodel.Path;
 import com.gradleware.tooling.toolingmodel.buildaction.BuildActionFactory;
 import com.gradleware.tooling.toolingmodel.buildaction.ModelForAllProjectsBuildAction;
+import com.gradleware.tooling.toolingmodel.buildaction.ModelForProjectsBuildAction;
 import com.gradleware.tooling.toolingmodel.repository.BuildEnvironmentUpdateEvent;
 import com.gradleware.tooling.toolingmodel.repository.BuildInvocationsUpdateEvent;
 import com.gradleware.tooling.toolingmodel.repository.EclipseGradleBuildUpdateEvent;
 import com.gradleware.tooling.toolingmodel.repository.Environment;
 import com.gradleware.tooling.toolingmodel.repository.FetchStrategy;
 import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
+import com.gradleware.tooling.toolingmodel.repository.GradleCapabilities;
 import com.gradleware.tooling.toolingmodel.repository.GradleBuildStructureUpdateEvent;
 import com.gradleware.tooling.toolingmodel.repository.GradleBuildUpdateEvent;
 import com.gradleware.tooling.toolingmodel.repository.ModelRepository;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepositoryOptions;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepositoryStatistics;
 import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes;
+import com.gradleware.tooling.toolingmodel.util.Pair;
 import org.gradle.tooling.BuildAction;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.GradleConnector;
 import org.gradle.tooling.model.GradleProject;
 import org.gradle.tooling.model.build.BuildEnvironment;
 import org.gradle.tooling.model.eclipse.EclipseProject;
 import org.gradle.tooling.model.gradle.BuildInvocations;
 import org.gradle.tooling.model.gradle.GradleBuild;
-import org.gradle.util.GradleVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Repository for Gradle build models. Model updates are broadcast via Google Guava's {@link EventBus}.
  * <p/>
  * This repository is aware of the different constraints given by the Environment in which the repository is used and given by the target Gradle version.
+ * <p/>
+ * If speculative prefetching is enabled, the repository learns in which order its clients access the models, and loads the models that are likely to be requested next in
+ * the background. Prefetched models are cached and broadcast like any other model.
+ * <p/>
+ * Concurrent requests for a model that is not cached yet share a single load. A request stops waiting for the load once its cancellation token is cancelled or the deadline
+ * of its {@link TransientRequestAttributes} has expired, while the load itself is only cancelled once all the requests waiting for it have stopped waiting. Each load is
+ * numbered with a generation, and the model of a load never replaces the cached model of a load that began later.
  *
  * @author Etienne Studer
  */
 public final class DefaultModelRepository implements ModelRepository {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultModelRepository.class);
+
     private final FixedRequestAttributes fixedRequestAttributes;
     private final ToolingClient toolingClient;
     private final EventBus eventBus;
     private final Cache<Class<?>, Object> cache;
+    private final ModelCacheStatisticsRecorder statisticsRecorder;
     private final Environment environment;
+    private final int projectBatchSize;
+    private final RequestInstrumentation instrumentation;
+    private final AtomicReference<CapabilitiesSnapshot> capabilities;
+    private final ModelPrefetcher prefetcher;
+    private final ModelPrefetcher.ModelLoader prefetchingModelLoader;
+    private final ThreadLocal<Boolean> nestedAccess;
+    private final Set<Class<?>> revalidatingModels;
+    private final Executor revalidationExecutor;
+    private final SharedModelLoads sharedLoads;
+    private final Map<Class<?>, Long> cachedGenerations;
+    private final ThreadLocal<CancellationToken> loadCancellationToken;
+    private final OffHeapTier offHeapTier;
+    private final ConcurrentMap<Class<?>, Long> lastAccessNanos;
+    private final ConcurrentMap<Class<?>, OffHeapTier.MovedModel> movedModels;
 
     public DefaultModelRepository(FixedRequestAttributes fixedRequestAttributes, ToolingClient toolingClient, EventBus eventBus) {
         this(fixedRequestAttributes, toolingClient, eventBus, Environment.STANDALONE);
     }
 
     public DefaultModelRepository(FixedRequestAttributes fixedRequestAttributes, ToolingClient toolingClient, EventBus eventBus, Environment environment) {
+        this(fixedRequestAttributes, toolingClient, eventBus, environment, ModelRepositoryOptions.UNLIMITED_PROJECT_BATCH_SIZE, RequestInstrumentations.noOp(), null, null);
+    }
+
+    // the prefetcher and the off-heap tier are optional, and are shared by all model repositories of a provider
+    DefaultModelRepository(FixedRequestAttributes fixedRequestAttributes, ToolingClient toolingClient, EventBus eventBus, Environment environment, int projectBatchSize,
+                           RequestInstrumentation instrumentation, ModelPrefetcher prefetcher, OffHeapTier offHeapTier) {
+        Preconditions.checkArgument(projectBatchSize > 0, "Project batch size must be positive: %s", projectBatchSize);
         this.fixedRequestAttributes = Preconditions.checkNotNull(fixedRequestAttributes);
         this.toolingClient = Preconditions.checkNotNull(toolingClient);
         this.eventBus = Preconditions.checkNotNull(eventBus);
-        this.cache = CacheBuilder.newBuilder().build();
+        this.cache = CacheBuilder.newBuilder().recordStats().removalListener(new RemovalListener<Class<?>, Object>() {
+
+            @Override
+            public void onRemoval(RemovalNotification<Class<?>, Object> notification) {
+                releaseMovedModel(notification.getKey(), notification.getValue());
+            }
+        }).build();
+        this.statisticsRecorder = new ModelCacheStatisticsRecorder();
         this.environment = environment;
+        this.projectBatchSize = projectBatchSize;
+        this.instrumentation = Preconditions.checkNotNull(instrumentation);
+        this.capabilities = new AtomicReference<CapabilitiesSnapshot>();
+        this.prefetcher = prefetcher;
+        this.prefetchingModelLoader = new PrefetchingModelLoader();
+        this.nestedAccess = new ThreadLocal<Boolean>() {
+
+            @Override
+            protected Boolean initialValue() {
+                return false;
+            }
+        };
+        this.revalidatingModels = Sets.newSetFromMap(Maps.<Class<?>, Boolean>newConcurrentMap());
+        this.revalidationExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("model-revalidation-%d").build());
+        this.sharedLoads = SharedModelLoads.create();
+        this.cachedGenerations = Maps.newHashMap();
+        this.loadCancellationToken = new ThreadLocal<CancellationToken>();
+        this.offHeapTier = offHeapTier;
+        this.lastAccessNanos = Maps.newConcurrentMap();
+        this.movedModels = Maps.newConcurrentMap();
     }
 
     /**
@@ -110,6 +200,12 @@ public final class DefaultModelRepository implements ModelRepository {
         this.eventBus.unregister(listener);
     }
 
+    @Override
+    public ModelRepositoryStatistics getStatistics() {
+        String projectDir = this.fixedRequestAttributes.getProjectDir().getAbsolutePath();
+        return ModelRepositoryStatistics.from(this.fixedRequestAttributes, this.cache.stats(), this.statisticsRecorder.snapshot(projectDir, this.cache.asMap()));
+    }
+
     /*
      * natively supported by all Gradle versions >= 1.0
      */
@@ -135,7 +231,19 @@ public final class DefaultModelRepository implements ModelRepository {
 
         };
 
-        return executeRequest(request, successHandler, fetchStrategy, OmniBuildEnvironment.class, converter);
+        return executeRequest(request, transientRequestAttributes, successHandler, fetchStrategy, OmniBuildEnvironment.class, converter);
+    }
+
+    /*
+     * derived from the build environment, thus supported by all Gradle versions >= 1.0
+     */
+    @Override
+    public GradleCapabilities fetchGradleCapabilities(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        Preconditions.checkNotNull(transientRequestAttributes);
+        Preconditions.checkNotNull(fetchStrategy);
+
+        OmniBuildEnvironment buildEnvironment = fetchBuildEnvironment(transientRequestAttributes, fetchStrategy);
+        return buildEnvironment != null ? getCapabilities(buildEnvironment).gradleCapabilities : null;
     }
 
     /*
@@ -165,7 +273,7 @@ public final class DefaultModelRepository implements ModelRepository {
 
         };
 
-        return executeRequest(request, successHandler, fetchStrategy, OmniGradleBuildStructure.class, converter);
+        return executeRequest(request, transientRequestAttributes, successHandler, fetchStrategy, OmniGradleBuildStructure.class, converter);
     }
 
     /*
@@ -177,7 +285,7 @@ public final class DefaultModelRepository implements ModelRepository {
         Preconditions.checkNotNull(fetchStrategy);
 
         // in versions 2.1 and 2.2.1, all projects tasks are falsely set to public = false in the Tooling API
-        final boolean requiresIsPublicFix = targetGradleVersionIsBetween("2.1", "2.2.1", transientRequestAttributes);
+        final CapabilitiesSnapshot capabilities = getCapabilities(transientRequestAttributes);
 
         ModelRequest<GradleProject> request = createModelRequestForBuildModel(GradleProject.class, transientRequestAttributes);
         Consumer<OmniGradleBuild> successHandler = new Consumer<OmniGradleBuild>() {
@@ -190,12 +298,12 @@ public final class DefaultModelRepository implements ModelRepository {
 
             @Override
             public OmniGradleBuild apply(GradleProject gradleProject) {
-                return DefaultOmniGradleBuild.from(gradleProject, requiresIsPublicFix);
+                return DefaultOmniGradleBuild.from(gradleProject, capabilities.gradleCapabilities.requiresIsPublicFix(), capabilities.modelCapabilities);
             }
 
         };
 
-        return executeRequest(request, successHandler, fetchStrategy, OmniGradleBuild.class, converter);
+        return executeRequest(request, transientRequestAttributes, successHandler, fetchStrategy, OmniGradleBuild.class, converter);
     }
 
     /*
@@ -206,7 +314,7 @@ public final class DefaultModelRepository implements ModelRepository {
         Preconditions.checkNotNull(transientRequestAttributes);
         Preconditions.checkNotNull(fetchStrategy);
 
-        final boolean requiresIsPublicFix = targetGradleVersionIsBetween("2.1", "2.2.1", transientRequestAttributes);
+        final CapabilitiesSnapshot capabilities = getCapabilities(transientRequestAttributes);
 
         ModelRequest<EclipseProject> request = createModelRequestForBuildModel(EclipseProject.class, transientRequestAttributes);
         Consumer<OmniEclipseGradleBuild> successHandler = new Consumer<OmniEclipseGradleBuild>() {
@@ -219,11 +327,11 @@ public final class DefaultModelRepository implements ModelRepository {
 
             @Override
             public OmniEclipseGradleBuild apply(EclipseProject eclipseProject) {
-                return DefaultOmniEclipseGradleBuild.from(eclipseProject, requiresIsPublicFix);
+                return DefaultOmniEclipseGradleBuild.from(eclipseProject, capabilities.gradleCapabilities.requiresIsPublicFix(), capabilities.modelCapabilities);
             }
 
         };
-        return executeRequest(request, successHandler, fetchStrategy, OmniEclipseGradleBuild.class, converter);
+        return executeRequest(request, transientRequestAttributes, successHandler, fetchStrategy, OmniEclipseGradleBuild.class, converter);
     }
 
     /*
@@ -236,11 +344,14 @@ public final class DefaultModelRepository implements ModelRepository {
         Preconditions.checkNotNull(fetchStrategy);
 
         // natively supported by all Gradle versions >= 1.12, if BuildActions supported in the running environment
-        if (!supportsBuildInvocations(transientRequestAttributes) || !supportsBuildActions(transientRequestAttributes)) {
+        final CapabilitiesSnapshot capabilities = getCapabilities(transientRequestAttributes);
+        if (!capabilities.gradleCapabilities.supportsBuildInvocations()) {
+            // when revalidating, the build invocations must not be derived from another cached, possibly stale model
+            final FetchStrategy deriveFetchStrategy = fetchStrategy == FetchStrategy.STALE_WHILE_REVALIDATE ? FetchStrategy.FORCE_RELOAD : fetchStrategy;
             Supplier<OmniBuildInvocationsContainer> operation = new Supplier<OmniBuildInvocationsContainer>() {
                 @Override
                 public OmniBuildInvocationsContainer get() {
-                    return deriveBuildInvocationsFromOtherModel(transientRequestAttributes, fetchStrategy);
+                    return deriveBuildInvocationsFromOtherModel(transientRequestAttributes, deriveFetchStrategy);
                 }
             };
             Consumer<OmniBuildInvocationsContainer> successHandler = new Consumer<OmniBuildInvocationsContainer>() {
@@ -250,25 +361,129 @@ public final class DefaultModelRepository implements ModelRepository {
                 }
             };
             Converter<OmniBuildInvocationsContainer, OmniBuildInvocationsContainer> converter = Converter.identity();
-            return executeRequest(operation, successHandler, fetchStrategy, OmniBuildInvocationsContainer.class, converter);
+            return executeRequest(operation, ModelRequest.class, transientRequestAttributes, successHandler, fetchStrategy, OmniBuildInvocationsContainer.class, converter);
         }
 
-        BuildActionRequest<Map<String, BuildInvocations>> request = createBuildActionRequestForProjectModel(BuildInvocations.class, transientRequestAttributes);
         Consumer<OmniBuildInvocationsContainer> successHandler = new Consumer<OmniBuildInvocationsContainer>() {
             @Override
             public void accept(OmniBuildInvocationsContainer result) {
                 DefaultModelRepository.this.eventBus.post(new BuildInvocationsUpdateEvent(result));
             }
         };
+
+        // in paged mode, the build invocations are fetched in batches of projects and merged into a single container
+        if (this.projectBatchSize != ModelRepositoryOptions.UNLIMITED_PROJECT_BATCH_SIZE) {
+            Supplier<OmniBuildInvocationsContainer> operation = new Supplier<OmniBuildInvocationsContainer>() {
+                @Override
+                public OmniBuildInvocationsContainer get() {
+                    List<String> projectPaths = getProjectPaths(fetchGradleBuildStructure(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED));
+                    List<ModelForProjectsBuildAction<BuildInvocations>> buildActions = BuildActionFactory.getModelForProjectsInBatches(projectPaths, BuildInvocations.class, DefaultModelRepository.this.projectBatchSize);
+                    return fetchBuildInvocationsPerProject(buildActions, transientRequestAttributes, capabilities.modelCapabilities, null);
+                }
+            };
+            Converter<OmniBuildInvocationsContainer, OmniBuildInvocationsContainer> converter = Converter.identity();
+            return executeRequest(operation, BuildActionRequest.class, transientRequestAttributes, successHandler, fetchStrategy, OmniBuildInvocationsContainer.class, converter);
+        }
+
+        BuildActionRequest<Map<String, BuildInvocations>> request = createBuildActionRequestForProjectModel(BuildInvocations.class, transientRequestAttributes);
         Converter<Map<String, BuildInvocations>, OmniBuildInvocationsContainer> converter = new BaseConverter<Map<String, BuildInvocations>, OmniBuildInvocationsContainer>() {
 
             @Override
             public OmniBuildInvocationsContainer apply(Map<String, BuildInvocations> buildInvocations) {
-                return DefaultOmniBuildInvocationsContainer.from(buildInvocations);
+                return DefaultOmniBuildInvocationsContainer.from(buildInvocations, capabilities.modelCapabilities);
             }
 
         };
-        return executeRequest(request, successHandler, fetchStrategy, OmniBuildInvocationsContainer.class, converter);
+        return executeRequest(request, transientRequestAttributes, successHandler, fetchStrategy, OmniBuildInvocationsContainer.class, converter);
+    }
+
+    /*
+     * natively streamed for all Gradle versions >= 1.12, if BuildActions supported in the running environment, otherwise delivered once the complete model is available
+     */
+    @Override
+    public OmniBuildInvocationsContainer fetchBuildInvocations(final TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy,
+                                                               final Consumer<Pair<Path, OmniBuildInvocations>> projectConsumer) {
+        Preconditions.checkNotNull(transientRequestAttributes);
+        Preconditions.checkNotNull(fetchStrategy);
+        Preconditions.checkNotNull(projectConsumer);
+
+        // streaming requires fetching the build invocations through a sequence of BuildActions, a stale container is delivered from the cache and reloaded without streaming
+        boolean stale = FetchStrategy.STALE_WHILE_REVALIDATE == fetchStrategy && this.cache.asMap().containsKey(OmniBuildInvocationsContainer.class);
+        if (FetchStrategy.FROM_CACHE_ONLY == fetchStrategy || stale || !getCapabilities(transientRequestAttributes).gradleCapabilities.supportsBuildInvocations()) {
+            OmniBuildInvocationsContainer result = fetchBuildInvocations(transientRequestAttributes, fetchStrategy);
+            if (result != null) {
+                deliverBuildInvocations(result, projectConsumer);
+            }
+            return result;
+        }
+
+        final AtomicBoolean streamed = new AtomicBoolean(false);
+        Supplier<OmniBuildInvocationsContainer> operation = new Supplier<OmniBuildInvocationsContainer>() {
+            @Override
+            public OmniBuildInvocationsContainer get() {
+                streamed.set(true);
+                return streamBuildInvocations(transientRequestAttributes, projectConsumer);
+            }
+        };
+        Consumer<OmniBuildInvocationsContainer> successHandler = new Consumer<OmniBuildInvocationsContainer>() {
+            @Override
+            public void accept(OmniBuildInvocationsContainer result) {
+                DefaultModelRepository.this.eventBus.post(new BuildInvocationsUpdateEvent(result));
+            }
+        };
+        Converter<OmniBuildInvocationsContainer, OmniBuildInvocationsContainer> converter = Converter.identity();
+        // the container has not been cached a moment ago, thus a stale container must not be revalidated by streaming to the consumer in the background
+        FetchStrategy streamingFetchStrategy = FetchStrategy.STALE_WHILE_REVALIDATE == fetchStrategy ? FetchStrategy.LOAD_IF_NOT_CACHED : fetchStrategy;
+        OmniBuildInvocationsContainer result = executeRequest(operation, BuildActionRequest.class, transientRequestAttributes, successHandler, streamingFetchStrategy,
+                OmniBuildInvocationsContainer.class, converter);
+
+        // if the container was taken from the cache or loaded by a concurrent request, the projects have not been streamed to the consumer yet
+        if (!streamed.get()) {
+            deliverBuildInvocations(result, projectConsumer);
+        }
+        return result;
+    }
+
+    private OmniBuildInvocationsContainer streamBuildInvocations(TransientRequestAttributes transientRequestAttributes, Consumer<Pair<Path, OmniBuildInvocations>> projectConsumer) {
+        // the project paths are known from the (cheap) build structure, the build invocations are then fetched in batches of the configured project batch size,
+        // each build action configures the complete build in the daemon, thus the batches do not grow smaller to deliver the first projects earlier
+        ModelCapabilityRegistry capabilities = getCapabilities(transientRequestAttributes).modelCapabilities;
+        List<String> projectPaths = getProjectPaths(fetchGradleBuildStructure(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED));
+        List<ModelForProjectsBuildAction<BuildInvocations>> buildActions = BuildActionFactory.getModelForProjectsInBatches(projectPaths, BuildInvocations.class, this.projectBatchSize);
+        return fetchBuildInvocationsPerProject(buildActions, transientRequestAttributes, capabilities, projectConsumer);
+    }
+
+    private OmniBuildInvocationsContainer fetchBuildInvocationsPerProject(List<ModelForProjectsBuildAction<BuildInvocations>> buildActions, TransientRequestAttributes transientRequestAttributes,
+                                                                          ModelCapabilityRegistry capabilities, Consumer<Pair<Path, OmniBuildInvocations>> projectConsumer) {
+        // run the build actions one after the other and convert each result right away, such that only one batch of Tooling API models is held in memory at any time
+        ImmutableSortedMap.Builder<Path, OmniBuildInvocations> buildInvocationsPerProject = ImmutableSortedMap.orderedBy(Path.Comparator.INSTANCE);
+        for (ModelForProjectsBuildAction<BuildInvocations> buildAction : buildActions) {
+            Map<String, BuildInvocations> result = createBuildActionRequestForBuildAction(buildAction, transientRequestAttributes).executeAndWait();
+            for (String projectPath : result.keySet()) {
+                Path path = Path.from(projectPath);
+                OmniBuildInvocations buildInvocations = DefaultOmniBuildInvocations.from(result.get(projectPath), path, capabilities);
+                buildInvocationsPerProject.put(path, buildInvocations);
+                // the consumer is optional and only given when streaming
+                if (projectConsumer != null) {
+                    projectConsumer.accept(new Pair<Path, OmniBuildInvocations>(path, buildInvocations));
+                }
+            }
+        }
+        return DefaultOmniBuildInvocationsContainer.from(buildInvocationsPerProject.build());
+    }
+
+    private static List<String> getProjectPaths(OmniGradleBuildStructure gradleBuildStructure) {
+        ImmutableList.Builder<String> projectPaths = ImmutableList.builder();
+        for (OmniGradleProjectStructure project : gradleBuildStructure.getRootProject().getAll()) {
+            projectPaths.add(project.getPath().getPath());
+        }
+        return projectPaths.build();
+    }
+
+    private static void deliverBuildInvocations(OmniBuildInvocationsContainer buildInvocations, Consumer<Pair<Path, OmniBuildInvocations>> projectConsumer) {
+        for (Map.Entry<Path, OmniBuildInvocations> entry : buildInvocations.asMap().entrySet()) {
+            projectConsumer.accept(new Pair<Path, OmniBuildInvocations>(entry.getKey(), entry.getValue()));
+        }
     }
 
     private OmniBuildInvocationsContainer deriveBuildInvocationsFromOtherModel(TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
@@ -294,74 +509,272 @@ public final class DefaultModelRepository implements ModelRepository {
         return DefaultOmniBuildInvocationsContainer.from(gradleBuild.getRootProject());
     }
 
-    private boolean supportsBuildInvocations(TransientRequestAttributes transientRequestAttributes) {
-        return targetGradleVersionIsEqualOrHigherThan("1.12", transientRequestAttributes);
+    private CapabilitiesSnapshot getCapabilities(TransientRequestAttributes transientRequestAttributes) {
+        OmniBuildEnvironment buildEnvironment = fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
+        return getCapabilities(buildEnvironment);
     }
 
-    private boolean supportsBuildActions(TransientRequestAttributes transientRequestAttributes) {
-        if (this.environment == Environment.ECLIPSE) {
-            // in an Eclipse/OSGi environment, the Tooling API supports BuildActions only in Gradle versions >= 2.3
-            return targetGradleVersionIsEqualOrHigherThan("2.3", transientRequestAttributes);
-
-        } else {
-            // in all other environments, BuildActions are supported as of Gradle version >= 1.8
-            return targetGradleVersionIsEqualOrHigherThan("1.8", transientRequestAttributes);
+    private CapabilitiesSnapshot getCapabilities(OmniBuildEnvironment buildEnvironment) {
+        // the capabilities are resolved once per cached build environment and are invalidated together with it
+        CapabilitiesSnapshot current = this.capabilities.get();
+        if (current != null && current.buildEnvironment == buildEnvironment) {
+            return current;
         }
-    }
-
-    private boolean targetGradleVersionIsBetween(String minVersion, String maxVersion, TransientRequestAttributes transientRequestAttributes) {
-        OmniBuildEnvironment buildEnvironment = fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
-        GradleVersion gradleVersion = GradleVersion.version(buildEnvironment.getGradle().getGradleVersion());
-        return gradleVersion.getBaseVersion().compareTo(GradleVersion.version(minVersion)) >= 0 &&
-                gradleVersion.getBaseVersion().compareTo(GradleVersion.version(maxVersion)) <= 0;
-    }
 
-    private boolean targetGradleVersionIsEqualOrHigherThan(String refVersion, TransientRequestAttributes transientRequestAttributes) {
-        OmniBuildEnvironment buildEnvironment = fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
-        GradleVersion gradleVersion = GradleVersion.version(buildEnvironment.getGradle().getGradleVersion());
-        return gradleVersion.getBaseVersion().compareTo(GradleVersion.version(refVersion)) >= 0;
+        // a reloaded build environment that still points to the same Gradle version keeps the capabilities probed so far
+        String gradleVersion = buildEnvironment.getGradle().getGradleVersion();
+        CapabilitiesSnapshot snapshot = current != null && current.gradleCapabilities.getGradleVersion().equals(gradleVersion) ?
+                new CapabilitiesSnapshot(buildEnvironment, current.gradleCapabilities, current.modelCapabilities) :
+                new CapabilitiesSnapshot(buildEnvironment, GradleCapabilities.from(gradleVersion, this.environment), ModelCapabilityRegistry.create());
+        this.capabilities.compareAndSet(current, snapshot);
+        return snapshot;
     }
 
-    private <T, U> U executeRequest(final Request<T> request, final Consumer<U> newCacheEntryHandler, FetchStrategy fetchStrategy, Class<U> cacheKey, final Converter<T, U> resultConverter) {
+    private <T, U> U executeRequest(final Request<T> request, TransientRequestAttributes transientRequestAttributes, final Consumer<U> newCacheEntryHandler,
+                                    FetchStrategy fetchStrategy, Class<U> cacheKey, final Converter<T, U> resultConverter) {
+        Class<?> requestType = request instanceof BuildActionRequest ? BuildActionRequest.class : ModelRequest.class;
         return executeRequest(new Supplier<T>() {
             @Override
             public T get() {
                 // issue the request (synchronously)
                 // it is assumed that the result returned by a model request or build action request is never null
+                applyLoadCancellation(request);
                 return request.executeAndWait();
             }
-        }, newCacheEntryHandler, fetchStrategy, cacheKey, resultConverter);
+        }, requestType, transientRequestAttributes, newCacheEntryHandler, fetchStrategy, cacheKey, resultConverter);
     }
 
-    private <T, U> U executeRequest(final Supplier<T> operation, final Consumer<U> newCacheEntryHandler, FetchStrategy fetchStrategy, Class<U> cacheKey, final Converter<T, U> resultConverter) {
+    private <T, U> U executeRequest(final Supplier<T> operation, final Class<?> requestType, TransientRequestAttributes transientRequestAttributes,
+                                    final Consumer<U> newCacheEntryHandler, FetchStrategy fetchStrategy, final Class<U> cacheKey, final Converter<T, U> resultConverter) {
         // if model is only accessed from the cache, we can return immediately
         if (FetchStrategy.FROM_CACHE_ONLY == fetchStrategy) {
             Object result = this.cache.getIfPresent(cacheKey);
+            if (result != null) {
+                this.statisticsRecorder.recordHit(cacheKey);
+            } else {
+                this.statisticsRecorder.recordMiss(cacheKey);
+            }
+            recordAccess(cacheKey, fetchStrategy);
             return cacheKey.cast(result);
         }
 
-        // if model must be reloaded, we can invalidate the cache entry and then proceed as for FetchStrategy.LOAD_IF_NOT_CACHED
-        if (FetchStrategy.FORCE_RELOAD == fetchStrategy) {
-            this.cache.invalidate(cacheKey);
+        // if model may be stale, we can return the cached model immediately and reload it in the background, otherwise proceed as for FetchStrategy.LOAD_IF_NOT_CACHED
+        if (FetchStrategy.STALE_WHILE_REVALIDATE == fetchStrategy) {
+            Object result = this.cache.getIfPresent(cacheKey);
+            if (result != null) {
+                this.statisticsRecorder.recordHit(cacheKey);
+                revalidate(operation, requestType, newCacheEntryHandler, cacheKey, resultConverter);
+                recordAccess(cacheKey, fetchStrategy);
+                return cacheKey.cast(result);
+            }
+        }
+
+        // return the model from the cache iff already cached and not to be reloaded, the map view is queried first to count the miss only once the load populates the cache
+        boolean reload = FetchStrategy.FORCE_RELOAD == fetchStrategy;
+        Object cached = !reload && this.cache.asMap().containsKey(cacheKey) ? this.cache.getIfPresent(cacheKey) : null;
+        if (cached != null) {
+            this.statisticsRecorder.recordHit(cacheKey);
+            recordAccess(cacheKey, fetchStrategy);
+            return cacheKey.cast(cached);
+        }
+
+        // otherwise join the load of the model that is in progress or start a new one, a load started from within another load waits on behalf of that load
+        // if model must be reloaded, the load that is in progress may have begun before this request, thus the reload that begins once it has completed is joined
+        CancellationToken loadToken = this.loadCancellationToken.get();
+        CancellationToken cancellationToken = loadToken != null ? loadToken : transientRequestAttributes.getCancellationToken();
+        long timeoutMillis = loadToken != null ? Long.MAX_VALUE : transientRequestAttributes.getRemainingTime(TimeUnit.MILLISECONDS);
+        SharedModelLoads.Waiter<U> waiter = this.sharedLoads.join(cacheKey, reload, newLoader(operation, requestType, newCacheEntryHandler, cacheKey, resultConverter));
+        U value = waiter.await(cancellationToken, timeoutMillis, TimeUnit.MILLISECONDS);
+
+        // the load records the miss, any other request that waited for the model is served as if the model had been cached
+        if (!waiter.isInitiator()) {
+            this.statisticsRecorder.recordHit(cacheKey);
         }
 
-        // load the values from the cache iff not already cached
-        final AtomicBoolean modelLoaded = new AtomicBoolean(false);
-        U value = getFromCache(cacheKey, new Callable<U>() {
+        recordAccess(cacheKey, fetchStrategy);
+        return value;
+    }
+
+    private <T, U> SharedModelLoads.Loader<U> newLoader(final Supplier<T> operation, final Class<?> requestType, final Consumer<U> newCacheEntryHandler,
+                                                        final Class<U> cacheKey, final Converter<T, U> resultConverter) {
+        return new SharedModelLoads.Loader<U>() {
+
             @Override
-            public U call() {
-                U model = executeAndWait(operation, resultConverter);
-                modelLoaded.set(true);
-                return model;
+            public U load(CancellationToken cancellationToken, long generation) {
+                return loadIntoCache(operation, requestType, newCacheEntryHandler, cacheKey, resultConverter, cancellationToken, generation);
             }
-        });
+        };
+    }
 
-        // if the model was not in the cache before, notify the callback about the new cache entry
-        if (modelLoaded.get()) {
-            newCacheEntryHandler.accept(value);
+    private <T, U> U loadIntoCache(Supplier<T> operation, Class<?> requestType, Consumer<U> newCacheEntryHandler, Class<U> cacheKey, Converter<T, U> resultConverter,
+                                   CancellationToken cancellationToken, long generation) {
+        // the requests issued by the operation run with the cancellation token of the load rather than with the ones of the waiting requests
+        long loadStartNanos = System.nanoTime();
+        U model;
+        this.loadCancellationToken.set(cancellationToken);
+        try {
+            model = executeAndWait(operation, requestType, cacheKey, resultConverter);
+        } finally {
+            this.loadCancellationToken.remove();
+        }
+        this.statisticsRecorder.recordMiss(cacheKey);
+        this.statisticsRecorder.recordLoad(cacheKey, System.nanoTime() - loadStartNanos);
+
+        // put the model into the cache, unless a load of the same model that began later has put its model into the cache in the meantime
+        long cachePopulationStartNanos = System.nanoTime();
+        if (!putIntoCache(cacheKey, model, generation)) {
+            Object newer = this.cache.asMap().get(cacheKey);
+            return newer != null ? cacheKey.cast(newer) : model;
         }
+        long cachePopulationNanos = System.nanoTime() - cachePopulationStartNanos;
+        this.instrumentation.phaseCompleted(RequestPhaseEvent.from(RequestPhase.CACHE_POPULATION, requestType, cacheKey, this.fixedRequestAttributes.getProjectDir(),
+                this.fixedRequestAttributes.getGradleUserHome(), this.fixedRequestAttributes.getGradleDistribution(), cachePopulationNanos, true));
+
+        // notify the callback about the new cache entry, unless a newer model has already replaced it such that the listeners never see the models out of order
+        if (getCachedGeneration(cacheKey) == generation) {
+            RequestPhaseTimer timer = startPhase(RequestPhase.EVENT_DISPATCH, requestType, cacheKey);
+            try {
+                newCacheEntryHandler.accept(model);
+                timer.succeeded();
+            } finally {
+                timer.stop();
+            }
+        }
+        return model;
+    }
 
-        return value;
+    private <U> boolean putIntoCache(final Class<U> cacheKey, final U model, long generation) {
+        // the generation of a model type survives the invalidation of its cache entry, thus an older model can never replace a newer one
+        synchronized (this.cachedGenerations) {
+            Long cachedGeneration = this.cachedGenerations.get(cacheKey);
+            if (cachedGeneration != null && cachedGeneration > generation) {
+                return false;
+            }
+            this.cachedGenerations.put(cacheKey, generation);
+            if (this.cache.asMap().containsKey(cacheKey)) {
+                this.cache.put(cacheKey, model);
+            } else {
+                // populate the cache through a cache load such that the statistics of the cache count the load
+                getFromCache(cacheKey, Callables.returning(model));
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Caches the build structure converted from the given {@code GradleBuild} model that has been fetched outside of this model repository, unless the build structure has
+     * already been loaded. Unlike a load, seeding the cache does not broadcast the build structure to the listeners of this model repository.
+     *
+     * @param gradleBuild the {@code GradleBuild} model of the build of this model repository
+     */
+    void seedGradleBuildStructure(GradleBuild gradleBuild) {
+        OmniGradleBuildStructure buildStructure = DefaultOmniGradleBuildStructure.from(gradleBuild);
+        synchronized (this.cachedGenerations) {
+            // any load, even one that is still in progress, has a generation that is newer than the seeded model
+            if (!this.cachedGenerations.containsKey(OmniGradleBuildStructure.class) && !this.cache.asMap().containsKey(OmniGradleBuildStructure.class)) {
+                getFromCache(OmniGradleBuildStructure.class, Callables.returning(buildStructure));
+            }
+        }
+    }
+
+    private long getCachedGeneration(Class<?> cacheKey) {
+        synchronized (this.cachedGenerations) {
+            Long cachedGeneration = this.cachedGenerations.get(cacheKey);
+            return cachedGeneration != null ? cachedGeneration : 0;
+        }
+    }
+
+    private void applyLoadCancellation(Request<?> request) {
+        // within a load, requests are cancelled only once the load has been abandoned by all the requests waiting for it
+        CancellationToken loadToken = this.loadCancellationToken.get();
+        if (loadToken != null) {
+            request.cancellationToken(loadToken).deadline(0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private <T, U> void revalidate(Supplier<T> operation, Class<?> requestType, Consumer<U> newCacheEntryHandler, final Class<U> cacheKey, Converter<T, U> resultConverter) {
+        // at most one reload per model is in progress, further requests for a stale model are served from the cache until that reload completes
+        if (!this.revalidatingModels.add(cacheKey)) {
+            return;
+        }
+
+        try {
+            final SharedModelLoads.Loader<U> loader = newLoader(operation, requestType, newCacheEntryHandler, cacheKey, resultConverter);
+            this.revalidationExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        // the stale model remains in the cache while the model is reloaded and if the reload fails
+                        CancellationToken cancellationToken = GradleConnector.newCancellationTokenSource().token();
+                        DefaultModelRepository.this.sharedLoads.join(cacheKey, true, loader).await(cancellationToken, Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                    } catch (Exception e) {
+                        LOG.debug("Revalidating model " + cacheKey.getSimpleName() + " failed.", e);
+                    } finally {
+                        DefaultModelRepository.this.revalidatingModels.remove(cacheKey);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            this.revalidatingModels.remove(cacheKey);
+            throw e;
+        }
+    }
+
+    private void recordAccess(Class<?> modelType, FetchStrategy fetchStrategy) {
+        // every access keeps a model on the heap for the cold-after duration of the off-heap tier
+        if (this.offHeapTier != null) {
+            this.lastAccessNanos.put(modelType, System.nanoTime());
+        }
+
+        // only the models requested by clients are recorded, not the ones fetched while loading or prefetching another model, and the build
+        // environment is fetched ahead of every other model, thus it does not tell anything about the access pattern
+        if (this.prefetcher != null && !this.nestedAccess.get() && modelType != OmniBuildEnvironment.class) {
+            this.prefetcher.recordAccess(this.fixedRequestAttributes, this.prefetchingModelLoader, modelType, fetchStrategy);
+        }
+    }
+
+    /**
+     * Moves the sections of the cached models that have not been requested for the cold-after duration of the off-heap tier off the heap. The moved models replace the
+     * cached models, unless a newer model has been cached in the meantime.
+     */
+    synchronized void moveColdModelsOffHeap() {
+        if (this.offHeapTier == null) {
+            return;
+        }
+
+        long nowNanos = System.nanoTime();
+        for (Map.Entry<Class<?>, Object> entry : this.cache.asMap().entrySet()) {
+            Class<?> cacheKey = entry.getKey();
+            Object model = entry.getValue();
+            Long lastAccess = this.lastAccessNanos.get(cacheKey);
+            OffHeapTier.MovedModel movedModel = this.movedModels.get(cacheKey);
+            if ((movedModel != null && movedModel.getModel() == model) || (lastAccess != null && !this.offHeapTier.isCold(lastAccess, nowNanos))) {
+                continue;
+            }
+
+            Optional<OffHeapTier.MovedModel> newlyMovedModel = this.offHeapTier.move(model);
+            if (newlyMovedModel.isPresent()) {
+                // register the moved model before it is cached, such that its blocks are released even if it is replaced right away
+                this.movedModels.put(cacheKey, newlyMovedModel.get());
+                if (!this.cache.asMap().replace(cacheKey, model, newlyMovedModel.get().getModel())) {
+                    this.movedModels.remove(cacheKey, newlyMovedModel.get());
+                    newlyMovedModel.get().release();
+                }
+            }
+        }
+    }
+
+    private void releaseMovedModel(Class<?> cacheKey, Object model) {
+        OffHeapTier.MovedModel movedModel = this.movedModels.get(cacheKey);
+        if (movedModel != null && movedModel.getModel() == model && this.movedModels.remove(cacheKey, movedModel)) {
+            movedModel.release();
+        }
+    }
+
+    private RequestPhaseTimer startPhase(RequestPhase phase, Class<?> requestType, Class<?> modelType) {
+        return RequestPhaseTimer.start(this.instrumentation, phase, requestType, modelType, this.fixedRequestAttributes.getProjectDir(),
+                this.fixedRequestAttributes.getGradleUserHome(), this.fixedRequestAttributes.getGradleDistribution());
     }
 
     private <U> U getFromCache(Class<U> cacheKey, Callable<U> cacheValueLoader) {
@@ -394,6 +807,7 @@ public final class DefaultModelRepository implements ModelRepository {
         ModelRequest<T> request = this.toolingClient.newModelRequest(model);
         this.fixedRequestAttributes.apply(request);
         transientRequestAttributes.apply(request);
+        applyLoadCancellation(request);
         return request;
     }
 
@@ -403,22 +817,78 @@ public final class DefaultModelRepository implements ModelRepository {
         BuildActionRequest<Map<String, T>> request = this.toolingClient.newBuildActionRequest(buildAction);
         this.fixedRequestAttributes.apply(request);
         transientRequestAttributes.apply(request);
+        applyLoadCancellation(request);
         return request;
     }
 
-    @SuppressWarnings("UnusedDeclaration")
     private <T> BuildActionRequest<T> createBuildActionRequestForBuildAction(BuildAction<T> buildAction, TransientRequestAttributes transientRequestAttributes) {
         // build the request
         BuildActionRequest<T> request = this.toolingClient.newBuildActionRequest(buildAction);
         this.fixedRequestAttributes.apply(request);
         transientRequestAttributes.apply(request);
+        applyLoadCancellation(request);
         return request;
     }
 
-    private <T, U> U executeAndWait(Supplier<T> operation, Converter<T, U> resultConverter) {
-        // invoke the operation and convert the result
-        T result = operation.get();
-        return resultConverter.apply(result);
+    private <T, U> U executeAndWait(Supplier<T> operation, Class<?> requestType, Class<U> modelType, Converter<T, U> resultConverter) {
+        // invoke the operation and convert the result, any models fetched by the operation are not accessed by the client
+        T result;
+        boolean nested = this.nestedAccess.get();
+        this.nestedAccess.set(true);
+        try {
+            result = operation.get();
+        } finally {
+            this.nestedAccess.set(nested);
+        }
+        RequestPhaseTimer timer = startPhase(RequestPhase.CONVERSION, requestType, modelType);
+        try {
+            U model = resultConverter.apply(result);
+            timer.succeeded();
+            return model;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Loads the models predicted by the prefetcher through the regular fetch methods, such that they are cached and broadcast like models requested by a client.
+     */
+    private final class PrefetchingModelLoader implements ModelPrefetcher.ModelLoader {
+
+        @Override
+        public boolean isCached(Class<?> modelType) {
+            // query the map view to not distort the cache statistics
+            return DefaultModelRepository.this.cache.asMap().containsKey(modelType);
+        }
+
+        @Override
+        public void load(Class<?> modelType, TransientRequestAttributes transientRequestAttributes) {
+            boolean nested = DefaultModelRepository.this.nestedAccess.get();
+            DefaultModelRepository.this.nestedAccess.set(true);
+            try {
+                ModelTypes.fetch(DefaultModelRepository.this, modelType, transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
+            } finally {
+                DefaultModelRepository.this.nestedAccess.set(nested);
+            }
+        }
+
+    }
+
+    /**
+     * Holds the capabilities of the target Gradle version together with the build environment from which they were resolved.
+     */
+    private static final class CapabilitiesSnapshot {
+
+        private final OmniBuildEnvironment buildEnvironment;
+        private final GradleCapabilities gradleCapabilities;
+        private final ModelCapabilityRegistry modelCapabilities;
+
+        private CapabilitiesSnapshot(OmniBuildEnvironment buildEnvironment, GradleCapabilities gradleCapabilities, ModelCapabilityRegistry modelCapabilities) {
+            this.buildEnvironment = buildEnvironment;
+            this.gradleCapabilities = gradleCapabilities;
+            this.modelCapabilities = modelCapabilities;
+        }
+
     }
 
 }
@@ -16,17 +16,40 @@
 
 package com.gradleware.tooling.toolingmodel.repository.internal;
 
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.gradleware.tooling.toolingclient.ToolingClient;
+import com.gradleware.tooling.toolingclient.instrumentation.RequestInstrumentation;
+import com.gradleware.tooling.toolingmodel.repository.BulkModelLoad;
 import com.gradleware.tooling.toolingmodel.repository.Environment;
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy;
+import com.gradleware.tooling.toolingmodel.repository.FileOwner;
 import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
 import com.gradleware.tooling.toolingmodel.repository.ModelRepository;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepositoryOptions;
 import com.gradleware.tooling.toolingmodel.repository.ModelRepositoryProvider;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepositoryStatistics;
+import com.gradleware.tooling.toolingmodel.repository.OffHeapStoragePolicy;
+import com.gradleware.tooling.toolingmodel.repository.PreWarmPolicy;
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes;
 import org.gradle.internal.Factory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.Map;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Internal implementation of the {@code ModelRepositoryProvider} API.
@@ -35,10 +58,24 @@ import java.util.Map;
  */
 public final class DefaultModelRepositoryProvider implements ModelRepositoryProvider {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultModelRepositoryProvider.class);
+
+    // the number of builds that are pre-warmed or kept alive concurrently
+    private static final int PRE_WARM_THREADS = 2;
+
     private final ToolingClient toolingClient;
     private final Environment environment;
     private final Factory<EventBus> eventBusFactory;
-    private final Map<FixedRequestAttributes, ModelRepository> modelRepositories;
+    private final int projectBatchSize;
+    private final RequestInstrumentation instrumentation;
+    // shared by all model repositories, such that the access patterns learned from one build are applied to the other builds
+    private final ModelPrefetcher prefetcher;
+    private final FileOwnershipIndex fileOwnershipIndex;
+    // shared by all model repositories, such that the budget applies to all builds together
+    private final OffHeapTier offHeapTier;
+    private final ConcurrentMap<FixedRequestAttributes, ModelRepositoryEntry> modelRepositories;
+    private final Supplier<ScheduledExecutorService> preWarmExecutor;
+    private final Function<FixedRequestAttributes, BuildSharingModelRepository> buildSharingModelRepositories;
 
     public DefaultModelRepositoryProvider(ToolingClient toolingClient) {
         this(toolingClient, Environment.STANDALONE);
@@ -49,10 +86,40 @@ public final class DefaultModelRepositoryProvider implements ModelRepositoryProv
     }
 
     public DefaultModelRepositoryProvider(ToolingClient toolingClient, Environment environment, Factory<EventBus> eventBusFactory) {
+        this(toolingClient, environment, eventBusFactory, ModelRepositoryOptions.defaults());
+    }
+
+    public DefaultModelRepositoryProvider(ToolingClient toolingClient, Environment environment, Factory<EventBus> eventBusFactory, ModelRepositoryOptions options) {
+        Preconditions.checkNotNull(options);
         this.toolingClient = Preconditions.checkNotNull(toolingClient);
         this.environment = Preconditions.checkNotNull(environment);
         this.eventBusFactory = Preconditions.checkNotNull(eventBusFactory);
-        this.modelRepositories = Maps.newHashMap();
+        this.projectBatchSize = options.getProjectBatchSize();
+        this.instrumentation = options.getInstrumentation();
+        this.prefetcher = options.isSpeculativePrefetching() ? new ModelPrefetcher() : null;
+        this.fileOwnershipIndex = new FileOwnershipIndex();
+        OffHeapStoragePolicy offHeapStorage = options.getOffHeapStorage();
+        this.offHeapTier = offHeapStorage.isEnabled() ? new OffHeapTier(new OffHeapStore(offHeapStorage.getBudget()), offHeapStorage.getColdAfter(TimeUnit.MILLISECONDS),
+                TimeUnit.MILLISECONDS) : null;
+        this.modelRepositories = Maps.newConcurrentMap();
+        this.buildSharingModelRepositories = new Function<FixedRequestAttributes, BuildSharingModelRepository>() {
+
+            @Override
+            public BuildSharingModelRepository apply(FixedRequestAttributes build) {
+                return (BuildSharingModelRepository) getOrCreateModelRepository(build);
+            }
+        };
+        this.preWarmExecutor = Suppliers.memoize(new Supplier<ScheduledExecutorService>() {
+
+            @Override
+            public ScheduledExecutorService get() {
+                // created on demand and shared by all pre-warmers, its threads do not keep the JVM alive
+                return new ScheduledThreadPoolExecutor(PRE_WARM_THREADS, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Model repository pre-warmer %d").build());
+            }
+        });
+        if (this.offHeapTier != null) {
+            scheduleOffHeapMoves(this.offHeapTier.getColdAfter(TimeUnit.MILLISECONDS));
+        }
     }
 
     @Override
@@ -62,17 +129,123 @@ public final class DefaultModelRepositoryProvider implements ModelRepositoryProv
         return getOrCreateModelRepository(fixedRequestAttributes);
     }
 
+    @Override
+    public ModelRepository getModelRepository(FixedRequestAttributes fixedRequestAttributes, PreWarmPolicy preWarmPolicy) {
+        Preconditions.checkNotNull(fixedRequestAttributes);
+        Preconditions.checkNotNull(preWarmPolicy);
+
+        ModelRepositoryEntry entry = getOrCreateModelRepositoryEntry(fixedRequestAttributes);
+        if (preWarmPolicy.isEnabled()) {
+            entry.getPreWarmer().start(preWarmPolicy);
+        }
+        return entry.modelRepository;
+    }
+
+    @Override
+    public void cancelPreWarming(FixedRequestAttributes fixedRequestAttributes) {
+        Preconditions.checkNotNull(fixedRequestAttributes);
+
+        ModelRepositoryEntry entry = this.modelRepositories.get(fixedRequestAttributes);
+        if (entry != null) {
+            entry.getPreWarmer().cancel();
+        }
+    }
+
+    @Override
+    public BulkModelLoad loadModels(List<FixedRequestAttributes> fixedRequestAttributes, List<Class<?>> modelTypes, TransientRequestAttributes transientRequestAttributes,
+                                    FetchStrategy fetchStrategy, int maxParallelism) {
+        Function<FixedRequestAttributes, ModelRepository> modelRepositories = new Function<FixedRequestAttributes, ModelRepository>() {
+
+            @Override
+            public ModelRepository apply(FixedRequestAttributes build) {
+                return getOrCreateModelRepository(build);
+            }
+        };
+        return DefaultBulkModelLoad.start(fixedRequestAttributes, modelTypes, modelRepositories, transientRequestAttributes, fetchStrategy, maxParallelism);
+    }
+
+    @Override
+    public List<ModelRepositoryStatistics> getStatistics() {
+        ImmutableList.Builder<ModelRepositoryStatistics> statistics = ImmutableList.builder();
+        for (ModelRepositoryEntry entry : this.modelRepositories.values()) {
+            statistics.add(entry.modelRepository.getStatistics());
+        }
+        return statistics.build();
+    }
+
+    @Override
+    public Optional<FileOwner> findFileOwner(File file) {
+        Preconditions.checkNotNull(file);
+
+        return this.fileOwnershipIndex.findOwner(file);
+    }
+
+    private void scheduleOffHeapMoves(long intervalMillis) {
+        // the moves run on a dedicated thread rather than on the threads of the pre-warmers, which are blocked for as long as a build is pre-warmed or kept alive,
+        // thus a model is moved at most one interval plus the duration of a sweep after it has become cold
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Model repository off-heap mover").build());
+        executor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                for (ModelRepositoryEntry entry : DefaultModelRepositoryProvider.this.modelRepositories.values()) {
+                    try {
+                        entry.ownRepository.moveColdModelsOffHeap();
+                    } catch (RuntimeException e) {
+                        LOG.warn("Moving the cold models of " + entry.fixedRequestAttributes.getProjectDir() + " off the heap failed.", e);
+                    }
+                }
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
     private ModelRepository getOrCreateModelRepository(FixedRequestAttributes fixedRequestAttributes) {
-        ModelRepository modelRepository;
-        synchronized (this.modelRepositories) {
-            if (!this.modelRepositories.containsKey(fixedRequestAttributes)) {
-                modelRepository = new DefaultModelRepository(fixedRequestAttributes, this.toolingClient, this.eventBusFactory.create(), this.environment);
-                this.modelRepositories.put(fixedRequestAttributes, modelRepository);
-            } else {
-                modelRepository = this.modelRepositories.get(fixedRequestAttributes);
+        return getOrCreateModelRepositoryEntry(fixedRequestAttributes).modelRepository;
+    }
+
+    private ModelRepositoryEntry getOrCreateModelRepositoryEntry(FixedRequestAttributes fixedRequestAttributes) {
+        ModelRepositoryEntry entry = this.modelRepositories.get(fixedRequestAttributes);
+        if (entry != null) {
+            return entry;
+        }
+
+        // creating a model repository is cheap and does not block, if two threads race for the same build, the repository of the thread that comes second is discarded unused
+        EventBus eventBus = this.eventBusFactory.create();
+        DefaultModelRepository ownRepository = new DefaultModelRepository(fixedRequestAttributes, this.toolingClient, eventBus, this.environment, this.projectBatchSize,
+                this.instrumentation, this.prefetcher, this.offHeapTier);
+        ModelRepository modelRepository = new BuildSharingModelRepository(fixedRequestAttributes, ownRepository, eventBus, this.toolingClient, this.buildSharingModelRepositories);
+        ModelRepositoryEntry newEntry = new ModelRepositoryEntry(fixedRequestAttributes, ownRepository, modelRepository, eventBus);
+        eventBus.register(this.fileOwnershipIndex.newListener(fixedRequestAttributes));
+        ModelRepositoryEntry existingEntry = this.modelRepositories.putIfAbsent(fixedRequestAttributes, newEntry);
+        return existingEntry != null ? existingEntry : newEntry;
+    }
+
+    /**
+     * A model repository handed out by this provider, together with its pre-warmer that is created on first use.
+     */
+    private final class ModelRepositoryEntry {
+
+        private final FixedRequestAttributes fixedRequestAttributes;
+        private final DefaultModelRepository ownRepository;
+        private final ModelRepository modelRepository;
+        private final EventBus eventBus;
+        private ModelRepositoryPreWarmer preWarmer;
+
+        private ModelRepositoryEntry(FixedRequestAttributes fixedRequestAttributes, DefaultModelRepository ownRepository, ModelRepository modelRepository, EventBus eventBus) {
+            this.fixedRequestAttributes = fixedRequestAttributes;
+            this.ownRepository = ownRepository;
+            this.modelRepository = modelRepository;
+            this.eventBus = eventBus;
+        }
+
+        private synchronized ModelRepositoryPreWarmer getPreWarmer() {
+            if (this.preWarmer == null) {
+                this.preWarmer = new ModelRepositoryPreWarmer(this.fixedRequestAttributes, this.modelRepository, DefaultModelRepositoryProvider.this.toolingClient, this.eventBus,
+                        DefaultModelRepositoryProvider.this.preWarmExecutor.get());
             }
+            return this.preWarmer;
         }
-        return modelRepository;
+
     }
 
     /**
@@ -14,73 +14,401 @@
  * limitations under the License.
  */
 
+
 package com.gradleware.tooling.toolingmodel.repository.internal;
 
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
 import com.gradleware.tooling.toolingmodel.OmniBuildInvocations;
 import com.gradleware.tooling.toolingmodel.OmniProjectTask;
 import com.gradleware.tooling.toolingmodel.OmniTaskSelector;
 import com.gradleware.tooling.toolingmodel.Path;
+import com.gradleware.tooling.toolingmodel.util.Maybe;
 import org.gradle.tooling.model.DomainObjectSet;
 import org.gradle.tooling.model.Task;
 import org.gradle.tooling.model.TaskSelector;
 import org.gradle.tooling.model.gradle.BuildInvocations;
 
+import java.util.AbstractList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Default implementation of the {@link OmniBuildInvocations} interface.
+ * <p/>
+ * The tasks and task selectors are stored in columns rather than as one object per element: all strings are replaced by their id in a {@link StringTable} that is shared by
+ * the projects of a build, the public flags are stored in bit sets, and equal arrays of selected task paths are shared. The elements of the returned lists are flyweights
+ * that are created on access and read from these columns.
  *
  * @author Etienne Studer
  */
 public final class DefaultOmniBuildInvocations implements OmniBuildInvocations {
 
-    private final ImmutableList<OmniProjectTask> projectTasks;
-    private final ImmutableList<OmniTaskSelector> taskSelectors;
+    private static final int GROUP_ABSENT_ID = -2;
+
+    private final StringTable strings;
+    private final int[] taskNames;
+    private final int[] taskDescriptions;
+    private final int[] taskPaths;
+    private final int[] taskGroups;
+    private final BitSet publicTasks;
+    private final int[] selectorNames;
+    private final int[] selectorDescriptions;
+    private final int[] selectorProjectPaths;
+    private final int[][] selectorTaskPaths;
+    private final BitSet publicSelectors;
+    private final ProjectTaskList projectTasks;
+    private final TaskSelectorList taskSelectors;
 
-    private DefaultOmniBuildInvocations(List<OmniProjectTask> projectTasks, List<OmniTaskSelector> taskSelectors) {
-        this.projectTasks = ImmutableList.copyOf(projectTasks);
-        this.taskSelectors = ImmutableList.copyOf(taskSelectors);
+    private DefaultOmniBuildInvocations(Builder builder, StringTable strings) {
+        this.strings = strings;
+        this.taskNames = builder.taskNames;
+        this.taskDescriptions = builder.taskDescriptions;
+        this.taskPaths = builder.taskPaths;
+        this.taskGroups = builder.taskGroups;
+        this.publicTasks = builder.publicTasks;
+        this.selectorNames = builder.selectorNames;
+        this.selectorDescriptions = builder.selectorDescriptions;
+        this.selectorProjectPaths = builder.selectorProjectPaths;
+        this.selectorTaskPaths = builder.selectorTaskPaths;
+        this.publicSelectors = builder.publicSelectors;
+        this.projectTasks = new ProjectTaskList(this);
+        this.taskSelectors = new TaskSelectorList(this);
+    }
+
+    private DefaultOmniBuildInvocations(DefaultOmniBuildInvocations buildInvocations, StringTable strings) {
+        this.strings = strings;
+        this.taskNames = buildInvocations.taskNames;
+        this.taskDescriptions = buildInvocations.taskDescriptions;
+        this.taskPaths = buildInvocations.taskPaths;
+        this.taskGroups = buildInvocations.taskGroups;
+        this.publicTasks = buildInvocations.publicTasks;
+        this.selectorNames = buildInvocations.selectorNames;
+        this.selectorDescriptions = buildInvocations.selectorDescriptions;
+        this.selectorProjectPaths = buildInvocations.selectorProjectPaths;
+        this.selectorTaskPaths = buildInvocations.selectorTaskPaths;
+        this.publicSelectors = buildInvocations.publicSelectors;
+        this.projectTasks = new ProjectTaskList(this);
+        this.taskSelectors = new TaskSelectorList(this);
     }
 
     @Override
-    public ImmutableList<OmniProjectTask> getProjectTasks() {
+    public List<OmniProjectTask> getProjectTasks() {
         return this.projectTasks;
     }
 
     @Override
-    public ImmutableList<OmniTaskSelector> getTaskSelectors() {
+    public List<OmniTaskSelector> getTaskSelectors() {
         return this.taskSelectors;
     }
 
+    StringTable getStrings() {
+        return this.strings;
+    }
+
+    /**
+     * Creates a copy of these build invocations that shares the columns but reads the strings from the given table.
+     *
+     * @param strings the table holding the same strings as the table of these build invocations
+     * @return the new instance
+     */
+    DefaultOmniBuildInvocations withStrings(StringTable strings) {
+        Preconditions.checkArgument(strings.size() == this.strings.size(), "String table must hold the same strings.");
+        return new DefaultOmniBuildInvocations(this, strings);
+    }
+
     public static DefaultOmniBuildInvocations from(BuildInvocations buildInvocations, Path projectPath) {
-        return new DefaultOmniBuildInvocations(
-                createProjectTasks(buildInvocations.getTasks()),
-                createTaskSelectors(buildInvocations.getTaskSelectors(), projectPath));
+        return from(buildInvocations, projectPath, ModelCapabilityRegistry.create());
+    }
+
+    static DefaultOmniBuildInvocations from(BuildInvocations buildInvocations, Path projectPath, ModelCapabilityRegistry capabilities) {
+        StringTable.Builder strings = StringTable.builder();
+        Builder builder = builder(buildInvocations, projectPath, capabilities, strings);
+        return builder.build(strings.build());
     }
 
-    private static ImmutableList<OmniProjectTask> createProjectTasks(DomainObjectSet<? extends Task> projectTasks) {
+    static Builder builder(BuildInvocations buildInvocations, Path projectPath, ModelCapabilityRegistry capabilities, StringTable.Builder strings) {
+        return new Builder(
+                createProjectTasks(buildInvocations.getTasks(), capabilities),
+                createTaskSelectors(buildInvocations.getTaskSelectors(), projectPath, capabilities),
+                strings);
+    }
+
+    private static ImmutableList<OmniProjectTask> createProjectTasks(DomainObjectSet<? extends Task> projectTasks, final ModelCapabilityRegistry capabilities) {
         return FluentIterable.from(projectTasks).transform(new Function<Task, OmniProjectTask>() {
             @Override
             public OmniProjectTask apply(Task input) {
-                return DefaultOmniProjectTask.from(input, false);
+                return DefaultOmniProjectTask.from(input, false, capabilities);
             }
         }).toList();
     }
 
-    private static ImmutableList<OmniTaskSelector> createTaskSelectors(DomainObjectSet<? extends TaskSelector> taskSelectors, final Path projectPath) {
+    private static ImmutableList<OmniTaskSelector> createTaskSelectors(DomainObjectSet<? extends TaskSelector> taskSelectors, final Path projectPath, final ModelCapabilityRegistry capabilities) {
         return FluentIterable.from(taskSelectors).transform(new Function<TaskSelector, OmniTaskSelector>() {
             @Override
             public OmniTaskSelector apply(TaskSelector input) {
-                return DefaultOmniTaskSelector.from(input, projectPath);
+                return DefaultOmniTaskSelector.from(input, projectPath, capabilities);
             }
         }).toList();
     }
 
     public static DefaultOmniBuildInvocations from(List<OmniProjectTask> projectTasks, List<OmniTaskSelector> taskSelectors) {
-        return new DefaultOmniBuildInvocations(projectTasks, taskSelectors);
+        StringTable.Builder strings = StringTable.builder();
+        Builder builder = new Builder(projectTasks, taskSelectors, strings);
+        return builder.build(strings.build());
+    }
+
+    /**
+     * Converts the tasks and task selectors of a project to columns. The builders of all projects of a build add their strings to the same table, and are built once the
+     * table is complete.
+     */
+    static final class Builder {
+
+        private final int[] taskNames;
+        private final int[] taskDescriptions;
+        private final int[] taskPaths;
+        private final int[] taskGroups;
+        private final BitSet publicTasks;
+        private final int[] selectorNames;
+        private final int[] selectorDescriptions;
+        private final int[] selectorProjectPaths;
+        private final int[][] selectorTaskPaths;
+        private final BitSet publicSelectors;
+
+        Builder(List<? extends OmniProjectTask> projectTasks, List<? extends OmniTaskSelector> taskSelectors, StringTable.Builder strings) {
+            int taskCount = projectTasks.size();
+            this.taskNames = new int[taskCount];
+            this.taskDescriptions = new int[taskCount];
+            this.taskPaths = new int[taskCount];
+            this.taskGroups = new int[taskCount];
+            this.publicTasks = new BitSet(taskCount);
+            for (int i = 0; i < taskCount; i++) {
+                OmniProjectTask task = projectTasks.get(i);
+                this.taskNames[i] = strings.add(task.getName());
+                this.taskDescriptions[i] = strings.add(task.getDescription());
+                this.taskPaths[i] = strings.add(task.getPath().getPath());
+                this.taskGroups[i] = task.getGroup().isPresent() ? strings.add(task.getGroup().get()) : GROUP_ABSENT_ID;
+                this.publicTasks.set(i, task.isPublic());
+            }
+
+            int selectorCount = taskSelectors.size();
+            this.selectorNames = new int[selectorCount];
+            this.selectorDescriptions = new int[selectorCount];
+            this.selectorProjectPaths = new int[selectorCount];
+            this.selectorTaskPaths = new int[selectorCount][];
+            this.publicSelectors = new BitSet(selectorCount);
+            for (int i = 0; i < selectorCount; i++) {
+                OmniTaskSelector taskSelector = taskSelectors.get(i);
+                this.selectorNames[i] = strings.add(taskSelector.getName());
+                this.selectorDescriptions[i] = strings.add(taskSelector.getDescription());
+                this.selectorProjectPaths[i] = strings.add(taskSelector.getProjectPath().getPath());
+                this.selectorTaskPaths[i] = strings.addAll(FluentIterable.from(taskSelector.getSelectedTaskPaths()).transform(PathToString.INSTANCE),
+                        taskSelector.getSelectedTaskPaths().size());
+                this.publicSelectors.set(i, taskSelector.isPublic());
+            }
+        }
+
+        /**
+         * Creates the build invocations.
+         *
+         * @param strings the table built from the string table builder passed when this builder was created
+         * @return the new instance
+         */
+        DefaultOmniBuildInvocations build(StringTable strings) {
+            return new DefaultOmniBuildInvocations(this, strings);
+        }
+
+    }
+
+    /**
+     * Read-only list of the flyweights of the project tasks.
+     */
+    private static final class ProjectTaskList extends AbstractList<OmniProjectTask> implements RandomAccess {
+
+        private final DefaultOmniBuildInvocations buildInvocations;
+
+        private ProjectTaskList(DefaultOmniBuildInvocations buildInvocations) {
+            this.buildInvocations = buildInvocations;
+        }
+
+        @Override
+        public OmniProjectTask get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return new ProjectTaskFlyweight(this.buildInvocations, index);
+        }
+
+        @Override
+        public int size() {
+            return this.buildInvocations.taskNames.length;
+        }
+
+    }
+
+    /**
+     * Read-only list of the flyweights of the task selectors.
+     */
+    private static final class TaskSelectorList extends AbstractList<OmniTaskSelector> implements RandomAccess {
+
+        private final DefaultOmniBuildInvocations buildInvocations;
+
+        private TaskSelectorList(DefaultOmniBuildInvocations buildInvocations) {
+            this.buildInvocations = buildInvocations;
+        }
+
+        @Override
+        public OmniTaskSelector get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return new TaskSelectorFlyweight(this.buildInvocations, index);
+        }
+
+        @Override
+        public int size() {
+            return this.buildInvocations.selectorNames.length;
+        }
+
+    }
+
+    /**
+     * Flyweight of a project task, equal to all other flyweights of the same task.
+     */
+    private static final class ProjectTaskFlyweight implements OmniProjectTask {
+
+        private final DefaultOmniBuildInvocations buildInvocations;
+        private final int index;
+
+        private ProjectTaskFlyweight(DefaultOmniBuildInvocations buildInvocations, int index) {
+            this.buildInvocations = buildInvocations;
+            this.index = index;
+        }
+
+        @Override
+        public String getName() {
+            return this.buildInvocations.strings.get(this.buildInvocations.taskNames[this.index]);
+        }
+
+        @Override
+        public String getDescription() {
+            return this.buildInvocations.strings.get(this.buildInvocations.taskDescriptions[this.index]);
+        }
+
+        @Override
+        public Path getPath() {
+            return Path.from(this.buildInvocations.strings.get(this.buildInvocations.taskPaths[this.index]));
+        }
+
+        @Override
+        public boolean isPublic() {
+            return this.buildInvocations.publicTasks.get(this.index);
+        }
+
+        @Override
+        public Maybe<String> getGroup() {
+            int group = this.buildInvocations.taskGroups[this.index];
+            return group == GROUP_ABSENT_ID ? Maybe.<String>absent() : Maybe.of(this.buildInvocations.strings.get(group));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+
+            ProjectTaskFlyweight that = (ProjectTaskFlyweight) other;
+            return this.buildInvocations == that.buildInvocations && this.index == that.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(this.buildInvocations) + this.index;
+        }
+
+    }
+
+    /**
+     * Flyweight of a task selector, equal to all other flyweights of the same task selector.
+     */
+    private static final class TaskSelectorFlyweight implements OmniTaskSelector {
+
+        private final DefaultOmniBuildInvocations buildInvocations;
+        private final int index;
+
+        private TaskSelectorFlyweight(DefaultOmniBuildInvocations buildInvocations, int index) {
+            this.buildInvocations = buildInvocations;
+            this.index = index;
+        }
+
+        @Override
+        public String getName() {
+            return this.buildInvocations.strings.get(this.buildInvocations.selectorNames[this.index]);
+        }
+
+        @Override
+        public String getDescription() {
+            return this.buildInvocations.strings.get(this.buildInvocations.selectorDescriptions[this.index]);
+        }
+
+        @Override
+        public Path getProjectPath() {
+            return Path.from(this.buildInvocations.strings.get(this.buildInvocations.selectorProjectPaths[this.index]));
+        }
+
+        @Override
+        public boolean isPublic() {
+            return this.buildInvocations.publicSelectors.get(this.index);
+        }
+
+        @Override
+        public ImmutableSortedSet<Path> getSelectedTaskPaths() {
+            ImmutableSortedSet.Builder<Path> selectedTaskPaths = ImmutableSortedSet.orderedBy(Path.Comparator.INSTANCE);
+            for (int id : this.buildInvocations.selectorTaskPaths[this.index]) {
+                selectedTaskPaths.add(Path.from(this.buildInvocations.strings.get(id)));
+            }
+            return selectedTaskPaths.build();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+
+            TaskSelectorFlyweight that = (TaskSelectorFlyweight) other;
+            return this.buildInvocations == that.buildInvocations && this.index == that.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(this.buildInvocations) + this.index;
+        }
+
+    }
+
+    /**
+     * Singleton function to convert a {@code Path} to its string.
+     */
+    private enum PathToString implements Function<Path, String> {
+
+        INSTANCE;
+
+        @Override
+        public String apply(Path path) {
+            return path.getPath();
+        }
+
     }
 
 }
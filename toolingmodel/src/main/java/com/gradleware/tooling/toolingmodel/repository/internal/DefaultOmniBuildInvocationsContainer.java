@@ -18,6 +18,7 @@ package com.gradleware.tooling.toolingmodel.repository.internal;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
 import com.gradleware.tooling.toolingmodel.OmniBuildInvocations;
 import com.gradleware.tooling.toolingmodel.OmniBuildInvocationsContainer;
 import com.gradleware.tooling.toolingmodel.OmniGradleProject;
@@ -52,11 +53,16 @@ public final class DefaultOmniBuildInvocationsContainer implements OmniBuildInvo
     }
 
     public static OmniBuildInvocationsContainer from(Map<String, BuildInvocations> buildInvocationsPerProject) {
-        ImmutableSortedMap.Builder<Path, OmniBuildInvocations> buildInvocationsMap = ImmutableSortedMap.orderedBy(Path.Comparator.INSTANCE);
+        return from(buildInvocationsPerProject, ModelCapabilityRegistry.create());
+    }
+
+    static OmniBuildInvocationsContainer from(Map<String, BuildInvocations> buildInvocationsPerProject, ModelCapabilityRegistry capabilities) {
+        StringTable.Builder strings = StringTable.builder();
+        Map<Path, DefaultOmniBuildInvocations.Builder> builders = Maps.newLinkedHashMap();
         for (String projectPath : buildInvocationsPerProject.keySet()) {
-            buildInvocationsMap.put(Path.from(projectPath), DefaultOmniBuildInvocations.from(buildInvocationsPerProject.get(projectPath), Path.from(projectPath)));
+            builders.put(Path.from(projectPath), DefaultOmniBuildInvocations.builder(buildInvocationsPerProject.get(projectPath), Path.from(projectPath), capabilities, strings));
         }
-        return new DefaultOmniBuildInvocationsContainer(buildInvocationsMap.build());
+        return new DefaultOmniBuildInvocationsContainer(build(builders, strings.build()));
     }
 
     public static DefaultOmniBuildInvocationsContainer from(SortedMap<Path, OmniBuildInvocations> buildInvocationsPerProject) {
@@ -64,18 +70,35 @@ public final class DefaultOmniBuildInvocationsContainer implements OmniBuildInvo
     }
 
     public static OmniBuildInvocationsContainer from(OmniGradleProject gradleProject) {
+        // projects converted by this library already hold their build invocations, hence only foreign implementations are converted to columns
+        StringTable.Builder strings = StringTable.builder();
         ImmutableSortedMap.Builder<Path, OmniBuildInvocations> result = ImmutableSortedMap.orderedBy(Path.Comparator.INSTANCE);
-        collectBuildInvocations(gradleProject, result);
+        Map<Path, DefaultOmniBuildInvocations.Builder> builders = Maps.newLinkedHashMap();
+        collectBuildInvocations(gradleProject, result, builders, strings);
+        result.putAll(build(builders, strings.build()));
         return new DefaultOmniBuildInvocationsContainer(result.build());
     }
 
-    private static void collectBuildInvocations(OmniGradleProject project, ImmutableSortedMap.Builder<Path, OmniBuildInvocations> result) {
-        result.put(project.getPath(), DefaultOmniBuildInvocations.from(project.getProjectTasks(), project.getTaskSelectors()));
+    private static void collectBuildInvocations(OmniGradleProject project, ImmutableSortedMap.Builder<Path, OmniBuildInvocations> result,
+                                                Map<Path, DefaultOmniBuildInvocations.Builder> builders, StringTable.Builder strings) {
+        if (project instanceof DefaultOmniGradleProject) {
+            result.put(project.getPath(), ((DefaultOmniGradleProject) project).getBuildInvocations());
+        } else {
+            builders.put(project.getPath(), new DefaultOmniBuildInvocations.Builder(project.getProjectTasks(), project.getTaskSelectors(), strings));
+        }
 
         List<OmniGradleProject> children = project.getChildren();
         for (OmniGradleProject child : children) {
-            collectBuildInvocations(child, result);
+            collectBuildInvocations(child, result, builders, strings);
+        }
+    }
+
+    private static ImmutableSortedMap<Path, OmniBuildInvocations> build(Map<Path, DefaultOmniBuildInvocations.Builder> builders, StringTable strings) {
+        ImmutableSortedMap.Builder<Path, OmniBuildInvocations> result = ImmutableSortedMap.orderedBy(Path.Comparator.INSTANCE);
+        for (Map.Entry<Path, DefaultOmniBuildInvocations.Builder> builder : builders.entrySet()) {
+            result.put(builder.getKey(), builder.getValue().build(strings));
         }
+        return result.build();
     }
 
 }
@@ -22,6 +22,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
@@ -37,6 +38,7 @@ import org.gradle.tooling.model.GradleTask;
 
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
@@ -59,8 +61,12 @@ public final class DefaultOmniBuildInvocationsContainerBuilder {
      * @return the build invocations container
      */
     public static DefaultOmniBuildInvocationsContainer build(GradleProject project, boolean enforceAllTasksPublic) {
-        ImmutableMultimap<Path, OmniProjectTask> tasks = buildProjectTasksRecursively(project, ArrayListMultimap.<Path, OmniProjectTask>create(), enforceAllTasksPublic);
-        ImmutableMultimap<Path, OmniTaskSelector> taskSelectors = buildTaskSelectorsRecursively(project, ArrayListMultimap.<Path, OmniTaskSelector>create(), enforceAllTasksPublic);
+        return build(project, enforceAllTasksPublic, ModelCapabilityRegistry.create());
+    }
+
+    static DefaultOmniBuildInvocationsContainer build(GradleProject project, boolean enforceAllTasksPublic, ModelCapabilityRegistry capabilities) {
+        ImmutableMultimap<Path, OmniProjectTask> tasks = buildProjectTasksRecursively(project, ArrayListMultimap.<Path, OmniProjectTask>create(), enforceAllTasksPublic, capabilities);
+        ImmutableMultimap<Path, OmniTaskSelector> taskSelectors = buildTaskSelectorsRecursively(project, ArrayListMultimap.<Path, OmniTaskSelector>create(), enforceAllTasksPublic, capabilities);
         ImmutableSortedMap<Path, OmniBuildInvocations> buildInvocationsPerProject = buildBuildInvocationsMapping(project, tasks, taskSelectors);
         return DefaultOmniBuildInvocationsContainer.from(buildInvocationsPerProject);
     }
@@ -71,11 +77,19 @@ public final class DefaultOmniBuildInvocationsContainerBuilder {
         Preconditions.checkState(taskSelectors.keySet().containsAll(projectTasks.keySet()), "Task selectors are always configured for all projects");
 
         // create mappings for all projects which contain tasks selectors (which covers at least those projects that contain project tasks)
-        ImmutableSortedMap.Builder<Path, OmniBuildInvocations> mapping = ImmutableSortedMap.orderedBy(Path.Comparator.INSTANCE);
+        // all projects share one string table, hence the build invocations are only created once the strings of all projects have been added
+        StringTable.Builder strings = StringTable.builder();
+        Map<Path, DefaultOmniBuildInvocations.Builder> builders = Maps.newLinkedHashMap();
         for (Path projectPath : taskSelectors.keySet()) {
             ImmutableList<OmniProjectTask> projectTasksOfProject = ImmutableSortedSet.orderedBy(TaskComparator.INSTANCE).addAll(projectTasks.get(projectPath)).build().asList();
             ImmutableList<OmniTaskSelector> taskSelectorsOfProject = ImmutableSortedSet.orderedBy(TaskSelectorComparator.INSTANCE).addAll(taskSelectors.get(projectPath)).build().asList();
-            mapping.put(projectPath, DefaultOmniBuildInvocations.from(projectTasksOfProject, taskSelectorsOfProject));
+            builders.put(projectPath, new DefaultOmniBuildInvocations.Builder(projectTasksOfProject, taskSelectorsOfProject, strings));
+        }
+
+        StringTable stringTable = strings.build();
+        ImmutableSortedMap.Builder<Path, OmniBuildInvocations> mapping = ImmutableSortedMap.orderedBy(Path.Comparator.INSTANCE);
+        for (Map.Entry<Path, DefaultOmniBuildInvocations.Builder> builder : builders.entrySet()) {
+            mapping.put(builder.getKey(), builder.getValue().build(stringTable));
         }
 
         // create additional mappings for all those projects which do not contain any task selectors
@@ -101,15 +115,16 @@ public final class DefaultOmniBuildInvocationsContainerBuilder {
         }
     }
 
-    private static ImmutableMultimap<Path, OmniProjectTask> buildProjectTasksRecursively(GradleProject project, Multimap<Path, OmniProjectTask> tasksPerProject, boolean enforceAllTasksPublic) {
+    private static ImmutableMultimap<Path, OmniProjectTask> buildProjectTasksRecursively(GradleProject project, Multimap<Path, OmniProjectTask> tasksPerProject, boolean enforceAllTasksPublic,
+                                                                                         ModelCapabilityRegistry capabilities) {
         // add tasks of the current project
         for (GradleTask task : project.getTasks()) {
-            tasksPerProject.put(Path.from(project.getPath()), DefaultOmniProjectTask.from(task, enforceAllTasksPublic));
+            tasksPerProject.put(Path.from(project.getPath()), DefaultOmniProjectTask.from(task, enforceAllTasksPublic, capabilities));
         }
 
         // recurse into child projects and add their tasks
         for (GradleProject childProject : project.getChildren()) {
-            buildProjectTasksRecursively(childProject, tasksPerProject, enforceAllTasksPublic);
+            buildProjectTasksRecursively(childProject, tasksPerProject, enforceAllTasksPublic, capabilities);
         }
 
         // return the tasks grouped by project path
@@ -117,11 +132,12 @@ public final class DefaultOmniBuildInvocationsContainerBuilder {
     }
 
     @SuppressWarnings("StringEquality")
-    private static ImmutableMultimap<Path, OmniTaskSelector> buildTaskSelectorsRecursively(GradleProject project, Multimap<Path, OmniTaskSelector> taskSelectorsPerProject, boolean enforceAllTasksPublic) {
+    private static ImmutableMultimap<Path, OmniTaskSelector> buildTaskSelectorsRecursively(GradleProject project, Multimap<Path, OmniTaskSelector> taskSelectorsPerProject, boolean enforceAllTasksPublic,
+                                                                                           ModelCapabilityRegistry capabilities) {
         // add task selectors of the current project
         TreeBasedTable<String, Path, String> aggregatedTasksWithDescription = TreeBasedTable.create(Ordering.usingToString(), Path.Comparator.INSTANCE);
         Set<String> publicTasks = Sets.newLinkedHashSet();
-        collectAllTasksRecursively(project, aggregatedTasksWithDescription, publicTasks, enforceAllTasksPublic);
+        collectAllTasksRecursively(project, aggregatedTasksWithDescription, publicTasks, enforceAllTasksPublic, capabilities);
         for (String selectorName : aggregatedTasksWithDescription.rowKeySet()) {
             SortedMap<Path, String> pathsAndDescriptions = aggregatedTasksWithDescription.row(selectorName);
             String description = pathsAndDescriptions.get(pathsAndDescriptions.firstKey()); // description from project task with smallest path
@@ -140,17 +156,18 @@ public final class DefaultOmniBuildInvocationsContainerBuilder {
         // recurse into child projects and add their task selectors
         DomainObjectSet<? extends GradleProject> childProjects = project.getChildren();
         for (GradleProject childProject : childProjects) {
-            buildTaskSelectorsRecursively(childProject, taskSelectorsPerProject, enforceAllTasksPublic);
+            buildTaskSelectorsRecursively(childProject, taskSelectorsPerProject, enforceAllTasksPublic, capabilities);
         }
 
         // return the task selectors grouped by project path
         return ImmutableMultimap.copyOf(taskSelectorsPerProject);
     }
 
-    private static void collectAllTasksRecursively(GradleProject project, Table<String, Path, String> tasksWithDescription, Collection<String> publicTasks, boolean enforceAllTasksPublic) {
+    private static void collectAllTasksRecursively(GradleProject project, Table<String, Path, String> tasksWithDescription, Collection<String> publicTasks, boolean enforceAllTasksPublic,
+                                                   ModelCapabilityRegistry capabilities) {
         for (GradleTask task : project.getTasks()) {
             // convert to OmniProjectTask to have the version-specific logic and default-values applied
-            OmniProjectTask projectTask = DefaultOmniProjectTask.from(task, enforceAllTasksPublic);
+            OmniProjectTask projectTask = DefaultOmniProjectTask.from(task, enforceAllTasksPublic, capabilities);
 
             // 1) store the path since the task selectors keep all the paths of the tasks they select
             // 2) store the description first by task name and then by path
@@ -166,7 +183,7 @@ public final class DefaultOmniBuildInvocationsContainerBuilder {
         }
 
         for (GradleProject childProject : project.getChildren()) {
-            collectAllTasksRecursively(childProject, tasksWithDescription, publicTasks, enforceAllTasksPublic);
+            collectAllTasksRecursively(childProject, tasksWithDescription, publicTasks, enforceAllTasksPublic, capabilities);
         }
     }
 
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.gradleware.tooling.toolingmodel.OmniEclipseClasspath;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectDependency;
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency;
+
+import java.util.List;
+
+/**
+ * Default implementation of the {@link OmniEclipseClasspath} interface.
+ *
+ * @author Etienne Studer
+ */
+public final class DefaultOmniEclipseClasspath implements OmniEclipseClasspath {
+
+    private final SharedPrefixLists.SharedList<OmniEclipseProjectDependency> projectDependencies;
+    private final SharedPrefixLists.SharedList<OmniExternalDependency> externalDependencies;
+
+    private DefaultOmniEclipseClasspath(SharedPrefixLists.SharedList<OmniEclipseProjectDependency> projectDependencies,
+                                        SharedPrefixLists.SharedList<OmniExternalDependency> externalDependencies) {
+        this.projectDependencies = projectDependencies;
+        this.externalDependencies = externalDependencies;
+    }
+
+    @Override
+    public List<OmniEclipseProjectDependency> getProjectDependencies() {
+        return this.projectDependencies.toList();
+    }
+
+    @Override
+    public List<OmniExternalDependency> getExternalDependencies() {
+        return this.externalDependencies.toList();
+    }
+
+    static DefaultOmniEclipseClasspath from(SharedPrefixLists.SharedList<OmniEclipseProjectDependency> projectDependencies,
+                                            SharedPrefixLists.SharedList<OmniExternalDependency> externalDependencies) {
+        return new DefaultOmniEclipseClasspath(projectDependencies, externalDependencies);
+    }
+
+}
@@ -17,9 +17,14 @@
 package com.gradleware.tooling.toolingmodel.repository.internal;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.gradleware.tooling.toolingmodel.OmniEclipseClasspath;
 import com.gradleware.tooling.toolingmodel.OmniEclipseGradleBuild;
 import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectDependencyGraph;
 import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+import com.gradleware.tooling.toolingmodel.Path;
 import org.gradle.tooling.model.eclipse.EclipseProject;
 
 /**
@@ -31,10 +36,15 @@ public final class DefaultOmniEclipseGradleBuild implements OmniEclipseGradleBui
 
     private final OmniEclipseProject rootEclipseProject;
     private final OmniGradleProject rootProject;
+    private final Supplier<OmniEclipseProjectDependencyGraph> projectDependencyGraph;
+    private final Supplier<EffectiveClasspaths> effectiveClasspaths;
 
-    private DefaultOmniEclipseGradleBuild(OmniEclipseProject rootEclipseProject, OmniGradleProject rootProject) {
+    private DefaultOmniEclipseGradleBuild(OmniEclipseProject rootEclipseProject, OmniGradleProject rootProject, Supplier<OmniEclipseProjectDependencyGraph> projectDependencyGraph,
+                                          Supplier<EffectiveClasspaths> effectiveClasspaths) {
         this.rootEclipseProject = rootEclipseProject;
         this.rootProject = rootProject;
+        this.projectDependencyGraph = projectDependencyGraph;
+        this.effectiveClasspaths = effectiveClasspaths;
     }
 
     @Override
@@ -47,11 +57,56 @@ public final class DefaultOmniEclipseGradleBuild implements OmniEclipseGradleBui
         return this.rootProject;
     }
 
+    @Override
+    public OmniEclipseProjectDependencyGraph getProjectDependencyGraph() {
+        return this.projectDependencyGraph.get();
+    }
+
+    @Override
+    public OmniEclipseClasspath getEffectiveClasspath(Path projectPath) {
+        return this.effectiveClasspaths.get().get(projectPath);
+    }
+
     public static DefaultOmniEclipseGradleBuild from(EclipseProject eclipseRootProject, boolean enforceAllTasksPublic) {
+        return from(eclipseRootProject, enforceAllTasksPublic, ModelCapabilityRegistry.create());
+    }
+
+    static DefaultOmniEclipseGradleBuild from(EclipseProject eclipseRootProject, boolean enforceAllTasksPublic, ModelCapabilityRegistry capabilities) {
         Preconditions.checkState(eclipseRootProject.getParent() == null, "Provided Eclipse project is not the root project.");
-        return new DefaultOmniEclipseGradleBuild(
-                DefaultOmniEclipseProject.from(eclipseRootProject),
-                DefaultOmniGradleProject.from(eclipseRootProject.getGradleProject(), enforceAllTasksPublic));
+        return from(
+                DefaultOmniEclipseProject.from(eclipseRootProject, capabilities),
+                DefaultOmniGradleProject.from(eclipseRootProject.getGradleProject(), enforceAllTasksPublic, capabilities));
+    }
+
+    static DefaultOmniEclipseGradleBuild from(final OmniEclipseProject rootEclipseProject, OmniGradleProject rootProject) {
+        // the dependency graph and the effective classpaths always span the complete build, even if the given project is not the root project of the build
+        final Supplier<OmniEclipseProjectDependencyGraph> projectDependencyGraph = Suppliers.memoize(new Supplier<OmniEclipseProjectDependencyGraph>() {
+
+            @Override
+            public OmniEclipseProjectDependencyGraph get() {
+                return DefaultOmniEclipseProjectDependencyGraph.from(rootEclipseProject.getRoot());
+            }
+        });
+        Supplier<EffectiveClasspaths> effectiveClasspaths = Suppliers.memoize(new Supplier<EffectiveClasspaths>() {
+
+            @Override
+            public EffectiveClasspaths get() {
+                return EffectiveClasspaths.from(projectDependencyGraph.get());
+            }
+        });
+        return new DefaultOmniEclipseGradleBuild(rootEclipseProject, rootProject, projectDependencyGraph, effectiveClasspaths);
+    }
+
+    /**
+     * Creates a view on this build that is rooted at the given projects of this build. The view shares the project dependency graph and the effective classpaths of this
+     * build, which are computed at most once for this build and all its views.
+     *
+     * @param eclipseProject the Eclipse project at which the view is rooted
+     * @param gradleProject the Gradle project at which the view is rooted
+     * @return the new view
+     */
+    DefaultOmniEclipseGradleBuild viewRootedAt(OmniEclipseProject eclipseProject, OmniGradleProject gradleProject) {
+        return new DefaultOmniEclipseGradleBuild(eclipseProject, gradleProject, this.projectDependencyGraph, this.effectiveClasspaths);
     }
 
 }
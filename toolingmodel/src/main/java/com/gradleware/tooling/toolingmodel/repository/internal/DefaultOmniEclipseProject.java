@@ -22,6 +22,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.gradleware.tooling.toolingmodel.OmniEclipseBuildCommand;
 import com.gradleware.tooling.toolingmodel.OmniEclipseLinkedResource;
 import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
@@ -35,6 +36,7 @@ import com.gradleware.tooling.toolingmodel.util.Maybe;
 import org.gradle.api.specs.Spec;
 import org.gradle.tooling.model.DomainObjectSet;
 import org.gradle.tooling.model.ExternalDependency;
+import org.gradle.tooling.model.UnsupportedMethodException;
 import org.gradle.tooling.model.eclipse.EclipseBuildCommand;
 import org.gradle.tooling.model.eclipse.EclipseLinkedResource;
 import org.gradle.tooling.model.eclipse.EclipseProject;
@@ -46,6 +48,7 @@ import org.gradle.tooling.model.java.JavaSourceSettings;
 import java.io.File;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Default implementation of the {@link OmniEclipseProject} interface.
@@ -54,21 +57,37 @@ import java.util.List;
  */
 public final class DefaultOmniEclipseProject implements OmniEclipseProject {
 
+    private final String name;
+    private final String description;
+    private final Path path;
+    private final File projectDirectory;
+    private final ImmutableList<OmniEclipseProjectDependency> projectDependencies;
+    private final List<OmniExternalDependency> externalDependencies;
+    private final ImmutableList<OmniEclipseLinkedResource> linkedResources;
+    private final ImmutableList<OmniEclipseSourceDirectory> sourceDirectories;
+    private final Optional<List<OmniEclipseProjectNature>> projectNatures;
+    private final Optional<List<OmniEclipseBuildCommand>> buildCommands;
+    private final Maybe<OmniJavaSourceSettings> javaSourceSettings;
     private final HierarchyHelper<OmniEclipseProject> hierarchyHelper;
-    private String name;
-    private String description;
-    private Path path;
-    private File projectDirectory;
-    private ImmutableList<OmniEclipseProjectDependency> projectDependencies;
-    private ImmutableList<OmniExternalDependency> externalDependencies;
-    private ImmutableList<OmniEclipseLinkedResource> linkedResources;
-    private ImmutableList<OmniEclipseSourceDirectory> sourceDirectories;
-    private Optional<List<OmniEclipseProjectNature>> projectNatures;
-    private Optional<List<OmniEclipseBuildCommand>> buildCommands;
-    private Maybe<OmniJavaSourceSettings> javaSourceSettings;
-
-    private DefaultOmniEclipseProject(Comparator<? super OmniEclipseProject> comparator) {
-        this.hierarchyHelper = new HierarchyHelper<OmniEclipseProject>(this, Preconditions.checkNotNull(comparator));
+
+    private DefaultOmniEclipseProject(Builder builder, DefaultOmniEclipseProject parent) {
+        this.name = builder.name;
+        this.description = builder.description;
+        this.path = builder.path;
+        this.projectDirectory = builder.projectDirectory;
+        this.projectDependencies = builder.projectDependencies;
+        this.externalDependencies = builder.externalDependencies;
+        this.linkedResources = builder.linkedResources;
+        this.sourceDirectories = builder.sourceDirectories;
+        this.projectNatures = builder.projectNatures;
+        this.buildCommands = builder.buildCommands;
+        this.javaSourceSettings = builder.javaSourceSettings;
+
+        ImmutableList.Builder<DefaultOmniEclipseProject> children = ImmutableList.builder();
+        for (Builder child : builder.children) {
+            children.add(new DefaultOmniEclipseProject(child, this));
+        }
+        this.hierarchyHelper = new HierarchyHelper<OmniEclipseProject>(this, parent, children.build(), builder.comparator);
     }
 
     @Override
@@ -76,106 +95,54 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
         return this.name;
     }
 
-    private void setName(String name) {
-        this.name = name;
-    }
-
     @Override
     public String getDescription() {
         return this.description;
     }
 
-    private void setDescription(String description) {
-        this.description = description;
-    }
-
     @Override
     public Path getPath() {
         return this.path;
     }
 
-    private void setPath(Path path) {
-        this.path = path;
-    }
-
     @Override
     public File getProjectDirectory() {
         return this.projectDirectory;
     }
 
-    private void setProjectDirectory(File projectDirectory) {
-        this.projectDirectory = projectDirectory;
-    }
-
     @Override
     public ImmutableList<OmniEclipseProjectDependency> getProjectDependencies() {
         return this.projectDependencies;
     }
 
-    private void setProjectDependencies(List<OmniEclipseProjectDependency> projectDependencies) {
-        this.projectDependencies = ImmutableList.copyOf(projectDependencies);
-    }
-
     @Override
-    public ImmutableList<OmniExternalDependency> getExternalDependencies() {
+    public List<OmniExternalDependency> getExternalDependencies() {
         return this.externalDependencies;
     }
 
-    private void setExternalDependencies(List<OmniExternalDependency> externalDependencies) {
-        this.externalDependencies = ImmutableList.copyOf(externalDependencies);
-    }
-
     @Override
     public ImmutableList<OmniEclipseLinkedResource> getLinkedResources() {
         return this.linkedResources;
     }
 
-    private void setLinkedResources(List<OmniEclipseLinkedResource> linkedResources) {
-        this.linkedResources = ImmutableList.copyOf(linkedResources);
-    }
-
     @Override
     public ImmutableList<OmniEclipseSourceDirectory> getSourceDirectories() {
         return this.sourceDirectories;
     }
 
-    private void setSourceDirectories(List<OmniEclipseSourceDirectory> sourceDirectories) {
-        this.sourceDirectories = ImmutableList.copyOf(sourceDirectories);
-    }
-
     @Override
     public Optional<List<OmniEclipseProjectNature>> getProjectNatures() {
-        return projectNatures;
-    }
-
-    private void setProjectNatures(Optional<List<OmniEclipseProjectNature>> projectNatures) {
-        if (projectNatures.isPresent()) {
-            this.projectNatures = Optional.<List<OmniEclipseProjectNature>>of(ImmutableList.copyOf(projectNatures.get()));
-        } else {
-            this.projectNatures = Optional.absent();
-        }
+        return this.projectNatures;
     }
 
     @Override
     public Optional<List<OmniEclipseBuildCommand>> getBuildCommands() {
-        return buildCommands;
-    }
-
-    private void setBuildCommands(Optional<List<OmniEclipseBuildCommand>> buildCommands) {
-        if (buildCommands.isPresent()) {
-            this.buildCommands = Optional.<List<OmniEclipseBuildCommand>>of(ImmutableList.copyOf(buildCommands.get()));
-        } else {
-            this.buildCommands = Optional.absent();
-        }
+        return this.buildCommands;
     }
 
     @Override
     public Maybe<OmniJavaSourceSettings> getJavaSourceSettings() {
-        return javaSourceSettings;
-    }
-
-    private void setJavaSourceSettings(Maybe<OmniJavaSourceSettings> javaSourceSettings) {
-        this.javaSourceSettings = javaSourceSettings;
+        return this.javaSourceSettings;
     }
 
     @Override
@@ -188,20 +155,11 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
         return this.hierarchyHelper.getParent();
     }
 
-    private void setParent(DefaultOmniEclipseProject parent) {
-        this.hierarchyHelper.setParent(parent);
-    }
-
     @Override
     public ImmutableList<OmniEclipseProject> getChildren() {
         return this.hierarchyHelper.getChildren();
     }
 
-    private void addChild(DefaultOmniEclipseProject child) {
-        child.setParent(this);
-        this.hierarchyHelper.addChild(child);
-    }
-
     @Override
     public ImmutableList<OmniEclipseProject> getAll() {
         return this.hierarchyHelper.getAll();
@@ -218,37 +176,84 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
     }
 
     public static DefaultOmniEclipseProject from(EclipseProject project) {
-        DefaultOmniEclipseProject eclipseProject = new DefaultOmniEclipseProject(OmniEclipseProjectComparator.INSTANCE);
+        return from(project, ModelCapabilityRegistry.create());
+    }
+
+    static DefaultOmniEclipseProject from(EclipseProject project, ModelCapabilityRegistry capabilities) {
+        return convert(project, capabilities).build();
+    }
+
+    private static Builder convert(EclipseProject project, ModelCapabilityRegistry capabilities) {
+        Builder eclipseProject = new Builder(OmniEclipseProjectComparator.INSTANCE);
         eclipseProject.setName(project.getName());
         eclipseProject.setDescription(project.getDescription());
         eclipseProject.setPath(Path.from(project.getGradleProject().getPath()));
         eclipseProject.setProjectDirectory(project.getProjectDirectory());
-        eclipseProject.setProjectDependencies(toProjectDependencies(project.getProjectDependencies()));
-        eclipseProject.setExternalDependencies(toExternalDependencies(project.getClasspath()));
+        eclipseProject.setProjectDependencies(toProjectDependencies(project.getProjectDependencies(), capabilities));
+        eclipseProject.setExternalDependencies(toExternalDependencies(project.getClasspath(), capabilities));
         eclipseProject.setLinkedResources(toLinkedResources(project.getLinkedResources()));
         eclipseProject.setSourceDirectories(toSourceDirectories(project.getSourceDirectories()));
-        setProjectNatures(eclipseProject, project);
-        setBuildCommands(eclipseProject, project);
-        setJavaSourceSettings(eclipseProject, project);
+        setProjectNatures(eclipseProject, project, capabilities);
+        setBuildCommands(eclipseProject, project, capabilities);
+        setJavaSourceSettings(eclipseProject, project, capabilities);
 
         for (EclipseProject child : project.getChildren()) {
-            DefaultOmniEclipseProject eclipseChildProject = from(child);
+            Builder eclipseChildProject = convert(child, capabilities);
             eclipseProject.addChild(eclipseChildProject);
         }
 
         return eclipseProject;
     }
 
-    private static ImmutableList<OmniEclipseProjectDependency> toProjectDependencies(DomainObjectSet<? extends EclipseProjectDependency> projectDependencies) {
+    /**
+     * Creates a copy of the given project hierarchy in which the external dependencies of the projects are replaced.
+     *
+     * @param rootProject the root of the project hierarchy to copy
+     * @param externalDependencies the immutable external dependencies per project path, projects without an entry keep their external dependencies
+     * @return the root of the new project hierarchy
+     */
+    static DefaultOmniEclipseProject withExternalDependencies(OmniEclipseProject rootProject, Map<Path, List<OmniExternalDependency>> externalDependencies) {
+        return copy(rootProject, externalDependencies).build();
+    }
+
+    private static Builder copy(OmniEclipseProject project, Map<Path, List<OmniExternalDependency>> externalDependencies) {
+        Builder eclipseProject = new Builder(OmniEclipseProjectComparator.INSTANCE);
+        eclipseProject.setName(project.getName());
+        eclipseProject.setDescription(project.getDescription());
+        eclipseProject.setPath(project.getPath());
+        eclipseProject.setProjectDirectory(project.getProjectDirectory());
+        eclipseProject.setProjectDependencies(project.getProjectDependencies());
+        List<OmniExternalDependency> replacedExternalDependencies = externalDependencies.get(project.getPath());
+        if (replacedExternalDependencies != null) {
+            eclipseProject.setImmutableExternalDependencies(replacedExternalDependencies);
+        } else {
+            eclipseProject.setExternalDependencies(project.getExternalDependencies());
+        }
+        eclipseProject.setLinkedResources(project.getLinkedResources());
+        eclipseProject.setSourceDirectories(project.getSourceDirectories());
+        eclipseProject.setProjectNatures(project.getProjectNatures());
+        eclipseProject.setBuildCommands(project.getBuildCommands());
+        eclipseProject.setJavaSourceSettings(project.getJavaSourceSettings());
+
+        for (OmniEclipseProject child : project.getChildren()) {
+            eclipseProject.addChild(copy(child, externalDependencies));
+        }
+
+        return eclipseProject;
+    }
+
+    private static ImmutableList<OmniEclipseProjectDependency> toProjectDependencies(DomainObjectSet<? extends EclipseProjectDependency> projectDependencies,
+                                                                                 final ModelCapabilityRegistry capabilities) {
         return FluentIterable.from(projectDependencies).transform(new Function<EclipseProjectDependency, OmniEclipseProjectDependency>() {
             @Override
             public OmniEclipseProjectDependency apply(EclipseProjectDependency input) {
-                return DefaultOmniEclipseProjectDependency.from(input);
+                return DefaultOmniEclipseProjectDependency.from(input, capabilities);
             }
         }).toList();
     }
 
-    private static ImmutableList<OmniExternalDependency> toExternalDependencies(DomainObjectSet<? extends ExternalDependency> externalDependencies) {
+    private static ImmutableList<OmniExternalDependency> toExternalDependencies(DomainObjectSet<? extends ExternalDependency> externalDependencies,
+                                                                               final ModelCapabilityRegistry capabilities) {
         // filter out invalid external dependencies
         // Gradle versions <= 1.10 return external dependencies from dependent projects that are not valid, i.e. all fields are null except the file with name 'unresolved dependency...'
         return FluentIterable.from(externalDependencies).filter(new Predicate<ExternalDependency>() {
@@ -259,7 +264,7 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
         }).transform(new Function<ExternalDependency, OmniExternalDependency>() {
             @Override
             public OmniExternalDependency apply(ExternalDependency input) {
-                return DefaultOmniExternalDependency.from(input);
+                return DefaultOmniExternalDependency.from(input, capabilities);
             }
         }).toList();
     }
@@ -287,14 +292,21 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
      *
      * @param eclipseProject the project to populate
      * @param project the project model
+     * @param capabilities the capabilities of the target Gradle version found so far
      */
-    private static void setProjectNatures(DefaultOmniEclipseProject eclipseProject, EclipseProject project) {
-        try {
-            List<OmniEclipseProjectNature> projectNatures = toProjectNatures(project.getProjectNatures());
-            eclipseProject.setProjectNatures(Optional.of(projectNatures));
-        } catch (Exception ignore) {
-            eclipseProject.setProjectNatures(Optional.<List<OmniEclipseProjectNature>>absent());
+    private static void setProjectNatures(Builder eclipseProject, EclipseProject project, ModelCapabilityRegistry capabilities) {
+        if (capabilities.isSupported(ModelCapability.ECLIPSE_PROJECT_NATURES)) {
+            try {
+                List<OmniEclipseProjectNature> projectNatures = toProjectNatures(project.getProjectNatures());
+                eclipseProject.setProjectNatures(Optional.of(projectNatures));
+                return;
+            } catch (UnsupportedMethodException e) {
+                capabilities.markUnsupported(ModelCapability.ECLIPSE_PROJECT_NATURES);
+            } catch (Exception ignore) {
+                // fall through to the absent value
+            }
         }
+        eclipseProject.setProjectNatures(Optional.<List<OmniEclipseProjectNature>>absent());
     }
 
     private static ImmutableList<OmniEclipseProjectNature> toProjectNatures(DomainObjectSet<? extends EclipseProjectNature> projectNatures) {
@@ -312,14 +324,21 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
      *
      * @param eclipseProject the project to populate
      * @param project the project model
+     * @param capabilities the capabilities of the target Gradle version found so far
      */
-    private static void setBuildCommands(DefaultOmniEclipseProject eclipseProject, EclipseProject project) {
-        try {
-            List<OmniEclipseBuildCommand> buildCommands = toBuildCommands(project.getBuildCommands());
-            eclipseProject.setBuildCommands(Optional.of(buildCommands));
-        } catch (Exception ignore) {
-            eclipseProject.setBuildCommands(Optional.<List<OmniEclipseBuildCommand>>absent());
+    private static void setBuildCommands(Builder eclipseProject, EclipseProject project, ModelCapabilityRegistry capabilities) {
+        if (capabilities.isSupported(ModelCapability.ECLIPSE_BUILD_COMMANDS)) {
+            try {
+                List<OmniEclipseBuildCommand> buildCommands = toBuildCommands(project.getBuildCommands());
+                eclipseProject.setBuildCommands(Optional.of(buildCommands));
+                return;
+            } catch (UnsupportedMethodException e) {
+                capabilities.markUnsupported(ModelCapability.ECLIPSE_BUILD_COMMANDS);
+            } catch (Exception ignore) {
+                // fall through to the absent value
+            }
         }
+        eclipseProject.setBuildCommands(Optional.<List<OmniEclipseBuildCommand>>absent());
     }
 
     private static ImmutableList<OmniEclipseBuildCommand> toBuildCommands(DomainObjectSet<? extends EclipseBuildCommand> buildCommands) {
@@ -336,14 +355,21 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
      *
      * @param eclipseProject the project to populate
      * @param project the project model
+     * @param capabilities the capabilities of the target Gradle version found so far
      */
-    private static void setJavaSourceSettings(DefaultOmniEclipseProject eclipseProject, EclipseProject project) {
-        try {
-            OmniJavaSourceSettings sourceSettings = toOmniJavaSourceSettings(project.getJavaSourceSettings());
-            eclipseProject.setJavaSourceSettings(Maybe.of(sourceSettings));
-        } catch (Exception ignore) {
-            eclipseProject.setJavaSourceSettings(Maybe.<OmniJavaSourceSettings>absent());
+    private static void setJavaSourceSettings(Builder eclipseProject, EclipseProject project, ModelCapabilityRegistry capabilities) {
+        if (capabilities.isSupported(ModelCapability.ECLIPSE_JAVA_SOURCE_SETTINGS)) {
+            try {
+                OmniJavaSourceSettings sourceSettings = toOmniJavaSourceSettings(project.getJavaSourceSettings());
+                eclipseProject.setJavaSourceSettings(Maybe.of(sourceSettings));
+                return;
+            } catch (UnsupportedMethodException e) {
+                capabilities.markUnsupported(ModelCapability.ECLIPSE_JAVA_SOURCE_SETTINGS);
+            } catch (Exception ignore) {
+                // fall through to the absent value
+            }
         }
+        eclipseProject.setJavaSourceSettings(Maybe.<OmniJavaSourceSettings>absent());
     }
 
     private static OmniJavaSourceSettings toOmniJavaSourceSettings(JavaSourceSettings javaSourceSettings) {
@@ -356,6 +382,101 @@ public final class DefaultOmniEclipseProject implements OmniEclipseProject {
         }
     }
 
+    /**
+     * Collects the state of a {@link DefaultOmniEclipseProject} and the builders of its children before the immutable hierarchy is created from the root downwards.
+     */
+    static final class Builder {
+
+        private final Comparator<? super OmniEclipseProject> comparator;
+        private final List<Builder> children;
+        private String name;
+        private String description;
+        private Path path;
+        private File projectDirectory;
+        private ImmutableList<OmniEclipseProjectDependency> projectDependencies;
+        private List<OmniExternalDependency> externalDependencies;
+        private ImmutableList<OmniEclipseLinkedResource> linkedResources;
+        private ImmutableList<OmniEclipseSourceDirectory> sourceDirectories;
+        private Optional<List<OmniEclipseProjectNature>> projectNatures;
+        private Optional<List<OmniEclipseBuildCommand>> buildCommands;
+        private Maybe<OmniJavaSourceSettings> javaSourceSettings;
+
+        Builder(Comparator<? super OmniEclipseProject> comparator) {
+            this.comparator = Preconditions.checkNotNull(comparator);
+            this.children = Lists.newArrayList();
+        }
+
+        void setName(String name) {
+            this.name = name;
+        }
+
+        void setDescription(String description) {
+            this.description = description;
+        }
+
+        void setPath(Path path) {
+            this.path = path;
+        }
+
+        void setProjectDirectory(File projectDirectory) {
+            this.projectDirectory = projectDirectory;
+        }
+
+        void setProjectDependencies(List<OmniEclipseProjectDependency> projectDependencies) {
+            this.projectDependencies = ImmutableList.copyOf(projectDependencies);
+        }
+
+        void setExternalDependencies(List<OmniExternalDependency> externalDependencies) {
+            this.externalDependencies = ImmutableList.copyOf(externalDependencies);
+        }
+
+        /**
+         * Sets the external dependencies without copying them.
+         *
+         * @param externalDependencies the external dependencies, must be immutable
+         */
+        void setImmutableExternalDependencies(List<OmniExternalDependency> externalDependencies) {
+            this.externalDependencies = Preconditions.checkNotNull(externalDependencies);
+        }
+
+        void setLinkedResources(List<OmniEclipseLinkedResource> linkedResources) {
+            this.linkedResources = ImmutableList.copyOf(linkedResources);
+        }
+
+        void setSourceDirectories(List<OmniEclipseSourceDirectory> sourceDirectories) {
+            this.sourceDirectories = ImmutableList.copyOf(sourceDirectories);
+        }
+
+        void setProjectNatures(Optional<List<OmniEclipseProjectNature>> projectNatures) {
+            if (projectNatures.isPresent()) {
+                this.projectNatures = Optional.<List<OmniEclipseProjectNature>>of(ImmutableList.copyOf(projectNatures.get()));
+            } else {
+                this.projectNatures = Optional.absent();
+            }
+        }
+
+        void setBuildCommands(Optional<List<OmniEclipseBuildCommand>> buildCommands) {
+            if (buildCommands.isPresent()) {
+                this.buildCommands = Optional.<List<OmniEclipseBuildCommand>>of(ImmutableList.copyOf(buildCommands.get()));
+            } else {
+                this.buildCommands = Optional.absent();
+            }
+        }
+
+        void setJavaSourceSettings(Maybe<OmniJavaSourceSettings> javaSourceSettings) {
+            this.javaSourceSettings = javaSourceSettings;
+        }
+
+        void addChild(Builder child) {
+            this.children.add(Preconditions.checkNotNull(child));
+        }
+
+        DefaultOmniEclipseProject build() {
+            return new DefaultOmniEclipseProject(this, null);
+        }
+
+    }
+
     /**
      * Singleton comparator to compare {@code OmniEclipseProject} instances by their project path.
      */
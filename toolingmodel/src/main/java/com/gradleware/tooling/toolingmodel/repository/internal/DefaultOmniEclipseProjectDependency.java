@@ -21,6 +21,7 @@ import com.gradleware.tooling.toolingmodel.Path;
 import org.gradle.internal.reflect.JavaReflectionUtil;
 import org.gradle.internal.reflect.PropertyAccessor;
 import org.gradle.tooling.internal.adapter.ProtocolToModelAdapter;
+import org.gradle.tooling.model.UnsupportedMethodException;
 import org.gradle.tooling.model.eclipse.EclipseProjectDependency;
 
 /**
@@ -56,11 +57,15 @@ public final class DefaultOmniEclipseProjectDependency implements OmniEclipsePro
     }
 
     public static DefaultOmniEclipseProjectDependency from(EclipseProjectDependency projectDependency) {
+        return from(projectDependency, ModelCapabilityRegistry.create());
+    }
+
+    static DefaultOmniEclipseProjectDependency from(EclipseProjectDependency projectDependency, ModelCapabilityRegistry capabilities) {
         String targetEclipseProjectPath = inspectTargetEclipseProjectPath(projectDependency);
         return new DefaultOmniEclipseProjectDependency(
                 Path.from(targetEclipseProjectPath),
                 projectDependency.getPath(),
-                getIsExported(projectDependency));
+                getIsExported(projectDependency, capabilities));
     }
 
     @SuppressWarnings("unchecked")
@@ -75,13 +80,19 @@ public final class DefaultOmniEclipseProjectDependency implements OmniEclipsePro
      * EclipseProjectDependency#isExported is only available in Gradle versions >= 2.5.
      *
      * @param projectDependency the project dependency model
+     * @param capabilities the capabilities of the target Gradle version found so far
      */
-    private static boolean getIsExported(EclipseProjectDependency projectDependency) {
-        try {
-            return projectDependency.isExported();
-        } catch (Exception ignore) {
-            return true;
+    private static boolean getIsExported(EclipseProjectDependency projectDependency, ModelCapabilityRegistry capabilities) {
+        if (capabilities.isSupported(ModelCapability.ECLIPSE_PROJECT_DEPENDENCY_IS_EXPORTED)) {
+            try {
+                return projectDependency.isExported();
+            } catch (UnsupportedMethodException e) {
+                capabilities.markUnsupported(ModelCapability.ECLIPSE_PROJECT_DEPENDENCY_IS_EXPORTED);
+            } catch (Exception ignore) {
+                // fall through to the default value
+            }
         }
+        return true;
     }
 
 }
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectDependency;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectDependencyGraph;
+import com.gradleware.tooling.toolingmodel.Path;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Default implementation of the {@link OmniEclipseProjectDependencyGraph} interface.
+ * <p/>
+ * The projects are numbered in topological order, which is derived from the strongly connected components of the dependency graph. The transitive closure of each
+ * component is a bit set over the project numbers, computed once per component from the closures of the components it depends on, and shared by all projects of the
+ * component. Instances are immutable.
+ *
+ * @author Etienne Studer
+ */
+public final class DefaultOmniEclipseProjectDependencyGraph implements OmniEclipseProjectDependencyGraph {
+
+    private final ImmutableList<OmniEclipseProject> projects;
+    private final ImmutableMap<Path, Integer> indices;
+    private final int[][] dependencies;
+    private final int[][] dependents;
+    private final BitSet[] transitiveDependencies;
+    private final BitSet[] transitiveDependents;
+    private final ImmutableList<List<OmniEclipseProject>> cycles;
+
+    private DefaultOmniEclipseProjectDependencyGraph(ImmutableList<OmniEclipseProject> projects, int[][] dependencies, int[] components, int[][] componentMembers,
+                                                     boolean[] cyclic) {
+        this.projects = projects;
+        this.indices = indexByPath(projects);
+        this.dependencies = dependencies;
+        this.dependents = invert(dependencies);
+        this.transitiveDependencies = close(dependencies, components, componentMembers, cyclic, false);
+        this.transitiveDependents = close(this.dependents, components, componentMembers, cyclic, true);
+        this.cycles = collectCycles(projects, componentMembers, cyclic);
+    }
+
+    @Override
+    public List<OmniEclipseProject> getProjectsInTopologicalOrder() {
+        return this.projects;
+    }
+
+    @Override
+    public List<OmniEclipseProject> getDependencies(Path projectPath) {
+        return toProjects(this.dependencies[indexOf(projectPath)]);
+    }
+
+    @Override
+    public List<OmniEclipseProject> getDependents(Path projectPath) {
+        return toProjects(this.dependents[indexOf(projectPath)]);
+    }
+
+    @Override
+    public List<OmniEclipseProject> getTransitiveDependencies(Path projectPath) {
+        return toProjects(this.transitiveDependencies[indexOf(projectPath)]);
+    }
+
+    @Override
+    public List<OmniEclipseProject> getTransitiveDependents(Path projectPath) {
+        return toProjects(this.transitiveDependents[indexOf(projectPath)]);
+    }
+
+    @Override
+    public boolean dependsOn(Path projectPath, Path dependencyPath) {
+        return this.transitiveDependencies[indexOf(projectPath)].get(indexOf(dependencyPath));
+    }
+
+    @Override
+    public boolean hasCycles() {
+        return !this.cycles.isEmpty();
+    }
+
+    @Override
+    public List<List<OmniEclipseProject>> getCycles() {
+        return this.cycles;
+    }
+
+    private int indexOf(Path projectPath) {
+        Integer index = this.indices.get(Preconditions.checkNotNull(projectPath));
+        Preconditions.checkArgument(index != null, "Build does not contain project %s.", projectPath.getPath());
+        return index;
+    }
+
+    private ImmutableList<OmniEclipseProject> toProjects(int[] projectIndices) {
+        ImmutableList.Builder<OmniEclipseProject> result = ImmutableList.builder();
+        for (int index : projectIndices) {
+            result.add(this.projects.get(index));
+        }
+        return result.build();
+    }
+
+    private ImmutableList<OmniEclipseProject> toProjects(BitSet projectIndices) {
+        ImmutableList.Builder<OmniEclipseProject> result = ImmutableList.builder();
+        for (int index = projectIndices.nextSetBit(0); index >= 0; index = projectIndices.nextSetBit(index + 1)) {
+            result.add(this.projects.get(index));
+        }
+        return result.build();
+    }
+
+    private static ImmutableMap<Path, Integer> indexByPath(List<OmniEclipseProject> projects) {
+        ImmutableMap.Builder<Path, Integer> result = ImmutableMap.builder();
+        for (int i = 0; i < projects.size(); i++) {
+            result.put(projects.get(i).getPath(), i);
+        }
+        return result.build();
+    }
+
+    private static int[][] invert(int[][] edges) {
+        int[] counts = new int[edges.length];
+        for (int[] targets : edges) {
+            for (int target : targets) {
+                counts[target]++;
+            }
+        }
+        int[][] result = new int[edges.length][];
+        for (int i = 0; i < edges.length; i++) {
+            result[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        // sources are visited in ascending order, hence each inverted edge list is sorted
+        for (int source = 0; source < edges.length; source++) {
+            for (int target : edges[source]) {
+                result[target][counts[target]++] = source;
+            }
+        }
+        return result;
+    }
+
+    private static BitSet[] close(int[][] edges, int[] components, int[][] componentMembers, boolean[] cyclic, boolean reverse) {
+        // components are numbered in topological order, so the closures of the components that the edges lead to are complete when they are needed
+        BitSet[] componentClosures = new BitSet[componentMembers.length];
+        BitSet[] result = new BitSet[components.length];
+        for (int i = 0; i < componentMembers.length; i++) {
+            int component = reverse ? componentMembers.length - 1 - i : i;
+            BitSet closure = new BitSet(components.length);
+            for (int member : componentMembers[component]) {
+                if (cyclic[component]) {
+                    closure.set(member);
+                }
+                for (int target : edges[member]) {
+                    if (components[target] != component) {
+                        closure.set(target);
+                        closure.or(componentClosures[components[target]]);
+                    }
+                }
+            }
+            componentClosures[component] = closure;
+            for (int member : componentMembers[component]) {
+                result[member] = closure;
+            }
+        }
+        return result;
+    }
+
+    private static ImmutableList<List<OmniEclipseProject>> collectCycles(List<OmniEclipseProject> projects, int[][] componentMembers, boolean[] cyclic) {
+        ImmutableList.Builder<List<OmniEclipseProject>> result = ImmutableList.builder();
+        for (int component = 0; component < componentMembers.length; component++) {
+            if (cyclic[component]) {
+                ImmutableList.Builder<OmniEclipseProject> cycle = ImmutableList.builder();
+                for (int member : componentMembers[component]) {
+                    cycle.add(projects.get(member));
+                }
+                result.add(cycle.build());
+            }
+        }
+        return result.build();
+    }
+
+    /**
+     * Creates the dependency graph of the given project and all the nested child projects in its hierarchy.
+     *
+     * @param rootProject the root of the projects to index
+     * @return the new instance
+     */
+    public static DefaultOmniEclipseProjectDependencyGraph from(OmniEclipseProject rootProject) {
+        List<OmniEclipseProject> hierarchy = rootProject.getAll();
+        Map<Path, Integer> hierarchyIndices = Maps.newHashMap();
+        for (int i = 0; i < hierarchy.size(); i++) {
+            hierarchyIndices.put(hierarchy.get(i).getPath(), i);
+        }
+
+        // resolve the declared dependencies to the projects of the hierarchy, in declaration order and without duplicates
+        int[][] edges = new int[hierarchy.size()][];
+        for (int i = 0; i < hierarchy.size(); i++) {
+            Set<Integer> targets = Sets.newLinkedHashSet();
+            for (OmniEclipseProjectDependency dependency : hierarchy.get(i).getProjectDependencies()) {
+                Integer target = hierarchyIndices.get(dependency.getTargetProjectPath());
+                if (target != null) {
+                    targets.add(target);
+                }
+            }
+            edges[i] = toArray(targets);
+        }
+
+        StronglyConnectedComponents components = new StronglyConnectedComponents(edges);
+        components.run();
+
+        // renumber the projects in the order in which their components were completed, which puts dependencies before their dependents
+        int[] order = new int[hierarchy.size()];
+        int[] componentOf = new int[hierarchy.size()];
+        int[][] componentMembers = new int[components.members.size()][];
+        boolean[] cyclic = new boolean[componentMembers.length];
+        ImmutableList.Builder<OmniEclipseProject> projects = ImmutableList.builder();
+        int next = 0;
+        for (int component = 0; component < componentMembers.length; component++) {
+            int[] members = components.members.get(component);
+            Arrays.sort(members);
+            componentMembers[component] = new int[members.length];
+            for (int j = 0; j < members.length; j++) {
+                order[members[j]] = next;
+                componentOf[next] = component;
+                componentMembers[component][j] = next;
+                projects.add(hierarchy.get(members[j]));
+                next++;
+            }
+            cyclic[component] = members.length > 1 || contains(edges[members[0]], members[0]);
+        }
+
+        int[][] dependencies = new int[hierarchy.size()][];
+        for (int i = 0; i < hierarchy.size(); i++) {
+            int[] targets = new int[edges[i].length];
+            for (int j = 0; j < targets.length; j++) {
+                targets[j] = order[edges[i][j]];
+            }
+            Arrays.sort(targets);
+            dependencies[order[i]] = targets;
+        }
+
+        return new DefaultOmniEclipseProjectDependencyGraph(projects.build(), dependencies, componentOf, componentMembers, cyclic);
+    }
+
+    private static int[] toArray(Set<Integer> values) {
+        int[] result = new int[values.size()];
+        int i = 0;
+        for (Integer value : values) {
+            result[i++] = value;
+        }
+        return result;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int candidate : values) {
+            if (candidate == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the strongly connected components of a directed graph with Tarjan's algorithm. The components are completed in reverse topological order of the edges, i.e. a
+     * component is only completed after all the components it has edges to.
+     */
+    private static final class StronglyConnectedComponents {
+
+        private final int[][] edges;
+        private final int[] index;
+        private final int[] lowLink;
+        private final boolean[] onStack;
+        private final int[] stack;
+        private final int[] callStack;
+        private final int[] edgeCursor;
+        private final List<int[]> members;
+        private int stackSize;
+        private int nextIndex;
+
+        private StronglyConnectedComponents(int[][] edges) {
+            this.edges = edges;
+            this.index = new int[edges.length];
+            this.lowLink = new int[edges.length];
+            this.onStack = new boolean[edges.length];
+            this.stack = new int[edges.length];
+            this.callStack = new int[edges.length];
+            this.edgeCursor = new int[edges.length];
+            this.members = Lists.newArrayList();
+            Arrays.fill(this.index, -1);
+        }
+
+        private void run() {
+            for (int node = 0; node < this.edges.length; node++) {
+                if (this.index[node] < 0) {
+                    visit(node);
+                }
+            }
+        }
+
+        private void visit(int start) {
+            // depth-first search with an explicit call stack, such that a long chain of dependencies cannot overflow the stack of the thread,
+            // the edge cursor of a node on the call stack points to the next edge to follow once the node is resumed
+            int callDepth = 0;
+            enter(start);
+            this.callStack[callDepth++] = start;
+            while (callDepth > 0) {
+                int node = this.callStack[callDepth - 1];
+                int[] targets = this.edges[node];
+                if (this.edgeCursor[node] < targets.length) {
+                    int target = targets[this.edgeCursor[node]++];
+                    if (this.index[target] < 0) {
+                        enter(target);
+                        this.callStack[callDepth++] = target;
+                    } else if (this.onStack[target]) {
+                        this.lowLink[node] = Math.min(this.lowLink[node], this.index[target]);
+                    }
+                } else {
+                    callDepth--;
+                    leave(node);
+                    if (callDepth > 0) {
+                        int caller = this.callStack[callDepth - 1];
+                        this.lowLink[caller] = Math.min(this.lowLink[caller], this.lowLink[node]);
+                    }
+                }
+            }
+        }
+
+        private void enter(int node) {
+            this.index[node] = this.nextIndex;
+            this.lowLink[node] = this.nextIndex;
+            this.nextIndex++;
+            this.stack[this.stackSize++] = node;
+            this.onStack[node] = true;
+        }
+
+        private void leave(int node) {
+            if (this.lowLink[node] == this.index[node]) {
+                int start = this.stackSize;
+                do {
+                    start--;
+                    this.onStack[this.stack[start]] = false;
+                } while (this.stack[start] != node);
+                this.members.add(Arrays.copyOfRange(this.stack, start, this.stackSize));
+                this.stackSize = start;
+            }
+        }
+
+    }
+
+}
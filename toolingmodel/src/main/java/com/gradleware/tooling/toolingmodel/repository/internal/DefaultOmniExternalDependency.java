@@ -21,6 +21,7 @@ import com.gradleware.tooling.toolingmodel.OmniGradleModuleVersion;
 import com.gradleware.tooling.toolingmodel.util.Maybe;
 import org.gradle.tooling.model.ExternalDependency;
 import org.gradle.tooling.model.GradleModuleVersion;
+import org.gradle.tooling.model.UnsupportedMethodException;
 
 import java.io.File;
 
@@ -71,39 +72,59 @@ public final class DefaultOmniExternalDependency implements OmniExternalDependen
     }
 
     public static DefaultOmniExternalDependency from(ExternalDependency externalDependency) {
+        return from(externalDependency, ModelCapabilityRegistry.create());
+    }
+
+    static DefaultOmniExternalDependency from(ExternalDependency externalDependency, ModelCapabilityRegistry capabilities) {
         return new DefaultOmniExternalDependency(
                 externalDependency.getFile(),
                 externalDependency.getSource(),
                 externalDependency.getJavadoc(),
-                getGradleModuleVersion(externalDependency),
-                getIsExported(externalDependency));
+                getGradleModuleVersion(externalDependency, capabilities),
+                getIsExported(externalDependency, capabilities));
+    }
+
+    static DefaultOmniExternalDependency from(File file, File source, File javadoc, Maybe<OmniGradleModuleVersion> gradleModuleVersion, boolean exported) {
+        return new DefaultOmniExternalDependency(file, source, javadoc, gradleModuleVersion, exported);
     }
 
     /**
      * ExternalDependency#getGradleModuleVersion is only available in Gradle versions >= 1.1.
      *
      * @param externalDependency the external dependency model
+     * @param capabilities the capabilities of the target Gradle version found so far
      */
-    private static Maybe<OmniGradleModuleVersion> getGradleModuleVersion(ExternalDependency externalDependency) {
-        try {
-            GradleModuleVersion gav = externalDependency.getGradleModuleVersion();
-            return Maybe.of((OmniGradleModuleVersion) DefaultOmniGradleModuleVersion.from(gav));
-        } catch (Exception ignore) {
-            return Maybe.absent();
+    private static Maybe<OmniGradleModuleVersion> getGradleModuleVersion(ExternalDependency externalDependency, ModelCapabilityRegistry capabilities) {
+        if (capabilities.isSupported(ModelCapability.EXTERNAL_DEPENDENCY_MODULE_VERSION)) {
+            try {
+                GradleModuleVersion gav = externalDependency.getGradleModuleVersion();
+                return Maybe.of((OmniGradleModuleVersion) DefaultOmniGradleModuleVersion.from(gav));
+            } catch (UnsupportedMethodException e) {
+                capabilities.markUnsupported(ModelCapability.EXTERNAL_DEPENDENCY_MODULE_VERSION);
+            } catch (Exception ignore) {
+                // fall through to the absent value
+            }
         }
+        return Maybe.absent();
     }
 
     /**
      * ExternalDependency#isExported is only available in Gradle versions >= 2.5.
      *
      * @param externalDependency the external dependency model
+     * @param capabilities the capabilities of the target Gradle version found so far
      */
-    private static boolean getIsExported(ExternalDependency externalDependency) {
-        try {
-            return externalDependency.isExported();
-        } catch (Exception ignore) {
-            return true;
+    private static boolean getIsExported(ExternalDependency externalDependency, ModelCapabilityRegistry capabilities) {
+        if (capabilities.isSupported(ModelCapability.EXTERNAL_DEPENDENCY_IS_EXPORTED)) {
+            try {
+                return externalDependency.isExported();
+            } catch (UnsupportedMethodException e) {
+                capabilities.markUnsupported(ModelCapability.EXTERNAL_DEPENDENCY_IS_EXPORTED);
+            } catch (Exception ignore) {
+                // fall through to the default value
+            }
         }
+        return true;
     }
 
 }
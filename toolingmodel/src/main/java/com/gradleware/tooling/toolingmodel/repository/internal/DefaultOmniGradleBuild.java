@@ -40,8 +40,16 @@ public final class DefaultOmniGradleBuild implements OmniGradleBuild {
     }
 
     public static DefaultOmniGradleBuild from(GradleProject gradleRootProject, boolean enforceAllTasksPublic) {
+        return from(gradleRootProject, enforceAllTasksPublic, ModelCapabilityRegistry.create());
+    }
+
+    static DefaultOmniGradleBuild from(GradleProject gradleRootProject, boolean enforceAllTasksPublic, ModelCapabilityRegistry capabilities) {
         Preconditions.checkState(gradleRootProject.getParent() == null, "Provided Gradle project is not the root project.");
-        return new DefaultOmniGradleBuild(DefaultOmniGradleProject.from(gradleRootProject, enforceAllTasksPublic));
+        return new DefaultOmniGradleBuild(DefaultOmniGradleProject.from(gradleRootProject, enforceAllTasksPublic, capabilities));
+    }
+
+    static DefaultOmniGradleBuild from(OmniGradleProject rootProject) {
+        return new DefaultOmniGradleBuild(rootProject);
     }
 
 }
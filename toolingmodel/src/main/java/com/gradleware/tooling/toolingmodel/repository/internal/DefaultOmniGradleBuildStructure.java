@@ -42,4 +42,8 @@ public final class DefaultOmniGradleBuildStructure implements OmniGradleBuildStr
         return new DefaultOmniGradleBuildStructure(DefaultOmniGradleProjectStructure.from(gradleBuild.getRootProject()));
     }
 
+    static DefaultOmniGradleBuildStructure from(OmniGradleProjectStructure rootProject) {
+        return new DefaultOmniGradleBuildStructure(rootProject);
+    }
+
 }
@@ -55,4 +55,8 @@ public final class DefaultOmniGradleModuleVersion implements OmniGradleModuleVer
         return new DefaultOmniGradleModuleVersion(gradleModuleVersion.getGroup(), gradleModuleVersion.getName(), gradleModuleVersion.getVersion());
     }
 
+    static DefaultOmniGradleModuleVersion from(String group, String name, String version) {
+        return new DefaultOmniGradleModuleVersion(group, name, version);
+    }
+
 }
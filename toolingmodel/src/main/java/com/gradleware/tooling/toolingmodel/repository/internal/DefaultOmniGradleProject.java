@@ -19,6 +19,7 @@ package com.gradleware.tooling.toolingmodel.repository.internal;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.gradleware.tooling.toolingmodel.OmniBuildInvocations;
 import com.gradleware.tooling.toolingmodel.OmniBuildInvocationsContainer;
 import com.gradleware.tooling.toolingmodel.OmniGradleProject;
@@ -29,6 +30,7 @@ import com.gradleware.tooling.toolingmodel.Path;
 import com.gradleware.tooling.toolingmodel.util.Maybe;
 import org.gradle.api.specs.Spec;
 import org.gradle.tooling.model.GradleProject;
+import org.gradle.tooling.model.UnsupportedMethodException;
 import org.gradle.tooling.model.gradle.GradleScript;
 
 import java.io.File;
@@ -42,18 +44,29 @@ import java.util.List;
  */
 public final class DefaultOmniGradleProject implements OmniGradleProject {
 
+    private final String name;
+    private final String description;
+    private final Path path;
+    private final Maybe<File> projectDirectory;
+    private final Maybe<File> buildDirectory;
+    private final Maybe<OmniGradleScript> buildScript;
+    private final OmniBuildInvocations buildInvocations;
     private final HierarchyHelper<OmniGradleProject> hierarchyHelper;
-    private String name;
-    private String description;
-    private Path path;
-    private Maybe<File> projectDirectory;
-    private Maybe<File> buildDirectory;
-    private Maybe<OmniGradleScript> buildScript;
-    private ImmutableList<OmniProjectTask> projectTasks;
-    private ImmutableList<OmniTaskSelector> taskSelectors;
 
-    private DefaultOmniGradleProject(Comparator<? super OmniGradleProject> comparator) {
-        this.hierarchyHelper = new HierarchyHelper<OmniGradleProject>(this, Preconditions.checkNotNull(comparator));
+    private DefaultOmniGradleProject(Builder builder, DefaultOmniGradleProject parent) {
+        this.name = builder.name;
+        this.description = builder.description;
+        this.path = builder.path;
+        this.projectDirectory = builder.projectDirectory;
+        this.buildDirectory = builder.buildDirectory;
+        this.buildScript = builder.buildScript;
+        this.buildInvocations = builder.buildInvocations;
+
+        ImmutableList.Builder<DefaultOmniGradleProject> children = ImmutableList.builder();
+        for (Builder child : builder.children) {
+            children.add(new DefaultOmniGradleProject(child, this));
+        }
+        this.hierarchyHelper = new HierarchyHelper<OmniGradleProject>(this, parent, children.build(), builder.comparator);
     }
 
     @Override
@@ -61,71 +74,43 @@ public final class DefaultOmniGradleProject implements OmniGradleProject {
         return this.name;
     }
 
-    private void setName(String name) {
-        this.name = name;
-    }
-
     @Override
     public String getDescription() {
         return this.description;
     }
 
-    public void setDescription(String description) {
-        this.description = description;
-    }
-
     @Override
     public Path getPath() {
         return this.path;
     }
 
-    private void setPath(Path path) {
-        this.path = path;
-    }
-
     @Override
     public Maybe<File> getProjectDirectory() {
         return this.projectDirectory;
     }
 
-    private void setProjectDirectory(Maybe<File> projectDirectory) {
-        this.projectDirectory = projectDirectory;
-    }
-
     @Override
     public Maybe<File> getBuildDirectory() {
         return this.buildDirectory;
     }
 
-    public void setBuildDirectory(Maybe<File> buildDirectory) {
-        this.buildDirectory = buildDirectory;
-    }
-
     @Override
     public Maybe<OmniGradleScript> getBuildScript() {
         return this.buildScript;
     }
 
-    public void setBuildScript(Maybe<OmniGradleScript> buildScript) {
-        this.buildScript = buildScript;
-    }
-
     @Override
-    public ImmutableList<OmniProjectTask> getProjectTasks() {
-        return this.projectTasks;
-    }
-
-    public void setProjectTasks(List<OmniProjectTask> projectTasks) {
-        this.projectTasks = ImmutableList.copyOf(projectTasks);
+    public List<OmniProjectTask> getProjectTasks() {
+        return this.buildInvocations.getProjectTasks();
     }
 
     @Override
-    public ImmutableList<OmniTaskSelector> getTaskSelectors() {
-        return this.taskSelectors;
+    public List<OmniTaskSelector> getTaskSelectors() {
+        return this.buildInvocations.getTaskSelectors();
     }
 
-    public void setTaskSelectors(List<OmniTaskSelector> taskSelectors) {
-        this.taskSelectors = ImmutableList.copyOf(taskSelectors);
+    OmniBuildInvocations getBuildInvocations() {
+        return this.buildInvocations;
     }
 
     @Override
@@ -138,20 +123,11 @@ public final class DefaultOmniGradleProject implements OmniGradleProject {
         return this.hierarchyHelper.getParent();
     }
 
-    private void setParent(DefaultOmniGradleProject parent) {
-        this.hierarchyHelper.setParent(parent);
-    }
-
     @Override
     public ImmutableList<OmniGradleProject> getChildren() {
         return this.hierarchyHelper.getChildren();
     }
 
-    private void addChild(DefaultOmniGradleProject child) {
-        child.setParent(this);
-        this.hierarchyHelper.addChild(child);
-    }
-
     @Override
     public ImmutableList<OmniGradleProject> getAll() {
         return this.hierarchyHelper.getAll();
@@ -168,24 +144,26 @@ public final class DefaultOmniGradleProject implements OmniGradleProject {
     }
 
     public static DefaultOmniGradleProject from(GradleProject project, boolean enforceAllTasksPublic) {
-        OmniBuildInvocationsContainer buildInvocationsContainer = DefaultOmniBuildInvocationsContainerBuilder.build(project, enforceAllTasksPublic);
-        return convert(project, buildInvocationsContainer);
+        return from(project, enforceAllTasksPublic, ModelCapabilityRegistry.create());
+    }
+
+    static DefaultOmniGradleProject from(GradleProject project, boolean enforceAllTasksPublic, ModelCapabilityRegistry capabilities) {
+        OmniBuildInvocationsContainer buildInvocationsContainer = DefaultOmniBuildInvocationsContainerBuilder.build(project, enforceAllTasksPublic, capabilities);
+        return convert(project, buildInvocationsContainer, capabilities).build();
     }
 
-    private static DefaultOmniGradleProject convert(GradleProject project, OmniBuildInvocationsContainer buildInvocationsContainer) {
-        DefaultOmniGradleProject gradleProject = new DefaultOmniGradleProject(OmniGradleProjectComparator.INSTANCE);
+    private static Builder convert(GradleProject project, OmniBuildInvocationsContainer buildInvocationsContainer, ModelCapabilityRegistry capabilities) {
+        Builder gradleProject = new Builder(OmniGradleProjectComparator.INSTANCE);
         gradleProject.setName(project.getName());
         gradleProject.setDescription(project.getDescription());
         gradleProject.setPath(Path.from(project.getPath()));
-        setProjectDirectory(gradleProject, project);
-        setBuildDirectory(gradleProject, project);
-        setBuildScript(gradleProject, project);
-        OmniBuildInvocations buildInvocations = buildInvocationsContainer.asMap().get(Path.from(project.getPath()));
-        gradleProject.setProjectTasks(buildInvocations.getProjectTasks());
-        gradleProject.setTaskSelectors(buildInvocations.getTaskSelectors());
+        setProjectDirectory(gradleProject, project, capabilities);
+        setBuildDirectory(gradleProject, project, capabilities);
+        setBuildScript(gradleProject, project, capabilities);
+        gradleProject.setBuildInvocations(buildInvocationsContainer.asMap().get(Path.from(project.getPath())));
 
         for (GradleProject child : project.getChildren()) {
-            DefaultOmniGradleProject gradleProjectChild = convert(child, buildInvocationsContainer);
+            Builder gradleProjectChild = convert(child, buildInvocationsContainer, capabilities);
             gradleProject.addChild(gradleProjectChild);
         }
 
@@ -197,14 +175,21 @@ public final class DefaultOmniGradleProject implements OmniGradleProject {
      *
      * @param gradleProject the project to populate
      * @param project the project model
+     * @param capabilities the capabilities of the target Gradle version found so far
      */
-    private static void setProjectDirectory(DefaultOmniGradleProject gradleProject, GradleProject project) {
-        try {
-            File projectDirectory = project.getProjectDirectory();
-            gradleProject.setProjectDirectory(Maybe.of(projectDirectory));
-        } catch (Exception ignore) {
-            gradleProject.setProjectDirectory(Maybe.<File>absent());
+    private static void setProjectDirectory(Builder gradleProject, GradleProject project, ModelCapabilityRegistry capabilities) {
+        if (capabilities.isSupported(ModelCapability.GRADLE_PROJECT_DIRECTORY)) {
+            try {
+                File projectDirectory = project.getProjectDirectory();
+                gradleProject.setProjectDirectory(Maybe.of(projectDirectory));
+                return;
+            } catch (UnsupportedMethodException e) {
+                capabilities.markUnsupported(ModelCapability.GRADLE_PROJECT_DIRECTORY);
+            } catch (Exception ignore) {
+                // fall through to the absent value
+            }
         }
+        gradleProject.setProjectDirectory(Maybe.<File>absent());
     }
 
     /**
@@ -212,14 +197,21 @@ public final class DefaultOmniGradleProject implements OmniGradleProject {
      *
      * @param gradleProject the project to populate
      * @param project the project model
+     * @param capabilities the capabilities of the target Gradle version found so far
      */
-    private static void setBuildDirectory(DefaultOmniGradleProject gradleProject, GradleProject project) {
-        try {
-            File buildDirectory = project.getBuildDirectory();
-            gradleProject.setBuildDirectory(Maybe.of(buildDirectory));
-        } catch (Exception ignore) {
-            gradleProject.setBuildDirectory(Maybe.<File>absent());
+    private static void setBuildDirectory(Builder gradleProject, GradleProject project, ModelCapabilityRegistry capabilities) {
+        if (capabilities.isSupported(ModelCapability.GRADLE_PROJECT_BUILD_DIRECTORY)) {
+            try {
+                File buildDirectory = project.getBuildDirectory();
+                gradleProject.setBuildDirectory(Maybe.of(buildDirectory));
+                return;
+            } catch (UnsupportedMethodException e) {
+                capabilities.markUnsupported(ModelCapability.GRADLE_PROJECT_BUILD_DIRECTORY);
+            } catch (Exception ignore) {
+                // fall through to the absent value
+            }
         }
+        gradleProject.setBuildDirectory(Maybe.<File>absent());
     }
 
     /**
@@ -227,14 +219,79 @@ public final class DefaultOmniGradleProject implements OmniGradleProject {
      *
      * @param gradleProject the project to populate
      * @param project the project model
+     * @param capabilities the capabilities of the target Gradle version found so far
      */
-    private static void setBuildScript(DefaultOmniGradleProject gradleProject, GradleProject project) {
-        try {
-            GradleScript buildScript = project.getBuildScript();
-            gradleProject.setBuildScript(Maybe.<OmniGradleScript>of(DefaultOmniGradleScript.from(buildScript)));
-        } catch (Exception ignore) {
-            gradleProject.setBuildScript(Maybe.<OmniGradleScript>absent());
+    private static void setBuildScript(Builder gradleProject, GradleProject project, ModelCapabilityRegistry capabilities) {
+        if (capabilities.isSupported(ModelCapability.GRADLE_PROJECT_BUILD_SCRIPT)) {
+            try {
+                GradleScript buildScript = project.getBuildScript();
+                gradleProject.setBuildScript(Maybe.<OmniGradleScript>of(DefaultOmniGradleScript.from(buildScript)));
+                return;
+            } catch (UnsupportedMethodException e) {
+                capabilities.markUnsupported(ModelCapability.GRADLE_PROJECT_BUILD_SCRIPT);
+            } catch (Exception ignore) {
+                // fall through to the absent value
+            }
         }
+        gradleProject.setBuildScript(Maybe.<OmniGradleScript>absent());
+    }
+
+    /**
+     * Collects the state of a {@link DefaultOmniGradleProject} and the builders of its children before the immutable hierarchy is created from the root downwards.
+     */
+    static final class Builder {
+
+        private final Comparator<? super OmniGradleProject> comparator;
+        private final List<Builder> children;
+        private String name;
+        private String description;
+        private Path path;
+        private Maybe<File> projectDirectory;
+        private Maybe<File> buildDirectory;
+        private Maybe<OmniGradleScript> buildScript;
+        private OmniBuildInvocations buildInvocations;
+
+        Builder(Comparator<? super OmniGradleProject> comparator) {
+            this.comparator = Preconditions.checkNotNull(comparator);
+            this.children = Lists.newArrayList();
+        }
+
+        void setName(String name) {
+            this.name = name;
+        }
+
+        void setDescription(String description) {
+            this.description = description;
+        }
+
+        void setPath(Path path) {
+            this.path = path;
+        }
+
+        void setProjectDirectory(Maybe<File> projectDirectory) {
+            this.projectDirectory = projectDirectory;
+        }
+
+        void setBuildDirectory(Maybe<File> buildDirectory) {
+            this.buildDirectory = buildDirectory;
+        }
+
+        void setBuildScript(Maybe<OmniGradleScript> buildScript) {
+            this.buildScript = buildScript;
+        }
+
+        void setBuildInvocations(OmniBuildInvocations buildInvocations) {
+            this.buildInvocations = Preconditions.checkNotNull(buildInvocations);
+        }
+
+        void addChild(Builder child) {
+            this.children.add(Preconditions.checkNotNull(child));
+        }
+
+        DefaultOmniGradleProject build() {
+            return new DefaultOmniGradleProject(this, null);
+        }
+
     }
 
     /**
@@ -19,14 +19,17 @@ package com.gradleware.tooling.toolingmodel.repository.internal;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.gradleware.tooling.toolingmodel.OmniGradleProjectStructure;
 import com.gradleware.tooling.toolingmodel.Path;
 import com.gradleware.tooling.toolingmodel.util.Maybe;
 import org.gradle.api.specs.Spec;
+import org.gradle.tooling.model.UnsupportedMethodException;
 import org.gradle.tooling.model.gradle.BasicGradleProject;
 
 import java.io.File;
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * Default implementation of the {@link OmniGradleProjectStructure} interface.
@@ -35,13 +38,21 @@ import java.util.Comparator;
  */
 public final class DefaultOmniGradleProjectStructure implements OmniGradleProjectStructure {
 
+    private final String name;
+    private final Path path;
+    private final Maybe<File> projectDirectory;
     private final HierarchyHelper<OmniGradleProjectStructure> hierarchyHelper;
-    private String name;
-    private Path path;
-    private Maybe<File> projectDirectory;
 
-    private DefaultOmniGradleProjectStructure(Comparator<? super OmniGradleProjectStructure> comparator) {
-        this.hierarchyHelper = new HierarchyHelper<OmniGradleProjectStructure>(this, Preconditions.checkNotNull(comparator));
+    private DefaultOmniGradleProjectStructure(Builder builder, DefaultOmniGradleProjectStructure parent) {
+        this.name = builder.name;
+        this.path = builder.path;
+        this.projectDirectory = builder.projectDirectory;
+
+        ImmutableList.Builder<DefaultOmniGradleProjectStructure> children = ImmutableList.builder();
+        for (Builder child : builder.children) {
+            children.add(new DefaultOmniGradleProjectStructure(child, this));
+        }
+        this.hierarchyHelper = new HierarchyHelper<OmniGradleProjectStructure>(this, parent, children.build(), builder.comparator);
     }
 
     @Override
@@ -49,28 +60,16 @@ public final class DefaultOmniGradleProjectStructure implements OmniGradleProjec
         return this.name;
     }
 
-    private void setName(String name) {
-        this.name = name;
-    }
-
     @Override
     public Path getPath() {
         return this.path;
     }
 
-    private void setPath(Path path) {
-        this.path = path;
-    }
-
     @Override
     public Maybe<File> getProjectDirectory() {
         return this.projectDirectory;
     }
 
-    private void setProjectDirectory(Maybe<File> projectDirectory) {
-        this.projectDirectory = projectDirectory;
-    }
-
     @Override
     public OmniGradleProjectStructure getRoot() {
         return this.hierarchyHelper.getRoot();
@@ -81,20 +80,11 @@ public final class DefaultOmniGradleProjectStructure implements OmniGradleProjec
         return this.hierarchyHelper.getParent();
     }
 
-    private void setParent(DefaultOmniGradleProjectStructure parent) {
-        this.hierarchyHelper.setParent(parent);
-    }
-
     @Override
     public ImmutableList<OmniGradleProjectStructure> getChildren() {
         return this.hierarchyHelper.getChildren();
     }
 
-    private void addChild(DefaultOmniGradleProjectStructure child) {
-        child.setParent(this);
-        this.hierarchyHelper.addChild(child);
-    }
-
     @Override
     public ImmutableList<OmniGradleProjectStructure> getAll() {
         return this.hierarchyHelper.getAll();
@@ -111,13 +101,21 @@ public final class DefaultOmniGradleProjectStructure implements OmniGradleProjec
     }
 
     public static DefaultOmniGradleProjectStructure from(BasicGradleProject project) {
-        DefaultOmniGradleProjectStructure projectStructure = new DefaultOmniGradleProjectStructure(OmniGradleProjectStructureComparator.INSTANCE);
+        return from(project, ModelCapabilityRegistry.create());
+    }
+
+    static DefaultOmniGradleProjectStructure from(BasicGradleProject project, ModelCapabilityRegistry capabilities) {
+        return convert(project, capabilities).build();
+    }
+
+    private static Builder convert(BasicGradleProject project, ModelCapabilityRegistry capabilities) {
+        Builder projectStructure = new Builder(OmniGradleProjectStructureComparator.INSTANCE);
         projectStructure.setName(project.getName());
         projectStructure.setPath(Path.from((project.getPath())));
-        setProjectDirectory(projectStructure, project);
+        setProjectDirectory(projectStructure, project, capabilities);
 
         for (BasicGradleProject child : project.getChildren()) {
-            DefaultOmniGradleProjectStructure basicGradleProjectChild = from(child);
+            Builder basicGradleProjectChild = convert(child, capabilities);
             projectStructure.addChild(basicGradleProjectChild);
         }
 
@@ -129,14 +127,59 @@ public final class DefaultOmniGradleProjectStructure implements OmniGradleProjec
      *
      * @param projectStructure the project to populate
      * @param project the project model
+     * @param capabilities the capabilities of the target Gradle version found so far
+     */
+    private static void setProjectDirectory(Builder projectStructure, BasicGradleProject project, ModelCapabilityRegistry capabilities) {
+        if (capabilities.isSupported(ModelCapability.BASIC_GRADLE_PROJECT_DIRECTORY)) {
+            try {
+                File projectDirectory = project.getProjectDirectory();
+                projectStructure.setProjectDirectory(Maybe.of(projectDirectory));
+                return;
+            } catch (UnsupportedMethodException e) {
+                capabilities.markUnsupported(ModelCapability.BASIC_GRADLE_PROJECT_DIRECTORY);
+            } catch (Exception ignore) {
+                // fall through to the absent value
+            }
+        }
+        projectStructure.setProjectDirectory(Maybe.<File>absent());
+    }
+
+    /**
+     * Collects the state of a {@link DefaultOmniGradleProjectStructure} and the builders of its children before the immutable hierarchy is created from the root downwards.
      */
-    private static void setProjectDirectory(DefaultOmniGradleProjectStructure projectStructure, BasicGradleProject project) {
-        try {
-            File projectDirectory = project.getProjectDirectory();
-            projectStructure.setProjectDirectory(Maybe.of(projectDirectory));
-        } catch (Exception ignore) {
-            projectStructure.setProjectDirectory(Maybe.<File>absent());
+    static final class Builder {
+
+        private final Comparator<? super OmniGradleProjectStructure> comparator;
+        private final List<Builder> children;
+        private String name;
+        private Path path;
+        private Maybe<File> projectDirectory;
+
+        Builder(Comparator<? super OmniGradleProjectStructure> comparator) {
+            this.comparator = Preconditions.checkNotNull(comparator);
+            this.children = Lists.newArrayList();
+        }
+
+        void setName(String name) {
+            this.name = name;
         }
+
+        void setPath(Path path) {
+            this.path = path;
+        }
+
+        void setProjectDirectory(Maybe<File> projectDirectory) {
+            this.projectDirectory = projectDirectory;
+        }
+
+        void addChild(Builder child) {
+            this.children.add(Preconditions.checkNotNull(child));
+        }
+
+        DefaultOmniGradleProjectStructure build() {
+            return new DefaultOmniGradleProjectStructure(this, null);
+        }
+
     }
 
     /**
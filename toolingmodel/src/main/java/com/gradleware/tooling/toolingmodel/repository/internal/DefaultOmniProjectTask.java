@@ -20,6 +20,7 @@ import com.gradleware.tooling.toolingmodel.OmniProjectTask;
 import com.gradleware.tooling.toolingmodel.Path;
 import com.gradleware.tooling.toolingmodel.util.Maybe;
 import org.gradle.tooling.model.Task;
+import org.gradle.tooling.model.UnsupportedMethodException;
 
 /**
  * Default implementation of the {@link OmniProjectTask} interface.
@@ -28,65 +29,57 @@ import org.gradle.tooling.model.Task;
  */
 public final class DefaultOmniProjectTask implements OmniProjectTask {
 
-    private String name;
-    private String description;
-    private Path path;
-    private boolean isPublic;
-    private Maybe<String> group;
+    private final String name;
+    private final String description;
+    private final Path path;
+    private final boolean isPublic;
+    private final Maybe<String> group;
+
+    private DefaultOmniProjectTask(Builder builder) {
+        this.name = builder.name;
+        this.description = builder.description;
+        this.path = builder.path;
+        this.isPublic = builder.isPublic;
+        this.group = builder.group;
+    }
 
     @Override
     public String getName() {
         return this.name;
     }
 
-    public void setName(String name) {
-        this.name = name;
-    }
-
     @Override
     public String getDescription() {
         return this.description;
     }
 
-    public void setDescription(String description) {
-        this.description = description;
-    }
-
     @Override
     public Path getPath() {
         return this.path;
     }
 
-    public void setPath(Path path) {
-        this.path = path;
-    }
-
     @Override
     public boolean isPublic() {
         return this.isPublic;
     }
 
-    public void setPublic(boolean isPublic) {
-        this.isPublic = isPublic;
-    }
-
     @Override
     public Maybe<String> getGroup() {
         return this.group;
     }
 
-    public void setGroup(Maybe<String> group) {
-        this.group = group;
+    public static DefaultOmniProjectTask from(Task task, boolean enforceAllTasksPublic) {
+        return from(task, enforceAllTasksPublic, ModelCapabilityRegistry.create());
     }
 
-    public static DefaultOmniProjectTask from(Task task, boolean enforceAllTasksPublic) {
-        DefaultOmniProjectTask projectTask = new DefaultOmniProjectTask();
+    static DefaultOmniProjectTask from(Task task, boolean enforceAllTasksPublic, ModelCapabilityRegistry capabilities) {
+        Builder projectTask = new Builder();
         projectTask.setName(task.getName());
         projectTask.setDescription(task.getDescription());
         projectTask.setPath(Path.from(task.getPath()));
-        setIsPublic(projectTask, task, enforceAllTasksPublic);
-        setGroup(projectTask, task);
-        return projectTask;
+        setIsPublic(projectTask, task, enforceAllTasksPublic, capabilities);
+        setGroup(projectTask, task, capabilities);
+        return projectTask.build();
     }
 
     /**
@@ -97,29 +90,80 @@ public final class DefaultOmniProjectTask implements OmniProjectTask {
      * @param projectTask the task to populate
      * @param task the task model
      * @param enforceAllTasksPublic flag to signal whether all tasks should be treated as public regardless of what the model says
+     * @param capabilities the capabilities of the target Gradle version found so far
      */
-    private static void setIsPublic(DefaultOmniProjectTask projectTask, Task task, boolean enforceAllTasksPublic) {
-        try {
-            boolean isPublic = task.isPublic();
-            projectTask.setPublic(enforceAllTasksPublic || isPublic);
-        } catch (Exception ignore) {
-            projectTask.setPublic(true);
+    private static void setIsPublic(Builder projectTask, Task task, boolean enforceAllTasksPublic, ModelCapabilityRegistry capabilities) {
+        if (capabilities.isSupported(ModelCapability.TASK_IS_PUBLIC)) {
+            try {
+                boolean isPublic = task.isPublic();
+                projectTask.setPublic(enforceAllTasksPublic || isPublic);
+                return;
+            } catch (UnsupportedMethodException e) {
+                capabilities.markUnsupported(ModelCapability.TASK_IS_PUBLIC);
+            } catch (Exception ignore) {
+                // fall through to the default value
+            }
         }
+        projectTask.setPublic(true);
     }
 
-   /**
+    /**
      * GradleTask#getGroup is only available in Gradle versions >= 2.5.
      *
      * @param projectTask the task to populate
      * @param task the task model
+     * @param capabilities the capabilities of the target Gradle version found so far
+     */
+    private static void setGroup(Builder projectTask, Task task, ModelCapabilityRegistry capabilities) {
+        if (capabilities.isSupported(ModelCapability.TASK_GROUP)) {
+            try {
+                String group = task.getGroup();
+                projectTask.setGroup(Maybe.of(group));
+                return;
+            } catch (UnsupportedMethodException e) {
+                capabilities.markUnsupported(ModelCapability.TASK_GROUP);
+            } catch (Exception ignore) {
+                // fall through to the absent value
+            }
+        }
+        projectTask.setGroup(Maybe.<String>absent());
+    }
+
+    /**
+     * Collects the state of a {@link DefaultOmniProjectTask} before the immutable instance is created.
      */
-    private static void setGroup(DefaultOmniProjectTask projectTask, Task task) {
-        try {
-            String group = task.getGroup();
-            projectTask.setGroup(Maybe.of(group));
-        } catch (Exception ignore) {
-            projectTask.setGroup(Maybe.<String>absent());
+    static final class Builder {
+
+        private String name;
+        private String description;
+        private Path path;
+        private boolean isPublic;
+        private Maybe<String> group;
+
+        void setName(String name) {
+            this.name = name;
+        }
+
+        void setDescription(String description) {
+            this.description = description;
+        }
+
+        void setPath(Path path) {
+            this.path = path;
         }
+
+        void setPublic(boolean isPublic) {
+            this.isPublic = isPublic;
+        }
+
+        void setGroup(Maybe<String> group) {
+            this.group = group;
+        }
+
+        DefaultOmniProjectTask build() {
+            return new DefaultOmniProjectTask(this);
+        }
+
     }
 
 }
@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableSortedSet;
 import com.gradleware.tooling.toolingmodel.OmniTaskSelector;
 import com.gradleware.tooling.toolingmodel.Path;
 import org.gradle.tooling.model.TaskSelector;
+import org.gradle.tooling.model.UnsupportedMethodException;
 
 import java.util.SortedSet;
 
@@ -30,75 +31,67 @@ import java.util.SortedSet;
  */
 public final class DefaultOmniTaskSelector implements OmniTaskSelector {
 
-    private String name;
-    private String description;
-    private Path projectPath;
-    private boolean isPublic;
-    private ImmutableSortedSet<Path> selectedTaskPaths;
+    private final String name;
+    private final String description;
+    private final Path projectPath;
+    private final boolean isPublic;
+    private final ImmutableSortedSet<Path> selectedTaskPaths;
+
+    private DefaultOmniTaskSelector(Builder builder) {
+        this.name = builder.name;
+        this.description = builder.description;
+        this.projectPath = builder.projectPath;
+        this.isPublic = builder.isPublic;
+        this.selectedTaskPaths = builder.selectedTaskPaths;
+    }
 
     @Override
     public String getName() {
         return this.name;
     }
 
-    public void setName(String name) {
-        this.name = name;
-    }
-
     @Override
     public String getDescription() {
         return this.description;
     }
 
-    public void setDescription(String description) {
-        this.description = description;
-    }
-
     @Override
     public Path getProjectPath() {
         return this.projectPath;
     }
 
-    public void setProjectPath(Path projectPath) {
-        this.projectPath = projectPath;
-    }
-
     @Override
     public boolean isPublic() {
         return this.isPublic;
     }
 
-    public void setPublic(boolean isPublic) {
-        this.isPublic = isPublic;
-    }
-
     @Override
     public ImmutableSortedSet<Path> getSelectedTaskPaths() {
         return this.selectedTaskPaths;
     }
 
-    public void setSelectedTaskPaths(SortedSet<Path> selectedTaskPaths) {
-        this.selectedTaskPaths = ImmutableSortedSet.copyOfSorted(selectedTaskPaths);
+    public static DefaultOmniTaskSelector from(TaskSelector selector, Path projectPath) {
+        return from(selector, projectPath, ModelCapabilityRegistry.create());
     }
 
-    public static DefaultOmniTaskSelector from(TaskSelector selector, Path projectPath) {
-        DefaultOmniTaskSelector taskSelector = new DefaultOmniTaskSelector();
+    static DefaultOmniTaskSelector from(TaskSelector selector, Path projectPath, ModelCapabilityRegistry capabilities) {
+        Builder taskSelector = new Builder();
         taskSelector.setName(selector.getName());
         taskSelector.setDescription(selector.getDescription());
         taskSelector.setProjectPath(projectPath);
-        setIsPublic(taskSelector, selector);
+        setIsPublic(taskSelector, selector, capabilities);
         taskSelector.setSelectedTaskPaths(ImmutableSortedSet.<Path>of());
-        return taskSelector;
+        return taskSelector.build();
     }
 
     public static DefaultOmniTaskSelector from(String name, String description, Path projectPath, boolean isPublic, SortedSet<Path> selectedTaskPaths) {
-        DefaultOmniTaskSelector taskSelector = new DefaultOmniTaskSelector();
+        Builder taskSelector = new Builder();
         taskSelector.setName(name);
         taskSelector.setDescription(description);
         taskSelector.setProjectPath(projectPath);
         taskSelector.setPublic(isPublic);
         taskSelector.setSelectedTaskPaths(selectedTaskPaths);
-        return taskSelector;
+        return taskSelector.build();
     }
 
     /**
@@ -106,14 +99,58 @@ public final class DefaultOmniTaskSelector implements OmniTaskSelector {
      *
      * @param gradleTaskSelector the task selector to populate
      * @param taskSelector the task selector model
+     * @param capabilities the capabilities of the target Gradle version found so far
      */
-    private static void setIsPublic(DefaultOmniTaskSelector gradleTaskSelector, TaskSelector taskSelector) {
-        try {
-            boolean isPublic = taskSelector.isPublic();
-            gradleTaskSelector.setPublic(isPublic);
-        } catch (Exception ignore) {
-            gradleTaskSelector.setPublic(true);
+    private static void setIsPublic(Builder gradleTaskSelector, TaskSelector taskSelector, ModelCapabilityRegistry capabilities) {
+        if (capabilities.isSupported(ModelCapability.TASK_SELECTOR_IS_PUBLIC)) {
+            try {
+                boolean isPublic = taskSelector.isPublic();
+                gradleTaskSelector.setPublic(isPublic);
+                return;
+            } catch (UnsupportedMethodException e) {
+                capabilities.markUnsupported(ModelCapability.TASK_SELECTOR_IS_PUBLIC);
+            } catch (Exception ignore) {
+                // fall through to the default value
+            }
         }
+        gradleTaskSelector.setPublic(true);
+    }
+
+    /**
+     * Collects the state of a {@link DefaultOmniTaskSelector} before the immutable instance is created.
+     */
+    static final class Builder {
+
+        private String name;
+        private String description;
+        private Path projectPath;
+        private boolean isPublic;
+        private ImmutableSortedSet<Path> selectedTaskPaths;
+
+        void setName(String name) {
+            this.name = name;
+        }
+
+        void setDescription(String description) {
+            this.description = description;
+        }
+
+        void setProjectPath(Path projectPath) {
+            this.projectPath = projectPath;
+        }
+
+        void setPublic(boolean isPublic) {
+            this.isPublic = isPublic;
+        }
+
+        void setSelectedTaskPaths(SortedSet<Path> selectedTaskPaths) {
+            this.selectedTaskPaths = ImmutableSortedSet.copyOfSorted(selectedTaskPaths);
+        }
+
+        DefaultOmniTaskSelector build() {
+            return new DefaultOmniTaskSelector(this);
+        }
+
     }
 
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.gradleware.tooling.toolingmodel.OmniEclipseClasspath;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectDependency;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectDependencyGraph;
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency;
+import com.gradleware.tooling.toolingmodel.Path;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the effective classpaths of all projects of a build in one pass. The projects are visited in topological order, such that the dependencies a project exports
+ * are computed once and then reused by all projects that depend on it, rather than being collected again for each of them. The projects of a dependency cycle are
+ * visited repeatedly until their exported dependencies no longer grow.
+ * <p/>
+ * The classpaths are built with {@link SharedPrefixLists}, hence projects that start with the same dependencies share the memory of that common prefix. Instances are
+ * immutable.
+ *
+ * @author Etienne Studer
+ */
+final class EffectiveClasspaths {
+
+    private final ImmutableMap<Path, OmniEclipseClasspath> classpaths;
+
+    private EffectiveClasspaths(ImmutableMap<Path, OmniEclipseClasspath> classpaths) {
+        this.classpaths = classpaths;
+    }
+
+    /**
+     * Returns the effective classpath of the project with the given path.
+     *
+     * @param projectPath the path of the project
+     * @return the effective classpath
+     * @throws IllegalArgumentException if the build does not contain a project with the given path
+     */
+    OmniEclipseClasspath get(Path projectPath) {
+        OmniEclipseClasspath classpath = this.classpaths.get(Preconditions.checkNotNull(projectPath));
+        Preconditions.checkArgument(classpath != null, "Build does not contain project %s.", projectPath.getPath());
+        return classpath;
+    }
+
+    /**
+     * Computes the effective classpaths of all projects of the given dependency graph.
+     *
+     * @param dependencyGraph the dependency graph of the build
+     * @return the new instance
+     */
+    static EffectiveClasspaths from(OmniEclipseProjectDependencyGraph dependencyGraph) {
+        return new Calculation(dependencyGraph).run();
+    }
+
+    /**
+     * The state of a single computation of the effective classpaths of a build.
+     */
+    private static final class Calculation {
+
+        private final OmniEclipseProjectDependencyGraph dependencyGraph;
+        private final SharedPrefixLists<OmniEclipseProjectDependency> projectDependencyLists;
+        private final SharedPrefixLists<OmniExternalDependency> externalDependencyLists;
+        private final Map<Path, SharedPrefixLists.SharedList<OmniEclipseProjectDependency>> exportedProjectDependencies;
+        private final Map<Path, SharedPrefixLists.SharedList<OmniExternalDependency>> exportedExternalDependencies;
+
+        private Calculation(OmniEclipseProjectDependencyGraph dependencyGraph) {
+            this.dependencyGraph = dependencyGraph;
+            this.projectDependencyLists = SharedPrefixLists.create(ProjectDependencyKeys.TARGET, ProjectDependencyKeys.VALUE);
+            this.externalDependencyLists = SharedPrefixLists.create(ExternalDependencyKeys.FILE, ExternalDependencyKeys.VALUE);
+            this.exportedProjectDependencies = Maps.newHashMap();
+            this.exportedExternalDependencies = Maps.newHashMap();
+        }
+
+        private EffectiveClasspaths run() {
+            Map<Path, List<OmniEclipseProject>> cycles = Maps.newHashMap();
+            for (List<OmniEclipseProject> cycle : this.dependencyGraph.getCycles()) {
+                for (OmniEclipseProject project : cycle) {
+                    cycles.put(project.getPath(), cycle);
+                }
+            }
+
+            // the dependencies of each project are visited before the project itself, except for the dependencies within a cycle
+            List<OmniEclipseProject> projects = this.dependencyGraph.getProjectsInTopologicalOrder();
+            for (OmniEclipseProject project : projects) {
+                List<OmniEclipseProject> cycle = cycles.get(project.getPath());
+                if (cycle == null) {
+                    collectExportedDependencies(project);
+                } else if (cycle.get(0) == project) {
+                    boolean grown;
+                    do {
+                        grown = false;
+                        for (OmniEclipseProject member : cycle) {
+                            grown |= collectExportedDependencies(member);
+                        }
+                    } while (grown);
+                }
+            }
+
+            ImmutableMap.Builder<Path, OmniEclipseClasspath> classpaths = ImmutableMap.builder();
+            for (OmniEclipseProject project : projects) {
+                classpaths.put(project.getPath(), collectClasspath(project));
+            }
+            return new EffectiveClasspaths(classpaths.build());
+        }
+
+        private boolean collectExportedDependencies(OmniEclipseProject project) {
+            SharedPrefixLists<OmniEclipseProjectDependency>.Builder projectDependencies = this.projectDependencyLists.newList();
+            SharedPrefixLists<OmniExternalDependency>.Builder externalDependencies = this.externalDependencyLists.newList();
+            for (OmniExternalDependency externalDependency : project.getExternalDependencies()) {
+                if (externalDependency.isExported()) {
+                    externalDependencies.add(externalDependency);
+                }
+            }
+            for (OmniEclipseProjectDependency projectDependency : project.getProjectDependencies()) {
+                if (projectDependency.isExported()) {
+                    projectDependencies.add(projectDependency);
+                    addExportedDependencies(projectDependency.getTargetProjectPath(), projectDependencies, externalDependencies);
+                }
+            }
+
+            // the exported dependencies of a project only ever grow when it is visited again, hence an unchanged size means unchanged dependencies
+            SharedPrefixLists.SharedList<OmniEclipseProjectDependency> latestProjectDependencies = projectDependencies.build();
+            SharedPrefixLists.SharedList<OmniExternalDependency> latestExternalDependencies = externalDependencies.build();
+            SharedPrefixLists.SharedList<OmniEclipseProjectDependency> previousProjectDependencies = this.exportedProjectDependencies.put(project.getPath(), latestProjectDependencies);
+            SharedPrefixLists.SharedList<OmniExternalDependency> previousExternalDependencies = this.exportedExternalDependencies.put(project.getPath(), latestExternalDependencies);
+            return previousProjectDependencies == null || previousProjectDependencies.size() != latestProjectDependencies.size() ||
+                    previousExternalDependencies.size() != latestExternalDependencies.size();
+        }
+
+        private OmniEclipseClasspath collectClasspath(OmniEclipseProject project) {
+            SharedPrefixLists<OmniEclipseProjectDependency>.Builder projectDependencies = this.projectDependencyLists.newList();
+            SharedPrefixLists<OmniExternalDependency>.Builder externalDependencies = this.externalDependencyLists.newList();
+            projectDependencies.exclude(project.getPath());
+            for (OmniExternalDependency externalDependency : project.getExternalDependencies()) {
+                externalDependencies.add(externalDependency);
+            }
+            for (OmniEclipseProjectDependency projectDependency : project.getProjectDependencies()) {
+                projectDependencies.add(projectDependency);
+                addExportedDependencies(projectDependency.getTargetProjectPath(), projectDependencies, externalDependencies);
+            }
+            return DefaultOmniEclipseClasspath.from(projectDependencies.build(), externalDependencies.build());
+        }
+
+        private void addExportedDependencies(Path projectPath, SharedPrefixLists<OmniEclipseProjectDependency>.Builder projectDependencies,
+                                             SharedPrefixLists<OmniExternalDependency>.Builder externalDependencies) {
+            // not yet known for a project of the same cycle that has not been visited yet, and never known for a project outside of the build
+            SharedPrefixLists.SharedList<OmniEclipseProjectDependency> exportedProjectDependencies = this.exportedProjectDependencies.get(projectPath);
+            if (exportedProjectDependencies != null) {
+                projectDependencies.addAll(exportedProjectDependencies);
+                externalDependencies.addAll(this.exportedExternalDependencies.get(projectPath));
+            }
+        }
+
+    }
+
+    /**
+     * Keys to detect duplicate and shareable project dependencies.
+     */
+    private enum ProjectDependencyKeys implements Function<OmniEclipseProjectDependency, Object> {
+
+        TARGET {
+            @Override
+            public Object apply(OmniEclipseProjectDependency dependency) {
+                return dependency.getTargetProjectPath();
+            }
+        },
+
+        VALUE {
+            @Override
+            public Object apply(OmniEclipseProjectDependency dependency) {
+                return Arrays.<Object>asList(dependency.getTargetProjectPath(), dependency.getPath(), dependency.isExported());
+            }
+        }
+
+    }
+
+    /**
+     * Keys to detect duplicate and shareable external dependencies.
+     */
+    private enum ExternalDependencyKeys implements Function<OmniExternalDependency, Object> {
+
+        FILE {
+            @Override
+            public Object apply(OmniExternalDependency dependency) {
+                return dependency.getFile();
+            }
+        },
+
+        VALUE {
+            @Override
+            public Object apply(OmniExternalDependency dependency) {
+                return Arrays.<Object>asList(dependency.getFile(), dependency.getSource(), dependency.getJavadoc(), dependency.isExported());
+            }
+        }
+
+    }
+
+}
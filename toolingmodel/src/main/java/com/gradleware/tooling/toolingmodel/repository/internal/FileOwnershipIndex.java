@@ -0,0 +1,351 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.eventbus.Subscribe;
+import com.gradleware.tooling.toolingmodel.OmniEclipseGradleBuild;
+import com.gradleware.tooling.toolingmodel.OmniEclipseLinkedResource;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniEclipseSourceDirectory;
+import com.gradleware.tooling.toolingmodel.OmniGradleBuild;
+import com.gradleware.tooling.toolingmodel.OmniGradleBuildStructure;
+import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+import com.gradleware.tooling.toolingmodel.OmniGradleProjectStructure;
+import com.gradleware.tooling.toolingmodel.Path;
+import com.gradleware.tooling.toolingmodel.repository.EclipseGradleBuildUpdateEvent;
+import com.gradleware.tooling.toolingmodel.repository.FileOwner;
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
+import com.gradleware.tooling.toolingmodel.repository.GradleBuildStructureUpdateEvent;
+import com.gradleware.tooling.toolingmodel.repository.GradleBuildUpdateEvent;
+import com.gradleware.tooling.toolingmodel.util.Maybe;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maps files to the projects that own them. The project directories, source directories and linked resources of the broadcast Eclipse and Gradle models are held in a
+ * trie over the segments of their absolute paths, such that looking up a file walks at most one trie node per segment of its path.
+ * <p/>
+ * The directories are registered per build and per model type. When a new model is broadcast, only the difference to the directories registered for the previous model of
+ * the same build and type is applied to the trie. If several builds register the same directory, for example a build and a sub-project view of the same build, the build
+ * with the shortest project directory path takes precedence. Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+final class FileOwnershipIndex {
+
+    private static final Splitter PATH_SPLITTER = Splitter.on(File.separatorChar).omitEmptyStrings();
+
+    private final ReadWriteLock lock;
+    private final Node root;
+    private final Map<FixedRequestAttributes, Map<Class<?>, Set<Registration>>> registrations;
+
+    FileOwnershipIndex() {
+        this.lock = new ReentrantReadWriteLock();
+        this.root = new Node();
+        this.registrations = Maps.newHashMap();
+    }
+
+    /**
+     * Returns the project that owns the given file.
+     *
+     * @param file the file to look up
+     * @return the owning project, absent if no registered directory contains the file
+     */
+    Optional<FileOwner> findOwner(File file) {
+        List<String> segments = segments(file);
+        this.lock.readLock().lock();
+        try {
+            // remember the registrations along the path, such that the source directory can be determined once the owning project is known
+            List<Registration> candidates = Lists.newArrayList();
+            Node node = this.root;
+            for (String segment : segments) {
+                node = node.children.get(segment);
+                if (node == null) {
+                    break;
+                }
+                if (!node.registrations.isEmpty()) {
+                    candidates.add(node.getPreferredRegistration());
+                }
+            }
+            if (candidates.isEmpty()) {
+                return Optional.absent();
+            }
+
+            Registration owner = candidates.get(candidates.size() - 1);
+            for (int i = candidates.size() - 1; i >= 0; i--) {
+                Registration candidate = candidates.get(i);
+                if (candidate.sourceDirectory && candidate.isSameProject(owner)) {
+                    return Optional.of(new FileOwner(owner.build, owner.projectPath, Optional.of(candidate.directory)));
+                }
+            }
+            return Optional.of(new FileOwner(owner.build, owner.projectPath, Optional.<File>absent()));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the directories registered for the given build and model type with the given directories, touching only the trie nodes of the directories that changed.
+     *
+     * @param build the build that broadcast the model
+     * @param modelType the type of the broadcast model
+     * @param latest the directories of the broadcast model
+     */
+    void update(FixedRequestAttributes build, Class<?> modelType, Set<Registration> latest) {
+        this.lock.writeLock().lock();
+        try {
+            Map<Class<?>, Set<Registration>> registrationsOfBuild = this.registrations.get(build);
+            if (registrationsOfBuild == null) {
+                registrationsOfBuild = Maps.newHashMap();
+                this.registrations.put(build, registrationsOfBuild);
+            }
+            Set<Registration> previous = registrationsOfBuild.put(modelType, latest);
+            if (previous == null) {
+                previous = ImmutableSet.of();
+            }
+
+            for (Registration registration : Sets.difference(previous, latest)) {
+                remove(this.root, registration, 0);
+            }
+            for (Registration registration : Sets.difference(latest, previous)) {
+                add(registration);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Registration registration) {
+        Node node = this.root;
+        for (String segment : registration.segments) {
+            Node child = node.children.get(segment);
+            if (child == null) {
+                child = new Node();
+                node.children.put(segment, child);
+            }
+            node = child;
+        }
+        node.registrations.add(registration);
+    }
+
+    private static boolean remove(Node node, Registration registration, int depth) {
+        if (depth == registration.segments.size()) {
+            node.registrations.remove(registration);
+        } else {
+            String segment = registration.segments.get(depth);
+            Node child = node.children.get(segment);
+            if (child != null && remove(child, registration, depth + 1)) {
+                node.children.remove(segment);
+            }
+        }
+        return node.isEmpty();
+    }
+
+    /**
+     * Creates a listener that registers the directories of the Eclipse and Gradle models broadcast by the model repository of the given build.
+     *
+     * @param build the build of the model repository to listen to
+     * @return the listener to register with the event bus of the model repository
+     */
+    Object newListener(FixedRequestAttributes build) {
+        return new Listener(build);
+    }
+
+    static Set<Registration> registrationsOf(FixedRequestAttributes build, OmniEclipseProject rootProject) {
+        ImmutableSet.Builder<Registration> result = ImmutableSet.builder();
+        for (OmniEclipseProject project : rootProject.getAll()) {
+            if (project.getProjectDirectory() != null) {
+                result.add(new Registration(build, project.getPath(), project.getProjectDirectory(), false));
+            }
+            for (OmniEclipseSourceDirectory sourceDirectory : project.getSourceDirectories()) {
+                if (sourceDirectory.getDirectory() != null) {
+                    result.add(new Registration(build, project.getPath(), sourceDirectory.getDirectory(), true));
+                }
+            }
+            for (OmniEclipseLinkedResource linkedResource : project.getLinkedResources()) {
+                // linked resources that are located through a URI are not backed by a local file
+                if (linkedResource.getLocation() != null) {
+                    result.add(new Registration(build, project.getPath(), new File(linkedResource.getLocation()), false));
+                }
+            }
+        }
+        return result.build();
+    }
+
+    static Set<Registration> registrationsOf(FixedRequestAttributes build, OmniGradleProject rootProject) {
+        ImmutableSet.Builder<Registration> result = ImmutableSet.builder();
+        for (OmniGradleProject project : rootProject.getAll()) {
+            addProjectDirectory(build, project.getPath(), project.getProjectDirectory(), result);
+        }
+        return result.build();
+    }
+
+    static Set<Registration> registrationsOf(FixedRequestAttributes build, OmniGradleProjectStructure rootProject) {
+        ImmutableSet.Builder<Registration> result = ImmutableSet.builder();
+        for (OmniGradleProjectStructure project : rootProject.getAll()) {
+            addProjectDirectory(build, project.getPath(), project.getProjectDirectory(), result);
+        }
+        return result.build();
+    }
+
+    private static void addProjectDirectory(FixedRequestAttributes build, Path projectPath, Maybe<File> projectDirectory, ImmutableSet.Builder<Registration> result) {
+        if (projectDirectory.isPresent() && projectDirectory.get() != null) {
+            result.add(new Registration(build, projectPath, projectDirectory.get(), false));
+        }
+    }
+
+    private static ImmutableList<String> segments(File file) {
+        List<String> result = Lists.newArrayList();
+        for (String segment : PATH_SPLITTER.split(file.getAbsolutePath())) {
+            if ("..".equals(segment)) {
+                if (!result.isEmpty()) {
+                    result.remove(result.size() - 1);
+                }
+            } else if (!".".equals(segment)) {
+                result.add(segment);
+            }
+        }
+        return ImmutableList.copyOf(result);
+    }
+
+    /**
+     * A directory or file of a project, registered by a given build.
+     */
+    static final class Registration {
+
+        private final FixedRequestAttributes build;
+        private final Path projectPath;
+        private final File directory;
+        private final boolean sourceDirectory;
+        private final ImmutableList<String> segments;
+
+        Registration(FixedRequestAttributes build, Path projectPath, File directory, boolean sourceDirectory) {
+            this.build = Preconditions.checkNotNull(build);
+            this.projectPath = Preconditions.checkNotNull(projectPath);
+            this.directory = Preconditions.checkNotNull(directory);
+            this.sourceDirectory = sourceDirectory;
+            this.segments = segments(directory);
+        }
+
+        private boolean isSameProject(Registration other) {
+            return this.build.equals(other.build) && this.projectPath.equals(other.projectPath);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+
+            Registration that = (Registration) other;
+            return this.sourceDirectory == that.sourceDirectory &&
+                    Objects.equal(this.build, that.build) &&
+                    Objects.equal(this.projectPath, that.projectPath) &&
+                    Objects.equal(this.segments, that.segments);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(this.build, this.projectPath, this.segments, this.sourceDirectory);
+        }
+
+    }
+
+    /**
+     * A node of the trie, one per path segment.
+     */
+    private static final class Node {
+
+        private final Map<String, Node> children;
+        private final List<Registration> registrations;
+
+        private Node() {
+            this.children = Maps.newHashMap();
+            this.registrations = Lists.newArrayListWithCapacity(1);
+        }
+
+        private boolean isEmpty() {
+            return this.children.isEmpty() && this.registrations.isEmpty();
+        }
+
+        private Registration getPreferredRegistration() {
+            // source directories take precedence over project directories at the same location, the root build over the builds of its sub-projects
+            Registration preferred = null;
+            for (Registration registration : this.registrations) {
+                if (preferred == null || isPreferred(registration, preferred)) {
+                    preferred = registration;
+                }
+            }
+            return preferred;
+        }
+
+        private static boolean isPreferred(Registration registration, Registration other) {
+            if (registration.sourceDirectory != other.sourceDirectory) {
+                return registration.sourceDirectory;
+            }
+            return registration.build.getProjectDir().getAbsolutePath().length() < other.build.getProjectDir().getAbsolutePath().length();
+        }
+
+    }
+
+    /**
+     * Registers the directories of the models broadcast by the model repository of a given build.
+     */
+    private final class Listener {
+
+        private final FixedRequestAttributes build;
+
+        private Listener(FixedRequestAttributes build) {
+            this.build = build;
+        }
+
+        @Subscribe
+        public void eclipseGradleBuildUpdated(EclipseGradleBuildUpdateEvent event) {
+            update(this.build, OmniEclipseGradleBuild.class, registrationsOf(this.build, event.getEclipseGradleBuild().getRootEclipseProject()));
+        }
+
+        @Subscribe
+        public void gradleBuildUpdated(GradleBuildUpdateEvent event) {
+            update(this.build, OmniGradleBuild.class, registrationsOf(this.build, event.getGradleBuild().getRootProject()));
+        }
+
+        @Subscribe
+        public void gradleBuildStructureUpdated(GradleBuildStructureUpdateEvent event) {
+            update(this.build, OmniGradleBuildStructure.class, registrationsOf(this.build, event.getGradleBuildStructure().getRootProject()));
+        }
+
+    }
+
+}
@@ -22,7 +22,6 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 import com.gradleware.tooling.toolingmodel.HierarchicalModel;
 import org.gradle.api.specs.Spec;
@@ -31,22 +30,24 @@ import java.util.Comparator;
 import java.util.List;
 
 /**
- * Helper class to manage hierarchies.
+ * Helper class to manage hierarchies. Instances are immutable: the parent and the children are passed on creation, hence a hierarchy is created from the root
+ * downwards, with each node creating its children and passing itself as their parent.
  *
  * @param <T> the model type
  * @author Etienne Studer
  */
 final class HierarchyHelper<T extends HierarchicalModel<T>> {
 
-    private T current;
-    private T parent;
-    private final List<T> children;
+    private final T current;
+    private final T parent;
+    private final ImmutableList<T> children;
     private final Comparator<? super T> comparator;
 
-    HierarchyHelper(T current, Comparator<? super T> comparator) {
-        this.current = current;
-        this.children = Lists.newArrayList();
+    HierarchyHelper(T current, T parent, List<? extends T> children, Comparator<? super T> comparator) {
+        this.current = Preconditions.checkNotNull(current);
+        this.parent = parent;
         this.comparator = Preconditions.checkNotNull(comparator);
+        this.children = sort(ImmutableList.<T>copyOf(children));
     }
 
     public T getRoot() {
@@ -61,16 +62,8 @@ final class HierarchyHelper<T extends HierarchicalModel<T>> {
         return this.parent;
     }
 
-    void setParent(T parent) {
-        this.parent = parent;
-    }
-
     ImmutableList<T> getChildren() {
-        return sort(this.children);
-    }
-
-    void addChild(T child) {
-        this.children.add(child);
+        return this.children;
     }
 
     ImmutableList<T> getAll() {
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
+import com.gradleware.tooling.toolingclient.instrumentation.TimingHistogram;
+import com.gradleware.tooling.toolingmodel.repository.ModelCacheStatistics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the cache hits, cache misses, and load times per model type of a model repository. Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+final class ModelCacheStatisticsRecorder {
+
+    private final ConcurrentMap<Class<?>, ModelTypeStatistics> statistics;
+
+    ModelCacheStatisticsRecorder() {
+        this.statistics = Maps.newConcurrentMap();
+    }
+
+    void recordHit(Class<?> modelType) {
+        getStatistics(modelType).hitCount.incrementAndGet();
+    }
+
+    void recordMiss(Class<?> modelType) {
+        getStatistics(modelType).missCount.incrementAndGet();
+    }
+
+    void recordLoad(Class<?> modelType, long loadNanos) {
+        ModelTypeStatistics modelTypeStatistics = getStatistics(modelType);
+        modelTypeStatistics.loadTimes.record(loadNanos, TimeUnit.NANOSECONDS);
+        modelTypeStatistics.loadedAtMillis.set(System.currentTimeMillis());
+    }
+
+    private ModelTypeStatistics getStatistics(Class<?> modelType) {
+        ModelTypeStatistics modelTypeStatistics = this.statistics.get(modelType);
+        if (modelTypeStatistics == null) {
+            ModelTypeStatistics newStatistics = new ModelTypeStatistics();
+            modelTypeStatistics = this.statistics.putIfAbsent(modelType, newStatistics);
+            if (modelTypeStatistics == null) {
+                modelTypeStatistics = newStatistics;
+            }
+        }
+        return modelTypeStatistics;
+    }
+
+    /**
+     * Creates a snapshot of the statistics of all model types recorded so far.
+     *
+     * @param projectDir the project directory of the model repository
+     * @param cachedModels the currently cached models by model type
+     * @return the statistics per model type
+     */
+    ImmutableList<ModelCacheStatistics> snapshot(String projectDir, Map<Class<?>, Object> cachedModels) {
+        long now = System.currentTimeMillis();
+        ImmutableList.Builder<ModelCacheStatistics> snapshot = ImmutableList.builder();
+        for (Map.Entry<Class<?>, ModelTypeStatistics> entry : this.statistics.entrySet()) {
+            ModelTypeStatistics modelTypeStatistics = entry.getValue();
+            TimingHistogram loadTimes = modelTypeStatistics.loadTimes;
+            Object cachedModel = cachedModels.get(entry.getKey());
+            boolean cached = cachedModel != null;
+            snapshot.add(new ModelCacheStatistics(
+                    projectDir,
+                    entry.getKey().getName(),
+                    modelTypeStatistics.hitCount.get(),
+                    modelTypeStatistics.missCount.get(),
+                    loadTimes.getCount(),
+                    loadTimes.getTotal(TimeUnit.MILLISECONDS),
+                    loadTimes.getMax(TimeUnit.MILLISECONDS),
+                    Longs.toArray(loadTimes.getBucketCounts()),
+                    cached,
+                    cached ? Math.max(0, now - modelTypeStatistics.loadedAtMillis.get()) : -1,
+                    cached ? ObjectSizeEstimator.estimate(cachedModel) : 0));
+        }
+        return snapshot.build();
+    }
+
+    /**
+     * The mutable statistics of a single model type.
+     */
+    private static final class ModelTypeStatistics {
+
+        private final AtomicLong hitCount = new AtomicLong();
+        private final AtomicLong missCount = new AtomicLong();
+        private final AtomicLong loadedAtMillis = new AtomicLong();
+        private final TimingHistogram loadTimes = new TimingHistogram();
+
+    }
+
+}
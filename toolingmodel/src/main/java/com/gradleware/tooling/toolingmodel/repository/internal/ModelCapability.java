@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+/**
+ * Enumerates the model getters that are not available in all Gradle versions and that are therefore probed during the conversion of the Tooling API models.
+ *
+ * @author Etienne Studer
+ */
+enum ModelCapability {
+
+    /**
+     * BasicGradleProject#getProjectDirectory, available in Gradle versions >= 1.8.
+     */
+    BASIC_GRADLE_PROJECT_DIRECTORY,
+
+    /**
+     * GradleProject#getProjectDirectory, available in Gradle versions >= 2.4.
+     */
+    GRADLE_PROJECT_DIRECTORY,
+
+    /**
+     * GradleProject#getBuildDirectory, available in Gradle versions >= 2.0.
+     */
+    GRADLE_PROJECT_BUILD_DIRECTORY,
+
+    /**
+     * GradleProject#getBuildScript, available in Gradle versions >= 1.8.
+     */
+    GRADLE_PROJECT_BUILD_SCRIPT,
+
+    /**
+     * Task#isPublic, available in Gradle versions >= 2.1.
+     */
+    TASK_IS_PUBLIC,
+
+    /**
+     * Task#getGroup, available in Gradle versions >= 2.5.
+     */
+    TASK_GROUP,
+
+    /**
+     * TaskSelector#isPublic, available in Gradle versions >= 2.1.
+     */
+    TASK_SELECTOR_IS_PUBLIC,
+
+    /**
+     * EclipseProject#getProjectNatures, available in Gradle versions >= 2.9.
+     */
+    ECLIPSE_PROJECT_NATURES,
+
+    /**
+     * EclipseProject#getBuildCommands, available in Gradle versions >= 2.9.
+     */
+    ECLIPSE_BUILD_COMMANDS,
+
+    /**
+     * EclipseProject#getJavaSourceSettings, available in Gradle versions >= 2.10.
+     */
+    ECLIPSE_JAVA_SOURCE_SETTINGS,
+
+    /**
+     * EclipseProjectDependency#isExported, available in Gradle versions >= 2.5.
+     */
+    ECLIPSE_PROJECT_DEPENDENCY_IS_EXPORTED,
+
+    /**
+     * ExternalDependency#getGradleModuleVersion, available in Gradle versions >= 1.1.
+     */
+    EXTERNAL_DEPENDENCY_MODULE_VERSION,
+
+    /**
+     * ExternalDependency#isExported, available in Gradle versions >= 2.5.
+     */
+    EXTERNAL_DEPENDENCY_IS_EXPORTED
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Set;
+
+/**
+ * Remembers which of the optional model getters are not supported by the target Gradle version. Once a getter has failed with an
+ * {@link org.gradle.tooling.model.UnsupportedMethodException}, it is skipped for all the remaining model nodes that are converted with the same registry, rather than throwing
+ * and swallowing the same exception once per node.
+ * <p/>
+ * A registry must only be shared between conversions of models that stem from the same target Gradle version. Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+final class ModelCapabilityRegistry {
+
+    private final Set<ModelCapability> unsupportedCapabilities;
+
+    private ModelCapabilityRegistry() {
+        this.unsupportedCapabilities = Sets.newSetFromMap(Maps.<ModelCapability, Boolean>newConcurrentMap());
+    }
+
+    /**
+     * Returns whether the given capability has not yet been found to be unsupported.
+     *
+     * @param capability the capability to check
+     * @return {@code true} if the getter of the capability should be invoked
+     */
+    boolean isSupported(ModelCapability capability) {
+        return !this.unsupportedCapabilities.contains(Preconditions.checkNotNull(capability));
+    }
+
+    /**
+     * Marks the given capability as not supported by the target Gradle version.
+     *
+     * @param capability the unsupported capability
+     */
+    void markUnsupported(ModelCapability capability) {
+        this.unsupportedCapabilities.add(Preconditions.checkNotNull(capability));
+    }
+
+    /**
+     * Creates a new registry in which all capabilities are considered to be supported until proven otherwise.
+     *
+     * @return the new instance
+     */
+    static ModelCapabilityRegistry create() {
+        return new ModelCapabilityRegistry();
+    }
+
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gradleware.tooling.toolingclient.RequestPriority;
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy;
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProgressListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Speculatively loads the models that are likely to be requested next from the model repositories of one or more builds. The prefetcher learns from the sequences in which
+ * the model types are accessed per build: for each access, it remembers which other model types are accessed shortly afterwards in the same build. Once a model type has been
+ * accessed a few times and has been followed by the same model type often enough, an access of the former triggers a background load of the latter in the same build with
+ * {@link RequestPriority#PREFETCH} priority, unless it is already cached. What has been learned from one build is applied to all builds sharing the prefetcher.
+ * <p/>
+ * A prefetched model counts as a hit if it is accessed before it expires, and as wasted if it expires unused, is force-reloaded, or fails to load. Once enough prefetches have
+ * been resolved and the hit rate drops below the minimum, the prefetcher turns itself off for good and cancels the prefetches still in progress.
+ * <p/>
+ * Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+final class ModelPrefetcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ModelPrefetcher.class);
+
+    // the number of preceding accesses that are credited with being followed by a given access
+    private static final int HISTORY_SIZE = 3;
+
+    // accesses further apart than this are not considered to belong to the same sequence
+    private static final long SEQUENCE_WINDOW_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    // the number of times a model type must have been accessed before it triggers prefetches
+    private static final int MIN_OBSERVATIONS = 2;
+
+    // the fraction of accesses of a model type that must have been followed by another model type for the latter to be prefetched
+    private static final double MIN_CONFIDENCE = 0.5;
+
+    // a prefetched model that is not accessed within this time is considered wasted
+    private static final long UNUSED_AFTER_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    // the number of resolved prefetches after which the hit rate is checked
+    private static final int MIN_RESOLVED_PREFETCHES = 8;
+
+    // the hit rate below which the prefetcher turns itself off
+    private static final double MIN_HIT_RATE = 0.25;
+
+    private final Ticker ticker;
+    private final Executor executor;
+    private final CancellationTokenSource cancellationTokenSource;
+    private final Map<Object, BuildAccesses> builds;
+    private final Map<Class<?>, Integer> occurrences;
+    private final Map<Class<?>, Map<Class<?>, Integer>> successors;
+    private boolean enabled;
+    private long issuedCount;
+    private long hitCount;
+    private long wastedCount;
+
+    ModelPrefetcher() {
+        this(Ticker.systemTicker(), createExecutor());
+    }
+
+    ModelPrefetcher(Ticker ticker, Executor executor) {
+        this.ticker = Preconditions.checkNotNull(ticker);
+        this.executor = Preconditions.checkNotNull(executor);
+        this.cancellationTokenSource = GradleConnector.newCancellationTokenSource();
+        this.builds = Maps.newHashMap();
+        this.occurrences = Maps.newHashMap();
+        this.successors = Maps.newHashMap();
+        this.enabled = true;
+    }
+
+    private static Executor createExecutor() {
+        // a single daemon thread that terminates when idle, such that the prefetcher does not need to be shut down explicitly
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("model-prefetcher-%d").build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Records that the given model type has been requested by a client of the model repository of the given build, and issues the prefetches predicted from the access.
+     *
+     * @param build the key identifying the build, typically its fixed request attributes
+     * @param modelLoader the loader through which the models of the build are prefetched
+     * @param modelType the accessed model type
+     * @param fetchStrategy the fetch strategy with which the model type was accessed
+     */
+    void recordAccess(Object build, ModelLoader modelLoader, Class<?> modelType, FetchStrategy fetchStrategy) {
+        Preconditions.checkNotNull(build);
+        Preconditions.checkNotNull(modelLoader);
+        Preconditions.checkNotNull(modelType);
+        Preconditions.checkNotNull(fetchStrategy);
+
+        BuildAccesses buildAccesses;
+        List<Class<?>> prefetches;
+        synchronized (this) {
+            if (!this.enabled) {
+                return;
+            }
+
+            buildAccesses = this.builds.get(build);
+            if (buildAccesses == null) {
+                buildAccesses = new BuildAccesses(modelLoader);
+                this.builds.put(build, buildAccesses);
+            }
+
+            long now = currentTimeMillis();
+            expireUnusedPrefetches(now);
+            resolvePrefetch(buildAccesses, modelType, fetchStrategy);
+            if (!this.enabled) {
+                return;
+            }
+
+            // predict from the previous accesses only, such that the current access does not dilute the confidence
+            prefetches = predict(buildAccesses, modelType);
+            learn(buildAccesses, modelType, now);
+            for (Class<?> prefetch : prefetches) {
+                buildAccesses.outstandingPrefetches.put(prefetch, now);
+                this.issuedCount++;
+            }
+        }
+
+        for (Class<?> prefetch : prefetches) {
+            issuePrefetch(buildAccesses, prefetch);
+        }
+    }
+
+    private void expireUnusedPrefetches(long now) {
+        for (BuildAccesses buildAccesses : this.builds.values()) {
+            Iterator<Map.Entry<Class<?>, Long>> iterator = buildAccesses.outstandingPrefetches.entrySet().iterator();
+            while (iterator.hasNext()) {
+                if (now - iterator.next().getValue() > UNUSED_AFTER_MILLIS) {
+                    iterator.remove();
+                    this.wastedCount++;
+                }
+            }
+        }
+        checkHitRate();
+    }
+
+    private void resolvePrefetch(BuildAccesses buildAccesses, Class<?> modelType, FetchStrategy fetchStrategy) {
+        if (buildAccesses.outstandingPrefetches.remove(modelType) != null) {
+            // a force-reload discards the prefetched model without making use of it
+            if (fetchStrategy == FetchStrategy.FORCE_RELOAD) {
+                this.wastedCount++;
+            } else {
+                this.hitCount++;
+            }
+            checkHitRate();
+        }
+    }
+
+    private void learn(BuildAccesses buildAccesses, Class<?> modelType, long now) {
+        // credit the recent accesses of other model types in the same build with being followed by this model type, at most once per access
+        Iterator<Access> iterator = buildAccesses.history.iterator();
+        while (iterator.hasNext()) {
+            Access access = iterator.next();
+            if (now - access.timeMillis > SEQUENCE_WINDOW_MILLIS) {
+                iterator.remove();
+            } else if (access.modelType != modelType && access.creditedSuccessors.add(modelType)) {
+                Map<Class<?>, Integer> successorCounts = this.successors.get(access.modelType);
+                if (successorCounts == null) {
+                    successorCounts = Maps.newHashMap();
+                    this.successors.put(access.modelType, successorCounts);
+                }
+                successorCounts.put(modelType, increment(successorCounts.get(modelType)));
+            }
+        }
+
+        this.occurrences.put(modelType, increment(this.occurrences.get(modelType)));
+        buildAccesses.history.addLast(new Access(modelType, now));
+        if (buildAccesses.history.size() > HISTORY_SIZE) {
+            buildAccesses.history.removeFirst();
+        }
+    }
+
+    private List<Class<?>> predict(BuildAccesses buildAccesses, Class<?> modelType) {
+        Integer observations = this.occurrences.get(modelType);
+        Map<Class<?>, Integer> successorCounts = this.successors.get(modelType);
+        if (observations == null || observations < MIN_OBSERVATIONS || successorCounts == null) {
+            return ImmutableList.of();
+        }
+
+        ImmutableList.Builder<Class<?>> predictions = ImmutableList.builder();
+        for (Map.Entry<Class<?>, Integer> successor : successorCounts.entrySet()) {
+            Class<?> candidate = successor.getKey();
+            if ((double) successor.getValue() / observations >= MIN_CONFIDENCE && !buildAccesses.outstandingPrefetches.containsKey(candidate)
+                    && !buildAccesses.modelLoader.isCached(candidate)) {
+                predictions.add(candidate);
+            }
+        }
+        return predictions.build();
+    }
+
+    private void issuePrefetch(final BuildAccesses buildAccesses, final Class<?> modelType) {
+        this.executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                prefetch(buildAccesses, modelType);
+            }
+        });
+    }
+
+    private void prefetch(BuildAccesses buildAccesses, Class<?> modelType) {
+        synchronized (this) {
+            if (!this.enabled || !buildAccesses.outstandingPrefetches.containsKey(modelType)) {
+                return;
+            }
+        }
+
+        try {
+            TransientRequestAttributes transientRequestAttributes = new TransientRequestAttributes(false, null, null, null, ImmutableList.<ProgressListener>of(),
+                    ImmutableList.<org.gradle.tooling.events.ProgressListener>of(), this.cancellationTokenSource.token(), RequestPriority.PREFETCH);
+            buildAccesses.modelLoader.load(modelType, transientRequestAttributes);
+        } catch (Exception e) {
+            LOG.debug("Prefetching model " + modelType.getSimpleName() + " failed.", e);
+            synchronized (this) {
+                if (buildAccesses.outstandingPrefetches.remove(modelType) != null) {
+                    this.wastedCount++;
+                    checkHitRate();
+                }
+            }
+        }
+    }
+
+    private void checkHitRate() {
+        long resolved = this.hitCount + this.wastedCount;
+        if (this.enabled && resolved >= MIN_RESOLVED_PREFETCHES && (double) this.hitCount / resolved < MIN_HIT_RATE) {
+            LOG.debug("Disabling model prefetching, only " + this.hitCount + " of " + resolved + " prefetched models have been used.");
+            this.enabled = false;
+            this.builds.clear();
+            this.cancellationTokenSource.cancel();
+        }
+    }
+
+    private long currentTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.ticker.read());
+    }
+
+    private static Integer increment(Integer count) {
+        return count == null ? 1 : count + 1;
+    }
+
+    /**
+     * Returns whether the prefetcher is still enabled, i.e. has not turned itself off due to a low hit rate.
+     *
+     * @return {@code true} if the prefetcher is enabled
+     */
+    synchronized boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Returns the number of prefetches issued so far.
+     *
+     * @return the number of issued prefetches
+     */
+    synchronized long getIssuedCount() {
+        return this.issuedCount;
+    }
+
+    /**
+     * Returns the number of prefetched models that have been accessed.
+     *
+     * @return the number of hits
+     */
+    synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of prefetched models that have expired unused, have been force-reloaded, or have failed to load.
+     *
+     * @return the number of wasted prefetches
+     */
+    synchronized long getWastedCount() {
+        return this.wastedCount;
+    }
+
+    /**
+     * Returns the fraction of the resolved prefetches that have been hits.
+     *
+     * @return the hit rate, {@code 1.0} if no prefetch has been resolved yet
+     */
+    synchronized double getHitRate() {
+        long resolved = this.hitCount + this.wastedCount;
+        return resolved == 0 ? 1.0 : (double) this.hitCount / resolved;
+    }
+
+    /**
+     * Loads the models of a build on behalf of the prefetcher.
+     */
+    interface ModelLoader {
+
+        /**
+         * Returns whether the model of the given type is already cached.
+         *
+         * @param modelType the model type
+         * @return {@code true} if the model is cached
+         */
+        boolean isCached(Class<?> modelType);
+
+        /**
+         * Loads the model of the given type into the cache, unless it is already cached.
+         *
+         * @param modelType the model type
+         * @param transientRequestAttributes the transient request attributes to load the model with
+         */
+        void load(Class<?> modelType, TransientRequestAttributes transientRequestAttributes);
+
+    }
+
+    /**
+     * The recent accesses and the outstanding prefetches of a single build.
+     */
+    private static final class BuildAccesses {
+
+        private final ModelLoader modelLoader;
+        private final LinkedList<Access> history;
+        private final Map<Class<?>, Long> outstandingPrefetches;
+
+        private BuildAccesses(ModelLoader modelLoader) {
+            this.modelLoader = modelLoader;
+            this.history = Lists.newLinkedList();
+            this.outstandingPrefetches = Maps.newHashMap();
+        }
+
+    }
+
+    /**
+     * An access of a model type, together with the model types that have already been credited with following it.
+     */
+    private static final class Access {
+
+        private final Class<?> modelType;
+        private final long timeMillis;
+        private final Set<Class<?>> creditedSuccessors;
+
+        private Access(Class<?> modelType, long timeMillis) {
+            this.modelType = modelType;
+            this.timeMillis = timeMillis;
+            this.creditedSuccessors = Sets.newHashSet();
+        }
+
+    }
+
+}
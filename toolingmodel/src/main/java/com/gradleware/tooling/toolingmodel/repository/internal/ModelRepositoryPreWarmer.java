@@ -0,0 +1,213 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.eventbus.EventBus;
+import com.gradleware.tooling.toolingclient.ModelRequest;
+import com.gradleware.tooling.toolingclient.RequestPriority;
+import com.gradleware.tooling.toolingclient.ToolingClient;
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy;
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepository;
+import com.gradleware.tooling.toolingmodel.repository.PreWarmEvent;
+import com.gradleware.tooling.toolingmodel.repository.PreWarmPolicy;
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProgressListener;
+import org.gradle.tooling.model.build.BuildEnvironment;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pre-warms a model repository in the background according to a {@link PreWarmPolicy}. Pre-warming fetches the build environment through the model repository with background
+ * priority, such that the connection is opened, the daemon is started, and the capabilities of the target Gradle version are resolved and cached. Keep-alive requests fetch
+ * the build environment directly through the tooling client with prefetch priority, such that they neither touch the cache nor broadcast model updates.
+ * <p/>
+ * The progress of the pre-warming is broadcast as {@link PreWarmEvent} instances on the event bus of the model repository.
+ *
+ * @author Etienne Studer
+ */
+final class ModelRepositoryPreWarmer {
+
+    private final FixedRequestAttributes fixedRequestAttributes;
+    private final ModelRepository modelRepository;
+    private final ToolingClient toolingClient;
+    private final EventBus eventBus;
+    private final ScheduledExecutorService executor;
+    private PreWarming preWarming;
+
+    ModelRepositoryPreWarmer(FixedRequestAttributes fixedRequestAttributes, ModelRepository modelRepository, ToolingClient toolingClient, EventBus eventBus,
+                             ScheduledExecutorService executor) {
+        this.fixedRequestAttributes = Preconditions.checkNotNull(fixedRequestAttributes);
+        this.modelRepository = Preconditions.checkNotNull(modelRepository);
+        this.toolingClient = Preconditions.checkNotNull(toolingClient);
+        this.eventBus = Preconditions.checkNotNull(eventBus);
+        this.executor = Preconditions.checkNotNull(executor);
+    }
+
+    /**
+     * Starts pre-warming according to the given policy, unless pre-warming is still in progress or the daemon is being kept alive.
+     *
+     * @param policy the pre-warm policy
+     */
+    synchronized void start(PreWarmPolicy policy) {
+        Preconditions.checkNotNull(policy);
+        if (!policy.isEnabled() || (this.preWarming != null && this.preWarming.isActive())) {
+            return;
+        }
+
+        this.preWarming = new PreWarming(policy);
+        this.preWarming.start();
+    }
+
+    /**
+     * Cancels the pre-warming in progress and stops keeping the daemon alive.
+     */
+    synchronized void cancel() {
+        if (this.preWarming != null) {
+            this.preWarming.cancel();
+            this.preWarming = null;
+        }
+    }
+
+    private void post(PreWarmEvent.State state, boolean keepAlive, long startedMillis, Exception failure) {
+        long duration = state == PreWarmEvent.State.STARTED ? 0 : System.currentTimeMillis() - startedMillis;
+        this.eventBus.post(new PreWarmEvent(this.fixedRequestAttributes, state, keepAlive, duration, failure));
+    }
+
+    private TransientRequestAttributes createTransientRequestAttributes(CancellationTokenSource cancellationTokenSource, RequestPriority priority) {
+        return new TransientRequestAttributes(false, null, null, null, ImmutableList.<ProgressListener>of(), ImmutableList.<org.gradle.tooling.events.ProgressListener>of(),
+                cancellationTokenSource.token(), priority);
+    }
+
+    /**
+     * A single pre-warming run, consisting of the initial fetch and the optional keep-alive requests.
+     */
+    private final class PreWarming {
+
+        private final PreWarmPolicy policy;
+        private final CancellationTokenSource cancellationTokenSource;
+        private Future<?> initialFetch;
+        private ScheduledFuture<?> keepAlive;
+        private boolean initialFetchStarted;
+        private boolean initialFetchCompleted;
+
+        private PreWarming(PreWarmPolicy policy) {
+            this.policy = policy;
+            this.cancellationTokenSource = GradleConnector.newCancellationTokenSource();
+        }
+
+        private void start() {
+            this.initialFetch = ModelRepositoryPreWarmer.this.executor.submit(new Runnable() {
+
+                @Override
+                public void run() {
+                    fetchBuildEnvironment();
+                }
+            });
+        }
+
+        private void fetchBuildEnvironment() {
+            synchronized (ModelRepositoryPreWarmer.this) {
+                if (isCancelled()) {
+                    return;
+                }
+                this.initialFetchStarted = true;
+            }
+
+            long started = System.currentTimeMillis();
+            post(PreWarmEvent.State.STARTED, false, started, null);
+            try {
+                TransientRequestAttributes transientRequestAttributes = createTransientRequestAttributes(this.cancellationTokenSource, RequestPriority.BACKGROUND);
+                ModelRepositoryPreWarmer.this.modelRepository.fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED);
+                post(PreWarmEvent.State.SUCCEEDED, false, started, null);
+                scheduleKeepAlive();
+            } catch (Exception e) {
+                post(isCancelled() ? PreWarmEvent.State.CANCELLED : PreWarmEvent.State.FAILED, false, started, e);
+            } finally {
+                synchronized (ModelRepositoryPreWarmer.this) {
+                    this.initialFetchCompleted = true;
+                }
+            }
+        }
+
+        private void scheduleKeepAlive() {
+            if (!this.policy.isKeepAlive()) {
+                return;
+            }
+
+            long interval = this.policy.getKeepAliveInterval(TimeUnit.MILLISECONDS);
+            synchronized (ModelRepositoryPreWarmer.this) {
+                if (!isCancelled()) {
+                    this.keepAlive = ModelRepositoryPreWarmer.this.executor.scheduleWithFixedDelay(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            keepAlive();
+                        }
+                    }, interval, interval, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        private void keepAlive() {
+            long started = System.currentTimeMillis();
+            post(PreWarmEvent.State.STARTED, true, started, null);
+            try {
+                ModelRequest<BuildEnvironment> request = ModelRepositoryPreWarmer.this.toolingClient.newModelRequest(BuildEnvironment.class);
+                ModelRepositoryPreWarmer.this.fixedRequestAttributes.apply(request);
+                createTransientRequestAttributes(this.cancellationTokenSource, RequestPriority.PREFETCH).apply(request);
+                request.executeAndWait();
+                post(PreWarmEvent.State.SUCCEEDED, true, started, null);
+            } catch (Exception e) {
+                // a failed keep-alive request does not stop the subsequent ones
+                post(isCancelled() ? PreWarmEvent.State.CANCELLED : PreWarmEvent.State.FAILED, true, started, e);
+            }
+        }
+
+        private boolean isCancelled() {
+            return this.cancellationTokenSource.token().isCancellationRequested();
+        }
+
+        private boolean isActive() {
+            return !this.initialFetchCompleted || this.keepAlive != null;
+        }
+
+        private void cancel() {
+            this.cancellationTokenSource.cancel();
+            this.initialFetch.cancel(false);
+            if (!this.initialFetchStarted) {
+                // the initial fetch never started, hence nobody else reports the cancellation
+                this.initialFetchCompleted = true;
+                post(PreWarmEvent.State.CANCELLED, false, System.currentTimeMillis(), null);
+            }
+            if (this.keepAlive != null) {
+                this.keepAlive.cancel(false);
+                this.keepAlive = null;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.gradleware.tooling.toolingmodel.OmniBuildEnvironment;
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocationsContainer;
+import com.gradleware.tooling.toolingmodel.OmniEclipseGradleBuild;
+import com.gradleware.tooling.toolingmodel.OmniGradleBuild;
+import com.gradleware.tooling.toolingmodel.OmniGradleBuildStructure;
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy;
+import com.gradleware.tooling.toolingmodel.repository.ModelRepository;
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes;
+
+/**
+ * Maps the model types served by a {@link ModelRepository} to the methods fetching them, for the callers that deal with model types generically.
+ *
+ * @author Etienne Studer
+ */
+final class ModelTypes {
+
+    private static final ImmutableSet<Class<?>> SUPPORTED_MODEL_TYPES = ImmutableSet.<Class<?>>of(OmniBuildEnvironment.class, OmniGradleBuildStructure.class, OmniGradleBuild.class,
+            OmniEclipseGradleBuild.class, OmniBuildInvocationsContainer.class);
+
+    private ModelTypes() {
+    }
+
+    /**
+     * Returns whether the given model type can be fetched from a model repository.
+     *
+     * @param modelType the model type
+     * @return {@code true} if the model type is served by model repositories
+     */
+    static boolean isSupported(Class<?> modelType) {
+        return SUPPORTED_MODEL_TYPES.contains(modelType);
+    }
+
+    /**
+     * Fetches the model of the given type from the given model repository.
+     *
+     * @param modelRepository the model repository to fetch the model from
+     * @param modelType the model type
+     * @param transientRequestAttributes the transient request attributes
+     * @param fetchStrategy the fetch strategy
+     * @param <T> the model type
+     * @return the model, can be null if the fetch strategy is {@link FetchStrategy#FROM_CACHE_ONLY}
+     * @throws IllegalArgumentException if the model type is not supported
+     */
+    static <T> T fetch(ModelRepository modelRepository, Class<T> modelType, TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy) {
+        Preconditions.checkNotNull(modelRepository);
+        Preconditions.checkNotNull(modelType);
+
+        Object model;
+        if (modelType == OmniBuildEnvironment.class) {
+            model = modelRepository.fetchBuildEnvironment(transientRequestAttributes, fetchStrategy);
+        } else if (modelType == OmniGradleBuildStructure.class) {
+            model = modelRepository.fetchGradleBuildStructure(transientRequestAttributes, fetchStrategy);
+        } else if (modelType == OmniGradleBuild.class) {
+            model = modelRepository.fetchGradleBuild(transientRequestAttributes, fetchStrategy);
+        } else if (modelType == OmniEclipseGradleBuild.class) {
+            model = modelRepository.fetchEclipseGradleBuild(transientRequestAttributes, fetchStrategy);
+        } else if (modelType == OmniBuildInvocationsContainer.class) {
+            model = modelRepository.fetchBuildInvocations(transientRequestAttributes, fetchStrategy);
+        } else {
+            throw new IllegalArgumentException("Unsupported model type: " + modelType.getName());
+        }
+        return modelType.cast(model);
+    }
+
+}
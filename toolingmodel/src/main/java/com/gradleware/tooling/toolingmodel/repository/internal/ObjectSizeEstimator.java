@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.Buffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Estimates the number of bytes retained by an object graph by walking it reflectively, assuming a 64-bit JVM with compressed object references. Classes, class loaders, threads
+ * and enum constants are considered shared and are neither counted nor traversed, and neither are buffers and the off-heap store, which hold their content outside of the heap. Fields that cannot be accessed reflectively contribute their shallow size only.
+ *
+ * @author Etienne Studer
+ */
+final class ObjectSizeEstimator {
+
+    private static final int OBJECT_HEADER_SIZE = 12;
+    private static final int ARRAY_HEADER_SIZE = 16;
+    private static final int REFERENCE_SIZE = 4;
+    private static final int ALIGNMENT = 8;
+
+    private static final ConcurrentMap<Class<?>, ClassLayout> LAYOUTS = Maps.newConcurrentMap();
+
+    private ObjectSizeEstimator() {
+    }
+
+    /**
+     * Estimates the number of bytes retained by the given object and all objects reachable from it.
+     *
+     * @param root the root of the object graph, can be null
+     * @return the estimated size in bytes
+     */
+    static long estimate(Object root) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        Deque<Object> pending = new ArrayDeque<Object>();
+        if (root != null) {
+            pending.push(root);
+        }
+
+        long size = 0;
+        while (!pending.isEmpty()) {
+            Object current = pending.pop();
+            if (isShared(current) || !visited.add(current)) {
+                continue;
+            }
+
+            Class<?> type = current.getClass();
+            if (type.isArray()) {
+                size += arraySize(current, pending);
+            } else {
+                ClassLayout layout = getLayout(type);
+                size += layout.shallowSize;
+                for (Field field : layout.referenceFields) {
+                    Object value = readField(field, current);
+                    if (value != null) {
+                        pending.push(value);
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    private static boolean isShared(Object object) {
+        // buffers hold their content off the heap and the off-heap store is shared by all model repositories
+        return object instanceof Class || object instanceof ClassLoader || object instanceof Thread || object instanceof Enum || object instanceof Buffer
+                || object instanceof OffHeapStore;
+    }
+
+    private static long arraySize(Object array, Deque<Object> pending) {
+        Class<?> componentType = array.getClass().getComponentType();
+        int length = Array.getLength(array);
+        if (!componentType.isPrimitive()) {
+            for (Object element : (Object[]) array) {
+                if (element != null) {
+                    pending.push(element);
+                }
+            }
+        }
+        return align(ARRAY_HEADER_SIZE + (long) length * fieldSize(componentType));
+    }
+
+    private static Object readField(Field field, Object target) {
+        try {
+            return field.get(target);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static ClassLayout getLayout(Class<?> type) {
+        ClassLayout layout = LAYOUTS.get(type);
+        if (layout == null) {
+            layout = ClassLayout.of(type);
+            LAYOUTS.putIfAbsent(type, layout);
+        }
+        return layout;
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else if (type == byte.class || type == boolean.class) {
+            return 1;
+        } else {
+            return REFERENCE_SIZE;
+        }
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * The shallow size and the accessible reference fields of a class, including the fields declared by its super classes.
+     */
+    private static final class ClassLayout {
+
+        private final long shallowSize;
+        private final ImmutableList<Field> referenceFields;
+
+        private ClassLayout(long shallowSize, ImmutableList<Field> referenceFields) {
+            this.shallowSize = shallowSize;
+            this.referenceFields = referenceFields;
+        }
+
+        private static ClassLayout of(Class<?> type) {
+            long size = OBJECT_HEADER_SIZE;
+            ImmutableList.Builder<Field> referenceFields = ImmutableList.builder();
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    size += fieldSize(field.getType());
+                    if (!field.getType().isPrimitive() && makeAccessible(field)) {
+                        referenceFields.add(field);
+                    }
+                }
+            }
+            return new ClassLayout(align(size), referenceFields.build());
+        }
+
+        private static boolean makeAccessible(Field field) {
+            try {
+                field.setAccessible(true);
+                return true;
+            } catch (RuntimeException e) {
+                // the field is not accessible, e.g. because of a security manager or module boundaries
+                return false;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Stores byte blocks outside of the Java heap, in direct byte buffers that are allocated as slabs of a fixed size and filled one after the other. The slabs never exceed
+ * the given memory budget: a block that does not fit into the budget is rejected and the caller keeps the data on the heap.
+ * <p/>
+ * A released block is accounted for immediately, and a slab is dropped from the store once all of its blocks have been released. Since models that were handed out before
+ * their blocks were released may still be read, the memory of a dropped slab is not reused but freed by the garbage collector once the last block referring to it has become
+ * unreachable.
+ * <p/>
+ * Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+final class OffHeapStore {
+
+    static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+    private final long budget;
+    private final int slabSize;
+    private Slab currentSlab;
+    private long reservedBytes;
+    private long usedBytes;
+    private long releasedBytes;
+    private long rejectedBytes;
+
+    OffHeapStore(long budget) {
+        this(budget, DEFAULT_SLAB_SIZE);
+    }
+
+    OffHeapStore(long budget, int slabSize) {
+        Preconditions.checkArgument(budget > 0, "Budget must be positive: %s", budget);
+        Preconditions.checkArgument(slabSize > 0, "Slab size must be positive: %s", slabSize);
+        this.budget = budget;
+        this.slabSize = slabSize;
+    }
+
+    /**
+     * Copies the given bytes into a new block, unless the block does not fit into the budget.
+     *
+     * @param bytes the bytes to store
+     * @return the new block, absent if the budget is exhausted
+     */
+    synchronized Optional<Block> store(byte[] bytes) {
+        Slab slab = this.currentSlab;
+        if (slab == null || slab.remaining() < bytes.length) {
+            // blocks larger than a slab get a slab of their own that is only dropped once the block is released, a slab never exceeds a budget smaller than the slab size
+            int capacity = Math.max((int) Math.min(this.slabSize, this.budget), bytes.length);
+            if (this.reservedBytes + capacity > this.budget) {
+                this.rejectedBytes += bytes.length;
+                return Optional.absent();
+            }
+            Slab previousSlab = slab;
+            slab = new Slab(ByteBuffer.allocateDirect(capacity));
+            this.reservedBytes += capacity;
+            this.currentSlab = slab;
+            if (previousSlab != null && previousSlab.liveBlocks == 0) {
+                this.reservedBytes -= previousSlab.buffer.capacity();
+            }
+        }
+
+        ByteBuffer content = slab.add(bytes);
+        this.usedBytes += bytes.length;
+        return Optional.of(new Block(this, slab, content));
+    }
+
+    private synchronized void release(Block block) {
+        this.usedBytes -= block.size;
+        this.releasedBytes += block.size;
+        Slab slab = block.slab;
+        slab.liveBlocks--;
+        if (slab.liveBlocks == 0 && slab != this.currentSlab) {
+            this.reservedBytes -= slab.buffer.capacity();
+        }
+    }
+
+    long getBudget() {
+        return this.budget;
+    }
+
+    /**
+     * Returns the capacity of the slabs held by this store, which never exceeds the budget.
+     *
+     * @return the reserved number of bytes
+     */
+    synchronized long getReservedBytes() {
+        return this.reservedBytes;
+    }
+
+    /**
+     * Returns the size of the blocks that have been stored and not yet released.
+     *
+     * @return the used number of bytes
+     */
+    synchronized long getUsedBytes() {
+        return this.usedBytes;
+    }
+
+    /**
+     * Returns the total size of the blocks that have been released since this store was created.
+     *
+     * @return the released number of bytes
+     */
+    synchronized long getReleasedBytes() {
+        return this.releasedBytes;
+    }
+
+    /**
+     * Returns the total size of the blocks that have been rejected because they did not fit into the budget.
+     *
+     * @return the rejected number of bytes
+     */
+    synchronized long getRejectedBytes() {
+        return this.rejectedBytes;
+    }
+
+    /**
+     * A direct byte buffer that blocks are appended to.
+     */
+    private static final class Slab {
+
+        private final ByteBuffer buffer;
+        private int liveBlocks;
+
+        private Slab(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private int remaining() {
+            return this.buffer.remaining();
+        }
+
+        private ByteBuffer add(byte[] bytes) {
+            int offset = this.buffer.position();
+            this.buffer.put(bytes);
+            ByteBuffer content = this.buffer.duplicate();
+            content.position(offset);
+            content.limit(offset + bytes.length);
+            this.liveBlocks++;
+            return content.slice().asReadOnlyBuffer();
+        }
+
+    }
+
+    /**
+     * A block of bytes stored outside of the Java heap.
+     */
+    static final class Block {
+
+        private final OffHeapStore store;
+        private final Slab slab;
+        private final ByteBuffer content;
+        private final int size;
+        private boolean released;
+
+        private Block(OffHeapStore store, Slab slab, ByteBuffer content) {
+            this.store = store;
+            this.slab = slab;
+            this.content = content;
+            this.size = content.remaining();
+        }
+
+        /**
+         * Returns a read-only view of the content of this block. The content can still be read after the block has been released.
+         *
+         * @return the new view, positioned at the start of the block
+         */
+        ByteBuffer getContent() {
+            return this.content.duplicate();
+        }
+
+        int size() {
+            return this.size;
+        }
+
+        /**
+         * Releases this block from the accounting of the store. Releasing a block more than once has no effect.
+         */
+        void release() {
+            synchronized (this.store) {
+                if (this.released) {
+                    return;
+                }
+                this.released = true;
+                this.store.release(this);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocations;
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocationsContainer;
+import com.gradleware.tooling.toolingmodel.OmniEclipseGradleBuild;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency;
+import com.gradleware.tooling.toolingmodel.OmniGradleModuleVersion;
+import com.gradleware.tooling.toolingmodel.Path;
+import com.gradleware.tooling.toolingmodel.util.Maybe;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves the long-lived, rarely read sections of cached models into an {@link OffHeapStore}: the strings of the tasks and task selectors of the
+ * {@link OmniBuildInvocationsContainer}, and the file paths and module versions of the external dependencies of the {@link OmniEclipseGradleBuild}. The moved models hold the
+ * same data and decode the strings on access.
+ * <p/>
+ * Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+final class OffHeapTier {
+
+    private final OffHeapStore store;
+    private final long coldAfterNanos;
+
+    OffHeapTier(OffHeapStore store, long coldAfter, TimeUnit unit) {
+        Preconditions.checkArgument(coldAfter >= 0, "Cold-after duration must not be negative: %s", coldAfter);
+        this.store = Preconditions.checkNotNull(store);
+        this.coldAfterNanos = unit.toNanos(coldAfter);
+    }
+
+    OffHeapStore getStore() {
+        return this.store;
+    }
+
+    long getColdAfter(TimeUnit unit) {
+        return unit.convert(this.coldAfterNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns whether a model that has last been accessed at the given time is cold.
+     *
+     * @param lastAccessNanos the time of the last access, as returned by {@link System#nanoTime()}
+     * @param nowNanos the current time, as returned by {@link System#nanoTime()}
+     * @return {@code true} if the model has not been accessed for at least the cold-after duration
+     */
+    boolean isCold(long lastAccessNanos, long nowNanos) {
+        return nowNanos - lastAccessNanos >= this.coldAfterNanos;
+    }
+
+    /**
+     * Creates a copy of the given model whose sections are held off the heap.
+     *
+     * @param model the model to move
+     * @return the moved model, absent if the model has no sections to move or if they do not fit into the budget of the store
+     */
+    Optional<MovedModel> move(Object model) {
+        if (model instanceof OmniBuildInvocationsContainer) {
+            return moveBuildInvocations((OmniBuildInvocationsContainer) model);
+        } else if (model instanceof OmniEclipseGradleBuild) {
+            return moveEclipseGradleBuild((OmniEclipseGradleBuild) model);
+        } else {
+            return Optional.absent();
+        }
+    }
+
+    private Optional<MovedModel> moveBuildInvocations(OmniBuildInvocationsContainer buildInvocationsContainer) {
+        // the build invocations of the projects of a build usually share one string table, which is moved only once
+        Map<StringTable, StringTable> movedTables = new IdentityHashMap<StringTable, StringTable>();
+        ImmutableList.Builder<OffHeapStore.Block> blocks = ImmutableList.builder();
+        ImmutableSortedMap.Builder<Path, OmniBuildInvocations> result = ImmutableSortedMap.orderedBy(Path.Comparator.INSTANCE);
+        for (Map.Entry<Path, OmniBuildInvocations> entry : buildInvocationsContainer.asMap().entrySet()) {
+            OmniBuildInvocations buildInvocations = entry.getValue();
+            if (buildInvocations instanceof DefaultOmniBuildInvocations && !((DefaultOmniBuildInvocations) buildInvocations).getStrings().getOffHeapBlock().isPresent()) {
+                StringTable strings = ((DefaultOmniBuildInvocations) buildInvocations).getStrings();
+                StringTable movedStrings = movedTables.get(strings);
+                if (movedStrings == null) {
+                    Optional<StringTable> moved = strings.moveOffHeap(this.store);
+                    if (!moved.isPresent()) {
+                        release(blocks.build());
+                        return Optional.absent();
+                    }
+                    movedStrings = moved.get();
+                    movedTables.put(strings, movedStrings);
+                    blocks.add(movedStrings.getOffHeapBlock().get());
+                }
+                buildInvocations = ((DefaultOmniBuildInvocations) buildInvocations).withStrings(movedStrings);
+            }
+            result.put(entry.getKey(), buildInvocations);
+        }
+
+        if (movedTables.isEmpty()) {
+            return Optional.absent();
+        }
+        return Optional.of(new MovedModel(DefaultOmniBuildInvocationsContainer.from(result.build()), blocks.build()));
+    }
+
+    private Optional<MovedModel> moveEclipseGradleBuild(OmniEclipseGradleBuild eclipseGradleBuild) {
+        // the paths of all projects of a build are collected into one string table, since most external dependencies are shared by many projects
+        StringTable.Builder strings = StringTable.builder();
+        Map<Path, ExternalDependencies.Builder> builders = Maps.newLinkedHashMap();
+        for (OmniEclipseProject project : eclipseGradleBuild.getRootEclipseProject().getAll()) {
+            List<OmniExternalDependency> externalDependencies = project.getExternalDependencies();
+            if (externalDependencies instanceof ExternalDependencies) {
+                return Optional.absent();
+            }
+            builders.put(project.getPath(), new ExternalDependencies.Builder(externalDependencies, strings));
+        }
+
+        StringTable paths = strings.build();
+        if (paths.size() == 0) {
+            return Optional.absent();
+        }
+        Optional<StringTable> movedStrings = paths.moveOffHeap(this.store);
+        if (!movedStrings.isPresent()) {
+            return Optional.absent();
+        }
+
+        Map<Path, List<OmniExternalDependency>> externalDependencies = Maps.newHashMap();
+        for (Map.Entry<Path, ExternalDependencies.Builder> builder : builders.entrySet()) {
+            externalDependencies.put(builder.getKey(), builder.getValue().build(movedStrings.get()));
+        }
+        DefaultOmniEclipseProject rootEclipseProject = DefaultOmniEclipseProject.withExternalDependencies(eclipseGradleBuild.getRootEclipseProject(), externalDependencies);
+        OmniEclipseGradleBuild result = DefaultOmniEclipseGradleBuild.from(rootEclipseProject, eclipseGradleBuild.getRootProject());
+        return Optional.of(new MovedModel(result, ImmutableList.of(movedStrings.get().getOffHeapBlock().get())));
+    }
+
+    private static void release(List<OffHeapStore.Block> blocks) {
+        for (OffHeapStore.Block block : blocks) {
+            block.release();
+        }
+    }
+
+    /**
+     * A model whose sections have been moved off the heap, together with the blocks holding them.
+     */
+    static final class MovedModel {
+
+        private final Object model;
+        private final ImmutableList<OffHeapStore.Block> blocks;
+
+        private MovedModel(Object model, ImmutableList<OffHeapStore.Block> blocks) {
+            this.model = model;
+            this.blocks = blocks;
+        }
+
+        Object getModel() {
+            return this.model;
+        }
+
+        /**
+         * Releases the blocks of the model from the accounting of the store, once the model is no longer cached.
+         */
+        void release() {
+            OffHeapTier.release(this.blocks);
+        }
+
+    }
+
+    /**
+     * Read-only list of external dependencies that are decoded on access from columns of string ids.
+     */
+    private static final class ExternalDependencies extends AbstractList<OmniExternalDependency> implements RandomAccess {
+
+        private static final int MODULE_VERSION_ABSENT_ID = -2;
+        private static final int MODULE_VERSION_NULL_ID = -3;
+
+        private final StringTable strings;
+        private final int[] files;
+        private final int[] sources;
+        private final int[] javadocs;
+        private final int[] groups;
+        private final int[] names;
+        private final int[] versions;
+        private final BitSet exported;
+
+        private ExternalDependencies(Builder builder, StringTable strings) {
+            this.strings = strings;
+            this.files = builder.files;
+            this.sources = builder.sources;
+            this.javadocs = builder.javadocs;
+            this.groups = builder.groups;
+            this.names = builder.names;
+            this.versions = builder.versions;
+            this.exported = builder.exported;
+        }
+
+        @Override
+        public OmniExternalDependency get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return DefaultOmniExternalDependency.from(toFile(this.files[index]), toFile(this.sources[index]), toFile(this.javadocs[index]), toModuleVersion(index),
+                    this.exported.get(index));
+        }
+
+        private File toFile(int id) {
+            String path = this.strings.get(id);
+            return path != null ? new File(path) : null;
+        }
+
+        private Maybe<OmniGradleModuleVersion> toModuleVersion(int index) {
+            int group = this.groups[index];
+            if (group == MODULE_VERSION_ABSENT_ID) {
+                return Maybe.absent();
+            } else if (group == MODULE_VERSION_NULL_ID) {
+                return Maybe.of(null);
+            } else {
+                OmniGradleModuleVersion moduleVersion = DefaultOmniGradleModuleVersion.from(this.strings.get(group), this.strings.get(this.names[index]),
+                        this.strings.get(this.versions[index]));
+                return Maybe.of(moduleVersion);
+            }
+        }
+
+        @Override
+        public int size() {
+            return this.files.length;
+        }
+
+        /**
+         * Converts the external dependencies of a project to columns.
+         */
+        private static final class Builder {
+
+            private final int[] files;
+            private final int[] sources;
+            private final int[] javadocs;
+            private final int[] groups;
+            private final int[] names;
+            private final int[] versions;
+            private final BitSet exported;
+
+            private Builder(List<OmniExternalDependency> externalDependencies, StringTable.Builder strings) {
+                int count = externalDependencies.size();
+                this.files = new int[count];
+                this.sources = new int[count];
+                this.javadocs = new int[count];
+                this.groups = new int[count];
+                this.names = new int[count];
+                this.versions = new int[count];
+                this.exported = new BitSet(count);
+                for (int i = 0; i < count; i++) {
+                    OmniExternalDependency externalDependency = externalDependencies.get(i);
+                    this.files[i] = strings.add(toPath(externalDependency.getFile()));
+                    this.sources[i] = strings.add(toPath(externalDependency.getSource()));
+                    this.javadocs[i] = strings.add(toPath(externalDependency.getJavadoc()));
+                    Maybe<OmniGradleModuleVersion> moduleVersion = externalDependency.getGradleModuleVersion();
+                    if (!moduleVersion.isPresent()) {
+                        this.groups[i] = MODULE_VERSION_ABSENT_ID;
+                    } else if (moduleVersion.get() == null) {
+                        this.groups[i] = MODULE_VERSION_NULL_ID;
+                    } else {
+                        this.groups[i] = strings.add(moduleVersion.get().getGroup());
+                        this.names[i] = strings.add(moduleVersion.get().getName());
+                        this.versions[i] = strings.add(moduleVersion.get().getVersion());
+                    }
+                    this.exported.set(i, externalDependency.isExported());
+                }
+            }
+
+            private static String toPath(File file) {
+                return file != null ? file.getPath() : null;
+            }
+
+            private ExternalDependencies build(StringTable strings) {
+                return new ExternalDependencies(this, strings);
+            }
+
+        }
+
+    }
+
+}
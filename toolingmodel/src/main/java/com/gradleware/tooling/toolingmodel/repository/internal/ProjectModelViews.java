@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedMap;
+import com.gradleware.tooling.toolingmodel.HierarchicalModel;
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocations;
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocationsContainer;
+import com.gradleware.tooling.toolingmodel.OmniEclipseGradleBuild;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniGradleBuild;
+import com.gradleware.tooling.toolingmodel.OmniGradleBuildStructure;
+import com.gradleware.tooling.toolingmodel.OmniGradleProject;
+import com.gradleware.tooling.toolingmodel.OmniGradleProjectStructure;
+import com.gradleware.tooling.toolingmodel.Path;
+import com.gradleware.tooling.toolingmodel.util.Pair;
+import org.gradle.api.specs.Spec;
+
+import java.util.Map;
+
+/**
+ * Creates views on the models of a complete build that are rooted at one of its projects. A view shares the project models of the complete build, only the root of the view is
+ * the given project rather than the root project of the build, and the build invocations are limited to the given project and its child projects. The project dependency
+ * graph and the effective classpaths of a view span the complete build, and are shared with the complete build.
+ * <p/>
+ * If the given project is the root project of the build, the models are returned unchanged.
+ *
+ * @author Etienne Studer
+ */
+final class ProjectModelViews {
+
+    private static final Path ROOT_PATH = Path.from(":");
+
+    private final Path projectPath;
+    private volatile Pair<OmniEclipseGradleBuild, OmniEclipseGradleBuild> lastEclipseGradleBuildView;
+
+    private ProjectModelViews(Path projectPath) {
+        this.projectPath = Preconditions.checkNotNull(projectPath);
+    }
+
+    /**
+     * Returns whether the views are rooted at the root project of the build, i.e. the models are returned unchanged.
+     *
+     * @return {@code true} if the views are rooted at the root project
+     */
+    boolean isRootedAtRootProject() {
+        return ROOT_PATH.equals(this.projectPath);
+    }
+
+    /**
+     * Returns whether the project with the given path is part of the views.
+     *
+     * @param path the project path
+     * @return {@code true} if the path is the path of the project at which the views are rooted or of one of its child projects
+     */
+    boolean contains(Path path) {
+        if (isRootedAtRootProject() || this.projectPath.equals(path)) {
+            return true;
+        }
+        return path.getPath().startsWith(this.projectPath.getPath() + ":");
+    }
+
+    OmniGradleBuildStructure view(OmniGradleBuildStructure gradleBuildStructure) {
+        if (gradleBuildStructure == null || isRootedAtRootProject()) {
+            return gradleBuildStructure;
+        }
+        return DefaultOmniGradleBuildStructure.from(find(gradleBuildStructure.getRootProject()));
+    }
+
+    OmniGradleBuild view(OmniGradleBuild gradleBuild) {
+        if (gradleBuild == null || isRootedAtRootProject()) {
+            return gradleBuild;
+        }
+        return DefaultOmniGradleBuild.from(find(gradleBuild.getRootProject()));
+    }
+
+    OmniEclipseGradleBuild view(OmniEclipseGradleBuild eclipseGradleBuild) {
+        if (eclipseGradleBuild == null || isRootedAtRootProject()) {
+            return eclipseGradleBuild;
+        }
+
+        // the same model is usually viewed many times, hence the view of the most recently viewed model is reused
+        Pair<OmniEclipseGradleBuild, OmniEclipseGradleBuild> lastView = this.lastEclipseGradleBuildView;
+        if (lastView != null && lastView.getFirst() == eclipseGradleBuild) {
+            return lastView.getSecond();
+        }
+
+        OmniEclipseProject eclipseProject = find(eclipseGradleBuild.getRootEclipseProject());
+        OmniGradleProject gradleProject = find(eclipseGradleBuild.getRootProject());
+        OmniEclipseGradleBuild view = eclipseGradleBuild instanceof DefaultOmniEclipseGradleBuild ?
+                ((DefaultOmniEclipseGradleBuild) eclipseGradleBuild).viewRootedAt(eclipseProject, gradleProject) :
+                DefaultOmniEclipseGradleBuild.from(eclipseProject, gradleProject);
+        this.lastEclipseGradleBuildView = new Pair<OmniEclipseGradleBuild, OmniEclipseGradleBuild>(eclipseGradleBuild, view);
+        return view;
+    }
+
+    OmniBuildInvocationsContainer view(OmniBuildInvocationsContainer buildInvocationsContainer) {
+        if (buildInvocationsContainer == null || isRootedAtRootProject()) {
+            return buildInvocationsContainer;
+        }
+        ImmutableSortedMap.Builder<Path, OmniBuildInvocations> buildInvocations = ImmutableSortedMap.orderedBy(Path.Comparator.INSTANCE);
+        for (Map.Entry<Path, OmniBuildInvocations> entry : buildInvocationsContainer.asMap().entrySet()) {
+            if (contains(entry.getKey())) {
+                buildInvocations.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return DefaultOmniBuildInvocationsContainer.from(buildInvocations.build());
+    }
+
+    private <T extends HierarchicalModel<T>> T find(T rootProject) {
+        Optional<T> project = rootProject.tryFind(new Spec<T>() {
+
+            @Override
+            public boolean isSatisfiedBy(T candidate) {
+                return ProjectModelViews.this.projectPath.equals(getPath(candidate));
+            }
+        });
+        if (!project.isPresent()) {
+            throw new IllegalStateException("The build does not contain the project " + this.projectPath.getPath() + ".");
+        }
+        return project.get();
+    }
+
+    private static Path getPath(HierarchicalModel<?> project) {
+        // the hierarchical project models do not share a common interface for their path
+        if (project instanceof OmniGradleProjectStructure) {
+            return ((OmniGradleProjectStructure) project).getPath();
+        } else if (project instanceof OmniGradleProject) {
+            return ((OmniGradleProject) project).getPath();
+        } else if (project instanceof OmniEclipseProject) {
+            return ((OmniEclipseProject) project).getPath();
+        } else {
+            throw new IllegalArgumentException("Unsupported project model: " + project);
+        }
+    }
+
+    /**
+     * Creates views rooted at the project with the given path.
+     *
+     * @param projectPath the path of the project at which the views are rooted
+     * @return the new instance
+     */
+    static ProjectModelViews rootedAt(Path projectPath) {
+        return new ProjectModelViews(projectPath);
+    }
+
+}
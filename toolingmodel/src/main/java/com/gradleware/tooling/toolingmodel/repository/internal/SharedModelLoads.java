@@ -0,0 +1,354 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnector;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the loads of models that are not cached yet, such that concurrent requests for the same model share a single load. Each load runs on a thread of its own with a
+ * cancellation token owned by the load, and the requesting threads merely wait for its result. A waiting thread stops waiting once its own cancellation token is cancelled or
+ * its deadline has expired, and the load itself is cancelled only once all the threads that waited for it have stopped waiting.
+ * <p/>
+ * At most one load per model runs at any time. A request that needs a fresh model, i.e. a model loaded after the request has been issued, does not join the running load
+ * but the pending load that begins once the running load has completed, such that any number of concurrent reload requests results in at most one additional load. Each
+ * load is assigned a generation number when it begins, which is higher than the generation numbers of all the loads of the same model that began before.
+ * <p/>
+ * Since the Tooling API does not notify about the cancellation of a token, the tokens of the waiting threads are polled. Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+final class SharedModelLoads {
+
+    private static final long CANCELLATION_POLL_INTERVAL_MILLIS = 100;
+
+    private final Executor executor;
+    private final Map<Class<?>, LoadSlots> loads;
+    private long lastGeneration;
+
+    SharedModelLoads(Executor executor) {
+        this.executor = Preconditions.checkNotNull(executor);
+        this.loads = Maps.newHashMap();
+    }
+
+    /**
+     * Joins the load of the given model that is in progress, or starts a new load with the given loader if there is none. If a fresh model is needed, the running load is
+     * not joined, but the load that begins once the running load has completed.
+     *
+     * @param modelType the type of the model to load
+     * @param fresh whether the model must be loaded after this method has been called
+     * @param loader the loader to run if a new load needs to be started
+     * @param <U> the type of the model
+     * @return the waiter through which to wait for the result of the load
+     */
+    <U> Waiter<U> join(Class<U> modelType, boolean fresh, Loader<U> loader) {
+        Preconditions.checkNotNull(modelType);
+        Preconditions.checkNotNull(loader);
+
+        SharedLoad<U> load;
+        boolean initiator;
+        boolean begin = false;
+        synchronized (this.loads) {
+            LoadSlots slots = this.loads.get(modelType);
+            if (slots == null) {
+                slots = new LoadSlots();
+                this.loads.put(modelType, slots);
+            }
+
+            @SuppressWarnings("unchecked")
+            SharedLoad<U> existing = (SharedLoad<U>) (slots.running == null ? null : fresh ? slots.pending : slots.running);
+            initiator = existing == null;
+            if (initiator) {
+                load = new SharedLoad<U>(modelType, loader);
+                if (slots.running == null) {
+                    slots.running = load;
+                    load.generation = ++this.lastGeneration;
+                    begin = true;
+                } else {
+                    slots.pending = load;
+                }
+            } else {
+                load = existing;
+            }
+            load.waiters++;
+        }
+
+        if (begin) {
+            begin(load);
+        }
+        return new Waiter<U>(load, initiator);
+    }
+
+    private <U> void begin(final SharedLoad<U> load) {
+        try {
+            this.executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    U model = null;
+                    Throwable failure = null;
+                    try {
+                        model = load.loader.load(load.cancellationTokenSource.token(), load.generation);
+                    } catch (Throwable t) {
+                        failure = t;
+                    }
+
+                    // the load is completed before its result is published, such that a waiter that has received the result no longer finds the load in progress
+                    completed(load);
+                    if (failure == null) {
+                        load.result.set(model);
+                    } else {
+                        load.result.setException(failure);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            completed(load);
+            load.result.setException(e);
+        }
+    }
+
+    private void completed(SharedLoad<?> load) {
+        SharedLoad<?> next = null;
+        synchronized (this.loads) {
+            // a load that has been abandoned has already been replaced by the pending load of the same model
+            LoadSlots slots = this.loads.get(load.modelType);
+            if (slots != null && slots.running == load) {
+                next = advance(load.modelType, slots);
+            }
+        }
+        if (next != null) {
+            begin(next);
+        }
+    }
+
+    private SharedLoad<?> advance(Class<?> modelType, LoadSlots slots) {
+        // called while holding the lock, the pending load becomes the running load, if there is one
+        SharedLoad<?> next = slots.pending;
+        slots.running = next;
+        slots.pending = null;
+        if (next != null) {
+            next.generation = ++this.lastGeneration;
+        } else {
+            this.loads.remove(modelType);
+        }
+        return next;
+    }
+
+    private void leave(SharedLoad<?> load) {
+        boolean abandoned = false;
+        SharedLoad<?> next = null;
+        synchronized (this.loads) {
+            load.waiters--;
+            LoadSlots slots = this.loads.get(load.modelType);
+            if (load.waiters == 0 && !load.result.isDone() && slots != null) {
+                if (slots.pending == load) {
+                    // the load has not begun yet, hence there is nothing to cancel
+                    slots.pending = null;
+                    load.result.cancel(false);
+                } else if (slots.running == load) {
+                    abandoned = true;
+                    next = advance(load.modelType, slots);
+                }
+            }
+        }
+        if (abandoned) {
+            load.cancellationTokenSource.cancel();
+        }
+        if (next != null) {
+            begin(next);
+        }
+    }
+
+    /**
+     * Returns whether a load of the given model is in progress.
+     *
+     * @param modelType the type of the model
+     * @return {@code true} if a load is in progress
+     */
+    boolean isLoading(Class<?> modelType) {
+        synchronized (this.loads) {
+            return this.loads.containsKey(modelType);
+        }
+    }
+
+    /**
+     * Returns the number of threads waiting for the running and the pending load of the given model.
+     *
+     * @param modelType the type of the model
+     * @return the number of waiting threads, zero if no load is in progress
+     */
+    int getWaiterCount(Class<?> modelType) {
+        synchronized (this.loads) {
+            LoadSlots slots = this.loads.get(modelType);
+            if (slots == null) {
+                return 0;
+            }
+            return slots.running.waiters + (slots.pending != null ? slots.pending.waiters : 0);
+        }
+    }
+
+    /**
+     * Creates a new instance that runs each load on a daemon thread of its own.
+     *
+     * @return the new instance
+     */
+    static SharedModelLoads create() {
+        return new SharedModelLoads(Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("model-loader-%d").build()));
+    }
+
+    /**
+     * Loads a model.
+     *
+     * @param <U> the type of the model
+     */
+    interface Loader<U> {
+
+        /**
+         * Loads the model. The requests issued to load the model must be run with the given cancellation token.
+         *
+         * @param cancellationToken the cancellation token owned by the load
+         * @param generation the generation number of the load
+         * @return the model, never null
+         */
+        U load(CancellationToken cancellationToken, long generation);
+
+    }
+
+    /**
+     * The running and the pending load of a model.
+     */
+    private static final class LoadSlots {
+
+        private SharedLoad<?> running;
+        private SharedLoad<?> pending;
+
+    }
+
+    /**
+     * A model load that is running or pending, together with the number of threads waiting for it.
+     *
+     * @param <U> the type of the model
+     */
+    private static final class SharedLoad<U> {
+
+        private final Class<U> modelType;
+        private final Loader<U> loader;
+        private final SettableFuture<U> result;
+        private final CancellationTokenSource cancellationTokenSource;
+        private int waiters;
+        private long generation;
+
+        private SharedLoad(Class<U> modelType, Loader<U> loader) {
+            this.modelType = modelType;
+            this.loader = loader;
+            this.result = SettableFuture.create();
+            this.cancellationTokenSource = GradleConnector.newCancellationTokenSource();
+        }
+
+    }
+
+    /**
+     * Waits for the result of a shared load on behalf of one requesting thread.
+     *
+     * @param <U> the type of the model
+     */
+    final class Waiter<U> {
+
+        private final SharedLoad<U> load;
+        private final boolean initiator;
+        private boolean waited;
+
+        private Waiter(SharedLoad<U> load, boolean initiator) {
+            this.load = load;
+            this.initiator = initiator;
+        }
+
+        /**
+         * Returns whether the load has been started on behalf of this waiter rather than joined.
+         *
+         * @return {@code true} if this waiter started the load
+         */
+        boolean isInitiator() {
+            return this.initiator;
+        }
+
+        /**
+         * Waits for the result of the load. Interruption while waiting is deferred until the waiting has ended. A waiter can only wait once.
+         *
+         * @param cancellationToken the cancellation token of the requesting thread
+         * @param timeout the time after which to stop waiting, {@link Long#MAX_VALUE} to wait until the load has completed or the token has been cancelled
+         * @param unit the unit of the timeout
+         * @return the loaded model
+         * @throws BuildCancelledException if the token has been cancelled or the timeout has expired before the load completed
+         */
+        U await(CancellationToken cancellationToken, long timeout, TimeUnit unit) {
+            Preconditions.checkState(!this.waited, "Waiter has already waited.");
+            this.waited = true;
+
+            long startNanos = System.nanoTime();
+            long timeoutNanos = timeout == Long.MAX_VALUE ? Long.MAX_VALUE : unit.toNanos(timeout);
+            long pollNanos = TimeUnit.MILLISECONDS.toNanos(CANCELLATION_POLL_INTERVAL_MILLIS);
+            while (true) {
+                if (cancellationToken.isCancellationRequested()) {
+                    leave(this.load);
+                    throw new BuildCancelledException(String.format("Loading model %s has been cancelled.", this.load.modelType.getSimpleName()));
+                }
+                long remainingNanos = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : timeoutNanos - (System.nanoTime() - startNanos);
+                if (remainingNanos <= 0) {
+                    leave(this.load);
+                    throw new BuildCancelledException(String.format("Loading model %s has been cancelled because the deadline of the request has expired.",
+                            this.load.modelType.getSimpleName()));
+                }
+                try {
+                    U model = Uninterruptibles.getUninterruptibly(this.load.result, Math.min(remainingNanos, pollNanos), TimeUnit.NANOSECONDS);
+                    leave(this.load);
+                    return model;
+                } catch (TimeoutException e) {
+                    // check the cancellation token and the deadline again
+                } catch (ExecutionException e) {
+                    leave(this.load);
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    } else {
+                        throw new RuntimeException(cause);
+                    }
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds ordered, duplicate-free lists that share their common prefixes. Each list is a node in a trie whose edges are list entries: appending an entry to a list moves
+ * to the child node for that entry, which is only created if no other list has the same prefix followed by the same entry. Entries with the same value key are
+ * considered interchangeable, the instance of the first list that appended them is kept.
+ * <p/>
+ * Instances are not thread-safe and are meant to be discarded once all lists have been built. The built lists themselves are immutable and thread-safe.
+ *
+ * @param <T> the type of the list entries
+ * @author Etienne Studer
+ */
+final class SharedPrefixLists<T> {
+
+    private final Function<? super T, ?> duplicateKey;
+    private final Function<? super T, ?> valueKey;
+    private final Map<List<Object>, SharedList<T>> nodes;
+    private final SharedList<T> empty;
+
+    private SharedPrefixLists(Function<? super T, ?> duplicateKey, Function<? super T, ?> valueKey) {
+        this.duplicateKey = Preconditions.checkNotNull(duplicateKey);
+        this.valueKey = Preconditions.checkNotNull(valueKey);
+        this.nodes = Maps.newHashMap();
+        this.empty = new SharedList<T>(null, null);
+    }
+
+    /**
+     * Starts a new list that is initially empty.
+     *
+     * @return the builder of the new list
+     */
+    Builder newList() {
+        return new Builder();
+    }
+
+    private SharedList<T> child(SharedList<T> parent, T entry) {
+        // list nodes do not override equals, hence the parent node is compared by identity
+        List<Object> key = Arrays.asList(parent, this.valueKey.apply(entry));
+        SharedList<T> child = this.nodes.get(key);
+        if (child == null) {
+            child = new SharedList<T>(parent, entry);
+            this.nodes.put(key, child);
+        }
+        return child;
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param duplicateKey the function providing the key by which duplicate entries within a list are detected
+     * @param valueKey the function providing the key by which entries are shared between lists, must distinguish at least all the entries the duplicate key distinguishes
+     * @param <T> the type of the list entries
+     * @return the new instance
+     */
+    static <T> SharedPrefixLists<T> create(Function<? super T, ?> duplicateKey, Function<? super T, ?> valueKey) {
+        return new SharedPrefixLists<T>(duplicateKey, valueKey);
+    }
+
+    /**
+     * Appends entries to a list, skipping the entries that are already contained in it.
+     */
+    final class Builder {
+
+        private final Set<Object> keys;
+        private SharedList<T> list;
+
+        private Builder() {
+            this.keys = Sets.newHashSet();
+            this.list = SharedPrefixLists.this.empty;
+        }
+
+        /**
+         * Prevents that entries with the given duplicate key are appended.
+         *
+         * @param key the key to exclude
+         */
+        void exclude(Object key) {
+            this.keys.add(key);
+        }
+
+        void add(T entry) {
+            if (this.keys.add(SharedPrefixLists.this.duplicateKey.apply(entry))) {
+                this.list = child(this.list, entry);
+            }
+        }
+
+        void addAll(SharedList<T> entries) {
+            for (T entry : entries.toList()) {
+                add(entry);
+            }
+        }
+
+        SharedList<T> build() {
+            return this.list;
+        }
+
+    }
+
+    /**
+     * A list that is represented by its last entry and the list preceding it. The list is turned into an immutable list on first access.
+     *
+     * @param <T> the type of the list entries
+     */
+    static final class SharedList<T> {
+
+        private final SharedList<T> parent;
+        private final T entry;
+        private final int size;
+        private volatile ImmutableList<T> list;
+
+        private SharedList(SharedList<T> parent, T entry) {
+            this.parent = parent;
+            this.entry = entry;
+            this.size = parent == null ? 0 : parent.size + 1;
+        }
+
+        int size() {
+            return this.size;
+        }
+
+        ImmutableList<T> toList() {
+            ImmutableList<T> result = this.list;
+            if (result == null) {
+                Object[] entries = new Object[this.size];
+                SharedList<T> node = this;
+                for (int i = this.size - 1; i >= 0; i--) {
+                    entries[i] = node.entry;
+                    node = node.parent;
+                }
+                @SuppressWarnings("unchecked")
+                List<T> typedEntries = (List<T>) Arrays.asList(entries);
+                result = ImmutableList.copyOf(typedEntries);
+                this.list = result;
+            }
+            return result;
+        }
+
+    }
+
+}
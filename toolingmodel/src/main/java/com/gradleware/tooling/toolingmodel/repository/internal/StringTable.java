@@ -0,0 +1,227 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores each distinct string once and refers to it by an int id. The tasks and task selectors of all projects of a build share one table, such that names like
+ * {@code build} or {@code clean} and the task paths referenced by the task selectors of every ancestor project are held only once.
+ * <p/>
+ * Instances are immutable and only created once all strings have been added, such that the columns referring to them can be safely published together with the table. A
+ * table can be moved to an {@link OffHeapStore}, in which case each string is decoded when it is accessed.
+ *
+ * @author Etienne Studer
+ */
+final class StringTable {
+
+    /**
+     * The id of a {@code null} string.
+     */
+    static final int NULL_ID = -1;
+
+    private final String[] strings;
+    private final OffHeapStore.Block block;
+    private final int size;
+
+    private StringTable(String[] strings) {
+        this.strings = strings;
+        this.block = null;
+        this.size = strings.length;
+    }
+
+    private StringTable(OffHeapStore.Block block, int size) {
+        this.strings = null;
+        this.block = block;
+        this.size = size;
+    }
+
+    /**
+     * Returns the string with the given id.
+     *
+     * @param id the id of the string, or {@link #NULL_ID}
+     * @return the string, {@code null} for {@link #NULL_ID}
+     */
+    String get(int id) {
+        if (id == NULL_ID) {
+            return null;
+        } else if (this.strings != null) {
+            return this.strings[id];
+        } else {
+            Preconditions.checkElementIndex(id, this.size);
+            ByteBuffer content = this.block.getContent();
+            int dataOffset = 4 * (this.size + 1);
+            int start = content.getInt(4 * id);
+            int end = content.getInt(4 * (id + 1));
+            byte[] bytes = new byte[end - start];
+            content.position(dataOffset + start);
+            content.get(bytes);
+            return new String(bytes, Charsets.UTF_8);
+        }
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the block holding the strings if this table has been moved off the heap.
+     *
+     * @return the block, absent if the strings are held on the heap
+     */
+    Optional<OffHeapStore.Block> getOffHeapBlock() {
+        return Optional.fromNullable(this.block);
+    }
+
+    /**
+     * Creates a copy of this table whose strings are encoded into a block of the given store. The block holds the offsets of the strings followed by the UTF-8 encoded
+     * strings.
+     *
+     * @param store the store to move the strings to
+     * @return the new table, absent if the strings do not fit into the budget of the store
+     */
+    Optional<StringTable> moveOffHeap(OffHeapStore store) {
+        if (this.strings == null) {
+            return Optional.of(this);
+        }
+
+        byte[][] encoded = new byte[this.size][];
+        int dataSize = 0;
+        for (int i = 0; i < this.size; i++) {
+            encoded[i] = this.strings[i].getBytes(Charsets.UTF_8);
+            dataSize += encoded[i].length;
+        }
+
+        ByteBuffer content = ByteBuffer.allocate(4 * (this.size + 1) + dataSize);
+        int end = 0;
+        content.putInt(end);
+        for (byte[] string : encoded) {
+            end += string.length;
+            content.putInt(end);
+        }
+        for (byte[] string : encoded) {
+            content.put(string);
+        }
+
+        Optional<OffHeapStore.Block> block = store.store(content.array());
+        return block.isPresent() ? Optional.of(new StringTable(block.get(), this.size)) : Optional.<StringTable>absent();
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Assigns the ids while the columns of the tasks and task selectors are collected.
+     */
+    static final class Builder {
+
+        private final Map<String, Integer> ids;
+        private final List<String> strings;
+        private final Map<IdArray, int[]> idArrays;
+
+        private Builder() {
+            this.ids = Maps.newHashMap();
+            this.strings = Lists.newArrayList();
+            this.idArrays = Maps.newHashMap();
+        }
+
+        /**
+         * Adds the given string unless it is already contained.
+         *
+         * @param string the string to add, can be null
+         * @return the id of the string
+         */
+        int add(String string) {
+            if (string == null) {
+                return NULL_ID;
+            }
+            Integer id = this.ids.get(string);
+            if (id == null) {
+                id = this.strings.size();
+                this.ids.put(string, id);
+                this.strings.add(string);
+            }
+            return id;
+        }
+
+        /**
+         * Adds the given strings and returns their ids in iteration order. Equal id arrays are shared, i.e. the same array instance is returned.
+         *
+         * @param strings the strings to add
+         * @param size the number of strings
+         * @return the ids of the strings, must not be modified
+         */
+        int[] addAll(Iterable<String> strings, int size) {
+            int[] result = new int[size];
+            int i = 0;
+            for (String string : strings) {
+                result[i++] = add(Preconditions.checkNotNull(string));
+            }
+            Preconditions.checkArgument(i == size, "Expected %s strings but got %s.", size, i);
+
+            IdArray key = new IdArray(result);
+            int[] shared = this.idArrays.get(key);
+            if (shared == null) {
+                this.idArrays.put(key, result);
+                shared = result;
+            }
+            return shared;
+        }
+
+        StringTable build() {
+            return new StringTable(this.strings.toArray(new String[this.strings.size()]));
+        }
+
+    }
+
+    /**
+     * Key to share equal id arrays.
+     */
+    private static final class IdArray {
+
+        private final int[] ids;
+        private final int hashCode;
+
+        private IdArray(int[] ids) {
+            this.ids = ids;
+            this.hashCode = Arrays.hashCode(ids);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof IdArray && Arrays.equals(this.ids, ((IdArray) other).ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+
+    }
+
+}
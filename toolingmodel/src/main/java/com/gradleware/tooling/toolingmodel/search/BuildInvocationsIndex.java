@@ -0,0 +1,408 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.search;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.eventbus.Subscribe;
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocations;
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocationsContainer;
+import com.gradleware.tooling.toolingmodel.OmniProjectTask;
+import com.gradleware.tooling.toolingmodel.OmniTaskSelector;
+import com.gradleware.tooling.toolingmodel.Path;
+import com.gradleware.tooling.toolingmodel.repository.BuildInvocationsUpdateEvent;
+import com.gradleware.tooling.toolingmodel.util.Maybe;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indexes the project tasks and task selectors of an {@link OmniBuildInvocationsContainer} for fast lookup by task path and by name. Names can be searched by prefix and
+ * by camel case abbreviation the way Gradle resolves task names on the command line, for example {@code cJ} finds {@code compileJava}. A query that contains a colon is
+ * treated as a task path: the task with exactly that path is returned first, followed by the tasks and task selectors of the denoted project whose names match the last
+ * segment of the query.
+ * <p/>
+ * Names are held in a prefix trie keyed by their lower case form, such that a search only visits the names that start with the first word of the query. The results are
+ * ranked by match type, then by name length and name, and then task selectors come before project tasks and public entries before non-public entries.
+ * <p/>
+ * The index is updated incrementally: when a new container is applied, only the projects whose project tasks or task selectors have changed are re-indexed. Since every
+ * reload of the model creates new {@link OmniBuildInvocations} instances, the tasks and task selectors are compared by their attributes, and the index keeps the instances
+ * of an unchanged project that it has already indexed. The index can be registered with the event bus of a model repository to follow {@link BuildInvocationsUpdateEvent} broadcasts. Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+public final class BuildInvocationsIndex {
+
+    private final ReadWriteLock lock;
+    private final Map<Path, OmniBuildInvocations> projects;
+    private final Map<Path, OmniProjectTask> tasksByPath;
+    private final Map<String, IndexedName> names;
+    private final PrefixTrie<IndexedName> namesByPrefix;
+
+    private BuildInvocationsIndex() {
+        this.lock = new ReentrantReadWriteLock();
+        this.projects = Maps.newHashMap();
+        this.tasksByPath = Maps.newHashMap();
+        this.names = Maps.newHashMap();
+        this.namesByPrefix = new PrefixTrie<IndexedName>();
+    }
+
+    /**
+     * Brings the index in line with the given container. Projects whose build invocations are equivalent to the ones in the previously applied container are not re-indexed.
+     *
+     * @param buildInvocations the container to index
+     */
+    public void update(OmniBuildInvocationsContainer buildInvocations) {
+        SortedMap<Path, OmniBuildInvocations> latest = buildInvocations.asMap();
+        this.lock.writeLock().lock();
+        try {
+            Set<IndexedName> touched = Sets.newHashSet();
+            Iterator<Map.Entry<Path, OmniBuildInvocations>> iterator = this.projects.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Path, OmniBuildInvocations> entry = iterator.next();
+                OmniBuildInvocations replacement = latest.get(entry.getKey());
+                if (replacement == null || !isEquivalent(replacement, entry.getValue())) {
+                    unindexProject(entry.getKey(), entry.getValue(), touched);
+                    if (replacement == null) {
+                        iterator.remove();
+                    }
+                }
+            }
+            for (Map.Entry<Path, OmniBuildInvocations> entry : latest.entrySet()) {
+                OmniBuildInvocations previous = this.projects.get(entry.getKey());
+                if (previous == null || !isEquivalent(entry.getValue(), previous)) {
+                    this.projects.put(entry.getKey(), entry.getValue());
+                    indexProject(entry.getKey(), entry.getValue(), touched);
+                }
+            }
+
+            // names that lost all their tasks and task selectors are only dropped at the end, so that names that merely moved between projects are kept
+            for (IndexedName name : touched) {
+                if (name.isEmpty()) {
+                    this.names.remove(name.name);
+                    this.namesByPrefix.remove(name.name.toLowerCase(), name);
+                }
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Subscribe
+    public void buildInvocationsUpdated(BuildInvocationsUpdateEvent event) {
+        update(event.getBuildInvocations());
+    }
+
+    private void indexProject(Path projectPath, OmniBuildInvocations buildInvocations, Set<IndexedName> touched) {
+        for (OmniProjectTask task : buildInvocations.getProjectTasks()) {
+            this.tasksByPath.put(task.getPath(), task);
+            IndexedName name = getOrCreateName(task.getName());
+            name.tasks.put(projectPath, task);
+            touched.add(name);
+        }
+        for (OmniTaskSelector taskSelector : buildInvocations.getTaskSelectors()) {
+            IndexedName name = getOrCreateName(taskSelector.getName());
+            name.taskSelectors.put(projectPath, taskSelector);
+            touched.add(name);
+        }
+    }
+
+    private void unindexProject(Path projectPath, OmniBuildInvocations buildInvocations, Set<IndexedName> touched) {
+        for (OmniProjectTask task : buildInvocations.getProjectTasks()) {
+            this.tasksByPath.remove(task.getPath());
+            IndexedName name = this.names.get(task.getName());
+            if (name != null) {
+                name.tasks.remove(projectPath);
+                touched.add(name);
+            }
+        }
+        for (OmniTaskSelector taskSelector : buildInvocations.getTaskSelectors()) {
+            IndexedName name = this.names.get(taskSelector.getName());
+            if (name != null) {
+                name.taskSelectors.remove(projectPath);
+                touched.add(name);
+            }
+        }
+    }
+
+    private static boolean isEquivalent(OmniBuildInvocations first, OmniBuildInvocations second) {
+        if (first == second) {
+            return true;
+        }
+
+        List<OmniProjectTask> firstTasks = first.getProjectTasks();
+        List<OmniProjectTask> secondTasks = second.getProjectTasks();
+        List<OmniTaskSelector> firstTaskSelectors = first.getTaskSelectors();
+        List<OmniTaskSelector> secondTaskSelectors = second.getTaskSelectors();
+        if (firstTasks.size() != secondTasks.size() || firstTaskSelectors.size() != secondTaskSelectors.size()) {
+            return false;
+        }
+        for (int i = 0; i < firstTasks.size(); i++) {
+            if (!isEquivalent(firstTasks.get(i), secondTasks.get(i))) {
+                return false;
+            }
+        }
+        for (int i = 0; i < firstTaskSelectors.size(); i++) {
+            if (!isEquivalent(firstTaskSelectors.get(i), secondTaskSelectors.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isEquivalent(OmniProjectTask first, OmniProjectTask second) {
+        Maybe<String> firstGroup = first.getGroup();
+        Maybe<String> secondGroup = second.getGroup();
+        return first.getName().equals(second.getName()) && first.getPath().equals(second.getPath()) && Objects.equal(first.getDescription(), second.getDescription())
+                && first.isPublic() == second.isPublic() && firstGroup.isPresent() == secondGroup.isPresent()
+                && (!firstGroup.isPresent() || Objects.equal(firstGroup.get(), secondGroup.get()));
+    }
+
+    private static boolean isEquivalent(OmniTaskSelector first, OmniTaskSelector second) {
+        return first.getName().equals(second.getName()) && first.getProjectPath().equals(second.getProjectPath())
+                && Objects.equal(first.getDescription(), second.getDescription()) && first.isPublic() == second.isPublic()
+                && first.getSelectedTaskPaths().equals(second.getSelectedTaskPaths());
+    }
+
+    private IndexedName getOrCreateName(String name) {
+        IndexedName indexedName = this.names.get(name);
+        if (indexedName == null) {
+            indexedName = new IndexedName(name);
+            this.names.put(name, indexedName);
+            this.namesByPrefix.put(name.toLowerCase(), indexedName);
+        }
+        return indexedName;
+    }
+
+    /**
+     * Returns the project task with the given path.
+     *
+     * @param taskPath the path of the task, for example {@code :sub:compileJava}
+     * @return the task, absent if no indexed project contains a task with the given path
+     */
+    public Optional<OmniProjectTask> findTask(Path taskPath) {
+        Preconditions.checkNotNull(taskPath);
+        this.lock.readLock().lock();
+        try {
+            return Optional.fromNullable(this.tasksByPath.get(taskPath));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the project tasks and task selectors that match the given query, best matches first.
+     *
+     * @param query the query, either a name, a name prefix, a camel case abbreviation of a name, or any of these preceded by a project path and a colon
+     * @param maxResults the maximum number of results to return
+     * @return the matches, never null
+     */
+    public List<BuildInvocationsMatch> search(String query, int maxResults) {
+        Preconditions.checkNotNull(query);
+        Preconditions.checkArgument(maxResults >= 0, "maxResults must not be negative");
+
+        List<BuildInvocationsMatch> result = Lists.newArrayList();
+        if (maxResults == 0) {
+            return result;
+        }
+
+        this.lock.readLock().lock();
+        try {
+            Optional<Path> projectPath = Optional.absent();
+            Optional<OmniProjectTask> exactTask = Optional.absent();
+            String nameQuery = query;
+            int separator = query.lastIndexOf(':');
+            if (separator >= 0) {
+                projectPath = Optional.of(Path.from(separator == 0 ? ":" : query.substring(0, separator)));
+                nameQuery = query.substring(separator + 1);
+                exactTask = Optional.fromNullable(this.tasksByPath.get(Path.from(query)));
+                if (exactTask.isPresent()) {
+                    result.add(BuildInvocationsMatch.forTask(exactTask.get(), projectPath.get(), BuildInvocationsMatch.MatchType.EXACT_PATH));
+                }
+            }
+
+            NameMatcher matcher = NameMatcher.forQuery(nameQuery);
+            List<RankedName> candidates = Lists.newArrayList();
+            for (IndexedName name : this.namesByPrefix.getByPrefix(matcher.getCandidatePrefix())) {
+                if (!projectPath.isPresent() || name.contains(projectPath.get())) {
+                    int rank = matcher.match(name.name, name.words);
+                    if (rank != NameMatcher.NO_MATCH) {
+                        candidates.add(new RankedName(name, rank));
+                    }
+                }
+            }
+            Collections.sort(candidates, RankedName.ORDER);
+
+            for (RankedName candidate : candidates) {
+                if (result.size() >= maxResults) {
+                    break;
+                }
+                candidate.name.collect(candidate.getMatchType(), projectPath, exactTask, result, maxResults);
+            }
+            return ImmutableList.copyOf(result);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of distinct task and task selector names in the index.
+     *
+     * @return the number of names
+     */
+    public int getNameCount() {
+        this.lock.readLock().lock();
+        try {
+            return this.names.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of project tasks in the index.
+     *
+     * @return the number of project tasks
+     */
+    public int getTaskCount() {
+        this.lock.readLock().lock();
+        try {
+            return this.tasksByPath.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Creates a new index of the given container.
+     *
+     * @param buildInvocations the container to index
+     * @return the new instance
+     */
+    public static BuildInvocationsIndex from(OmniBuildInvocationsContainer buildInvocations) {
+        BuildInvocationsIndex index = new BuildInvocationsIndex();
+        index.update(buildInvocations);
+        return index;
+    }
+
+    /**
+     * A name together with all project tasks and task selectors of that name, keyed by the path of their project.
+     */
+    private static final class IndexedName {
+
+        private final String name;
+        private final int[] words;
+        private final SortedMap<Path, OmniProjectTask> tasks;
+        private final SortedMap<Path, OmniTaskSelector> taskSelectors;
+
+        private IndexedName(String name) {
+            this.name = name;
+            this.words = NameMatcher.splitWords(name);
+            this.tasks = Maps.newTreeMap();
+            this.taskSelectors = Maps.newTreeMap();
+        }
+
+        private boolean isEmpty() {
+            return this.tasks.isEmpty() && this.taskSelectors.isEmpty();
+        }
+
+        private boolean contains(Path projectPath) {
+            return this.tasks.containsKey(projectPath) || this.taskSelectors.containsKey(projectPath);
+        }
+
+        private void collect(BuildInvocationsMatch.MatchType matchType, Optional<Path> projectPath, Optional<OmniProjectTask> exclude, List<BuildInvocationsMatch> result, int maxResults) {
+            for (boolean visible : new boolean[]{true, false}) {
+                for (Map.Entry<Path, OmniTaskSelector> entry : this.taskSelectors.entrySet()) {
+                    if (result.size() >= maxResults) {
+                        return;
+                    }
+                    if (entry.getValue().isPublic() == visible && (!projectPath.isPresent() || projectPath.get().equals(entry.getKey()))) {
+                        result.add(BuildInvocationsMatch.forTaskSelector(entry.getValue(), matchType));
+                    }
+                }
+                for (Map.Entry<Path, OmniProjectTask> entry : this.tasks.entrySet()) {
+                    if (result.size() >= maxResults) {
+                        return;
+                    }
+                    OmniProjectTask task = entry.getValue();
+                    if (task.isPublic() == visible && (!projectPath.isPresent() || projectPath.get().equals(entry.getKey())) && !(exclude.isPresent() && exclude.get() == task)) {
+                        result.add(BuildInvocationsMatch.forTask(task, entry.getKey(), matchType));
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A name that matches the current query, together with the rank of the match.
+     */
+    private static final class RankedName {
+
+        private static final Comparator<RankedName> ORDER = new Comparator<RankedName>() {
+
+            @Override
+            public int compare(RankedName o1, RankedName o2) {
+                if (o1.rank != o2.rank) {
+                    return o1.rank < o2.rank ? -1 : 1;
+                }
+                int length1 = o1.name.name.length();
+                int length2 = o2.name.name.length();
+                if (length1 != length2) {
+                    return length1 < length2 ? -1 : 1;
+                }
+                return o1.name.name.compareTo(o2.name.name);
+            }
+        };
+
+        private final IndexedName name;
+        private final int rank;
+
+        private RankedName(IndexedName name, int rank) {
+            this.name = name;
+            this.rank = rank;
+        }
+
+        private BuildInvocationsMatch.MatchType getMatchType() {
+            switch (this.rank) {
+                case NameMatcher.EXACT:
+                case NameMatcher.EXACT_IGNORE_CASE:
+                    return BuildInvocationsMatch.MatchType.EXACT;
+                case NameMatcher.PREFIX:
+                case NameMatcher.PREFIX_IGNORE_CASE:
+                    return BuildInvocationsMatch.MatchType.PREFIX;
+                default:
+                    return BuildInvocationsMatch.MatchType.ABBREVIATION;
+            }
+        }
+
+    }
+
+}
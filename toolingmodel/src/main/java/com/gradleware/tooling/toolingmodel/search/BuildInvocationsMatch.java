@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.search;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.gradleware.tooling.toolingmodel.OmniProjectTask;
+import com.gradleware.tooling.toolingmodel.OmniTaskSelector;
+import com.gradleware.tooling.toolingmodel.Path;
+
+/**
+ * A single result of searching a {@link BuildInvocationsIndex}, pointing either to a project task or to a task selector.
+ *
+ * @author Etienne Studer
+ */
+public final class BuildInvocationsMatch {
+
+    /**
+     * Enumerates how a search result matches the query, from the best to the weakest kind of match.
+     */
+    public enum MatchType {
+
+        /**
+         * The query is the full path of the task.
+         */
+        EXACT_PATH,
+
+        /**
+         * The query is the name of the task or task selector, possibly in a different case.
+         */
+        EXACT,
+
+        /**
+         * The name of the task or task selector starts with the query, possibly in a different case.
+         */
+        PREFIX,
+
+        /**
+         * The query abbreviates the camel case words of the name of the task or task selector.
+         */
+        ABBREVIATION
+
+    }
+
+    private final Path projectPath;
+    private final MatchType matchType;
+    private final Optional<OmniProjectTask> task;
+    private final Optional<OmniTaskSelector> taskSelector;
+
+    private BuildInvocationsMatch(Path projectPath, MatchType matchType, Optional<OmniProjectTask> task, Optional<OmniTaskSelector> taskSelector) {
+        this.projectPath = Preconditions.checkNotNull(projectPath);
+        this.matchType = Preconditions.checkNotNull(matchType);
+        this.task = Preconditions.checkNotNull(task);
+        this.taskSelector = Preconditions.checkNotNull(taskSelector);
+    }
+
+    /**
+     * Returns the name of the matching task or task selector.
+     *
+     * @return the name, never null
+     */
+    public String getName() {
+        return this.task.isPresent() ? this.task.get().getName() : this.taskSelector.get().getName();
+    }
+
+    /**
+     * Returns the path of the project that contains the matching task or task selector.
+     *
+     * @return the project path, never null
+     */
+    public Path getProjectPath() {
+        return this.projectPath;
+    }
+
+    /**
+     * Returns how the result matches the query.
+     *
+     * @return the match type, never null
+     */
+    public MatchType getMatchType() {
+        return this.matchType;
+    }
+
+    /**
+     * Returns the matching project task, if the result points to a project task.
+     *
+     * @return the project task, absent if the result points to a task selector
+     */
+    public Optional<OmniProjectTask> getTask() {
+        return this.task;
+    }
+
+    /**
+     * Returns the matching task selector, if the result points to a task selector.
+     *
+     * @return the task selector, absent if the result points to a project task
+     */
+    public Optional<OmniTaskSelector> getTaskSelector() {
+        return this.taskSelector;
+    }
+
+    @Override
+    public String toString() {
+        return (this.task.isPresent() ? this.task.get().getPath().getPath() : this.projectPath.getPath() + " > " + getName()) + " (" + this.matchType + ")";
+    }
+
+    public static BuildInvocationsMatch forTask(OmniProjectTask task, Path projectPath, MatchType matchType) {
+        return new BuildInvocationsMatch(projectPath, matchType, Optional.of(task), Optional.<OmniTaskSelector>absent());
+    }
+
+    public static BuildInvocationsMatch forTaskSelector(OmniTaskSelector taskSelector, MatchType matchType) {
+        return new BuildInvocationsMatch(taskSelector.getProjectPath(), matchType, Optional.<OmniProjectTask>absent(), Optional.of(taskSelector));
+    }
+
+}
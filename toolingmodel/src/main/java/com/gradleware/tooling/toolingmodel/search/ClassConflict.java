@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.search;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * A set of classes that are contained in more than one jar of a {@link ClassIndex}, grouped by the jars that contain them.
+ *
+ * @author Etienne Studer
+ */
+public final class ClassConflict {
+
+    private final ImmutableList<File> jars;
+    private final ImmutableList<String> classNames;
+
+    private ClassConflict(List<File> jars, List<String> classNames) {
+        this.jars = ImmutableList.copyOf(jars);
+        this.classNames = ImmutableList.copyOf(classNames);
+    }
+
+    /**
+     * Returns the jars that all contain the conflicting classes, in the order in which they were indexed.
+     *
+     * @return the jars, at least two
+     */
+    public List<File> getJars() {
+        return this.jars;
+    }
+
+    /**
+     * Returns the fully qualified names of the classes that are contained in each of the jars, sorted by name.
+     *
+     * @return the names of the conflicting classes, never empty
+     */
+    public List<String> getClassNames() {
+        return this.classNames;
+    }
+
+    @Override
+    public String toString() {
+        return this.classNames.size() + " classes in " + this.jars;
+    }
+
+    static ClassConflict from(List<File> jars, List<String> classNames) {
+        Preconditions.checkArgument(jars.size() > 1, "A conflict requires at least two jars.");
+        Preconditions.checkArgument(!classNames.isEmpty(), "A conflict requires at least one class.");
+        return new ClassConflict(jars, classNames);
+    }
+
+}
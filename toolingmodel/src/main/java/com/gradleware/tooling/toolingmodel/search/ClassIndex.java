@@ -0,0 +1,223 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.search;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+import com.gradleware.tooling.toolingmodel.OmniEclipseClasspath;
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps class names to the jars that contain them. The index is held in three arrays: the distinct class names in sorted order, the offset of the jars of each class, and
+ * the jar numbers themselves, such that a lookup is a binary search without any per-class objects. Instances are immutable.
+ *
+ * @author Etienne Studer
+ * @see ClassIndexService
+ */
+public final class ClassIndex {
+
+    private final ImmutableList<File> jars;
+    private final String[] classNames;
+    private final int[] offsets;
+    private final int[] jarNumbers;
+
+    private ClassIndex(ImmutableList<File> jars, String[] classNames, int[] offsets, int[] jarNumbers) {
+        this.jars = jars;
+        this.classNames = classNames;
+        this.offsets = offsets;
+        this.jarNumbers = jarNumbers;
+    }
+
+    /**
+     * Returns the indexed jars.
+     *
+     * @return the jars, in the order in which they were indexed
+     */
+    public List<File> getJars() {
+        return this.jars;
+    }
+
+    /**
+     * Returns the number of distinct classes in the indexed jars.
+     *
+     * @return the number of classes
+     */
+    public int getClassCount() {
+        return this.classNames.length;
+    }
+
+    /**
+     * Returns the jars that contain the class with the given name.
+     *
+     * @param className the fully qualified name of the class, nested classes are separated by a dollar sign
+     * @return the jars, empty if no indexed jar contains the class
+     */
+    public List<File> findJars(String className) {
+        int index = Arrays.binarySearch(this.classNames, Preconditions.checkNotNull(className));
+        if (index < 0) {
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<File> result = ImmutableList.builder();
+        for (int i = this.offsets[index]; i < this.offsets[index + 1]; i++) {
+            result.add(this.jars.get(this.jarNumbers[i]));
+        }
+        return result.build();
+    }
+
+    /**
+     * Returns the classes that are contained in more than one of the indexed jars, grouped by the set of jars that contain them. The conflicts with the most classes come
+     * first.
+     *
+     * @return the conflicts, empty if each class is contained in one jar only
+     */
+    public List<ClassConflict> getConflicts() {
+        return collectConflicts(null);
+    }
+
+    /**
+     * Returns the classes that are contained in more than one of the jars of the given classpath. Jars of the classpath that have not been indexed are ignored.
+     *
+     * @param classpath the classpath to check, typically the effective classpath of an Eclipse project
+     * @return the conflicts, empty if each class is contained in one jar of the classpath only
+     */
+    public List<ClassConflict> getConflicts(OmniEclipseClasspath classpath) {
+        Set<File> files = Sets.newHashSet();
+        for (OmniExternalDependency dependency : classpath.getExternalDependencies()) {
+            files.add(dependency.getFile());
+        }
+        boolean[] included = new boolean[this.jars.size()];
+        for (int i = 0; i < included.length; i++) {
+            included[i] = files.contains(this.jars.get(i));
+        }
+        return collectConflicts(included);
+    }
+
+    private List<ClassConflict> collectConflicts(boolean[] included) {
+        Map<List<Integer>, List<String>> classesByJars = Maps.newLinkedHashMap();
+        List<Integer> jarsOfClass = Lists.newArrayList();
+        for (int index = 0; index < this.classNames.length; index++) {
+            if (this.offsets[index + 1] - this.offsets[index] < 2) {
+                continue;
+            }
+            jarsOfClass.clear();
+            for (int i = this.offsets[index]; i < this.offsets[index + 1]; i++) {
+                if (included == null || included[this.jarNumbers[i]]) {
+                    jarsOfClass.add(this.jarNumbers[i]);
+                }
+            }
+            if (jarsOfClass.size() > 1) {
+                List<String> classes = classesByJars.get(jarsOfClass);
+                if (classes == null) {
+                    classes = Lists.newArrayList();
+                    classesByJars.put(ImmutableList.copyOf(jarsOfClass), classes);
+                }
+                classes.add(this.classNames[index]);
+            }
+        }
+
+        List<ClassConflict> result = Lists.newArrayListWithCapacity(classesByJars.size());
+        for (Map.Entry<List<Integer>, List<String>> entry : classesByJars.entrySet()) {
+            List<File> jars = Lists.newArrayListWithCapacity(entry.getKey().size());
+            for (Integer jarNumber : entry.getKey()) {
+                jars.add(this.jars.get(jarNumber));
+            }
+            result.add(ClassConflict.from(jars, entry.getValue()));
+        }
+        Collections.sort(result, new Comparator<ClassConflict>() {
+
+            @Override
+            public int compare(ClassConflict o1, ClassConflict o2) {
+                return Ints.compare(o2.getClassNames().size(), o1.getClassNames().size());
+            }
+        });
+        return ImmutableList.copyOf(result);
+    }
+
+    /**
+     * Creates a new index of the given jars and their classes.
+     *
+     * @param jars the jars
+     * @param classNames the names of the classes of each jar, in the same order as the jars
+     * @return the new instance
+     */
+    static ClassIndex from(List<File> jars, List<? extends List<String>> classNames) {
+        Preconditions.checkArgument(jars.size() == classNames.size(), "Expected the classes of %s jars, got %s.", jars.size(), classNames.size());
+
+        // sort the (class name, jar number) pairs by class name and jar number, then collapse equal class names
+        int pairCount = 0;
+        for (List<String> classNamesOfJar : classNames) {
+            pairCount += classNamesOfJar.size();
+        }
+        final String[] pairNames = new String[pairCount];
+        final int[] pairJars = new int[pairCount];
+        int pair = 0;
+        for (int jar = 0; jar < classNames.size(); jar++) {
+            for (String className : classNames.get(jar)) {
+                pairNames[pair] = className;
+                pairJars[pair] = jar;
+                pair++;
+            }
+        }
+        Integer[] order = new Integer[pairCount];
+        for (int i = 0; i < pairCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                int result = pairNames[o1].compareTo(pairNames[o2]);
+                return result != 0 ? result : Ints.compare(pairJars[o1], pairJars[o2]);
+            }
+        });
+
+        List<String> distinctNames = Lists.newArrayList();
+        int[] offsets = new int[pairCount + 1];
+        int[] jarNumbers = new int[pairCount];
+        int jarCount = 0;
+        for (Integer index : order) {
+            String className = pairNames[index];
+            boolean newClass = distinctNames.isEmpty() || !distinctNames.get(distinctNames.size() - 1).equals(className);
+            if (newClass) {
+                offsets[distinctNames.size()] = jarCount;
+                distinctNames.add(className);
+            } else if (jarNumbers[jarCount - 1] == pairJars[index]) {
+                // the same class listed twice in the same jar
+                continue;
+            }
+            jarNumbers[jarCount++] = pairJars[index];
+        }
+        offsets[distinctNames.size()] = jarCount;
+
+        return new ClassIndex(ImmutableList.copyOf(jars), distinctNames.toArray(new String[distinctNames.size()]), Arrays.copyOf(offsets, distinctNames.size() + 1),
+                Arrays.copyOf(jarNumbers, jarCount));
+    }
+
+}
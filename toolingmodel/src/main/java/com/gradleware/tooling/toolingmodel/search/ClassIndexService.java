@@ -0,0 +1,344 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.search;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.gradleware.tooling.toolingmodel.OmniEclipseGradleBuild;
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject;
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Creates {@link ClassIndex} instances for the external dependencies of Eclipse builds. Each distinct jar is read once: its class names are taken from the zip central
+ * directory, see {@link ZipCentralDirectory}, with several jars being read in parallel. The class names are remembered per jar and reused as long as the size and the last
+ * modification time of the jar are unchanged.
+ * <p/>
+ * If a cache file is given, the remembered class names are loaded from it on first use and written back to it whenever new jars have been read, such that they survive
+ * restarts. Instances are thread-safe.
+ *
+ * @author Etienne Studer
+ */
+public final class ClassIndexService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClassIndexService.class);
+
+    private static final int CACHE_FILE_MAGIC = 0x434c4958;
+    private static final int CACHE_FILE_VERSION = 1;
+
+    private final Optional<File> cacheFile;
+    private final int parallelism;
+    private final ConcurrentMap<String, IndexedJar> indexedJars;
+    private final Object cacheFileLock;
+    private boolean cacheFileLoaded;
+
+    public ClassIndexService() {
+        this(Optional.<File>absent(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public ClassIndexService(File cacheFile) {
+        this(Optional.of(cacheFile), Runtime.getRuntime().availableProcessors());
+    }
+
+    public ClassIndexService(Optional<File> cacheFile, int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, "Parallelism must be positive: %s", parallelism);
+        this.cacheFile = Preconditions.checkNotNull(cacheFile);
+        this.parallelism = parallelism;
+        this.indexedJars = Maps.newConcurrentMap();
+        this.cacheFileLock = new Object();
+    }
+
+    /**
+     * Indexes the distinct jars among the external dependencies of all Eclipse projects of the given build.
+     *
+     * @param eclipseGradleBuild the build whose external dependencies to index
+     * @return the index, never null
+     */
+    public ClassIndex index(OmniEclipseGradleBuild eclipseGradleBuild) {
+        Set<File> jars = Sets.newLinkedHashSet();
+        for (OmniEclipseProject project : eclipseGradleBuild.getRootEclipseProject().getAll()) {
+            for (OmniExternalDependency dependency : project.getExternalDependencies()) {
+                if (dependency.getFile() != null) {
+                    jars.add(dependency.getFile());
+                }
+            }
+        }
+        return index(ImmutableList.copyOf(jars));
+    }
+
+    /**
+     * Indexes the given jars. Files that do not exist, directories and files that cannot be read as zip files are indexed as containing no classes.
+     *
+     * @param jars the jars to index
+     * @return the index, never null
+     */
+    public ClassIndex index(List<File> jars) {
+        loadCacheFileOnce();
+
+        List<List<String>> classNames = Lists.newArrayListWithCapacity(jars.size());
+        Map<Integer, File> outdated = Maps.newLinkedHashMap();
+        for (File jar : jars) {
+            IndexedJar indexedJar = this.indexedJars.get(jar.getAbsolutePath());
+            if (indexedJar != null && indexedJar.isUpToDate(jar)) {
+                classNames.add(indexedJar.classNames);
+            } else {
+                outdated.put(classNames.size(), jar);
+                classNames.add(ImmutableList.<String>of());
+            }
+        }
+
+        if (!outdated.isEmpty()) {
+            boolean remembered = false;
+            for (Map.Entry<Integer, IndexedJar> readJar : readJars(outdated).entrySet()) {
+                classNames.set(readJar.getKey(), readJar.getValue().classNames);
+                remembered |= readJar.getValue().path != null;
+            }
+            if (remembered) {
+                storeCacheFile();
+            }
+        }
+        return ClassIndex.from(jars, classNames);
+    }
+
+    private Map<Integer, IndexedJar> readJars(Map<Integer, File> jars) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.parallelism, jars.size()),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("class-indexer-%d").build());
+        try {
+            Map<Integer, Future<IndexedJar>> futures = Maps.newLinkedHashMap();
+            for (Map.Entry<Integer, File> jar : jars.entrySet()) {
+                futures.put(jar.getKey(), executor.submit(new ReadJar(jar.getValue())));
+            }
+            Map<Integer, IndexedJar> result = Maps.newLinkedHashMap();
+            for (Map.Entry<Integer, Future<IndexedJar>> future : futures.entrySet()) {
+                IndexedJar indexedJar = Uninterruptibles.getUninterruptibly(future.getValue());
+                result.put(future.getKey(), indexedJar);
+                if (indexedJar.path != null) {
+                    this.indexedJars.put(indexedJar.path, indexedJar);
+                }
+            }
+            return result;
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void loadCacheFileOnce() {
+        synchronized (this.cacheFileLock) {
+            if (this.cacheFileLoaded || !this.cacheFile.isPresent()) {
+                return;
+            }
+            this.cacheFileLoaded = true;
+            File file = this.cacheFile.get();
+            if (!file.isFile()) {
+                return;
+            }
+            try {
+                for (IndexedJar indexedJar : readCacheFile(file)) {
+                    this.indexedJars.putIfAbsent(indexedJar.path, indexedJar);
+                }
+            } catch (IOException e) {
+                LOG.error("Cannot read class index cache file " + file + ". All jars will be read again.", e);
+            }
+        }
+    }
+
+    private void storeCacheFile() {
+        if (!this.cacheFile.isPresent()) {
+            return;
+        }
+        synchronized (this.cacheFileLock) {
+            // jars that no longer exist are dropped from the cache file
+            Iterator<IndexedJar> iterator = this.indexedJars.values().iterator();
+            while (iterator.hasNext()) {
+                if (!new File(iterator.next().path).isFile()) {
+                    iterator.remove();
+                }
+            }
+            File file = this.cacheFile.get();
+            try {
+                writeCacheFile(file, ImmutableList.copyOf(this.indexedJars.values()));
+            } catch (IOException e) {
+                LOG.error("Cannot write class index cache file " + file + ".", e);
+            }
+        }
+    }
+
+    private static List<IndexedJar> readCacheFile(File file) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        boolean threw = true;
+        try {
+            if (input.readInt() != CACHE_FILE_MAGIC || input.readInt() != CACHE_FILE_VERSION) {
+                throw new IOException("Unsupported class index cache file format.");
+            }
+            int jarCount = input.readInt();
+            List<IndexedJar> result = Lists.newArrayListWithCapacity(jarCount);
+            for (int jar = 0; jar < jarCount; jar++) {
+                String path = input.readUTF();
+                long size = input.readLong();
+                long lastModified = input.readLong();
+                int classCount = input.readInt();
+                String[] classNames = new String[classCount];
+                String previous = "";
+                for (int i = 0; i < classCount; i++) {
+                    // each name is stored as the length of the prefix it shares with the previous name, followed by the rest of the name
+                    int sharedPrefixLength = input.readUnsignedShort();
+                    previous = previous.substring(0, sharedPrefixLength) + input.readUTF();
+                    classNames[i] = previous;
+                }
+                result.add(new IndexedJar(path, size, lastModified, ImmutableList.copyOf(classNames)));
+            }
+            threw = false;
+            return result;
+        } finally {
+            Closeables.close(input, threw);
+        }
+    }
+
+    private static void writeCacheFile(File file, List<IndexedJar> indexedJars) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent + ".");
+        }
+
+        // write to a temporary file first, such that a concurrent reader or a crash never leaves a truncated cache file behind
+        File temporaryFile = new File(parent, file.getName() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+        boolean threw = true;
+        try {
+            output.writeInt(CACHE_FILE_MAGIC);
+            output.writeInt(CACHE_FILE_VERSION);
+            output.writeInt(indexedJars.size());
+            for (IndexedJar indexedJar : indexedJars) {
+                output.writeUTF(indexedJar.path);
+                output.writeLong(indexedJar.size);
+                output.writeLong(indexedJar.lastModified);
+                String[] classNames = indexedJar.classNames.toArray(new String[indexedJar.classNames.size()]);
+                Arrays.sort(classNames);
+                output.writeInt(classNames.length);
+                String previous = "";
+                for (String className : classNames) {
+                    int sharedPrefixLength = sharedPrefixLength(previous, className);
+                    output.writeShort(sharedPrefixLength);
+                    output.writeUTF(className.substring(sharedPrefixLength));
+                    previous = className;
+                }
+            }
+            threw = false;
+        } finally {
+            Closeables.close(output, threw);
+        }
+
+        if (!temporaryFile.renameTo(file) && !(file.delete() && temporaryFile.renameTo(file))) {
+            throw new IOException("Cannot replace " + file + ".");
+        }
+    }
+
+    private static int sharedPrefixLength(String first, String second) {
+        int max = Math.min(Math.min(first.length(), second.length()), 0xffff);
+        int length = 0;
+        while (length < max && first.charAt(length) == second.charAt(length)) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * The class names of a jar, together with the size and the last modification time of the jar when it was read.
+     */
+    private static final class IndexedJar {
+
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final ImmutableList<String> classNames;
+
+        private IndexedJar(String path, long size, long lastModified, ImmutableList<String> classNames) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.classNames = classNames;
+        }
+
+        private boolean isUpToDate(File jar) {
+            return jar.length() == this.size && jar.lastModified() == this.lastModified;
+        }
+
+    }
+
+    /**
+     * Reads the class names of a single jar.
+     */
+    private static final class ReadJar implements Callable<IndexedJar> {
+
+        private final File jar;
+
+        private ReadJar(File jar) {
+            this.jar = jar;
+        }
+
+        @Override
+        public IndexedJar call() {
+            // the size and the time stamp are taken before reading, such that a jar that changes while being read is read again next time
+            long size = this.jar.length();
+            long lastModified = this.jar.lastModified();
+            if (!this.jar.isFile()) {
+                return new IndexedJar(null, size, lastModified, ImmutableList.<String>of());
+            }
+            try {
+                return new IndexedJar(this.jar.getAbsolutePath(), size, lastModified, ImmutableList.copyOf(ZipCentralDirectory.readClassNames(this.jar)));
+            } catch (IOException e) {
+                // a jar that cannot be read is not remembered, such that it is read again once it has been fixed
+                LOG.warn("Cannot read the classes of " + this.jar + ".", e);
+                return new IndexedJar(null, size, lastModified, ImmutableList.<String>of());
+            }
+        }
+
+    }
+
+}
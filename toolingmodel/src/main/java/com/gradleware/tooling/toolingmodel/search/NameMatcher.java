@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.search;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Matches task names against a query the way Gradle matches task names given on the command line: a name matches if it equals the query, if it starts with the query, or if
+ * the query abbreviates the camel case words of the name, such as {@code cJ} for {@code compileJava}. Words are also separated by digits, dashes, underscores and dots. Each
+ * kind of match is tried case-sensitively first and case-insensitively second.
+ *
+ * @author Etienne Studer
+ */
+final class NameMatcher {
+
+    static final int NO_MATCH = -1;
+    static final int EXACT = 0;
+    static final int EXACT_IGNORE_CASE = 1;
+    static final int PREFIX = 2;
+    static final int PREFIX_IGNORE_CASE = 3;
+    static final int ABBREVIATION = 4;
+    static final int ABBREVIATION_PREFIX = 5;
+    static final int ABBREVIATION_IGNORE_CASE = 6;
+
+    private final String query;
+    private final String[] parts;
+
+    private NameMatcher(String query) {
+        this.query = Preconditions.checkNotNull(query);
+        int[] words = splitWords(query);
+        this.parts = new String[words.length / 2];
+        for (int i = 0; i < this.parts.length; i++) {
+            this.parts[i] = query.substring(words[2 * i], words[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Returns the part of the query that any matching name must start with, ignoring case.
+     *
+     * @return the lower case prefix shared by all matching names
+     */
+    String getCandidatePrefix() {
+        // the first part of an abbreviation must be a prefix of the first word, and the query itself is a prefix of the exact and prefix matches
+        return this.parts.length > 0 && this.query.startsWith(this.parts[0]) ? this.parts[0].toLowerCase() : "";
+    }
+
+    /**
+     * Returns how well the given name matches the query.
+     *
+     * @param name the name to match
+     * @param words the start and end index of each word of the name as returned by {@link #splitWords(String)}
+     * @return the rank of the match, lower is better, or {@link #NO_MATCH}
+     */
+    int match(String name, int[] words) {
+        if (name.equals(this.query)) {
+            return EXACT;
+        } else if (name.equalsIgnoreCase(this.query)) {
+            return EXACT_IGNORE_CASE;
+        } else if (name.startsWith(this.query)) {
+            return PREFIX;
+        } else if (name.regionMatches(true, 0, this.query, 0, this.query.length())) {
+            return PREFIX_IGNORE_CASE;
+        }
+
+        int wordCount = words.length / 2;
+        if (this.parts.length == 0 || this.parts.length > wordCount) {
+            return NO_MATCH;
+        } else if (matchesWords(name, words, false)) {
+            return this.parts.length == wordCount ? ABBREVIATION : ABBREVIATION_PREFIX;
+        } else if (matchesWords(name, words, true)) {
+            return ABBREVIATION_IGNORE_CASE;
+        } else {
+            return NO_MATCH;
+        }
+    }
+
+    private boolean matchesWords(String name, int[] words, boolean ignoreCase) {
+        // each part of the query must be a prefix of the word at the same position
+        for (int i = 0; i < this.parts.length; i++) {
+            String part = this.parts[i];
+            int wordStart = words[2 * i];
+            int wordEnd = words[2 * i + 1];
+            if (part.length() > wordEnd - wordStart || !name.regionMatches(ignoreCase, wordStart, part, 0, part.length())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits the given name into its words. A new word starts at an upper case letter, at the first digit of a number, and after a dash, an underscore or a dot, which are
+     * not part of any word.
+     *
+     * @param name the name to split
+     * @return the start and end index of each word, in pairs
+     */
+    static int[] splitWords(String name) {
+        int[] words = new int[2 * name.length()];
+        int count = 0;
+        int start = -1;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (isSeparator(c)) {
+                if (start >= 0) {
+                    words[count++] = start;
+                    words[count++] = i;
+                    start = -1;
+                }
+            } else if (start < 0) {
+                start = i;
+            } else if (Character.isUpperCase(c) || Character.isDigit(c) && !Character.isDigit(name.charAt(i - 1))) {
+                words[count++] = start;
+                words[count++] = i;
+                start = i;
+            }
+        }
+        if (start >= 0) {
+            words[count++] = start;
+            words[count++] = name.length();
+        }
+        int[] result = new int[count];
+        System.arraycopy(words, 0, result, 0, count);
+        return result;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '-' || c == '_' || c == '.';
+    }
+
+    /**
+     * Creates a new matcher for the given query.
+     *
+     * @param query the query, typically typed by the user
+     * @return the new instance
+     */
+    static NameMatcher forQuery(String query) {
+        return new NameMatcher(query);
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.search;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Prefix tree that maps keys to values, where several values can be stored under the same key. The children of a node are kept in sorted arrays rather than in maps, such
+ * that a tree over tens of thousands of keys stays compact. Instances are not thread-safe.
+ *
+ * @param <V> the type of the values
+ * @author Etienne Studer
+ */
+final class PrefixTrie<V> {
+
+    private final Node<V> root;
+    private int size;
+
+    PrefixTrie() {
+        this.root = new Node<V>();
+    }
+
+    /**
+     * Stores the given value under the given key.
+     *
+     * @param key the key
+     * @param value the value to store
+     */
+    void put(String key, V value) {
+        Preconditions.checkNotNull(value);
+        Node<V> node = this.root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.getOrCreateChild(key.charAt(i));
+        }
+        node.values.add(value);
+        this.size++;
+    }
+
+    /**
+     * Removes the given value from the values stored under the given key. Nodes that no longer lead to any value are pruned.
+     *
+     * @param key the key
+     * @param value the value to remove
+     * @return {@code true} if the value was stored under the key
+     */
+    boolean remove(String key, V value) {
+        Node<V>[] path = Node.newArray(key.length() + 1);
+        path[0] = this.root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].getChild(key.charAt(i));
+            if (path[i + 1] == null) {
+                return false;
+            }
+        }
+        if (!path[key.length()].values.remove(value)) {
+            return false;
+        }
+        this.size--;
+
+        // prune the nodes from the bottom up as long as they neither hold values nor have children
+        for (int i = key.length(); i > 0 && path[i].isEmpty(); i--) {
+            path[i - 1].removeChild(key.charAt(i - 1));
+        }
+        return true;
+    }
+
+    /**
+     * Returns all values whose keys start with the given prefix, in the order of their keys.
+     *
+     * @param prefix the prefix
+     * @return the values, never null
+     */
+    List<V> getByPrefix(String prefix) {
+        Node<V> node = this.root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.getChild(prefix.charAt(i));
+        }
+        List<V> result = new ArrayList<V>();
+        if (node != null) {
+            node.collect(result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of values stored in this tree.
+     *
+     * @return the number of values
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * A node of the tree, with its children sorted by their character.
+     *
+     * @param <V> the type of the values
+     */
+    private static final class Node<V> {
+
+        private static final char[] NO_KEYS = new char[0];
+
+        private char[] childKeys = NO_KEYS;
+        private Node<V>[] children;
+        private final List<V> values = new ArrayList<V>(1);
+
+        private Node<V> getChild(char c) {
+            int index = Arrays.binarySearch(this.childKeys, c);
+            return index >= 0 ? this.children[index] : null;
+        }
+
+        private Node<V> getOrCreateChild(char c) {
+            int index = Arrays.binarySearch(this.childKeys, c);
+            if (index >= 0) {
+                return this.children[index];
+            }
+
+            int insertionPoint = -index - 1;
+            int count = this.childKeys.length;
+            char[] childKeys = new char[count + 1];
+            Node<V>[] children = newArray(count + 1);
+            System.arraycopy(this.childKeys, 0, childKeys, 0, insertionPoint);
+            System.arraycopy(this.childKeys, insertionPoint, childKeys, insertionPoint + 1, count - insertionPoint);
+            if (count > 0) {
+                System.arraycopy(this.children, 0, children, 0, insertionPoint);
+                System.arraycopy(this.children, insertionPoint, children, insertionPoint + 1, count - insertionPoint);
+            }
+            Node<V> child = new Node<V>();
+            childKeys[insertionPoint] = c;
+            children[insertionPoint] = child;
+            this.childKeys = childKeys;
+            this.children = children;
+            return child;
+        }
+
+        private void removeChild(char c) {
+            int index = Arrays.binarySearch(this.childKeys, c);
+            if (index < 0) {
+                return;
+            }
+
+            int count = this.childKeys.length;
+            if (count == 1) {
+                this.childKeys = NO_KEYS;
+                this.children = null;
+                return;
+            }
+            char[] childKeys = new char[count - 1];
+            Node<V>[] children = newArray(count - 1);
+            System.arraycopy(this.childKeys, 0, childKeys, 0, index);
+            System.arraycopy(this.childKeys, index + 1, childKeys, index, count - index - 1);
+            System.arraycopy(this.children, 0, children, 0, index);
+            System.arraycopy(this.children, index + 1, children, index, count - index - 1);
+            this.childKeys = childKeys;
+            this.children = children;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <V> Node<V>[] newArray(int length) {
+            // generic arrays cannot be created directly
+            return new Node[length];
+        }
+
+        private boolean isEmpty() {
+            return this.values.isEmpty() && this.childKeys.length == 0;
+        }
+
+        private void collect(List<V> result) {
+            result.addAll(this.values);
+            for (int i = 0; i < this.childKeys.length; i++) {
+                this.children[i].collect(result);
+            }
+        }
+
+    }
+
+}
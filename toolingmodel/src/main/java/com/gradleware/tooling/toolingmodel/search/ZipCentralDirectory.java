@@ -0,0 +1,163 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.search;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Reads the names of the classes contained in a jar file from the central directory at the end of the file, without reading or inflating any of the entries. Only the
+ * end of the file is memory-mapped: first the region that can hold the end of central directory record, then the central directory itself.
+ * <p/>
+ * Classes of other Java versions in the {@code META-INF/versions} directory of multi-release jars and module descriptors are not reported.
+ *
+ * @author Etienne Studer
+ */
+final class ZipCentralDirectory {
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE = 20;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE = 56;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int MAX_COMMENT_LENGTH = 0xffff;
+    private static final int UTF8_NAMES_FLAG = 1 << 11;
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String VERSIONS_DIRECTORY = "META-INF/versions/";
+    private static final Charset LEGACY_NAMES_CHARSET = Charsets.ISO_8859_1;
+
+    private ZipCentralDirectory() {
+    }
+
+    /**
+     * Returns the fully qualified names of the classes contained in the given jar file, in the order of the central directory.
+     *
+     * @param jar the jar file to read
+     * @return the names of the classes, for example {@code org.example.Outer$Inner}
+     * @throws IOException if the file cannot be read or is not a valid zip file
+     */
+    static List<String> readClassNames(File jar) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(jar, "r");
+        boolean threw = true;
+        try {
+            List<String> classNames = readClassNames(file.getChannel(), jar);
+            threw = false;
+            return classNames;
+        } finally {
+            Closeables.close(file, threw);
+        }
+    }
+
+    private static List<String> readClassNames(FileChannel channel, File jar) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < END_OF_CENTRAL_DIRECTORY_SIZE) {
+            throw new IOException("Not a zip file: " + jar);
+        }
+
+        // the end of central directory record is followed by a comment of up to 64 KB, hence it is searched backwards from the end of the file
+        long tailStart = Math.max(0, fileSize - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_COMMENT_LENGTH - ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE);
+        MappedByteBuffer tail = map(channel, tailStart, fileSize - tailStart);
+        int end = findEndOfCentralDirectory(tail);
+        if (end < 0) {
+            throw new IOException("Not a zip file, end of central directory not found: " + jar);
+        }
+
+        long entryCount = tail.getShort(end + 10) & 0xffff;
+        long directorySize = tail.getInt(end + 12) & 0xffffffffL;
+        long directoryOffset = tail.getInt(end + 16) & 0xffffffffL;
+        int locator = end - ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE;
+        if (locator >= 0 && tail.getInt(locator) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE) {
+            long zip64EndOffset = tail.getLong(locator + 8);
+            MappedByteBuffer zip64End = map(channel, zip64EndOffset, ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE);
+            if (zip64End.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                throw new IOException("Invalid zip64 end of central directory: " + jar);
+            }
+            entryCount = zip64End.getLong(32);
+            directorySize = zip64End.getLong(40);
+            directoryOffset = zip64End.getLong(48);
+        }
+        if (directoryOffset + directorySize > fileSize || directorySize > Integer.MAX_VALUE) {
+            throw new IOException("Invalid central directory: " + jar);
+        }
+
+        MappedByteBuffer directory = map(channel, directoryOffset, directorySize);
+        List<String> classNames = Lists.newArrayListWithCapacity((int) Math.min(entryCount, 1 << 16));
+        int position = 0;
+        byte[] nameBytes = new byte[256];
+        for (long i = 0; i < entryCount; i++) {
+            if (position + CENTRAL_DIRECTORY_HEADER_SIZE > directorySize || directory.getInt(position) != CENTRAL_DIRECTORY_HEADER_SIGNATURE) {
+                throw new IOException("Invalid central directory entry at offset " + (directoryOffset + position) + ": " + jar);
+            }
+            int flags = directory.getShort(position + 8) & 0xffff;
+            int nameLength = directory.getShort(position + 28) & 0xffff;
+            int extraLength = directory.getShort(position + 30) & 0xffff;
+            int commentLength = directory.getShort(position + 32) & 0xffff;
+            if (nameLength > nameBytes.length) {
+                nameBytes = new byte[nameLength];
+            }
+            directory.position(position + CENTRAL_DIRECTORY_HEADER_SIZE);
+            directory.get(nameBytes, 0, nameLength);
+            String name = new String(nameBytes, 0, nameLength, (flags & UTF8_NAMES_FLAG) != 0 ? Charsets.UTF_8 : LEGACY_NAMES_CHARSET);
+            String className = toClassName(name);
+            if (className != null) {
+                classNames.add(className);
+            }
+            position += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        return classNames;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static int findEndOfCentralDirectory(MappedByteBuffer tail) {
+        for (int position = tail.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; position >= 0; position--) {
+            // the comment length must lead exactly to the end of the file, which rules out signatures that appear within the comment
+            if (tail.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE
+                    && position + END_OF_CENTRAL_DIRECTORY_SIZE + (tail.getShort(position + 20) & 0xffff) == tail.limit()) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private static String toClassName(String entryName) {
+        if (!entryName.endsWith(CLASS_SUFFIX) || entryName.startsWith(VERSIONS_DIRECTORY) || entryName.endsWith("module-info.class")
+                || entryName.endsWith("package-info.class")) {
+            return null;
+        }
+        return entryName.substring(0, entryName.length() - CLASS_SUFFIX.length()).replace('/', '.');
+    }
+
+}
@@ -54,6 +54,21 @@ class BuildActionFactoryTest extends ToolingModelToolingClientSpecification {
     assert buildInvocationsMap != null
   }
 
+  def "ModelForProjectsBuildAction in batches"() {
+    setup:
+    directoryProvider.file('settings.gradle') << "include 'sub1', 'sub2', 'sub3'"
+    List<ModelForProjectsBuildAction<BuildInvocations>> actions = BuildActionFactory.getModelForProjectsInBatches([':', ':sub1', ':sub2', ':sub3'], BuildInvocations.class, 3)
+    assert actions.size() == 2
+
+    Map<String, BuildInvocations> buildInvocationsMap = [:]
+    actions.each { action ->
+      BuildActionRequest<Map<String, BuildInvocations>> buildActionRequest = toolingClient.newBuildActionRequest(action)
+      buildActionRequest.projectDir(directoryProvider.testDirectory)
+      buildInvocationsMap.putAll(buildActionRequest.executeAndWait())
+    }
+    assert buildInvocationsMap.keySet() as List == [':', ':sub1', ':sub2', ':sub3']
+  }
+
   def "GlobalModelBuildAction"() {
     setup:
     GlobalModelBuildAction<GradleProject> action = BuildActionFactory.getBuildModel(GradleProject.class)
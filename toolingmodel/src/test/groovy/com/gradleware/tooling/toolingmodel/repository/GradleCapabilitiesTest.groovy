@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository
+
+import spock.lang.Specification
+
+class GradleCapabilitiesTest extends Specification {
+
+  def "capabilities are resolved from the target Gradle version"() {
+    when:
+    def capabilities = GradleCapabilities.from(version, Environment.STANDALONE)
+
+    then:
+    capabilities.gradleVersion == version
+    capabilities.supportsBuildActions() == buildActions
+    capabilities.supportsBuildInvocations() == buildInvocations
+    capabilities.supportsCancellation() == cancellation
+    capabilities.supportsTestLaunchRequests() == testLaunch
+    capabilities.requiresIsPublicFix() == isPublicFix
+
+    where:
+    version        | buildActions | buildInvocations | cancellation | testLaunch | isPublicFix
+    '1.0'          | false        | false            | false        | false      | false
+    '1.8'          | true         | false            | false        | false      | false
+    '1.12'         | true         | true             | false        | false      | false
+    '2.1'          | true         | true             | true         | false      | true
+    '2.2.1'        | true         | true             | true         | false      | true
+    '2.2.2-rc-1'   | true         | true             | true         | false      | false
+    '2.6'          | true         | true             | true         | true       | false
+    '2.10-rc-1'    | true         | true             | true         | true       | false
+  }
+
+  def "build actions require Gradle 2.3 in an Eclipse environment"() {
+    expect:
+    GradleCapabilities.from(version, Environment.ECLIPSE).supportsBuildActions() == buildActions
+    GradleCapabilities.from(version, Environment.ECLIPSE).supportsBuildInvocations() == buildActions
+
+    where:
+    version | buildActions
+    '2.2.1' | false
+    '2.3'   | true
+  }
+
+}
@@ -20,6 +20,8 @@ import com.gradleware.tooling.toolingclient.ToolingClient
 import org.gradle.internal.Factory
 import spock.lang.Specification
 
+import java.util.concurrent.TimeUnit
+
 class ModelRepositoryProviderFactoryTest extends Specification {
 
   def "create with single-args constructor"() {
@@ -59,4 +61,24 @@ class ModelRepositoryProviderFactoryTest extends Specification {
     modelRepositoryProvider != null
   }
 
+  def "create with options"() {
+    setup:
+    def toolingClient = Mock(ToolingClient)
+    def factory = Mock(Factory)
+    def options = new ModelRepositoryOptions.Builder().projectBatchSize(50).speculativePrefetching(true).offHeapStorage(OffHeapStoragePolicy.withBudget(1024, 1, TimeUnit.MINUTES)).build()
+
+    when:
+    def modelRepositoryProvider = ModelRepositoryProviderFactory.create(toolingClient, Environment.STANDALONE, factory, options)
+
+    then:
+    noExceptionThrown()
+    modelRepositoryProvider != null
+    options.projectBatchSize == 50
+    options.speculativePrefetching
+    options.offHeapStorage.enabled
+    ModelRepositoryOptions.defaults().projectBatchSize == ModelRepositoryOptions.UNLIMITED_PROJECT_BATCH_SIZE
+    !ModelRepositoryOptions.defaults().speculativePrefetching
+    !ModelRepositoryOptions.defaults().offHeapStorage.enabled
+  }
+
 }
@@ -18,10 +18,13 @@ package com.gradleware.tooling.toolingmodel.repository
 
 import com.google.common.collect.ImmutableList
 import com.gradleware.tooling.toolingclient.BuildActionRequest
+import com.gradleware.tooling.toolingclient.RequestPriority
 import org.gradle.tooling.GradleConnector
 import org.gradle.tooling.ProgressListener
 import spock.lang.Specification
 
+import java.util.concurrent.TimeUnit
+
 class TransientRequestAttributesTest extends Specification {
 
   def "apply"() {
@@ -49,6 +52,33 @@ class TransientRequestAttributesTest extends Specification {
     1 * buildActionRequest.cancellationToken(cancellationToken)
   }
 
+  def "apply - deadline"() {
+    setup:
+    BuildActionRequest<?> buildActionRequest = Mock(BuildActionRequest.class)
+    def cancellationToken = GradleConnector.newCancellationTokenSource().token()
+    def withoutDeadline = new TransientRequestAttributes(false, null, null, null, [], [], cancellationToken)
+    def withDeadline = new TransientRequestAttributes(false, null, null, null, [], [], cancellationToken, RequestPriority.INTERACTIVE, 1, TimeUnit.MINUTES)
+
+    expect:
+    !withoutDeadline.hasDeadline()
+    withoutDeadline.getRemainingTime(TimeUnit.MILLISECONDS) == Long.MAX_VALUE
+    withDeadline.hasDeadline()
+    withDeadline.getRemainingTime(TimeUnit.SECONDS) > 55
+    withDeadline.getRemainingTime(TimeUnit.SECONDS) <= 60
+
+    when:
+    withoutDeadline.apply(buildActionRequest)
+
+    then:
+    0 * buildActionRequest.deadline(_, _)
+
+    when:
+    withDeadline.apply(buildActionRequest)
+
+    then:
+    1 * buildActionRequest.deadline({ it > 55000 && it <= 60000 }, TimeUnit.MILLISECONDS)
+  }
+
   def "equalsAndHashCode"() {
     setup:
     def requestAttributes = new TransientRequestAttributes(true, Mock(OutputStream), Mock(OutputStream), Mock(InputStream),
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.gradleware.tooling.junit.TestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class BuildSharingModelRepositoryTest extends Specification {
+
+  @Rule
+  TestDirectoryProvider directoryProvider = new TestDirectoryProvider();
+
+  def "only directories below a settings file may be sub-project directories"() {
+    setup:
+    directoryProvider.createDir('multi', 'sub')
+    directoryProvider.createDir('multi', 'own')
+    directoryProvider.createDir('flat', 'sub')
+    directoryProvider.createDir('flat', 'master')
+    directoryProvider.createFile('multi', 'settings.gradle') << "include 'sub', 'own'"
+    directoryProvider.createFile('multi', 'own', 'settings.gradle.kts')
+    directoryProvider.createFile('flat', 'master', 'settings.gradle')
+    def subDir = directoryProvider.file('multi', 'sub')
+    def ownDir = directoryProvider.file('multi', 'own')
+    def siblingDir = directoryProvider.file('flat', 'sub')
+
+    // the test directory may be located within another build, hence the single project build is located in the temporary directory
+    def singleDir = File.createTempFile('single', '')
+    singleDir.delete()
+    singleDir.mkdir()
+
+    expect:
+    BuildSharingModelRepository.mayBeSubProjectDirectory(subDir, [])
+    !BuildSharingModelRepository.mayBeSubProjectDirectory(directoryProvider.file('multi'), [])
+    !BuildSharingModelRepository.mayBeSubProjectDirectory(ownDir, [])
+    BuildSharingModelRepository.mayBeSubProjectDirectory(siblingDir, [])
+    !BuildSharingModelRepository.mayBeSubProjectDirectory(singleDir, [])
+    BuildSharingModelRepository.mayBeSubProjectDirectory(singleDir, ['--settings-file=../other/settings.gradle'])
+    BuildSharingModelRepository.mayBeSubProjectDirectory(directoryProvider.file('multi'), ['-c', 'other.gradle'])
+
+    cleanup:
+    singleDir.delete()
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.base.Function
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocationsContainer
+import com.gradleware.tooling.toolingmodel.OmniEclipseGradleBuild
+import com.gradleware.tooling.toolingmodel.OmniGradleProject
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes
+import com.gradleware.tooling.toolingmodel.repository.ModelRepository
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes
+import org.gradle.tooling.BuildCancelledException
+import org.gradle.tooling.GradleConnector
+import org.gradle.tooling.ProgressListener
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class DefaultBulkModelLoadTest extends Specification {
+
+  def cancellationTokenSource = GradleConnector.newCancellationTokenSource()
+  def transientRequestAttributes = new TransientRequestAttributes(false, null, null, null, [] as List<ProgressListener>, [] as List<org.gradle.tooling.events.ProgressListener>, cancellationTokenSource.token())
+
+  def "loads the models of all builds with bounded parallelism"() {
+    setup:
+    def builds = (1..6).collect { build("build$it") }
+    def running = new AtomicInteger()
+    def maxRunning = new AtomicInteger()
+    def repositories = builds.collectEntries { build ->
+      def eclipseGradleBuild = Mock(OmniEclipseGradleBuild)
+      def buildInvocations = Mock(OmniBuildInvocationsContainer)
+      def repository = Mock(ModelRepository)
+      repository.fetchEclipseGradleBuild(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED) >> {
+        maxRunning.set(Math.max(maxRunning.get(), running.incrementAndGet()))
+        Thread.sleep(50)
+        running.decrementAndGet()
+        eclipseGradleBuild
+      }
+      repository.fetchBuildInvocations(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED) >> buildInvocations
+      [(build): [repository: repository, eclipseGradleBuild: eclipseGradleBuild, buildInvocations: buildInvocations]]
+    }
+
+    when:
+    def load = DefaultBulkModelLoad.start(builds, [OmniEclipseGradleBuild, OmniBuildInvocationsContainer], modelRepositories(repositories), transientRequestAttributes,
+        FetchStrategy.LOAD_IF_NOT_CACHED, 2)
+
+    then:
+    load.await(10, TimeUnit.SECONDS)
+    load.done
+    load.totalCount == 12
+    load.completedCount == 12
+    load.failedCount == 0
+    maxRunning.get() <= 2
+    builds.every { load.getModel(it, OmniEclipseGradleBuild) == repositories[it].eclipseGradleBuild }
+    builds.every { load.getModel(it, OmniBuildInvocationsContainer) == repositories[it].buildInvocations }
+  }
+
+  def "records failures per build and model type"() {
+    setup:
+    def healthy = build('healthy')
+    def broken = build('broken')
+    def failure = new IllegalStateException('broken build')
+    def healthyRepository = Mock(ModelRepository)
+    healthyRepository.fetchEclipseGradleBuild(_, _) >> Mock(OmniEclipseGradleBuild)
+    def brokenRepository = Mock(ModelRepository)
+    brokenRepository.fetchEclipseGradleBuild(_, _) >> { throw failure }
+
+    when:
+    def load = DefaultBulkModelLoad.start([healthy, broken, healthy], [OmniEclipseGradleBuild], modelRepositories([(healthy): [repository: healthyRepository], (broken): [repository: brokenRepository]]),
+        transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED, 4)
+    load.await()
+
+    then:
+    load.builds == [healthy, broken]
+    load.completedCount == 2
+    load.failedCount == 1
+    load.getModel(healthy, OmniEclipseGradleBuild) != null
+    load.getFailure(healthy, OmniEclipseGradleBuild) == null
+    load.getModel(broken, OmniEclipseGradleBuild) == null
+    load.getFailure(broken, OmniEclipseGradleBuild).is(failure)
+  }
+
+  def "models are not loaded once the cancellation token has been cancelled"() {
+    setup:
+    def repository = Mock(ModelRepository)
+    cancellationTokenSource.cancel()
+
+    when:
+    def load = DefaultBulkModelLoad.start([build('cancelled')], [OmniEclipseGradleBuild], modelRepositories([(build('cancelled')): [repository: repository]]),
+        transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED, 1)
+    load.await()
+
+    then:
+    0 * repository._
+    load.failedCount == 1
+    load.getFailure(build('cancelled'), OmniEclipseGradleBuild) instanceof BuildCancelledException
+  }
+
+  def "rejects model types that are not served by model repositories"() {
+    when:
+    DefaultBulkModelLoad.start([build('build')], [OmniGradleProject], modelRepositories([:]), transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED, 1)
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+
+  private static FixedRequestAttributes build(String name) {
+    new FixedRequestAttributes(new File(name), null, GradleDistribution.fromBuild(), null, [], [])
+  }
+
+  private static Function<FixedRequestAttributes, ModelRepository> modelRepositories(Map repositories) {
+    new Function<FixedRequestAttributes, ModelRepository>() {
+
+      @Override
+      ModelRepository apply(FixedRequestAttributes build) {
+        repositories[build].repository
+      }
+    }
+  }
+
+}
@@ -18,10 +18,13 @@ package com.gradleware.tooling.toolingmodel.repository.internal
 
 import com.google.common.collect.ImmutableList
 import com.google.common.eventbus.EventBus
+import com.google.common.eventbus.Subscribe
 import com.gradleware.tooling.junit.TestDirectoryProvider
 import com.gradleware.tooling.spock.ToolingModelToolingClientSpecification
 import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingmodel.OmniBuildEnvironment
 import com.gradleware.tooling.toolingmodel.Path
+import com.gradleware.tooling.toolingmodel.repository.BuildEnvironmentUpdateEvent
 import com.gradleware.tooling.toolingmodel.repository.Environment
 import com.gradleware.tooling.toolingmodel.repository.FetchStrategy
 import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes
@@ -30,6 +33,9 @@ import org.gradle.tooling.GradleConnector
 import org.gradle.tooling.ProgressListener
 import org.junit.Rule
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
 class DefaultModelRepositoryCacheTest extends ToolingModelToolingClientSpecification {
 
   @Rule
@@ -50,6 +56,25 @@ class DefaultModelRepositoryCacheTest extends ToolingModelToolingClientSpecifica
     repository = new DefaultModelRepository(fixedRequestAttributes, toolingClient, new EventBus())
   }
 
+  def "statistics"() {
+    when:
+    repository.fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
+    repository.fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+    repository.fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+    def statistics = repository.statistics
+    def buildEnvironmentStatistics = statistics.modelStatistics.find { it.modelType == OmniBuildEnvironment.class.name }
+
+    then:
+    statistics.fixedRequestAttributes == fixedRequestAttributes
+    buildEnvironmentStatistics.hitCount == 1
+    buildEnvironmentStatistics.missCount == 2
+    buildEnvironmentStatistics.loadCount == 1
+    buildEnvironmentStatistics.cached
+    buildEnvironmentStatistics.entryAgeMillis >= 0
+    buildEnvironmentStatistics.estimatedSize > 0
+    statistics.estimatedSize >= buildEnvironmentStatistics.estimatedSize
+  }
+
   def "fetchBuildEnvironment"() {
     when:
     def lookUp = repository.fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
@@ -78,6 +103,39 @@ class DefaultModelRepositoryCacheTest extends ToolingModelToolingClientSpecifica
     thirdLookUp.java.jvmArguments == fourthLookUp.java.jvmArguments
   }
 
+  def "fetchBuildEnvironment - stale while revalidate"() {
+    when:
+    def firstLookUp = repository.fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.STALE_WHILE_REVALIDATE)
+
+    then:
+    firstLookUp != null
+
+    when:
+    def revalidated = new CountDownLatch(1)
+    repository.register(new Object() {
+
+      @Subscribe
+      public void update(BuildEnvironmentUpdateEvent event) {
+        revalidated.countDown()
+      }
+    })
+    def secondLookUp = repository.fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.STALE_WHILE_REVALIDATE)
+    def thirdLookUp = repository.fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.STALE_WHILE_REVALIDATE)
+
+    then:
+    firstLookUp.is(secondLookUp)
+    firstLookUp.is(thirdLookUp)
+    revalidated.await(30, TimeUnit.SECONDS)
+
+    when:
+    def fourthLookUp = repository.fetchBuildEnvironment(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
+
+    then:
+    !firstLookUp.is(fourthLookUp)
+    firstLookUp.gradle.gradleVersion == fourthLookUp.gradle.gradleVersion
+    repository.statistics.modelStatistics.find { it.modelType == OmniBuildEnvironment.class.name }.loadCount == 2
+  }
+
   def "fetchGradleBuildStructure"() {
     when:
     def lookUp = repository.fetchGradleBuildStructure(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
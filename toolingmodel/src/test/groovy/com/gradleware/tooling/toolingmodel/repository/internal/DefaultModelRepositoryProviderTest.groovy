@@ -17,20 +17,36 @@
 package com.gradleware.tooling.toolingmodel.repository.internal
 
 import com.google.common.collect.ImmutableList
+import com.google.common.eventbus.Subscribe
+import com.gradleware.tooling.toolingmodel.Path
+import com.gradleware.tooling.toolingmodel.repository.EclipseGradleBuildUpdateEvent
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy
 import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes
 import com.gradleware.tooling.junit.TestDirectoryProvider
 import com.gradleware.tooling.spock.ToolingModelToolingClientSpecification
 import com.gradleware.tooling.toolingclient.GradleDistribution
+import org.gradle.tooling.GradleConnector
 import org.junit.Rule
 
+import java.util.concurrent.atomic.AtomicReference
+
 class DefaultModelRepositoryProviderTest extends ToolingModelToolingClientSpecification {
 
   @Rule
   TestDirectoryProvider directoryProvider = new TestDirectoryProvider();
 
+  @Rule
+  TestDirectoryProvider multiProjectDirectoryProvider = new TestDirectoryProvider();
+
   def setup() {
     directoryProvider.createFile('settings.gradle');
     directoryProvider.createFile('build.gradle') << 'task myTask {}'
+
+    multiProjectDirectoryProvider.createFile('settings.gradle') << "include 'sub'"
+    multiProjectDirectoryProvider.createFile('build.gradle') << 'task rootTask {}'
+    multiProjectDirectoryProvider.createDir('sub')
+    multiProjectDirectoryProvider.createFile('sub', 'build.gradle') << 'task subTask {}'
   }
 
   def "getModelRepository"() {
@@ -45,4 +61,75 @@ class DefaultModelRepositoryProviderTest extends ToolingModelToolingClientSpecif
     assert !modelRepositoryProvider.getModelRepository(attributesOne).is(modelRepositoryProvider.getModelRepository(attributesTwo))
   }
 
+  def "getModelRepository - sub-project directory shares the models of the root project directory"() {
+    setup:
+    def modelRepositoryProvider = new DefaultModelRepositoryProvider(toolingClient)
+    def transientRequestAttributes = new TransientRequestAttributes(false, null, null, null, ImmutableList.of(), ImmutableList.of(), GradleConnector.newCancellationTokenSource().token())
+    def rootAttributes = new FixedRequestAttributes(multiProjectDirectoryProvider.testDirectory.canonicalFile, null, GradleDistribution.fromBuild(), null, ImmutableList.of(), ImmutableList.of())
+    def subAttributes = new FixedRequestAttributes(new File(multiProjectDirectoryProvider.testDirectory, 'sub'), null, GradleDistribution.fromBuild(), null, ImmutableList.of(), ImmutableList.of())
+    def subRepository = modelRepositoryProvider.getModelRepository(subAttributes)
+    def rootRepository = modelRepositoryProvider.getModelRepository(rootAttributes)
+
+    def publishedEvent = new AtomicReference<EclipseGradleBuildUpdateEvent>()
+    subRepository.register(new Object() {
+
+      @Subscribe
+      public void update(EclipseGradleBuildUpdateEvent event) {
+        publishedEvent.set(event)
+      }
+    })
+
+    when:
+    def subEclipseGradleBuild = subRepository.fetchEclipseGradleBuild(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    then:
+    subEclipseGradleBuild.rootEclipseProject.path.path == ':sub'
+    subEclipseGradleBuild.rootProject.path.path == ':sub'
+    subEclipseGradleBuild.rootProject.projectTasks.collect { it.name }.contains('subTask')
+    publishedEvent.get().eclipseGradleBuild.rootProject.path.path == ':sub'
+
+    when:
+    def rootEclipseGradleBuild = rootRepository.fetchEclipseGradleBuild(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY)
+
+    then:
+    rootEclipseGradleBuild != null
+    rootEclipseGradleBuild.rootProject.path.path == ':'
+    rootEclipseGradleBuild.rootProject.children[0].is(subEclipseGradleBuild.rootProject)
+  }
+
+  def "getModelRepository - sub-project directory sees the dependencies exported by sibling projects"() {
+    setup:
+    multiProjectDirectoryProvider.file('settings.gradle') << "\ninclude 'lib'"
+    multiProjectDirectoryProvider.createDir('lib', 'libs')
+    multiProjectDirectoryProvider.createFile('lib', 'libs', 'exported.jar')
+    multiProjectDirectoryProvider.createFile('lib', 'build.gradle') << '''
+      apply plugin: 'java'
+      dependencies { compile files('libs/exported.jar') }
+    '''
+    multiProjectDirectoryProvider.file('sub', 'build.gradle') << '''
+      apply plugin: 'java'
+      dependencies { compile project(':lib') }
+    '''
+
+    def modelRepositoryProvider = new DefaultModelRepositoryProvider(toolingClient)
+    def transientRequestAttributes = new TransientRequestAttributes(false, null, null, null, ImmutableList.of(), ImmutableList.of(), GradleConnector.newCancellationTokenSource().token())
+    def subAttributes = new FixedRequestAttributes(new File(multiProjectDirectoryProvider.testDirectory, 'sub'), null, GradleDistribution.fromBuild(), null, ImmutableList.of(), ImmutableList.of())
+    def subRepository = modelRepositoryProvider.getModelRepository(subAttributes)
+
+    when:
+    def subEclipseGradleBuild = subRepository.fetchEclipseGradleBuild(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+    def classpath = subEclipseGradleBuild.getEffectiveClasspath(Path.from(':sub'))
+
+    then:
+    classpath.projectDependencies*.targetProjectPath == [Path.from(':lib')]
+    classpath.externalDependencies*.file*.name.contains('exported.jar')
+    subEclipseGradleBuild.projectDependencyGraph.getDependents(Path.from(':lib'))*.path == [Path.from(':sub')]
+
+    when:
+    def refetched = subRepository.fetchEclipseGradleBuild(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    then:
+    refetched.getEffectiveClasspath(Path.from(':sub')).is(classpath)
+  }
+
 }
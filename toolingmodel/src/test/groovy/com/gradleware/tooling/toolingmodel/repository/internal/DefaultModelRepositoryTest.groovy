@@ -25,14 +25,25 @@ import com.gradleware.tooling.spock.ToolingModelToolingClientSpecification
 import com.gradleware.tooling.spock.VerboseUnroll
 import com.gradleware.tooling.testing.GradleVersionExtractor
 import com.gradleware.tooling.testing.GradleVersionParameterization
+import com.gradleware.tooling.toolingclient.BuildActionRequest
+import com.gradleware.tooling.toolingclient.BuildLaunchRequest
+import com.gradleware.tooling.toolingclient.Consumer
 import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingclient.LaunchableConfig
+import com.gradleware.tooling.toolingclient.ModelRequest
+import com.gradleware.tooling.toolingclient.TestConfig
+import com.gradleware.tooling.toolingclient.TestLaunchRequest
+import com.gradleware.tooling.toolingclient.ToolingClient
+import com.gradleware.tooling.toolingclient.instrumentation.RequestInstrumentations
 import com.gradleware.tooling.toolingmodel.OmniBuildEnvironment
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocations
 import com.gradleware.tooling.toolingmodel.OmniBuildInvocationsContainer
 import com.gradleware.tooling.toolingmodel.OmniEclipseGradleBuild
 import com.gradleware.tooling.toolingmodel.OmniGradleBuild
 import com.gradleware.tooling.toolingmodel.OmniGradleBuildStructure
 import com.gradleware.tooling.toolingmodel.OmniGradleProject
 import com.gradleware.tooling.toolingmodel.Path
+import com.gradleware.tooling.toolingmodel.buildaction.ModelForProjectsBuildAction
 import com.gradleware.tooling.toolingmodel.repository.BuildEnvironmentUpdateEvent
 import com.gradleware.tooling.toolingmodel.repository.BuildInvocationsUpdateEvent
 import com.gradleware.tooling.toolingmodel.repository.EclipseGradleBuildUpdateEvent
@@ -42,13 +53,16 @@ import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes
 import com.gradleware.tooling.toolingmodel.repository.GradleBuildStructureUpdateEvent
 import com.gradleware.tooling.toolingmodel.repository.GradleBuildUpdateEvent
 import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes
+import com.gradleware.tooling.toolingmodel.util.Pair
 import org.gradle.api.specs.Spec
+import org.gradle.tooling.BuildAction
 import org.gradle.tooling.GradleConnectionException
 import org.gradle.tooling.GradleConnector
 import org.gradle.tooling.ProgressListener
 import org.gradle.util.GradleVersion
 import org.junit.Rule
 
+import java.util.concurrent.atomic.AtomicInteger
 import java.util.concurrent.atomic.AtomicReference
 
 @VerboseUnroll(formatter = GradleDistributionFormatter.class)
@@ -762,6 +776,93 @@ class DefaultModelRepositoryTest extends ToolingModelToolingClientSpecification
     [distribution, environment] << runInAllEnvironmentsForGradleTargetVersions(">=1.0")
   }
 
+  def "fetchBuildInvocations - stream build invocations per project"(GradleDistribution distribution, Environment environment) {
+    given:
+    def fixedRequestAttributes = new FixedRequestAttributes(directoryProvider.testDirectory, null, distribution, null, ImmutableList.of(), ImmutableList.of())
+    def transientRequestAttributes = new TransientRequestAttributes(true, null, null, null, ImmutableList.of(Mock(ProgressListener)), ImmutableList.of(Mock(org.gradle.tooling.events.ProgressListener)), GradleConnector.newCancellationTokenSource().token())
+    def repository = new DefaultModelRepository(fixedRequestAttributes, toolingClient, new EventBus(), environment)
+
+    List<Path> streamedProjects = []
+    AtomicReference<OmniBuildInvocationsContainer> modelInRepositoryWhileStreaming = new AtomicReference<>();
+    def consumer = new Consumer<Pair<Path, OmniBuildInvocations>>() {
+
+      @Override
+      void accept(Pair<Path, OmniBuildInvocations> input) {
+        streamedProjects << input.first
+        modelInRepositoryWhileStreaming.compareAndSet(null, repository.fetchBuildInvocations(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY))
+      }
+    }
+
+    when:
+    OmniBuildInvocationsContainer buildInvocations = repository.fetchBuildInvocations(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED, consumer)
+
+    then:
+    buildInvocations.asMap().size() == 4
+    streamedProjects == [Path.from(':'), Path.from(':sub1'), Path.from(':sub2'), Path.from(':sub2:subSub1')]
+    modelInRepositoryWhileStreaming.get() == null
+    repository.fetchBuildInvocations(transientRequestAttributes, FetchStrategy.FROM_CACHE_ONLY) == buildInvocations
+
+    when:
+    streamedProjects.clear()
+    def cachedBuildInvocations = repository.fetchBuildInvocations(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED, consumer)
+
+    then:
+    cachedBuildInvocations == buildInvocations
+    streamedProjects.size() == 4
+
+    where:
+    [distribution, environment] << runInAllEnvironmentsForGradleTargetVersions(">=1.12")
+  }
+
+  def "fetchBuildInvocations - stream build invocations with one request per batch of projects"(GradleDistribution distribution, Environment environment) {
+    given:
+    def fixedRequestAttributes = new FixedRequestAttributes(directoryProvider.testDirectory, null, distribution, null, ImmutableList.of(), ImmutableList.of())
+    def transientRequestAttributes = new TransientRequestAttributes(true, null, null, null, ImmutableList.of(Mock(ProgressListener)), ImmutableList.of(Mock(org.gradle.tooling.events.ProgressListener)), GradleConnector.newCancellationTokenSource().token())
+    def countingToolingClient = new BuildActionCountingToolingClient(toolingClient)
+    def repository = new DefaultModelRepository(fixedRequestAttributes, countingToolingClient, new EventBus(), environment, 3, RequestInstrumentations.noOp(), null, null)
+    List<Path> streamedProjects = []
+    def consumer = new Consumer<Pair<Path, OmniBuildInvocations>>() {
+
+      @Override
+      void accept(Pair<Path, OmniBuildInvocations> input) {
+        streamedProjects << input.first
+      }
+    }
+
+    when:
+    OmniBuildInvocationsContainer buildInvocations = repository.fetchBuildInvocations(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED, consumer)
+
+    then:
+    buildInvocations.asMap().size() == 4
+    streamedProjects == [Path.from(':'), Path.from(':sub1'), Path.from(':sub2'), Path.from(':sub2:subSub1')]
+    countingToolingClient.projectBuildActionCount.get() == 2
+
+    where:
+    [distribution, environment] << runInAllEnvironmentsForGradleTargetVersions(">=1.12")
+  }
+
+  def "fetchBuildInvocations - fetch build invocations in batches of projects"(GradleDistribution distribution, Environment environment) {
+    given:
+    def fixedRequestAttributes = new FixedRequestAttributes(directoryProvider.testDirectory, null, distribution, null, ImmutableList.of(), ImmutableList.of())
+    def transientRequestAttributes = new TransientRequestAttributes(true, null, null, null, ImmutableList.of(Mock(ProgressListener)), ImmutableList.of(Mock(org.gradle.tooling.events.ProgressListener)), GradleConnector.newCancellationTokenSource().token())
+    def pagedRepository = new DefaultModelRepository(fixedRequestAttributes, toolingClient, new EventBus(), environment, 3, RequestInstrumentations.noOp(), null, null)
+    def repository = new DefaultModelRepository(fixedRequestAttributes, toolingClient, new EventBus(), environment)
+
+    when:
+    OmniBuildInvocationsContainer pagedBuildInvocations = pagedRepository.fetchBuildInvocations(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+    OmniBuildInvocationsContainer buildInvocations = repository.fetchBuildInvocations(transientRequestAttributes, FetchStrategy.LOAD_IF_NOT_CACHED)
+
+    then:
+    pagedBuildInvocations.asMap().keySet() == buildInvocations.asMap().keySet()
+    pagedBuildInvocations.asMap().keySet().every { Path path ->
+      pagedBuildInvocations.get(path).get().projectTasks*.path == buildInvocations.get(path).get().projectTasks*.path &&
+          pagedBuildInvocations.get(path).get().taskSelectors*.name == buildInvocations.get(path).get().taskSelectors*.name
+    }
+
+    where:
+    [distribution, environment] << runInAllEnvironmentsForGradleTargetVersions(">=1.12")
+  }
+
   def "fetchBuildInvocations - when exception is thrown"(GradleDistribution distribution, Environment environment) {
     given:
     def fixedRequestAttributes = new FixedRequestAttributes(directoryProviderErroneousBuildFile.testDirectory, null, distribution, null, ImmutableList.of(), ImmutableList.of())
@@ -843,4 +944,42 @@ class DefaultModelRepositoryTest extends ToolingModelToolingClientSpecification
     GradleVersionParameterization.Default.INSTANCE.getPermutations(versionPattern, Environment.values() as List)
   }
 
+  private static final class BuildActionCountingToolingClient extends ToolingClient {
+
+    final ToolingClient delegate
+    final AtomicInteger projectBuildActionCount = new AtomicInteger()
+
+    BuildActionCountingToolingClient(ToolingClient delegate) {
+      this.delegate = delegate
+    }
+
+    @Override
+    <T> ModelRequest<T> newModelRequest(Class<T> modelType) {
+      delegate.newModelRequest(modelType)
+    }
+
+    @Override
+    <T> BuildActionRequest<T> newBuildActionRequest(BuildAction<T> buildAction) {
+      if (buildAction instanceof ModelForProjectsBuildAction) {
+        projectBuildActionCount.incrementAndGet()
+      }
+      delegate.newBuildActionRequest(buildAction)
+    }
+
+    @Override
+    BuildLaunchRequest newBuildLaunchRequest(LaunchableConfig launchables) {
+      delegate.newBuildLaunchRequest(launchables)
+    }
+
+    @Override
+    TestLaunchRequest newTestLaunchRequest(TestConfig tests) {
+      delegate.newTestLaunchRequest(tests)
+    }
+
+    @Override
+    void stop(ToolingClient.CleanUpStrategy strategy) {
+    }
+
+  }
+
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.collect.ImmutableSortedSet
+import com.gradleware.tooling.toolingmodel.OmniProjectTask
+import com.gradleware.tooling.toolingmodel.OmniTaskSelector
+import com.gradleware.tooling.toolingmodel.Path
+import com.gradleware.tooling.toolingmodel.util.Maybe
+import spock.lang.Specification
+
+class DefaultOmniBuildInvocationsTest extends Specification {
+
+  def "tasks and task selectors are read back unchanged from the columns"() {
+    setup:
+    def tasks = [
+        task(':sub:build', 'Assembles and tests.', true, Maybe.of('build')),
+        task(':sub:foo', null, false, Maybe.of(null)),
+        task(':sub:bar', 'Bar.', true, Maybe.absent())]
+    def selectors = [selector(':', 'build', 'Assembles and tests.', true, [':sub:build', ':build']),
+                     selector(':', 'foo', null, false, [])]
+
+    when:
+    def buildInvocations = DefaultOmniBuildInvocations.from(tasks, selectors)
+
+    then:
+    buildInvocations.projectTasks.size() == 3
+    buildInvocations.projectTasks*.name == ['build', 'foo', 'bar']
+    buildInvocations.projectTasks*.description == ['Assembles and tests.', null, 'Bar.']
+    buildInvocations.projectTasks*.path == [Path.from(':sub:build'), Path.from(':sub:foo'), Path.from(':sub:bar')]
+    buildInvocations.projectTasks*.public == [true, false, true]
+    buildInvocations.projectTasks[0].group.get() == 'build'
+    buildInvocations.projectTasks[1].group.present && buildInvocations.projectTasks[1].group.get() == null
+    !buildInvocations.projectTasks[2].group.present
+
+    buildInvocations.taskSelectors*.name == ['build', 'foo']
+    buildInvocations.taskSelectors*.description == ['Assembles and tests.', null]
+    buildInvocations.taskSelectors*.projectPath == [Path.from(':'), Path.from(':')]
+    buildInvocations.taskSelectors*.public == [true, false]
+    buildInvocations.taskSelectors[0].selectedTaskPaths as List == [Path.from(':build'), Path.from(':sub:build')]
+    buildInvocations.taskSelectors[1].selectedTaskPaths.isEmpty()
+
+    buildInvocations.projectTasks[1] == buildInvocations.projectTasks[1]
+    buildInvocations.projectTasks[1] != buildInvocations.projectTasks[2]
+    buildInvocations.taskSelectors[0] == buildInvocations.taskSelectors[0]
+
+    when:
+    buildInvocations.projectTasks.add(tasks[0])
+
+    then:
+    thrown(UnsupportedOperationException)
+  }
+
+  def "strings and equal selected task paths are shared by all projects of a build"() {
+    setup:
+    def strings = StringTable.builder()
+    def first = new DefaultOmniBuildInvocations.Builder(
+        [task(':a:build', 'Assembles and tests.', true, Maybe.of('build'))], [selector(':a', 'build', 'Assembles and tests.', true, [':a:build'])], strings)
+    def second = new DefaultOmniBuildInvocations.Builder(
+        [task(':b:build', 'Assembles and tests.', true, Maybe.of('build'))], [selector(':b', 'build', 'Assembles and tests.', true, [':a:build'])], strings)
+
+    when:
+    def table = strings.build()
+    def firstInvocations = first.build(table)
+    def secondInvocations = second.build(table)
+
+    then:
+    table.size() == 6 // name and group, description, two task paths, two project paths
+    firstInvocations.@selectorTaskPaths[0].is(secondInvocations.@selectorTaskPaths[0])
+    firstInvocations.projectTasks[0].name.is(secondInvocations.projectTasks[0].name)
+  }
+
+  def "columnar storage retains less than half the heap of one object per task"() {
+    setup:
+    int projectCount = 100
+    int tasksPerProject = 50
+    def objects = createObjectModel(projectCount, tasksPerProject)
+
+    when:
+    def strings = StringTable.builder()
+    def builders = objects.collect { new DefaultOmniBuildInvocations.Builder(it.projectTasks, it.taskSelectors, strings) }
+    def table = strings.build()
+    def columns = builders.collect { it.build(table) }
+
+    then:
+    columns.sum { it.projectTasks.size() } == projectCount * tasksPerProject + tasksPerProject
+    ObjectSizeEstimator.estimate(columns) < ObjectSizeEstimator.estimate(objects) / 2
+  }
+
+  private static List<ObjectModel> createObjectModel(int projectCount, int tasksPerProject) {
+    // one root project with the task selectors of all child projects, the strings are distinct instances as they are when deserialized from the Tooling API models
+    def result = []
+    def rootTasks = (0..<tasksPerProject).collect { task(":task$it", "Description of task$it.", it % 2 == 0, Maybe.of("group${it % 10}".toString())) }
+    def rootSelectors = (0..<tasksPerProject).collect { i ->
+      selector(':', "task$i", "Description of task$i.", i % 2 == 0, [":task$i"] + (0..<projectCount).collect { ":project$it:task$i" })
+    }
+    result << new ObjectModel(projectTasks: rootTasks, taskSelectors: rootSelectors)
+    (0..<projectCount).each { p ->
+      def tasks = (0..<tasksPerProject).collect { task(":project$p:task$it", "Description of task$it.", it % 2 == 0, Maybe.of("group${it % 10}".toString())) }
+      def selectors = (0..<tasksPerProject).collect { selector(":project$p", "task$it", "Description of task$it.", it % 2 == 0, [":project$p:task$it"]) }
+      result << new ObjectModel(projectTasks: tasks, taskSelectors: selectors)
+    }
+    result
+  }
+
+  private static OmniProjectTask task(String path, String description, boolean isPublic, Maybe<String> group) {
+    def builder = new DefaultOmniProjectTask.Builder()
+    builder.setName(new String(path.substring(path.lastIndexOf(':') + 1)))
+    builder.setDescription(description != null ? new String(description) : null)
+    builder.setPath(Path.from(new String(path)))
+    builder.setPublic(isPublic)
+    builder.setGroup(group)
+    builder.build()
+  }
+
+  private static OmniTaskSelector selector(String projectPath, String name, String description, boolean isPublic, List<String> selectedTaskPaths) {
+    def paths = ImmutableSortedSet.orderedBy(Path.Comparator.INSTANCE).addAll(selectedTaskPaths.collect { Path.from(new String(it)) }).build()
+    DefaultOmniTaskSelector.from(new String(name), description != null ? new String(description) : null, Path.from(projectPath), isPublic, paths)
+  }
+
+  static class ObjectModel {
+    List<OmniProjectTask> projectTasks
+    List<OmniTaskSelector> taskSelectors
+  }
+
+}
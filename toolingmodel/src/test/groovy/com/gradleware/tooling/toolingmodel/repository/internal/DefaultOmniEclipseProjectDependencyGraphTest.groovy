@@ -0,0 +1,188 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.base.Optional
+import com.gradleware.tooling.toolingmodel.OmniEclipseBuildCommand
+import com.gradleware.tooling.toolingmodel.OmniEclipseLinkedResource
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectDependency
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectNature
+import com.gradleware.tooling.toolingmodel.OmniEclipseSourceDirectory
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency
+import com.gradleware.tooling.toolingmodel.OmniJavaSourceSettings
+import com.gradleware.tooling.toolingmodel.Path
+import com.gradleware.tooling.toolingmodel.util.Maybe
+import org.gradle.api.specs.Spec
+import spock.lang.Specification
+
+class DefaultOmniEclipseProjectDependencyGraphTest extends Specification {
+
+  def "direct and transitive dependencies in both directions"() {
+    setup:
+    // app -> service -> api, app -> api, tool -> api
+    def graph = DefaultOmniEclipseProjectDependencyGraph.from(build([
+        ':app': [':service', ':api'],
+        ':service': [':api'],
+        ':api': [],
+        ':tool': [':api', ':unknown']]))
+
+    expect:
+    paths(graph.projectsInTopologicalOrder) == [':', ':api', ':service', ':app', ':tool']
+    paths(graph.getDependencies(Path.from(':app'))) == [':api', ':service']
+    paths(graph.getDependents(Path.from(':api'))) == [':service', ':app', ':tool']
+    paths(graph.getTransitiveDependencies(Path.from(':app'))) == [':api', ':service']
+    paths(graph.getTransitiveDependents(Path.from(':api'))) == [':service', ':app', ':tool']
+    paths(graph.getTransitiveDependents(Path.from(':service'))) == [':app']
+    graph.dependsOn(Path.from(':app'), Path.from(':api'))
+    !graph.dependsOn(Path.from(':api'), Path.from(':app'))
+    !graph.hasCycles()
+    graph.cycles.isEmpty()
+  }
+
+  def "dependency cycles"() {
+    setup:
+    def graph = DefaultOmniEclipseProjectDependencyGraph.from(build([
+        ':a': [':b'],
+        ':b': [':c'],
+        ':c': [':a'],
+        ':d': [':a'],
+        ':e': [':e']]))
+
+    expect:
+    graph.hasCycles()
+    graph.cycles.collect { paths(it) } == [[':a', ':b', ':c'], [':e']]
+    paths(graph.getTransitiveDependencies(Path.from(':d'))) == [':a', ':b', ':c']
+    paths(graph.getTransitiveDependencies(Path.from(':b'))) == [':a', ':b', ':c']
+    paths(graph.getTransitiveDependents(Path.from(':c'))) == [':a', ':b', ':c', ':d']
+    graph.dependsOn(Path.from(':e'), Path.from(':e'))
+    !graph.dependsOn(Path.from(':d'), Path.from(':d'))
+  }
+
+  def "long dependency chains do not overflow the stack"() {
+    setup:
+    // :p0 -> :p1 -> ... -> :p9999, built on a thread with a small stack such that a recursive traversal would overflow it
+    int length = 10000
+    def chain = (0..<length).collectEntries { i -> [(":p$i".toString()): i < length - 1 ? [":p${i + 1}".toString()] : []] }
+    def graph = null
+    def failure = null
+    def thread = new Thread(null, {
+      try {
+        graph = DefaultOmniEclipseProjectDependencyGraph.from(build(chain))
+      } catch (Throwable t) {
+        failure = t
+      }
+    }, 'dependency-graph', 128 * 1024)
+
+    when:
+    thread.start()
+    thread.join()
+
+    then:
+    failure == null
+    paths(graph.projectsInTopologicalOrder).take(3) == [':', ':p9999', ':p9998']
+    graph.getTransitiveDependencies(Path.from(':p0')).size() == length - 1
+    graph.dependsOn(Path.from(':p0'), Path.from(':p9999'))
+    !graph.hasCycles()
+  }
+
+  def "unknown project paths are rejected"() {
+    setup:
+    def graph = DefaultOmniEclipseProjectDependencyGraph.from(build([':a': []]))
+
+    when:
+    graph.getDependencies(Path.from(':b'))
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+
+  private static List<String> paths(List<OmniEclipseProject> projects) {
+    projects.collect { ((TestProject) it).path.path }
+  }
+
+  private static OmniEclipseProject build(Map<String, List<String>> dependencies) {
+    def root = new TestProject(Path.from(':'), [])
+    dependencies.each { path, targets -> root.children << new TestProject(Path.from(path), targets) }
+    root
+  }
+
+  private static final class TestProject implements OmniEclipseProject {
+
+    final Path path
+    final List<OmniEclipseProjectDependency> projectDependencies
+    final List<OmniEclipseProject> children = []
+
+    TestProject(Path path, List<String> targets) {
+      this.path = path
+      this.projectDependencies = targets.collect { new TestDependency(Path.from(it)) as OmniEclipseProjectDependency }
+    }
+
+    OmniEclipseProject getRoot() { null }
+
+    OmniEclipseProject getParent() { null }
+
+    List<OmniEclipseProject> getChildren() { children }
+
+    List<OmniEclipseProject> getAll() { [this as OmniEclipseProject] + children }
+
+    List<OmniEclipseProject> filter(Spec<? super OmniEclipseProject> predicate) { null }
+
+    Optional<OmniEclipseProject> tryFind(Spec<? super OmniEclipseProject> predicate) { null }
+
+    String getName() { path.path }
+
+    String getDescription() { null }
+
+    Path getPath() { path }
+
+    File getProjectDirectory() { null }
+
+    List<OmniEclipseProjectDependency> getProjectDependencies() { projectDependencies }
+
+    List<OmniExternalDependency> getExternalDependencies() { [] }
+
+    List<OmniEclipseLinkedResource> getLinkedResources() { [] }
+
+    List<OmniEclipseSourceDirectory> getSourceDirectories() { [] }
+
+    Optional<List<OmniEclipseProjectNature>> getProjectNatures() { Optional.absent() }
+
+    Optional<List<OmniEclipseBuildCommand>> getBuildCommands() { Optional.absent() }
+
+    Maybe<OmniJavaSourceSettings> getJavaSourceSettings() { Maybe.absent() }
+
+  }
+
+  private static final class TestDependency implements OmniEclipseProjectDependency {
+
+    final Path targetProjectPath
+
+    TestDependency(Path targetProjectPath) {
+      this.targetProjectPath = targetProjectPath
+    }
+
+    Path getTargetProjectPath() { targetProjectPath }
+
+    String getPath() { targetProjectPath.path }
+
+    boolean isExported() { false }
+
+  }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.gradleware.tooling.toolingmodel.OmniGradleProjectStructure
+import com.gradleware.tooling.toolingmodel.Path
+import com.gradleware.tooling.toolingmodel.util.Maybe
+import spock.lang.Specification
+
+class DefaultOmniGradleProjectStructureTest extends Specification {
+
+  def "hierarchy is created from the root downwards with sorted children"() {
+    setup:
+    def root = builder(':')
+    def sub = builder(':sub')
+    sub.addChild(builder(':sub:b'))
+    sub.addChild(builder(':sub:a'))
+    root.addChild(sub)
+    root.addChild(builder(':api'))
+
+    when:
+    def rootProject = root.build()
+
+    then:
+    rootProject.parent == null
+    rootProject.children*.path*.path == [':api', ':sub']
+    rootProject.all*.path*.path == [':', ':api', ':sub', ':sub:a', ':sub:b']
+
+    def subProject = rootProject.children[1]
+    subProject.parent.is(rootProject)
+    subProject.children*.path*.path == [':sub:a', ':sub:b']
+    subProject.children.every { it.parent.is(subProject) && it.root.is(rootProject) }
+  }
+
+  def "model exposes no mutators"() {
+    expect:
+    !DefaultOmniGradleProjectStructure.methods.any { it.name.startsWith('set') || it.name == 'addChild' }
+    !DefaultOmniGradleProject.methods.any { it.name.startsWith('set') || it.name == 'addChild' }
+    !DefaultOmniEclipseProject.methods.any { it.name.startsWith('set') || it.name == 'addChild' }
+    !DefaultOmniProjectTask.methods.any { it.name.startsWith('set') }
+    !DefaultOmniTaskSelector.methods.any { it.name.startsWith('set') }
+  }
+
+  private static DefaultOmniGradleProjectStructure.Builder builder(String path) {
+    def builder = new DefaultOmniGradleProjectStructure.Builder({ OmniGradleProjectStructure a, OmniGradleProjectStructure b -> a.path <=> b.path } as Comparator)
+    builder.setName(path.substring(path.lastIndexOf(':') + 1))
+    builder.setPath(Path.from(path))
+    builder.setProjectDirectory(Maybe.<File> absent())
+    builder
+  }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.base.Optional
+import com.gradleware.tooling.toolingmodel.OmniEclipseBuildCommand
+import com.gradleware.tooling.toolingmodel.OmniEclipseLinkedResource
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectDependency
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectNature
+import com.gradleware.tooling.toolingmodel.OmniEclipseSourceDirectory
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency
+import com.gradleware.tooling.toolingmodel.OmniGradleModuleVersion
+import com.gradleware.tooling.toolingmodel.OmniJavaSourceSettings
+import com.gradleware.tooling.toolingmodel.Path
+import com.gradleware.tooling.toolingmodel.util.Maybe
+import org.gradle.api.specs.Spec
+import spock.lang.Specification
+
+class EffectiveClasspathsTest extends Specification {
+
+  def "exported dependencies are inherited through exported project dependencies"() {
+    setup:
+    // app -> service (not exported) -> api (exported) -> base (exported)
+    def build = build([
+        project(':app', [dependency(':service', false)], [library('app.jar', false)]),
+        project(':service', [dependency(':api', true)], [library('service.jar', true), library('internal.jar', false)]),
+        project(':api', [dependency(':base', true)], [library('api.jar', true)]),
+        project(':base', [], [library('base.jar', true), library('api.jar', true)])])
+
+    expect:
+    projects(build.getEffectiveClasspath(Path.from(':app'))) == [':service', ':api', ':base']
+    libraries(build.getEffectiveClasspath(Path.from(':app'))) == ['app.jar', 'service.jar', 'api.jar', 'base.jar']
+    projects(build.getEffectiveClasspath(Path.from(':service'))) == [':api', ':base']
+    libraries(build.getEffectiveClasspath(Path.from(':service'))) == ['service.jar', 'internal.jar', 'api.jar', 'base.jar']
+    libraries(build.getEffectiveClasspath(Path.from(':base'))) == ['base.jar', 'api.jar']
+    build.getEffectiveClasspath(Path.from(':app')).is(build.getEffectiveClasspath(Path.from(':app')))
+  }
+
+  def "dependency cycles"() {
+    setup:
+    def build = build([
+        project(':a', [dependency(':b', true)], [library('a.jar', true)]),
+        project(':b', [dependency(':a', true)], [library('b.jar', true)]),
+        project(':c', [dependency(':a', false)], [])])
+
+    expect:
+    projects(build.getEffectiveClasspath(Path.from(':a'))) == [':b']
+    libraries(build.getEffectiveClasspath(Path.from(':a'))) == ['a.jar', 'b.jar']
+    projects(build.getEffectiveClasspath(Path.from(':c'))) == [':a', ':b']
+    libraries(build.getEffectiveClasspath(Path.from(':c'))) == ['a.jar', 'b.jar']
+  }
+
+  def "lists starting with the same entries share their prefix"() {
+    setup:
+    def lists = SharedPrefixLists.<String> create({ it } as com.google.common.base.Function, { it } as com.google.common.base.Function)
+    def first = lists.newList()
+    ['a', 'b', 'c', 'b'].each { first.add(it) }
+    def second = lists.newList()
+    ['a', 'b', 'd'].each { second.add(it) }
+
+    expect:
+    first.build().toList() == ['a', 'b', 'c']
+    second.build().toList() == ['a', 'b', 'd']
+    first.build().parent.is(second.build().parent)
+  }
+
+  def "unknown project paths are rejected"() {
+    setup:
+    def build = build([project(':a', [], [])])
+
+    when:
+    build.getEffectiveClasspath(Path.from(':b'))
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+
+  private static List<String> projects(classpath) {
+    classpath.projectDependencies.collect { ((TestDependency) it).targetProjectPath.path }
+  }
+
+  private static List<String> libraries(classpath) {
+    classpath.externalDependencies.collect { ((TestLibrary) it).file.name }
+  }
+
+  private static DefaultOmniEclipseGradleBuild build(List<TestProject> projects) {
+    def root = new TestProject(Path.from(':'), [], [])
+    root.children.addAll(projects)
+    projects.each { it.root = root }
+    DefaultOmniEclipseGradleBuild.from(root, null)
+  }
+
+  private static TestProject project(String path, List<OmniEclipseProjectDependency> dependencies, List<OmniExternalDependency> libraries) {
+    new TestProject(Path.from(path), dependencies, libraries)
+  }
+
+  private static OmniEclipseProjectDependency dependency(String target, boolean exported) {
+    new TestDependency(Path.from(target), exported)
+  }
+
+  private static OmniExternalDependency library(String name, boolean exported) {
+    new TestLibrary(new File(name), exported)
+  }
+
+  private static final class TestProject implements OmniEclipseProject {
+
+    final Path path
+    final List<OmniEclipseProjectDependency> projectDependencies
+    final List<OmniExternalDependency> externalDependencies
+    final List<OmniEclipseProject> children = []
+    OmniEclipseProject root
+
+    TestProject(Path path, List<OmniEclipseProjectDependency> projectDependencies, List<OmniExternalDependency> externalDependencies) {
+      this.path = path
+      this.projectDependencies = projectDependencies
+      this.externalDependencies = externalDependencies
+    }
+
+    OmniEclipseProject getRoot() { root ?: this }
+
+    OmniEclipseProject getParent() { null }
+
+    List<OmniEclipseProject> getChildren() { children }
+
+    List<OmniEclipseProject> getAll() { [this as OmniEclipseProject] + children }
+
+    List<OmniEclipseProject> filter(Spec<? super OmniEclipseProject> predicate) { null }
+
+    Optional<OmniEclipseProject> tryFind(Spec<? super OmniEclipseProject> predicate) { null }
+
+    String getName() { path.path }
+
+    String getDescription() { null }
+
+    Path getPath() { path }
+
+    File getProjectDirectory() { null }
+
+    List<OmniEclipseProjectDependency> getProjectDependencies() { projectDependencies }
+
+    List<OmniExternalDependency> getExternalDependencies() { externalDependencies }
+
+    List<OmniEclipseLinkedResource> getLinkedResources() { [] }
+
+    List<OmniEclipseSourceDirectory> getSourceDirectories() { [] }
+
+    Optional<List<OmniEclipseProjectNature>> getProjectNatures() { Optional.absent() }
+
+    Optional<List<OmniEclipseBuildCommand>> getBuildCommands() { Optional.absent() }
+
+    Maybe<OmniJavaSourceSettings> getJavaSourceSettings() { Maybe.absent() }
+
+  }
+
+  private static final class TestDependency implements OmniEclipseProjectDependency {
+
+    final Path targetProjectPath
+    final boolean exported
+
+    TestDependency(Path targetProjectPath, boolean exported) {
+      this.targetProjectPath = targetProjectPath
+      this.exported = exported
+    }
+
+    Path getTargetProjectPath() { targetProjectPath }
+
+    String getPath() { targetProjectPath.path }
+
+    boolean isExported() { exported }
+
+  }
+
+  private static final class TestLibrary implements OmniExternalDependency {
+
+    final File file
+    final boolean exported
+
+    TestLibrary(File file, boolean exported) {
+      this.file = file
+      this.exported = exported
+    }
+
+    File getFile() { file }
+
+    File getSource() { null }
+
+    File getJavadoc() { null }
+
+    Maybe<OmniGradleModuleVersion> getGradleModuleVersion() { Maybe.absent() }
+
+    boolean isExported() { exported }
+
+  }
+
+}
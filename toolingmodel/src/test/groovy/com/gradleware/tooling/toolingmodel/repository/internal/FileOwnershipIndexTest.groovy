@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.eventbus.EventBus
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingmodel.OmniEclipseGradleBuild
+import com.gradleware.tooling.toolingmodel.OmniEclipseLinkedResource
+import com.gradleware.tooling.toolingmodel.OmniEclipseProject
+import com.gradleware.tooling.toolingmodel.OmniEclipseSourceDirectory
+import com.gradleware.tooling.toolingmodel.OmniGradleBuildStructure
+import com.gradleware.tooling.toolingmodel.OmniGradleProjectStructure
+import com.gradleware.tooling.toolingmodel.Path
+import com.gradleware.tooling.toolingmodel.repository.EclipseGradleBuildUpdateEvent
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes
+import com.gradleware.tooling.toolingmodel.repository.GradleBuildStructureUpdateEvent
+import com.gradleware.tooling.toolingmodel.util.Maybe
+import spock.lang.Specification
+
+class FileOwnershipIndexTest extends Specification {
+
+  def index = new FileOwnershipIndex()
+  def build = attributes('/work/app')
+  def eventBus = new EventBus()
+
+  def setup() {
+    eventBus.register(index.newListener(build))
+  }
+
+  def "findOwner - deepest project and source directory"() {
+    setup:
+    eventBus.post(new EclipseGradleBuildUpdateEvent(eclipseBuild([
+        eclipseProject(':', '/work/app', [], []),
+        eclipseProject(':core', '/work/app/core', ['/work/app/core/src/main/java'], ['/shared/generated'])])))
+
+    expect:
+    owner('/work/app/core/src/main/java/org/Foo.java') == [':core', '/work/app/core/src/main/java']
+    owner('/work/app/core/build.gradle') == [':core', null]
+    owner('/work/app/settings.gradle') == [':', null]
+    owner('/work/app/core/../settings.gradle') == [':', null]
+    owner('/shared/generated/Bar.java') == [':core', null]
+    !index.findOwner(new File('/work/other/Foo.java')).isPresent()
+    !index.findOwner(new File('/work')).isPresent()
+  }
+
+  def "update - a new model replaces the directories of the previous model of the same type"() {
+    setup:
+    eventBus.post(new EclipseGradleBuildUpdateEvent(eclipseBuild([
+        eclipseProject(':', '/work/app', [], []),
+        eclipseProject(':core', '/work/app/core', ['/work/app/core/src'], [])])))
+    eventBus.post(new GradleBuildStructureUpdateEvent(buildStructure([':': '/work/app', ':core': '/work/app/core'])))
+
+    when:
+    eventBus.post(new EclipseGradleBuildUpdateEvent(eclipseBuild([
+        eclipseProject(':', '/work/app', [], []),
+        eclipseProject(':api', '/work/app/api', ['/work/app/api/src'], [])])))
+
+    then:
+    owner('/work/app/api/src/Foo.java') == [':api', '/work/app/api/src']
+    owner('/work/app/core/src/Foo.java') == [':core', null]
+
+    when:
+    eventBus.post(new GradleBuildStructureUpdateEvent(buildStructure([':': '/work/app'])))
+
+    then:
+    owner('/work/app/core/src/Foo.java') == [':', null]
+  }
+
+  def "findOwner - the root build takes precedence over a sub-project build"() {
+    setup:
+    def subBuild = attributes('/work/app/core')
+    def subEventBus = new EventBus()
+    subEventBus.register(index.newListener(subBuild))
+
+    when:
+    subEventBus.post(new GradleBuildStructureUpdateEvent(buildStructure([':core': '/work/app/core'])))
+    eventBus.post(new GradleBuildStructureUpdateEvent(buildStructure([':': '/work/app', ':core': '/work/app/core'])))
+
+    then:
+    index.findOwner(new File('/work/app/core/Foo.java')).get().fixedRequestAttributes == build
+  }
+
+  private List<String> owner(String file) {
+    def owner = index.findOwner(new File(file)).get()
+    [owner.projectPath.path, owner.sourceDirectory.isPresent() ? owner.sourceDirectory.get().path : null]
+  }
+
+  private static FixedRequestAttributes attributes(String projectDir) {
+    new FixedRequestAttributes(new File(projectDir), null, GradleDistribution.fromBuild(), null, [], [])
+  }
+
+  private OmniEclipseGradleBuild eclipseBuild(List<OmniEclipseProject> projects) {
+    OmniEclipseProject root = projects[0]
+    root.getAll() >> projects
+    OmniEclipseGradleBuild build = Stub(OmniEclipseGradleBuild)
+    build.getRootEclipseProject() >> root
+    build
+  }
+
+  private OmniEclipseProject eclipseProject(String path, String projectDirectory, List<String> sourceDirectories, List<String> linkedResources) {
+    OmniEclipseProject project = Stub(OmniEclipseProject)
+    project.getPath() >> Path.from(path)
+    project.getProjectDirectory() >> new File(projectDirectory)
+    project.getSourceDirectories() >> sourceDirectories.collect { String directory ->
+      OmniEclipseSourceDirectory sourceDirectory = Stub(OmniEclipseSourceDirectory)
+      sourceDirectory.getDirectory() >> new File(directory)
+      sourceDirectory
+    }
+    project.getLinkedResources() >> linkedResources.collect { String location ->
+      OmniEclipseLinkedResource linkedResource = Stub(OmniEclipseLinkedResource)
+      linkedResource.getLocation() >> location
+      linkedResource
+    }
+    project
+  }
+
+  private OmniGradleBuildStructure buildStructure(Map<String, String> projectDirectories) {
+    List<OmniGradleProjectStructure> projects = projectDirectories.collect { String path, String directory ->
+      OmniGradleProjectStructure project = Stub(OmniGradleProjectStructure)
+      project.getPath() >> Path.from(path)
+      project.getProjectDirectory() >> Maybe.of(new File(directory))
+      project
+    }
+    projects[0].getAll() >> projects
+    OmniGradleBuildStructure structure = Stub(OmniGradleBuildStructure)
+    structure.getRootProject() >> projects[0]
+    structure
+  }
+
+}
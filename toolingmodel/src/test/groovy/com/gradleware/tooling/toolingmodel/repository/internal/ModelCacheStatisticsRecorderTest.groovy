@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.gradleware.tooling.toolingmodel.repository.ModelCacheStatistics
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class ModelCacheStatisticsRecorderTest extends Specification {
+
+  def "statistics are recorded per model type"() {
+    setup:
+    def recorder = new ModelCacheStatisticsRecorder()
+    def cachedModel = 'cached model'
+
+    when:
+    recorder.recordMiss(String)
+    recorder.recordLoad(String, TimeUnit.MILLISECONDS.toNanos(15))
+    recorder.recordHit(String)
+    recorder.recordHit(String)
+    recorder.recordMiss(Integer)
+    List<ModelCacheStatistics> statistics = recorder.snapshot('/project', [(String): cachedModel])
+
+    then:
+    statistics.size() == 2
+
+    def stringStatistics = statistics.find { it.modelType == String.name }
+    stringStatistics.projectDir == '/project'
+    stringStatistics.hitCount == 2
+    stringStatistics.missCount == 1
+    stringStatistics.loadCount == 1
+    stringStatistics.totalLoadTimeMillis == 15
+    stringStatistics.loadTimeHistogram.sum() == 1
+    stringStatistics.cached
+    stringStatistics.entryAgeMillis >= 0
+    stringStatistics.estimatedSize > 0
+
+    def integerStatistics = statistics.find { it.modelType == Integer.name }
+    integerStatistics.missCount == 1
+    integerStatistics.loadCount == 0
+    !integerStatistics.cached
+    integerStatistics.entryAgeMillis == -1
+    integerStatistics.estimatedSize == 0
+  }
+
+  def "size estimation counts shared objects once and handles cycles"() {
+    setup:
+    def leaf = new Node(payload: new long[16])
+    def root = new Node(payload: new long[0])
+    def child = new Node(parent: root, left: leaf, right: leaf, payload: new long[0])
+    root.left = child
+
+    expect:
+    ObjectSizeEstimator.estimate(null) == 0
+    ObjectSizeEstimator.estimate(new long[16]) == 16 + 16 * 8
+    ObjectSizeEstimator.estimate(root) == ObjectSizeEstimator.estimate(child)
+    ObjectSizeEstimator.estimate(root) > ObjectSizeEstimator.estimate(leaf)
+  }
+
+  static class Node {
+    Node parent
+    Node left
+    Node right
+    long[] payload
+  }
+
+}
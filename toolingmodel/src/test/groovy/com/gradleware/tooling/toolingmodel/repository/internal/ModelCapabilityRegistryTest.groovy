@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import org.gradle.tooling.model.Task
+import org.gradle.tooling.model.UnsupportedMethodException
+import spock.lang.Specification
+
+class ModelCapabilityRegistryTest extends Specification {
+
+  def "unsupported getter is only invoked until it has failed once"() {
+    setup:
+    def capabilities = ModelCapabilityRegistry.create()
+    def first = Mock(Task)
+    first.getPath() >> ':first'
+    def second = Mock(Task)
+    second.getPath() >> ':second'
+
+    when:
+    def firstTask = DefaultOmniProjectTask.from(first, false, capabilities)
+    def secondTask = DefaultOmniProjectTask.from(second, false, capabilities)
+
+    then:
+    1 * first.isPublic() >> { throw new UnsupportedMethodException('isPublic') }
+    0 * second.isPublic()
+    firstTask.isPublic()
+    secondTask.isPublic()
+    !capabilities.isSupported(ModelCapability.TASK_IS_PUBLIC)
+    capabilities.isSupported(ModelCapability.TASK_GROUP)
+  }
+
+  def "getter failing for other reasons is invoked again for the next node"() {
+    setup:
+    def capabilities = ModelCapabilityRegistry.create()
+    def first = Mock(Task)
+    first.getPath() >> ':first'
+    def second = Mock(Task)
+    second.getPath() >> ':second'
+
+    when:
+    def firstTask = DefaultOmniProjectTask.from(first, false, capabilities)
+    def secondTask = DefaultOmniProjectTask.from(second, false, capabilities)
+
+    then:
+    1 * first.getGroup() >> { throw new IllegalStateException() }
+    1 * second.getGroup() >> 'build'
+    !firstTask.group.isPresent()
+    secondTask.group.get() == 'build'
+    capabilities.isSupported(ModelCapability.TASK_GROUP)
+  }
+
+  def "registries are independent of each other"() {
+    setup:
+    def first = ModelCapabilityRegistry.create()
+    def second = ModelCapabilityRegistry.create()
+
+    when:
+    first.markUnsupported(ModelCapability.ECLIPSE_PROJECT_NATURES)
+
+    then:
+    !first.isSupported(ModelCapability.ECLIPSE_PROJECT_NATURES)
+    second.isSupported(ModelCapability.ECLIPSE_PROJECT_NATURES)
+  }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.base.Ticker
+import com.google.common.util.concurrent.MoreExecutors
+import com.gradleware.tooling.toolingclient.RequestPriority
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocationsContainer
+import com.gradleware.tooling.toolingmodel.OmniEclipseGradleBuild
+import com.gradleware.tooling.toolingmodel.OmniGradleBuildStructure
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class ModelPrefetcherTest extends Specification {
+
+  def ticker = new ManualTicker()
+  def prefetcher = new ModelPrefetcher(ticker, MoreExecutors.sameThreadExecutor())
+
+  def "prefetches the models that have followed an access in other builds"() {
+    setup:
+    def buildOne = new Build()
+    def buildTwo = new Build()
+    def buildThree = new Build()
+
+    when:
+    buildOne.access(OmniGradleBuildStructure, OmniBuildInvocationsContainer, OmniEclipseGradleBuild)
+    buildTwo.access(OmniGradleBuildStructure, OmniBuildInvocationsContainer, OmniEclipseGradleBuild)
+    buildThree.access(OmniGradleBuildStructure)
+
+    then:
+    buildThree.prefetched == [OmniBuildInvocationsContainer, OmniEclipseGradleBuild] as Set
+    buildThree.priorities == [RequestPriority.PREFETCH] as Set
+    buildOne.prefetched.empty
+    buildTwo.prefetched.empty
+    prefetcher.issuedCount == 2
+
+    when:
+    buildThree.access(OmniBuildInvocationsContainer, OmniEclipseGradleBuild)
+
+    then:
+    prefetcher.issuedCount == 2
+    prefetcher.hitCount == 2
+    prefetcher.wastedCount == 0
+    prefetcher.enabled
+  }
+
+  def "does not prefetch models that are already cached or that rarely follow an access"() {
+    setup:
+    def buildOne = new Build()
+    def buildTwo = new Build()
+    def buildThree = new Build()
+    def buildFour = new Build()
+    buildFour.cached << OmniBuildInvocationsContainer
+    buildOne.access(OmniGradleBuildStructure, OmniEclipseGradleBuild)
+    buildTwo.access(OmniGradleBuildStructure, OmniBuildInvocationsContainer)
+    buildThree.access(OmniGradleBuildStructure, OmniBuildInvocationsContainer)
+    def issuedCount = prefetcher.issuedCount
+
+    when:
+    buildFour.access(OmniGradleBuildStructure)
+
+    then:
+    buildFour.prefetched.empty
+    prefetcher.issuedCount == issuedCount
+  }
+
+  def "accesses further apart than the sequence window are not related"() {
+    setup:
+    def builds = (1..3).collect { new Build() }
+
+    when:
+    builds.each {
+      it.access(OmniGradleBuildStructure)
+      ticker.advance(31)
+      it.access(OmniBuildInvocationsContainer)
+    }
+
+    then:
+    builds.every { it.prefetched.empty }
+  }
+
+  def "turns itself off when the prefetched models are not used"() {
+    setup:
+    10.times {
+      def build = new Build()
+      build.cached << OmniBuildInvocationsContainer
+      build.access(OmniGradleBuildStructure, OmniBuildInvocationsContainer)
+    }
+    def builds = (1..10).collect { new Build() }
+
+    when:
+    builds.each {
+      ticker.advance(61)
+      it.access(OmniGradleBuildStructure)
+    }
+
+    then:
+    builds.count { !it.prefetched.empty } == 8
+    !prefetcher.enabled
+    prefetcher.hitCount == 0
+    prefetcher.wastedCount == 8
+    prefetcher.hitRate == 0.0d
+  }
+
+  def "failed prefetches count as wasted"() {
+    setup:
+    def buildOne = new Build()
+    def buildTwo = new Build()
+    def buildThree = new Build()
+    buildThree.failure = new IllegalStateException()
+
+    when:
+    buildOne.access(OmniGradleBuildStructure, OmniBuildInvocationsContainer)
+    buildTwo.access(OmniGradleBuildStructure, OmniBuildInvocationsContainer)
+    buildThree.access(OmniGradleBuildStructure)
+
+    then:
+    prefetcher.issuedCount == 1
+    prefetcher.wastedCount == 1
+  }
+
+  private final class Build implements ModelPrefetcher.ModelLoader {
+
+    def cached = [] as Set
+    def prefetched = [] as Set
+    def priorities = [] as Set
+    def failure
+
+    void access(Class<?>... modelTypes) {
+      modelTypes.each {
+        cached << it
+        prefetcher.recordAccess(this, this, it, FetchStrategy.LOAD_IF_NOT_CACHED)
+      }
+    }
+
+    @Override
+    boolean isCached(Class<?> modelType) {
+      cached.contains(modelType)
+    }
+
+    @Override
+    void load(Class<?> modelType, TransientRequestAttributes transientRequestAttributes) {
+      if (failure) {
+        throw failure
+      }
+      cached << modelType
+      prefetched << modelType
+      priorities << transientRequestAttributes.priority
+    }
+
+  }
+
+  private static final class ManualTicker extends Ticker {
+
+    private long nanos
+
+    @Override
+    long read() {
+      nanos
+    }
+
+    void advance(long seconds) {
+      nanos += TimeUnit.SECONDS.toNanos(seconds)
+    }
+
+  }
+
+}
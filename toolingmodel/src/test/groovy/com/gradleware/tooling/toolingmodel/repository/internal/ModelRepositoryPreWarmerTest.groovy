@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.eventbus.EventBus
+import com.google.common.eventbus.Subscribe
+import com.gradleware.tooling.toolingclient.GradleDistribution
+import com.gradleware.tooling.toolingclient.RequestPriority
+import com.gradleware.tooling.toolingclient.ToolingClient
+import com.gradleware.tooling.toolingmodel.repository.FetchStrategy
+import com.gradleware.tooling.toolingmodel.repository.FixedRequestAttributes
+import com.gradleware.tooling.toolingmodel.repository.ModelRepository
+import com.gradleware.tooling.toolingmodel.repository.PreWarmEvent
+import com.gradleware.tooling.toolingmodel.repository.PreWarmPolicy
+import com.gradleware.tooling.toolingmodel.repository.TransientRequestAttributes
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class ModelRepositoryPreWarmerTest extends Specification {
+
+  def fixedRequestAttributes = new FixedRequestAttributes(new File('project'), null, GradleDistribution.fromBuild(), null, [], [])
+  def executor = Executors.newScheduledThreadPool(1)
+  def eventBus = new EventBus()
+  def events = Collections.synchronizedList([])
+
+  def setup() {
+    eventBus.register(new Object() {
+
+      @Subscribe
+      void onPreWarm(PreWarmEvent event) {
+        events << event
+      }
+    })
+  }
+
+  def cleanup() {
+    executor.shutdownNow()
+  }
+
+  def "pre-warming fetches the build environment with background priority and reports its progress"() {
+    setup:
+    def modelRepository = Mock(ModelRepository)
+    def fetched = new CountDownLatch(1)
+    TransientRequestAttributes attributes = null
+    modelRepository.fetchBuildEnvironment(_, FetchStrategy.LOAD_IF_NOT_CACHED) >> { TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy ->
+      attributes = transientRequestAttributes
+      fetched.countDown()
+      null
+    }
+    def preWarmer = new ModelRepositoryPreWarmer(fixedRequestAttributes, modelRepository, Mock(ToolingClient), eventBus, executor)
+
+    when:
+    preWarmer.start(PreWarmPolicy.preWarm())
+    fetched.await(5, TimeUnit.SECONDS)
+    waitForEvents(2)
+
+    then:
+    attributes.priority == RequestPriority.BACKGROUND
+    events*.state == [PreWarmEvent.State.STARTED, PreWarmEvent.State.SUCCEEDED]
+    events.every { !it.keepAlive && it.fixedRequestAttributes == fixedRequestAttributes }
+  }
+
+  def "disabled policy does not pre-warm"() {
+    setup:
+    def modelRepository = Mock(ModelRepository)
+    def preWarmer = new ModelRepositoryPreWarmer(fixedRequestAttributes, modelRepository, Mock(ToolingClient), eventBus, executor)
+
+    when:
+    preWarmer.start(PreWarmPolicy.none())
+    executor.submit({} as Runnable).get()
+
+    then:
+    0 * modelRepository._
+    events.empty
+  }
+
+  def "cancelling reports the cancellation and stops the keep-alive"() {
+    setup:
+    def modelRepository = Mock(ModelRepository)
+    def blocked = new CountDownLatch(1)
+    def release = new CountDownLatch(1)
+    modelRepository.fetchBuildEnvironment(_, _) >> { TransientRequestAttributes transientRequestAttributes, FetchStrategy fetchStrategy ->
+      blocked.countDown()
+      release.await(5, TimeUnit.SECONDS)
+      assert transientRequestAttributes.cancellationToken.cancellationRequested
+      throw new IllegalStateException('cancelled')
+    }
+    def toolingClient = Mock(ToolingClient)
+    def preWarmer = new ModelRepositoryPreWarmer(fixedRequestAttributes, modelRepository, toolingClient, eventBus, executor)
+
+    when:
+    preWarmer.start(PreWarmPolicy.preWarmWithKeepAlive(10, TimeUnit.MILLISECONDS))
+    blocked.await(5, TimeUnit.SECONDS)
+    preWarmer.cancel()
+    release.countDown()
+    waitForEvents(2)
+    Thread.sleep(50)
+
+    then:
+    events*.state == [PreWarmEvent.State.STARTED, PreWarmEvent.State.CANCELLED]
+    0 * toolingClient._
+  }
+
+  private void waitForEvents(int count) {
+    long deadline = System.currentTimeMillis() + 5000
+    while (events.size() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10)
+    }
+  }
+
+}
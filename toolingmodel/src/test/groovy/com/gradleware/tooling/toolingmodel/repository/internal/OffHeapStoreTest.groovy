@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import spock.lang.Specification
+
+class OffHeapStoreTest extends Specification {
+
+  def "blocks are rejected once the budget is exhausted and released blocks are accounted for"() {
+    setup:
+    def store = new OffHeapStore(64, 32)
+
+    when:
+    def first = store.store(new byte[20])
+    def second = store.store(new byte[20])
+    def third = store.store(new byte[20])
+
+    then:
+    first.present && second.present
+    !third.present
+    store.reservedBytes == 64
+    store.usedBytes == 40
+    store.rejectedBytes == 20
+
+    when:
+    first.get().release()
+    first.get().release()
+
+    then:
+    store.releasedBytes == 20
+    store.usedBytes == 20
+    store.reservedBytes == 32
+
+    when:
+    def fourth = store.store(new byte[20])
+
+    then:
+    fourth.present
+    store.reservedBytes == 64
+    store.usedBytes == 40
+  }
+
+  def "content of a block is read back unchanged"() {
+    setup:
+    def store = new OffHeapStore(1024)
+    def bytes = [1, 2, 3, 4] as byte[]
+
+    when:
+    def block = store.store(bytes).get()
+    def content = block.content
+    def read = new byte[block.size()]
+    content.get(read)
+
+    then:
+    read == bytes
+    content.readOnly
+  }
+
+  def "strings are decoded unchanged from a string table that has been moved off the heap"() {
+    setup:
+    def store = new OffHeapStore(1024)
+    def strings = StringTable.builder()
+    def ids = ['foo', '', 'füö', 'foo'].collect { strings.add(it) }
+    def table = strings.build()
+
+    when:
+    def moved = table.moveOffHeap(store).get()
+
+    then:
+    moved.offHeapBlock.present
+    !table.offHeapBlock.present
+    moved.size() == table.size()
+    ids.collect { moved.get(it) } == ['foo', '', 'füö', 'foo']
+    moved.get(StringTable.NULL_ID) == null
+    store.usedBytes == moved.offHeapBlock.get().size()
+  }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.base.Optional
+import com.google.common.collect.ImmutableSortedSet
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocationsContainer
+import com.gradleware.tooling.toolingmodel.OmniEclipseGradleBuild
+import com.gradleware.tooling.toolingmodel.OmniGradleModuleVersion
+import com.gradleware.tooling.toolingmodel.Path
+import com.gradleware.tooling.toolingmodel.util.Maybe
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class OffHeapTierTest extends Specification {
+
+  def "task lists are read back unchanged once they have been moved off the heap"() {
+    setup:
+    def tier = new OffHeapTier(new OffHeapStore(1024 * 1024), 1, TimeUnit.MINUTES)
+    def container = buildInvocationsContainer()
+
+    when:
+    def moved = tier.move(container).get()
+    def model = (OmniBuildInvocationsContainer) moved.model
+
+    then:
+    model.asMap().keySet() == container.asMap().keySet()
+    model.get(Path.from(':a')).get().projectTasks*.path == container.get(Path.from(':a')).get().projectTasks*.path
+    model.get(Path.from(':b')).get().projectTasks*.description == container.get(Path.from(':b')).get().projectTasks*.description
+    model.get(Path.from(':a')).get().taskSelectors*.selectedTaskPaths == container.get(Path.from(':a')).get().taskSelectors*.selectedTaskPaths
+    tier.store.usedBytes > 0
+
+    when:
+    moved.release()
+
+    then:
+    tier.store.usedBytes == 0
+    model.get(Path.from(':b')).get().projectTasks*.name == ['build']
+
+    expect:
+    !tier.move(model).present
+  }
+
+  def "nothing is moved if the sections do not fit into the budget"() {
+    setup:
+    def tier = new OffHeapTier(new OffHeapStore(16, 16), 1, TimeUnit.MINUTES)
+
+    expect:
+    !tier.move(buildInvocationsContainer()).present
+    tier.store.usedBytes == 0
+    tier.store.rejectedBytes > 0
+  }
+
+  def "external dependencies are read back unchanged once they have been moved off the heap"() {
+    setup:
+    def tier = new OffHeapTier(new OffHeapStore(1024 * 1024), 1, TimeUnit.MINUTES)
+    def guava = DefaultOmniExternalDependency.from(new File('/repo/guava.jar'), new File('/repo/guava-sources.jar'), null,
+        Maybe.of((OmniGradleModuleVersion) DefaultOmniGradleModuleVersion.from('com.google.guava', 'guava', '15.0')), true)
+    def local = DefaultOmniExternalDependency.from(new File('/libs/local.jar'), null, null, Maybe.<OmniGradleModuleVersion> absent(), false)
+    def unknown = DefaultOmniExternalDependency.from(new File('/libs/unknown.jar'), null, new File('/libs/unknown-javadoc.jar'), Maybe.<OmniGradleModuleVersion> of(null), true)
+    def root = eclipseProject(':', [guava, local])
+    root.addChild(eclipseProject(':sub', [guava, unknown]))
+    def build = DefaultOmniEclipseGradleBuild.from(root.build(), gradleProject())
+
+    when:
+    def moved = tier.move(build).get()
+    def model = (OmniEclipseGradleBuild) moved.model
+    def rootDependencies = model.rootEclipseProject.externalDependencies
+    def subDependencies = model.rootEclipseProject.children[0].externalDependencies
+
+    then:
+    rootDependencies*.file == [guava.file, local.file]
+    rootDependencies*.source == [guava.source, null]
+    rootDependencies*.javadoc == [null, null]
+    rootDependencies*.exported == [true, false]
+    rootDependencies[0].gradleModuleVersion.get().group == 'com.google.guava'
+    rootDependencies[0].gradleModuleVersion.get().name == 'guava'
+    rootDependencies[0].gradleModuleVersion.get().version == '15.0'
+    !rootDependencies[1].gradleModuleVersion.present
+    subDependencies*.file == [guava.file, unknown.file]
+    subDependencies[1].javadoc == unknown.javadoc
+    subDependencies[1].gradleModuleVersion.present && subDependencies[1].gradleModuleVersion.get() == null
+    model.rootProject.is(build.rootProject)
+
+    expect:
+    !tier.move(model).present
+  }
+
+  private static OmniBuildInvocationsContainer buildInvocationsContainer() {
+    def strings = StringTable.builder()
+    def a = new DefaultOmniBuildInvocations.Builder([task(':a:build', 'Assembles and tests.')], [selector(':a', 'build', [':a:build'])], strings)
+    def b = new DefaultOmniBuildInvocations.Builder([task(':b:build', null)], [], strings)
+    def table = strings.build()
+    def sorted = new TreeMap(Path.Comparator.INSTANCE)
+    sorted.put(Path.from(':a'), a.build(table))
+    sorted.put(Path.from(':b'), b.build(table))
+    DefaultOmniBuildInvocationsContainer.from(sorted)
+  }
+
+  private static DefaultOmniProjectTask task(String path, String description) {
+    def builder = new DefaultOmniProjectTask.Builder()
+    builder.setName(path.substring(path.lastIndexOf(':') + 1))
+    builder.setDescription(description)
+    builder.setPath(Path.from(path))
+    builder.setPublic(true)
+    builder.setGroup(Maybe.of('build'))
+    builder.build()
+  }
+
+  private static DefaultOmniTaskSelector selector(String projectPath, String name, List<String> selectedTaskPaths) {
+    def paths = ImmutableSortedSet.orderedBy(Path.Comparator.INSTANCE).addAll(selectedTaskPaths.collect { Path.from(it) }).build()
+    DefaultOmniTaskSelector.from(name, null, Path.from(projectPath), true, paths)
+  }
+
+  private static DefaultOmniEclipseProject.Builder eclipseProject(String path, List externalDependencies) {
+    def builder = new DefaultOmniEclipseProject.Builder({ a, b -> a.path.path <=> b.path.path } as Comparator)
+    builder.setName(path)
+    builder.setPath(Path.from(path))
+    builder.setProjectDirectory(new File('/project'))
+    builder.setProjectDependencies([])
+    builder.setExternalDependencies(externalDependencies)
+    builder.setLinkedResources([])
+    builder.setSourceDirectories([])
+    builder.setProjectNatures(Optional.absent())
+    builder.setBuildCommands(Optional.absent())
+    builder.setJavaSourceSettings(Maybe.absent())
+    builder
+  }
+
+  private static DefaultOmniGradleProject gradleProject() {
+    def builder = new DefaultOmniGradleProject.Builder({ a, b -> a.path.path <=> b.path.path } as Comparator)
+    builder.setName('root')
+    builder.setPath(Path.from(':'))
+    builder.setProjectDirectory(Maybe.absent())
+    builder.setBuildDirectory(Maybe.absent())
+    builder.setBuildScript(Maybe.absent())
+    builder.setBuildInvocations(DefaultOmniBuildInvocations.from([], []))
+    builder.build()
+  }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import com.google.common.base.Optional
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocations
+import com.gradleware.tooling.toolingmodel.OmniEclipseProjectDependency
+import com.gradleware.tooling.toolingmodel.OmniGradleModuleVersion
+import com.gradleware.tooling.toolingmodel.Path
+import com.gradleware.tooling.toolingmodel.util.Maybe
+import spock.lang.Specification
+
+class ProjectModelViewsTest extends Specification {
+
+  def "contains - project and its child projects"() {
+    setup:
+    def views = ProjectModelViews.rootedAt(Path.from(':sub'))
+
+    expect:
+    !views.isRootedAtRootProject()
+    views.contains(Path.from(':sub'))
+    views.contains(Path.from(':sub:child'))
+    !views.contains(Path.from(':'))
+    !views.contains(Path.from(':subOther'))
+    !views.contains(Path.from(':other:sub'))
+  }
+
+  def "contains - root project contains all projects"() {
+    setup:
+    def views = ProjectModelViews.rootedAt(Path.from(':'))
+
+    expect:
+    views.isRootedAtRootProject()
+    views.contains(Path.from(':'))
+    views.contains(Path.from(':sub'))
+  }
+
+  def "view - build invocations are limited to the project and its child projects"() {
+    setup:
+    def rootInvocations = Mock(OmniBuildInvocations)
+    def subInvocations = Mock(OmniBuildInvocations)
+    def subChildInvocations = Mock(OmniBuildInvocations)
+    def otherInvocations = Mock(OmniBuildInvocations)
+    def invocations = new TreeMap<Path, OmniBuildInvocations>(Path.Comparator.INSTANCE)
+    invocations.put(Path.from(':'), rootInvocations)
+    invocations.put(Path.from(':sub'), subInvocations)
+    invocations.put(Path.from(':sub:child'), subChildInvocations)
+    invocations.put(Path.from(':other'), otherInvocations)
+    def container = DefaultOmniBuildInvocationsContainer.from(invocations)
+
+    when:
+    def view = ProjectModelViews.rootedAt(Path.from(':sub')).view(container)
+
+    then:
+    view.asMap().keySet() == [Path.from(':sub'), Path.from(':sub:child')] as Set
+    view.get(Path.from(':sub')).get() == subInvocations
+    !view.get(Path.from(':other')).isPresent()
+
+    when:
+    def rootView = ProjectModelViews.rootedAt(Path.from(':')).view(container)
+
+    then:
+    rootView == container
+  }
+
+  def "view - project dependency graph of an Eclipse build spans the complete build and is shared with it"() {
+    setup:
+    def eclipseRoot = eclipseProject(':', [], [])
+    eclipseRoot.addChild(eclipseProject(':app', [new TestProjectDependency(Path.from(':lib'), false)], []))
+    eclipseRoot.addChild(eclipseProject(':lib', [], []))
+    def gradleRoot = gradleProject(':')
+    gradleRoot.addChild(gradleProject(':app'))
+    gradleRoot.addChild(gradleProject(':lib'))
+    def build = DefaultOmniEclipseGradleBuild.from(eclipseRoot.build(), gradleRoot.build())
+    def views = ProjectModelViews.rootedAt(Path.from(':app'))
+
+    when:
+    def view = views.view(build)
+
+    then:
+    view.rootEclipseProject.path == Path.from(':app')
+    view.rootProject.path == Path.from(':app')
+    view.projectDependencyGraph.getDependents(Path.from(':lib'))*.path == [Path.from(':app')]
+    view.projectDependencyGraph.getDependencies(Path.from(':app'))*.path == [Path.from(':lib')]
+    view.projectDependencyGraph.is(build.projectDependencyGraph)
+    views.view(build).is(view)
+  }
+
+  def "view - effective classpaths of an Eclipse build include the dependencies exported by projects outside of the view"() {
+    setup:
+    def exported = DefaultOmniExternalDependency.from(new File('exported.jar'), null, null, Maybe.<OmniGradleModuleVersion> absent(), true)
+    def internal = DefaultOmniExternalDependency.from(new File('internal.jar'), null, null, Maybe.<OmniGradleModuleVersion> absent(), false)
+    def eclipseRoot = eclipseProject(':', [], [])
+    eclipseRoot.addChild(eclipseProject(':app', [new TestProjectDependency(Path.from(':lib'), false)], []))
+    eclipseRoot.addChild(eclipseProject(':lib', [], [exported, internal]))
+    def gradleRoot = gradleProject(':')
+    gradleRoot.addChild(gradleProject(':app'))
+    gradleRoot.addChild(gradleProject(':lib'))
+    def build = DefaultOmniEclipseGradleBuild.from(eclipseRoot.build(), gradleRoot.build())
+
+    when:
+    def view = ProjectModelViews.rootedAt(Path.from(':app')).view(build)
+    def classpath = view.getEffectiveClasspath(Path.from(':app'))
+
+    then:
+    classpath.projectDependencies*.targetProjectPath == [Path.from(':lib')]
+    classpath.externalDependencies*.file == [new File('exported.jar')]
+    classpath.is(build.getEffectiveClasspath(Path.from(':app')))
+    ProjectModelViews.rootedAt(Path.from(':app')).view(build).getEffectiveClasspath(Path.from(':app')).is(classpath)
+  }
+
+  private static DefaultOmniEclipseProject.Builder eclipseProject(String path, List projectDependencies, List externalDependencies) {
+    def builder = new DefaultOmniEclipseProject.Builder({ a, b -> a.path.path <=> b.path.path } as Comparator)
+    builder.setName(path)
+    builder.setPath(Path.from(path))
+    builder.setProjectDirectory(new File('project'))
+    builder.setProjectDependencies(projectDependencies)
+    builder.setExternalDependencies(externalDependencies)
+    builder.setLinkedResources([])
+    builder.setSourceDirectories([])
+    builder.setProjectNatures(Optional.absent())
+    builder.setBuildCommands(Optional.absent())
+    builder.setJavaSourceSettings(Maybe.absent())
+    builder
+  }
+
+  private static DefaultOmniGradleProject.Builder gradleProject(String path) {
+    def builder = new DefaultOmniGradleProject.Builder({ a, b -> a.path.path <=> b.path.path } as Comparator)
+    builder.setName(path)
+    builder.setPath(Path.from(path))
+    builder.setProjectDirectory(Maybe.absent())
+    builder.setBuildDirectory(Maybe.absent())
+    builder.setBuildScript(Maybe.absent())
+    builder.setBuildInvocations(DefaultOmniBuildInvocations.from([], []))
+    builder
+  }
+
+  private static final class TestProjectDependency implements OmniEclipseProjectDependency {
+
+    final Path targetProjectPath
+    final boolean exported
+
+    TestProjectDependency(Path targetProjectPath, boolean exported) {
+      this.targetProjectPath = targetProjectPath
+      this.exported = exported
+    }
+
+    Path getTargetProjectPath() { targetProjectPath }
+
+    String getPath() { targetProjectPath.path }
+
+    boolean isExported() { exported }
+
+  }
+
+}
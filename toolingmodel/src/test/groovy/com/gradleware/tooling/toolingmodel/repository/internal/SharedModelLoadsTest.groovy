@@ -0,0 +1,223 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.repository.internal
+
+import org.gradle.tooling.BuildCancelledException
+import org.gradle.tooling.CancellationToken
+import org.gradle.tooling.GradleConnector
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
+
+class SharedModelLoadsTest extends Specification {
+
+  def loads = new SharedModelLoads(Executors.newCachedThreadPool())
+  def waiters = Executors.newCachedThreadPool()
+
+  def cleanup() {
+    waiters.shutdownNow()
+  }
+
+  def "concurrent requests share a single load"() {
+    setup:
+    def release = new CountDownLatch(1)
+    def loadCount = new AtomicInteger()
+    def loader = new BlockingLoader(release, loadCount)
+
+    when:
+    def first = loads.join(String, false, loader)
+    def second = loads.join(String, false, loader)
+    def firstResult = waiters.submit({ first.await(newToken(), Long.MAX_VALUE, TimeUnit.MILLISECONDS) } as java.util.concurrent.Callable)
+    def secondResult = waiters.submit({ second.await(newToken(), Long.MAX_VALUE, TimeUnit.MILLISECONDS) } as java.util.concurrent.Callable)
+    release.countDown()
+
+    then:
+    first.initiator
+    !second.initiator
+    firstResult.get(5, TimeUnit.SECONDS) == 'model'
+    secondResult.get(5, TimeUnit.SECONDS) == 'model'
+    loadCount.get() == 1
+    !loads.isLoading(String)
+  }
+
+  def "a cancelled request stops waiting while the load continues for the remaining requests"() {
+    setup:
+    def release = new CountDownLatch(1)
+    def loader = new BlockingLoader(release, new AtomicInteger())
+    def cancelled = GradleConnector.newCancellationTokenSource()
+
+    when:
+    def first = loads.join(String, false, loader)
+    def second = loads.join(String, false, loader)
+    def secondResult = waiters.submit({ second.await(newToken(), Long.MAX_VALUE, TimeUnit.MILLISECONDS) } as java.util.concurrent.Callable)
+    cancelled.cancel()
+    first.await(cancelled.token(), Long.MAX_VALUE, TimeUnit.MILLISECONDS)
+
+    then:
+    thrown(BuildCancelledException)
+    loads.getWaiterCount(String) == 1
+    loader.started.await(5, TimeUnit.SECONDS)
+    !loader.loadToken.get().cancellationRequested
+
+    when:
+    release.countDown()
+
+    then:
+    secondResult.get(5, TimeUnit.SECONDS) == 'model'
+  }
+
+  def "the load is cancelled once all requests have timed out or have been cancelled"() {
+    setup:
+    def release = new CountDownLatch(1)
+    def loader = new BlockingLoader(release, new AtomicInteger())
+    def cancelled = GradleConnector.newCancellationTokenSource()
+
+    when:
+    def first = loads.join(String, false, loader)
+    def second = loads.join(String, false, loader)
+    def firstResult = waiters.submit({ first.await(newToken(), 50, TimeUnit.MILLISECONDS) } as java.util.concurrent.Callable)
+    cancelled.cancel()
+    try {
+      second.await(cancelled.token(), Long.MAX_VALUE, TimeUnit.MILLISECONDS)
+    } catch (BuildCancelledException expected) {
+    }
+    firstResult.get(5, TimeUnit.SECONDS)
+
+    then:
+    def e = thrown(java.util.concurrent.ExecutionException)
+    e.cause instanceof BuildCancelledException
+    loader.started.await(5, TimeUnit.SECONDS)
+    loader.loadToken.get().cancellationRequested
+    !loads.isLoading(String)
+
+    when:
+    def next = loads.join(String, false, loader)
+
+    then:
+    next.initiator
+
+    cleanup:
+    release.countDown()
+  }
+
+  def "a failed load fails all waiting requests"() {
+    setup:
+    def failure = new IllegalStateException('failed')
+    def loader = new SharedModelLoads.Loader<String>() {
+
+      @Override
+      String load(CancellationToken cancellationToken, long generation) {
+        throw failure
+      }
+    }
+
+    when:
+    loads.join(String, false, loader).await(newToken(), Long.MAX_VALUE, TimeUnit.MILLISECONDS)
+
+    then:
+    def e = thrown(IllegalStateException)
+    e == failure
+  }
+
+  def "concurrent reloads requested while a load is running share a single reload"() {
+    setup:
+    def release = new CountDownLatch(1)
+    def loadCount = new AtomicInteger()
+    def loader = new BlockingLoader(release, loadCount)
+
+    when:
+    def running = loads.join(String, false, loader)
+    loader.started.await(5, TimeUnit.SECONDS)
+    def reloads = (1..3).collect { loads.join(String, true, loader) }
+    def joining = loads.join(String, false, loader)
+    def results = (reloads + joining).collect { waiter -> waiters.submit({ waiter.await(newToken(), Long.MAX_VALUE, TimeUnit.MILLISECONDS) } as java.util.concurrent.Callable) }
+
+    then:
+    reloads[0].initiator
+    !reloads[1].initiator
+    !reloads[2].initiator
+    !joining.initiator
+    loads.getWaiterCount(String) == 5
+
+    when:
+    release.countDown()
+    def result = running.await(newToken(), Long.MAX_VALUE, TimeUnit.MILLISECONDS)
+
+    then:
+    result == 'model'
+    results.every { it.get(5, TimeUnit.SECONDS) == 'model' }
+    loadCount.get() == 2
+    loader.generations == [1L, 2L]
+    !loads.isLoading(String)
+  }
+
+  def "abandoning the running load begins the pending reload"() {
+    setup:
+    def release = new CountDownLatch(1)
+    def loader = new BlockingLoader(release, new AtomicInteger())
+    def cancelled = GradleConnector.newCancellationTokenSource()
+
+    when:
+    def running = loads.join(String, false, loader)
+    def reload = loads.join(String, true, loader)
+    cancelled.cancel()
+    try {
+      running.await(cancelled.token(), Long.MAX_VALUE, TimeUnit.MILLISECONDS)
+    } catch (BuildCancelledException expected) {
+    }
+    release.countDown()
+
+    then:
+    reload.await(newToken(), 5, TimeUnit.SECONDS) == 'model'
+    loader.generations.contains(2L)
+  }
+
+  private static CancellationToken newToken() {
+    GradleConnector.newCancellationTokenSource().token()
+  }
+
+  private static final class BlockingLoader implements SharedModelLoads.Loader<String> {
+
+    private final CountDownLatch release
+    private final AtomicInteger loadCount
+    private final AtomicReference<CancellationToken> loadToken = new AtomicReference<CancellationToken>()
+    private final CountDownLatch started = new CountDownLatch(1)
+    private final List<Long> generations = [].asSynchronized()
+
+    private BlockingLoader(CountDownLatch release, AtomicInteger loadCount) {
+      this.release = release
+      this.loadCount = loadCount
+    }
+
+    @Override
+    String load(CancellationToken cancellationToken, long generation) {
+      generations << generation
+      loadToken.set(cancellationToken)
+      loadCount.incrementAndGet()
+      started.countDown()
+      release.await()
+      'model'
+    }
+
+  }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.search
+
+import com.gradleware.tooling.toolingmodel.OmniBuildInvocations
+import com.gradleware.tooling.toolingmodel.OmniProjectTask
+import com.gradleware.tooling.toolingmodel.OmniTaskSelector
+import com.gradleware.tooling.toolingmodel.Path
+import com.gradleware.tooling.toolingmodel.repository.BuildInvocationsUpdateEvent
+import com.gradleware.tooling.toolingmodel.repository.internal.DefaultOmniBuildInvocations
+import com.gradleware.tooling.toolingmodel.repository.internal.DefaultOmniBuildInvocationsContainer
+import com.gradleware.tooling.toolingmodel.repository.internal.DefaultOmniTaskSelector
+import com.gradleware.tooling.toolingmodel.util.Maybe
+import spock.lang.Specification
+
+class BuildInvocationsIndexTest extends Specification {
+
+  def "search - prefix and camel case abbreviation"() {
+    setup:
+    def index = BuildInvocationsIndex.from(container([
+        ':': project(':', ['compileJava', 'compileTestJava', 'clean', 'classes'], ['compileJava', 'compileTestJava', 'clean', 'classes'])]))
+
+    expect:
+    names(index.search('compileJava', 10)) == ['compileJava']
+    index.search('compileJava', 10)*.matchType == [BuildInvocationsMatch.MatchType.EXACT, BuildInvocationsMatch.MatchType.EXACT]
+    names(index.search('cl', 10)) == ['clean', 'classes']
+    names(index.search('cJ', 10)) == ['compileJava']
+    names(index.search('cTJ', 10)) == ['compileTestJava']
+    names(index.search('cT', 10)) == ['compileTestJava']
+    names(index.search('CJ', 10)) == ['compileJava']
+    names(index.search('xyz', 10)) == []
+  }
+
+  def "search - task selectors come before tasks and public entries before non-public entries"() {
+    setup:
+    def index = BuildInvocationsIndex.from(container([
+        ':': project(':', ['build'], ['build'], false),
+        ':sub': project(':sub', ['build'], [])]))
+
+    when:
+    def matches = index.search('build', 10)
+
+    then:
+    matches.size() == 3
+    matches[0].taskSelector.isPresent()
+    matches[1].task.get().path == Path.from(':sub:build')
+    matches[2].task.get().path == Path.from(':build')
+  }
+
+  def "search - a path query returns the exact task first, followed by the matches in the same project"() {
+    setup:
+    def index = BuildInvocationsIndex.from(container([
+        ':': project(':', ['compileJava'], []),
+        ':sub': project(':sub', ['compileJava', 'compileGroovy'], [])]))
+
+    when:
+    def matches = index.search(':sub:compileJava', 10)
+
+    then:
+    matches*.matchType == [BuildInvocationsMatch.MatchType.EXACT_PATH]
+    matches[0].projectPath == Path.from(':sub')
+
+    when:
+    matches = index.search(':sub:cG', 10)
+
+    then:
+    matches*.task*.get()*.path == [Path.from(':sub:compileGroovy')]
+  }
+
+  def "search - the number of results is limited"() {
+    setup:
+    def index = BuildInvocationsIndex.from(container([':': project(':', ['a1', 'a2', 'a3'], [])]))
+
+    expect:
+    index.search('a', 2).size() == 2
+    index.search('a', 0).isEmpty()
+  }
+
+  def "findTask"() {
+    setup:
+    def index = BuildInvocationsIndex.from(container([':sub': project(':sub', ['jar'], [])]))
+
+    expect:
+    index.findTask(Path.from(':sub:jar')).get().name == 'jar'
+    !index.findTask(Path.from(':jar')).isPresent()
+  }
+
+  def "update - only changed projects are re-indexed and names without entries are removed"() {
+    setup:
+    def root = project(':', ['clean'], [])
+    def index = BuildInvocationsIndex.from(container([':': root, ':sub': project(':sub', ['javadoc'], [])]))
+
+    expect:
+    index.nameCount == 2
+    index.taskCount == 2
+
+    when:
+    index.buildInvocationsUpdated(new BuildInvocationsUpdateEvent(container([':': root, ':other': project(':other', ['jar', 'clean'], [])])))
+
+    then:
+    index.nameCount == 2
+    index.taskCount == 3
+    index.search('javadoc', 10).isEmpty()
+    index.search('clean', 10)*.projectPath == [Path.from(':'), Path.from(':other')]
+    index.findTask(Path.from(':other:jar')).isPresent()
+    !index.findTask(Path.from(':sub:javadoc')).isPresent()
+  }
+
+  def "update - projects with equal tasks and task selectors from a reloaded container are not re-indexed"() {
+    setup:
+    def index = BuildInvocationsIndex.from(container([':': project(':', ['clean', 'jar'], ['build'])]))
+    def indexedTask = index.findTask(Path.from(':clean')).get()
+
+    when:
+    index.update(container([':': project(':', ['clean', 'jar'], ['build'])]))
+
+    then:
+    index.findTask(Path.from(':clean')).get().is(indexedTask)
+    index.taskCount == 2
+
+    when:
+    index.update(container([':': project(':', ['clean', 'jar'], ['build'], false)]))
+
+    then:
+    !index.findTask(Path.from(':clean')).get().is(indexedTask)
+    !index.findTask(Path.from(':clean')).get().public
+    index.search('b', 10)*.name == ['build']
+  }
+
+  private static List<String> names(List<BuildInvocationsMatch> matches) {
+    matches*.name.unique()
+  }
+
+  private static DefaultOmniBuildInvocationsContainer container(Map<String, OmniBuildInvocations> projects) {
+    def map = new TreeMap<Path, OmniBuildInvocations>()
+    projects.each { path, invocations -> map.put(Path.from(path), invocations) }
+    DefaultOmniBuildInvocationsContainer.from(map)
+  }
+
+  private OmniBuildInvocations project(String projectPath, List<String> taskNames, List<String> selectorNames, boolean isPublic = true) {
+    List<OmniProjectTask> tasks = taskNames.collect { String name ->
+      new TestTask(name, Path.from(projectPath == ':' ? ":$name" : "$projectPath:$name"), isPublic) as OmniProjectTask
+    }
+    List<OmniTaskSelector> selectors = selectorNames.collect { String name ->
+      DefaultOmniTaskSelector.from(name, null, Path.from(projectPath), true, new TreeSet<Path>()) as OmniTaskSelector
+    }
+    DefaultOmniBuildInvocations.from(tasks, selectors)
+  }
+
+  private static final class TestTask implements OmniProjectTask {
+
+    final String name
+    final Path path
+    final boolean isPublic
+
+    TestTask(String name, Path path, boolean isPublic) {
+      this.name = name
+      this.path = path
+      this.isPublic = isPublic
+    }
+
+    String getName() { name }
+
+    String getDescription() { null }
+
+    Path getPath() { path }
+
+    boolean isPublic() { isPublic }
+
+    Maybe<String> getGroup() { Maybe.absent() }
+
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.gradleware.tooling.toolingmodel.search
+
+import com.google.common.base.Optional
+import com.gradleware.tooling.junit.TestDirectoryProvider
+import com.gradleware.tooling.toolingmodel.OmniEclipseClasspath
+import com.gradleware.tooling.toolingmodel.OmniExternalDependency
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class ClassIndexServiceTest extends Specification {
+
+  @Rule
+  TestDirectoryProvider directoryProvider = new TestDirectoryProvider();
+
+  def "readClassNames - only classes of the base version are read from the central directory"() {
+    setup:
+    def jar = jar('lib.jar', ['META-INF/MANIFEST.MF', 'org/', 'org/Foo.class', 'org/Foo$Bar.class', 'org/package-info.class', 'module-info.class',
+                              'META-INF/versions/9/org/Foo.class', 'org/foo.properties'], 'a comment')
+
+    expect:
+    ZipCentralDirectory.readClassNames(jar) == ['org.Foo', 'org.Foo$Bar']
+  }
+
+  def "readClassNames - zip64 central directory"() {
+    setup:
+    def jar = jar('large.jar', (0..<70000).collect { "org/C${it}.class" as String }, null)
+
+    when:
+    def classNames = ZipCentralDirectory.readClassNames(jar)
+
+    then:
+    classNames.size() == 70000
+    classNames[69999] == 'org.C69999'
+  }
+
+  def "readClassNames - not a zip file"() {
+    setup:
+    def file = directoryProvider.createFile('broken.jar')
+    file.text = 'not a zip file'
+
+    when:
+    ZipCentralDirectory.readClassNames(file)
+
+    then:
+    thrown(IOException)
+  }
+
+  def "index - lookup and conflicts"() {
+    setup:
+    def first = jar('first.jar', ['org/A.class', 'org/B.class', 'org/C.class'], null)
+    def second = jar('second.jar', ['org/B.class', 'org/C.class', 'org/D.class'], null)
+    def third = jar('third.jar', ['org/C.class'], null)
+    def missing = directoryProvider.file('missing.jar')
+
+    when:
+    def index = new ClassIndexService(Optional.absent(), 2).index([first, second, third, missing])
+
+    then:
+    index.classCount == 4
+    index.findJars('org.A') == [first]
+    index.findJars('org.C') == [first, second, third]
+    index.findJars('org.E').isEmpty()
+    index.conflicts.collect { [it.jars, it.classNames] } == [[[first, second], ['org.B']], [[first, second, third], ['org.C']]]
+
+    when:
+    def conflicts = index.getConflicts(classpath([second, third]))
+
+    then:
+    conflicts.collect { [it.jars, it.classNames] } == [[[second, third], ['org.C']]]
+  }
+
+  def "index - class names are persisted and reused while size and modification time are unchanged"() {
+    setup:
+    def cacheFile = directoryProvider.file('cache', 'classes.bin')
+    def jar = jar('lib.jar', ['org/A.class', 'org/AB.class', 'org/B.class'], null)
+    def lastModified = jar.lastModified()
+
+    when:
+    def index = new ClassIndexService(cacheFile).index([jar])
+
+    then:
+    cacheFile.isFile()
+    index.findJars('org.AB') == [jar]
+
+    when:
+    // same size and modification time, but no longer a valid jar
+    jar.bytes = new byte[jar.length()]
+    jar.setLastModified(lastModified)
+    index = new ClassIndexService(cacheFile).index([jar])
+
+    then:
+    index.classCount == 3
+    index.findJars('org.AB') == [jar]
+
+    when:
+    jar.setLastModified(lastModified + 10000)
+    index = new ClassIndexService(cacheFile).index([jar])
+
+    then:
+    index.classCount == 0
+  }
+
+  private File jar(String name, List<String> entries, String comment) {
+    def file = directoryProvider.file(name)
+    def output = new ZipOutputStream(new FileOutputStream(file))
+    try {
+      entries.each { output.putNextEntry(new ZipEntry(it)); output.closeEntry() }
+      if (comment) {
+        output.setComment(comment)
+      }
+    } finally {
+      output.close()
+    }
+    file
+  }
+
+  private OmniEclipseClasspath classpath(List<File> jars) {
+    List<OmniExternalDependency> dependencies = jars.collect { File jar ->
+      OmniExternalDependency dependency = Stub(OmniExternalDependency)
+      dependency.getFile() >> jar
+      dependency
+    }
+    OmniEclipseClasspath classpath = Stub(OmniEclipseClasspath)
+    classpath.getExternalDependencies() >> dependencies
+    classpath
+  }
+
+}